@@ -5,10 +5,21 @@ import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.util.function.Supplier;
+
 @Component
 public class JwtTokenProvider {
 
+    // Token de la petición original en hilos que trabajan para ella (las
+    // recargas de CacheConRecarga); la petición no se toca fuera de su hilo
+    private static final ThreadLocal<String> TOKEN_PROPAGADO = new ThreadLocal<>();
+
     public String getCurrentJwtToken() {
+        String propagado = TOKEN_PROPAGADO.get();
+        if (propagado != null) {
+            return propagado;
+        }
+
         ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
 
         if (attributes != null) {
@@ -20,4 +31,24 @@ public class JwtTokenProvider {
         }
         return null;
     }
+
+    /**
+     * Ejecuta la tarea viendo {@code token} como el JWT actual y deja el hilo
+     * como estaba.
+     */
+    public <T> T conToken(String token, Supplier<T> tarea) {
+        String previo = TOKEN_PROPAGADO.get();
+        if (token != null) {
+            TOKEN_PROPAGADO.set(token);
+        }
+        try {
+            return tarea.get();
+        } finally {
+            if (previo != null) {
+                TOKEN_PROPAGADO.set(previo);
+            } else {
+                TOKEN_PROPAGADO.remove();
+            }
+        }
+    }
 }
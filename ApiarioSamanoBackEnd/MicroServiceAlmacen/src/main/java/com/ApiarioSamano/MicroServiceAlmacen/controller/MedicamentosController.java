@@ -37,6 +37,17 @@ public class MedicamentosController {
         return new CodigoResponse<>(200, "Medicamento obtenido correctamente", medicamento);
     }
 
+    // ========================
+    // 📌 OBTENER VARIOS POR ID
+    // ========================
+    // GET /api/medicamentos/por-ids?ids=1,2,3 — los ids repetidos se ignoran y
+    // los que no existen simplemente no vienen en la lista
+    @GetMapping("/por-ids")
+    public CodigoResponse<List<MedicamentosResponse>> obtenerPorIds(@RequestParam List<Long> ids) {
+        List<MedicamentosResponse> lista = medicamentosService.obtenerPorIds(ids);
+        return new CodigoResponse<>(200, "Medicamentos obtenidos correctamente", lista);
+    }
+
     // ========================
     // 📌 OBTENER TODOS
     // ========================
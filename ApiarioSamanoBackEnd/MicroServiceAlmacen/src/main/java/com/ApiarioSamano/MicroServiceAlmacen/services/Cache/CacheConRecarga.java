@@ -0,0 +1,413 @@
+package com.ApiarioSamano.MicroServiceAlmacen.services.Cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache acotada para las respuestas de otros microservicios, compartida por
+ * los proxies.
+ *
+ * - Guarda como máximo {@code maxEntradas}; al pasarse desaloja la menos
+ *   usada (LRU).
+ * - Una sola carga por clave: quien llega mientras otro carga espera ese
+ *   resultado en vez de repetir la llamada.
+ * - Pasado {@code refrescoMs} el valor se sigue sirviendo y se recarga en
+ *   segundo plano; sólo después de {@code ttlMs} hay que esperar la carga.
+ * - Los valores negativos (null, o lo que diga {@code esNegativo}) se
+ *   guardan con su propio {@code ttlNegativoMs}, más corto y sin recarga.
+ * - Invalidar una clave descarta también su carga en curso: el resultado
+ *   llega a quien ya lo esperaba, pero no se guarda y la siguiente lectura
+ *   carga de nuevo.
+ *
+ * La recarga corre en otro hilo: el cargador debe llevar consigo lo que
+ * necesite de la petición (el JWT, por ejemplo).
+ */
+@Slf4j
+public class CacheConRecarga<K, V> {
+
+    private static final AtomicInteger HILOS = new AtomicInteger();
+
+    // Compartido por todas las caches; si está lleno la recarga se descarta y
+    // la intenta la siguiente petición que vea el valor viejo
+    private static final ThreadPoolExecutor RECARGAS = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(64), r -> {
+                Thread t = new Thread(r, "cache-recarga-" + HILOS.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+
+    static {
+        RECARGAS.allowCoreThreadTimeOut(true);
+    }
+
+    private final String nombre;
+    private final int maxEntradas;
+    private final long ttlMs;
+    private final long refrescoMs;
+    private final long ttlNegativoMs;
+    private final Predicate<V> esNegativo;
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<K, Entrada<V>> entradas;
+    private final Map<K, CompletableFuture<V>> enVuelo = new HashMap<>();
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong aciertosViejos = new AtomicLong();
+    private final AtomicLong aciertosNegativos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong cargas = new AtomicLong();
+    private final AtomicLong cargasFallidas = new AtomicLong();
+    private final AtomicLong nanosCarga = new AtomicLong();
+    private final AtomicLong desalojos = new AtomicLong();
+
+    public CacheConRecarga(String nombre, int maxEntradas, long ttlMs, long refrescoMs, long ttlNegativoMs) {
+        this(nombre, maxEntradas, ttlMs, refrescoMs, ttlNegativoMs, v -> v == null);
+    }
+
+    public CacheConRecarga(String nombre, int maxEntradas, long ttlMs, long refrescoMs, long ttlNegativoMs,
+            Predicate<V> esNegativo) {
+        this.nombre = nombre;
+        this.maxEntradas = Math.max(1, maxEntradas);
+        this.ttlMs = ttlMs;
+        this.refrescoMs = Math.min(refrescoMs, ttlMs);
+        this.ttlNegativoMs = ttlNegativoMs;
+        this.esNegativo = esNegativo;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> eldest) {
+                if (size() > CacheConRecarga.this.maxEntradas) {
+                    desalojos.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // ================================
+    // 🔍 LECTURA
+    // ================================
+    public V obtener(K clave, Supplier<V> cargador) {
+        CompletableFuture<V> propia = null;
+        CompletableFuture<V> espera;
+        long ahora = System.currentTimeMillis();
+
+        synchronized (lock) {
+            Entrada<V> e = entradas.get(clave);
+            switch (estado(e, ahora)) {
+                case FRESCA:
+                    contarAcierto(e);
+                    return e.valor;
+                case VIEJA:
+                    aciertosViejos.incrementAndGet();
+                    recargarEnSegundoPlano(clave, cargador);
+                    return e.valor;
+                default:
+                    break;
+            }
+            fallos.incrementAndGet();
+            espera = enVuelo.get(clave);
+            if (espera == null) {
+                propia = new CompletableFuture<>();
+                enVuelo.put(clave, propia);
+                espera = propia;
+            }
+        }
+
+        if (propia != null) {
+            return cargar(clave, cargador, propia);
+        }
+        log.debug("⏳ [CACHE-{}] Esperando la carga en curso de {}", nombre, clave);
+        return esperar(espera);
+    }
+
+    /**
+     * Versión por lotes: lo que falta se pide junto en una sola llamada a
+     * {@code cargador}, que devuelve sólo las claves que existen (las demás
+     * quedan como negativas). En el resultado sólo van los valores no nulos.
+     */
+    public Map<K, V> obtenerVarios(Collection<K> claves, Function<List<K>, Map<K, V>> cargador) {
+        Map<K, V> resultado = new HashMap<>();
+        Map<K, CompletableFuture<V>> propias = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> ajenas = new HashMap<>();
+        List<K> viejas = new ArrayList<>();
+        long ahora = System.currentTimeMillis();
+
+        Set<K> unicas = new LinkedHashSet<>(claves);
+        unicas.remove(null);
+        synchronized (lock) {
+            for (K clave : unicas) {
+                Entrada<V> e = entradas.get(clave);
+                switch (estado(e, ahora)) {
+                    case FRESCA:
+                        contarAcierto(e);
+                        poner(resultado, clave, e.valor);
+                        continue;
+                    case VIEJA:
+                        aciertosViejos.incrementAndGet();
+                        poner(resultado, clave, e.valor);
+                        if (!enVuelo.containsKey(clave)) {
+                            viejas.add(clave);
+                        }
+                        continue;
+                    default:
+                        break;
+                }
+                fallos.incrementAndGet();
+                CompletableFuture<V> f = enVuelo.get(clave);
+                if (f != null) {
+                    ajenas.put(clave, f);
+                } else {
+                    f = new CompletableFuture<>();
+                    enVuelo.put(clave, f);
+                    propias.put(clave, f);
+                }
+            }
+        }
+
+        if (!viejas.isEmpty()) {
+            recargarVariosEnSegundoPlano(viejas, cargador);
+        }
+        if (!propias.isEmpty()) {
+            cargarVarios(propias, cargador).forEach((clave, valor) -> poner(resultado, clave, valor));
+        }
+        ajenas.forEach((clave, f) -> poner(resultado, clave, esperar(f)));
+        return resultado;
+    }
+
+    // ================================
+    // 📥 CARGA
+    // ================================
+    private V cargar(K clave, Supplier<V> cargador, CompletableFuture<V> propia) {
+        long inicio = System.nanoTime();
+        try {
+            V valor = cargador.get();
+            registrarCarga(inicio);
+            synchronized (lock) {
+                guardar(clave, valor, propia);
+            }
+            propia.complete(valor);
+            return valor;
+        } catch (RuntimeException e) {
+            cargasFallidas.incrementAndGet();
+            synchronized (lock) {
+                enVuelo.remove(clave, propia);
+            }
+            propia.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Map<K, V> cargarVarios(Map<K, CompletableFuture<V>> propias, Function<List<K>, Map<K, V>> cargador) {
+        long inicio = System.nanoTime();
+        try {
+            Map<K, V> obtenidos = cargador.apply(new ArrayList<>(propias.keySet()));
+            registrarCarga(inicio);
+            Map<K, V> valores = new HashMap<>();
+            synchronized (lock) {
+                propias.forEach((clave, f) -> {
+                    V valor = obtenidos != null ? obtenidos.get(clave) : null;
+                    guardar(clave, valor, f);
+                    valores.put(clave, valor);
+                });
+            }
+            propias.forEach((clave, f) -> f.complete(valores.get(clave)));
+            return valores;
+        } catch (RuntimeException e) {
+            cargasFallidas.incrementAndGet();
+            synchronized (lock) {
+                propias.forEach(enVuelo::remove);
+            }
+            propias.values().forEach(f -> f.completeExceptionally(e));
+            throw e;
+        }
+    }
+
+    // Se llama con el lock tomado
+    private void recargarEnSegundoPlano(K clave, Supplier<V> cargador) {
+        if (enVuelo.containsKey(clave)) {
+            return;
+        }
+        CompletableFuture<V> propia = new CompletableFuture<>();
+        enVuelo.put(clave, propia);
+        try {
+            RECARGAS.execute(() -> {
+                try {
+                    cargar(clave, cargador, propia);
+                    log.debug("🔄 [CACHE-{}] {} recargada en segundo plano", nombre, clave);
+                } catch (RuntimeException e) {
+                    // Se sigue sirviendo el valor viejo hasta que venza
+                    log.warn("⚠️ [CACHE-{}] Falló la recarga de {}: {}", nombre, clave, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            enVuelo.remove(clave, propia);
+            propia.cancel(false);
+        }
+    }
+
+    private void recargarVariosEnSegundoPlano(List<K> claves, Function<List<K>, Map<K, V>> cargador) {
+        // Se encola con el lock tomado: nadie llega a esperar una recarga que
+        // el pool rechaza
+        synchronized (lock) {
+            Map<K, CompletableFuture<V>> propias = new LinkedHashMap<>();
+            for (K clave : claves) {
+                if (!enVuelo.containsKey(clave)) {
+                    CompletableFuture<V> f = new CompletableFuture<>();
+                    enVuelo.put(clave, f);
+                    propias.put(clave, f);
+                }
+            }
+            if (propias.isEmpty()) {
+                return;
+            }
+            try {
+                RECARGAS.execute(() -> {
+                    try {
+                        cargarVarios(propias, cargador);
+                        log.debug("🔄 [CACHE-{}] {} entradas recargadas en segundo plano", nombre, propias.size());
+                    } catch (RuntimeException e) {
+                        log.warn("⚠️ [CACHE-{}] Falló la recarga de {} entradas: {}", nombre, propias.size(),
+                                e.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                propias.forEach(enVuelo::remove);
+                propias.values().forEach(f -> f.cancel(false));
+            }
+        }
+    }
+
+    // Se llama con el lock tomado. La carga registrada en enVuelo hace de
+    // generación de la clave: si invalidar la quitó (o ya hay otra) el valor
+    // puede ser anterior al cambio y no se guarda
+    private void guardar(K clave, V valor, CompletableFuture<V> carga) {
+        if (enVuelo.remove(clave, carga)) {
+            entradas.put(clave, new Entrada<>(valor, System.currentTimeMillis(), esNegativo.test(valor)));
+        }
+    }
+
+    private V esperar(CompletableFuture<V> f) {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            Throwable causa = e.getCause();
+            throw causa instanceof RuntimeException r ? r : new RuntimeException(causa);
+        }
+    }
+
+    private void registrarCarga(long inicio) {
+        cargas.incrementAndGet();
+        nanosCarga.addAndGet(System.nanoTime() - inicio);
+    }
+
+    private Estado estado(Entrada<V> e, long ahora) {
+        if (e == null) {
+            return Estado.AUSENTE;
+        }
+        long edad = ahora - e.cargadaEn;
+        if (e.negativa) {
+            return edad < ttlNegativoMs ? Estado.FRESCA : Estado.AUSENTE;
+        }
+        if (edad < refrescoMs) {
+            return Estado.FRESCA;
+        }
+        return edad < ttlMs ? Estado.VIEJA : Estado.AUSENTE;
+    }
+
+    private void contarAcierto(Entrada<V> e) {
+        if (e.negativa) {
+            aciertosNegativos.incrementAndGet();
+        } else {
+            aciertos.incrementAndGet();
+        }
+    }
+
+    private static <K, V> void poner(Map<K, V> destino, K clave, V valor) {
+        if (valor != null) {
+            destino.put(clave, valor);
+        }
+    }
+
+    // ================================
+    // 🧹 GESTIÓN
+    // ================================
+    public void invalidar(K clave) {
+        synchronized (lock) {
+            entradas.remove(clave);
+            enVuelo.remove(clave);
+        }
+    }
+
+    public void invalidarTodo() {
+        synchronized (lock) {
+            entradas.clear();
+            enVuelo.clear();
+        }
+    }
+
+    public int tamaño() {
+        synchronized (lock) {
+            return entradas.size();
+        }
+    }
+
+    public Map<String, Object> estadisticas() {
+        long a = aciertos.get();
+        long v = aciertosViejos.get();
+        long n = aciertosNegativos.get();
+        long f = fallos.get();
+        long c = cargas.get();
+        long total = a + v + n + f;
+
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("cache", nombre);
+        datos.put("entradas", tamaño());
+        datos.put("maxEntradas", maxEntradas);
+        datos.put("aciertos", a);
+        datos.put("aciertosViejos", v);
+        datos.put("aciertosNegativos", n);
+        datos.put("fallos", f);
+        datos.put("tasaAciertos", total == 0 ? 0.0 : (double) (a + v + n) / total);
+        datos.put("cargas", c);
+        datos.put("cargasFallidas", cargasFallidas.get());
+        datos.put("cargaPromedioMs", c == 0 ? 0.0 : nanosCarga.get() / 1_000_000.0 / c);
+        datos.put("desalojos", desalojos.get());
+        return datos;
+    }
+
+    private enum Estado {
+        FRESCA, VIEJA, AUSENTE
+    }
+
+    private static final class Entrada<V> {
+        private final V valor;
+        private final long cargadaEn;
+        private final boolean negativa;
+
+        private Entrada(V valor, long cargadaEn, boolean negativa) {
+            this.valor = valor;
+            this.cargadaEn = cargadaEn;
+            this.negativa = negativa;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.ApiarioSamano.MicroServiceAlmacen.services;
 
 import java.util.Base64;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
@@ -176,6 +178,24 @@ public class MedicamentosService {
         return mapToResponse(medicamento);
     }
 
+    // 📌 Obtener varios medicamentos por ID en una sola consulta
+    public List<MedicamentosResponse> obtenerPorIds(List<Long> ids) {
+        Set<Long> unicos = new LinkedHashSet<>(ids);
+        unicos.remove(null);
+        log.info("🔍 Buscando {} medicamentos por ID", unicos.size());
+
+        List<MedicamentosResponse> lista = medicamentosRepository.findAllById(unicos)
+                .stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+
+        if (lista.size() < unicos.size()) {
+            log.warn("⚠️ {} de {} medicamentos no encontrados", unicos.size() - lista.size(), unicos.size());
+        }
+        log.info("✅ Se encontraron {} medicamentos", lista.size());
+        return lista;
+    }
+
     // 📌 Obtener todos los medicamentos (sin proveedor)
     public List<MedicamentosResponse> obtenerTodos() {
         log.info("📋 Obteniendo todos los medicamentos de la base de datos");
@@ -2,12 +2,14 @@ package com.ApiarioSamano.MicroServiceAlmacen.services.MicroServicesAPI.LotesCli
 
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
+import com.ApiarioSamano.MicroServiceAlmacen.config.JwtTokenProvider;
 import com.ApiarioSamano.MicroServiceAlmacen.dto.LotesClientMicroserviceDTO.LoteResponseDTO;
+import com.ApiarioSamano.MicroServiceAlmacen.services.Cache.CacheConRecarga;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
@@ -15,138 +17,80 @@ import java.util.concurrent.ConcurrentMap;
 public class LotesProxy implements ILotesService {
 
     private final LotesClient realService;
-    private final ConcurrentMap<String, Object> cache;
+    private final JwtTokenProvider jwtTokenProvider;
 
+    // 5 minutos de vida; desde el minuto 4 se sirve y se recarga en segundo plano
     private static final long CACHE_TTL = 5 * 60 * 1000;
-
-    public LotesProxy(LotesClient realService) {
+    private static final long CACHE_REFRESCO = 4 * 60 * 1000;
+    // Lote inexistente o lista vacía: se vuelve a preguntar pronto
+    private static final long CACHE_TTL_NEGATIVO = 30 * 1000;
+
+    private final CacheConRecarga<String, List<LoteResponseDTO>> cacheTodos = new CacheConRecarga<>(
+            "LOTES-TODOS", 1, CACHE_TTL, CACHE_REFRESCO, CACHE_TTL_NEGATIVO,
+            lotes -> lotes == null || lotes.isEmpty());
+    private final CacheConRecarga<Long, List<LoteResponseDTO>> cachePorAlmacen = new CacheConRecarga<>(
+            "LOTES-ALMACEN", 200, CACHE_TTL, CACHE_REFRESCO, CACHE_TTL_NEGATIVO,
+            lotes -> lotes == null || lotes.isEmpty());
+    private final CacheConRecarga<Long, LoteResponseDTO> cachePorId = new CacheConRecarga<>(
+            "LOTES", 1000, CACHE_TTL, CACHE_REFRESCO, CACHE_TTL_NEGATIVO);
+
+    public LotesProxy(LotesClient realService, JwtTokenProvider jwtTokenProvider) {
         this.realService = realService;
-        this.cache = new ConcurrentHashMap<>();
+        this.jwtTokenProvider = jwtTokenProvider;
     }
 
     @Override
     public List<LoteResponseDTO> obtenerTodosLotes() {
-        String cacheKey = "TODOS_LOTES";
-
-        CacheEntry cacheEntry = getFromCache(cacheKey);
-        if (cacheEntry != null && !isCacheExpired(cacheEntry)) {
-            log.info("✅ [CACHE] Retornando todos los lotes desde cache");
-            @SuppressWarnings("unchecked")
-            List<LoteResponseDTO> cachedLotes = (List<LoteResponseDTO>) cacheEntry.getData();
-            return cachedLotes;
-        }
-
-        log.info("🔍 [CACHE] Cache miss para todos los lotes, llamando al servicio real...");
-        List<LoteResponseDTO> lotes = realService.obtenerTodosLotes();
-
-        // Almacenar en cache
-        cache.put(cacheKey, new CacheEntry(lotes, System.currentTimeMillis()));
-        log.debug("💾 [CACHE] Todos los lotes almacenados en cache. Cantidad: {}", lotes.size());
-
-        return lotes;
+        log.debug("🔍 [CACHE] Consultando todos los lotes");
+        return cacheTodos.obtener("TODOS_LOTES", conToken(realService::obtenerTodosLotes));
     }
 
     @Override
     public List<LoteResponseDTO> obtenerLotesPorAlmacen(Long idAlmacen) {
-        String cacheKey = "LOTES_ALMACEN_" + idAlmacen;
-
-        CacheEntry cacheEntry = getFromCache(cacheKey);
-        if (cacheEntry != null && !isCacheExpired(cacheEntry)) {
-            log.info("✅ [CACHE] Retornando lotes del almacén {} desde cache", idAlmacen);
-            @SuppressWarnings("unchecked")
-            List<LoteResponseDTO> cachedLotes = (List<LoteResponseDTO>) cacheEntry.getData();
-            return cachedLotes;
-        }
-
-        log.info("🔍 [CACHE] Cache miss para lotes del almacén {}, llamando al servicio real...", idAlmacen);
-        List<LoteResponseDTO> lotes = realService.obtenerLotesPorAlmacen(idAlmacen);
-
-        // Almacenar en cache
-        cache.put(cacheKey, new CacheEntry(lotes, System.currentTimeMillis()));
-        log.debug("💾 [CACHE] Lotes del almacén {} almacenados en cache. Cantidad: {}", idAlmacen, lotes.size());
-
-        return lotes;
+        log.debug("🔍 [CACHE] Consultando lotes del almacén {}", idAlmacen);
+        return cachePorAlmacen.obtener(idAlmacen, conToken(() -> realService.obtenerLotesPorAlmacen(idAlmacen)));
     }
 
     @Override
     public LoteResponseDTO obtenerLotePorId(Long idLote) {
-        String cacheKey = "LOTE_ID_" + idLote;
-
-        CacheEntry cacheEntry = getFromCache(cacheKey);
-        if (cacheEntry != null && !isCacheExpired(cacheEntry)) {
-            log.info("✅ [CACHE] Retornando lote ID {} desde cache", idLote);
-            return (LoteResponseDTO) cacheEntry.getData();
-        }
-
-        log.info("🔍 [CACHE] Cache miss para lote ID {}, llamando al servicio real...", idLote);
-        LoteResponseDTO lote = realService.obtenerLotePorId(idLote);
-
-        // Almacenar en cache
-        cache.put(cacheKey, new CacheEntry(lote, System.currentTimeMillis()));
-        log.debug("💾 [CACHE] Lote ID {} almacenado en cache", idLote);
-
-        return lote;
-    }
-
-    private static class CacheEntry {
-        private final Object data;
-        private final long timestamp;
-
-        public CacheEntry(Object data, long timestamp) {
-            this.data = data;
-            this.timestamp = timestamp;
-        }
-
-        public Object getData() {
-            return data;
-        }
-
-        public long getTimestamp() {
-            return timestamp;
-        }
-    }
-
-    private CacheEntry getFromCache(String key) {
-        return (CacheEntry) cache.get(key);
+        log.debug("🔍 [CACHE] Consultando lote ID {}", idLote);
+        return cachePorId.obtener(idLote, conToken(() -> realService.obtenerLotePorId(idLote)));
     }
 
-    private boolean isCacheExpired(CacheEntry entry) {
-        return (System.currentTimeMillis() - entry.getTimestamp()) > CACHE_TTL;
+    // La recarga en segundo plano no ve la petición: se lleva el JWT de quien
+    // la dispara
+    private <T> Supplier<T> conToken(Supplier<T> llamada) {
+        String token = jwtTokenProvider.getCurrentJwtToken();
+        return () -> jwtTokenProvider.conToken(token, llamada);
     }
 
     public void limpiarCacheCompleto() {
-        cache.clear();
+        cacheTodos.invalidarTodo();
+        cachePorAlmacen.invalidarTodo();
+        cachePorId.invalidarTodo();
         log.info("🗑️ [CACHE] Cache de lotes limpiado completamente");
     }
 
     public void limpiarCachePorAlmacen(Long idAlmacen) {
-        String key = "LOTES_ALMACEN_" + idAlmacen;
-        cache.remove(key);
+        cachePorAlmacen.invalidar(idAlmacen);
         log.info("🗑️ [CACHE] Cache limpiado para almacén {}", idAlmacen);
     }
 
     public void limpiarCacheLoteEspecifico(Long idLote) {
-        String key = "LOTE_ID_" + idLote;
-        cache.remove(key);
+        cachePorId.invalidar(idLote);
         log.info("🗑️ [CACHE] Cache limpiado para lote {}", idLote);
     }
 
     public void limpiarCacheTodosLotes() {
-        cache.remove("TODOS_LOTES");
+        cacheTodos.invalidarTodo();
         log.info("🗑️ [CACHE] Cache limpiado para todos los lotes");
     }
 
     public int obtenerTamañoCache() {
-        return cache.size();
+        return cacheTodos.tamaño() + cachePorAlmacen.tamaño() + cachePorId.tamaño();
     }
 
-    public void limpiarCacheExpirado() {
-        int initialSize = cache.size();
-        cache.entrySet().removeIf(entry -> {
-            CacheEntry cacheEntry = (CacheEntry) entry.getValue();
-            return isCacheExpired(cacheEntry);
-        });
-        int finalSize = cache.size();
-        log.info("🧹 [CACHE] Cache expirado limpiado: {} entradas removidas", (initialSize - finalSize));
+    public List<Map<String, Object>> obtenerEstadisticasCache() {
+        return List.of(cacheTodos.estadisticas(), cachePorAlmacen.estadisticas(), cachePorId.estadisticas());
     }
-}
\ No newline at end of file
+}
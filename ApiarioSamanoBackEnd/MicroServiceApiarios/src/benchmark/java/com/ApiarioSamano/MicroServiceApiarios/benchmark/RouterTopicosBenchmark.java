@@ -0,0 +1,125 @@
+package com.ApiarioSamano.MicroServiceApiarios.benchmark;
+
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Topicos.CoincidenciaTopico;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Topicos.RouterTopicos;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enrutado de 100k topics (un segundo de tráfico a 100k msgs/s) con la cadena
+ * de equals/contains + split que tenía MqttService contra el trie
+ * precompilado. Cada operación resuelve el manejador y el dispositivo.
+ *
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark.filtro=RouterTopicosBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterTopicosBenchmark {
+
+    private static final int MENSAJES = 100_000;
+
+    private static final int REGISTRO = 1;
+    private static final int ESTADO = 2;
+    private static final int HUMEDAD = 3;
+    private static final int ESTADO_SENSOR = 4;
+
+    @Param({ "1000" })
+    public int dispositivos;
+
+    private String[] topics;
+    private RouterTopicos<Integer> router;
+
+    @Setup
+    public void preparar() {
+        router = RouterTopicos.<Integer>builder()
+                .ruta("apiarios/dispositivos/registro", REGISTRO)
+                .ruta("apiarios/dispositivos/+/status", ESTADO)
+                .ruta("apiarios/dispositivos/+/humedad_suelo", HUMEDAD)
+                .ruta("apiarios/dispositivos/+/sensor_status", ESTADO_SENSOR)
+                .build();
+
+        // Mezcla parecida a la real: casi todo lecturas, algo de estado y
+        // los comandos que el propio servicio publica y vuelve a recibir
+        Random random = new Random(42);
+        topics = new String[MENSAJES];
+        for (int i = 0; i < MENSAJES; i++) {
+            String id = String.format("%06X", random.nextInt(dispositivos));
+            int tipo = random.nextInt(100);
+            if (tipo < 80) {
+                topics[i] = "apiarios/dispositivos/" + id + "/humedad_suelo";
+            } else if (tipo < 88) {
+                topics[i] = "apiarios/dispositivos/" + id + "/status";
+            } else if (tipo < 95) {
+                topics[i] = "apiarios/dispositivos/" + id + "/sensor_status";
+            } else if (tipo < 99) {
+                topics[i] = "apiarios/dispositivos/" + id + "/comandos/ventilador";
+            } else {
+                topics[i] = "apiarios/dispositivos/registro";
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MENSAJES)
+    public void legado(Blackhole bh) {
+        for (String topic : topics) {
+            if (topic.equals("apiarios/dispositivos/registro")) {
+                bh.consume(REGISTRO);
+            } else if (topic.contains("/dispositivos/") && topic.contains("/status")) {
+                bh.consume(ESTADO);
+                bh.consume(extraerDispositivoId(topic));
+            } else if (topic.contains("/dispositivos/") && topic.contains("/humedad_suelo")) {
+                bh.consume(HUMEDAD);
+                bh.consume(extraerDispositivoId(topic));
+            } else if (topic.contains("/dispositivos/") && topic.contains("/sensor_status")) {
+                bh.consume(ESTADO_SENSOR);
+                bh.consume(extraerDispositivoId(topic));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MENSAJES)
+    public void trie(Blackhole bh) {
+        for (String topic : topics) {
+            CoincidenciaTopico<Integer> c = router.buscar(topic);
+            if (c == null) {
+                continue;
+            }
+            bh.consume(c.getDestino());
+            if (c.getComodines() > 0) {
+                bh.consume(c.comodin(0));
+            }
+        }
+    }
+
+    // Copia de la versión anterior de MqttService
+    private static String extraerDispositivoId(String topic) {
+        String[] partes = topic.split("/");
+        for (int i = 0; i < partes.length; i++) {
+            if (partes[i].equals("dispositivos") && i + 1 < partes.length) {
+                return partes[i + 1];
+            }
+        }
+        return "desconocido";
+    }
+}
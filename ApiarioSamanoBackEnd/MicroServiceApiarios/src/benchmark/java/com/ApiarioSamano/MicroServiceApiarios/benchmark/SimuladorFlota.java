@@ -0,0 +1,475 @@
+package com.ApiarioSamano.MicroServiceApiarios.benchmark;
+
+import com.ApiarioSamano.MicroServiceApiarios.config.SensorWebSocketHandler;
+import com.ApiarioSamano.MicroServiceApiarios.factory.DispositivoFactory;
+import com.ApiarioSamano.MicroServiceApiarios.mqtt.BrokerMqttEmbebido;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.MqttService;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Anomalias.DetectorAnomalias;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Anomalias.FeedAlertas;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Cluster.RelayCluster;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.DetectorDesconexion;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.RegistroDispositivos;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.RegistroSensores;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta.PipelineIngesta;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.SeriesTemporales.SerieTemporalService;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.BandaMuerta;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.PoliticaDesborde;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.ReanudacionSensores;
+
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Simulador de flota contra un nodo completo del microservicio (sin Spring):
+ * broker MQTT embebido, N ESP32 que se registran y publican humedad_suelo, y
+ * M sesiones WebSocket suscritas a todo.
+ *
+ * La carga sube por etapas (tasa inicial, x2, x2...) de simulador.segundos
+ * cada una. Por etapa se mide la latencia extremo a extremo (publicación MQTT
+ * hasta sendMessage en la sesión WebSocket) y cuántas lecturas llegaron al
+ * historial. Una etapa es sostenible si el historial recibió todas las
+ * lecturas y el p99 no supera simulador.p99-max-ms; se detiene en la primera
+ * que no lo es.
+ *
+ * El valor publicado es el instante de envío en microsegundos, así cada
+ * WebSocket calcula la latencia sin estado compartido con los publicadores.
+ * Los dispositivos comparten simulador.conexiones clientes MQTT (el topic
+ * lleva el id del dispositivo, para el backend da igual).
+ *
+ * mvn -P benchmark test-compile exec:exec@simulador -Dsimulador.dispositivos=1000 -Dsimulador.websockets=4
+ */
+public class SimuladorFlota {
+
+    private static final String SENSOR = "humedad_suelo";
+    private static final String MARCA_VALOR = "\"valor\":\"";
+    private static final long TICK_NS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final int dispositivos = Integer.getInteger("simulador.dispositivos", 1000);
+    private final int websockets = Integer.getInteger("simulador.websockets", 4);
+    private final int conexiones = Integer.getInteger("simulador.conexiones", 8);
+    private final int segundos = Integer.getInteger("simulador.segundos", 10);
+    private final int tasaInicial = Integer.getInteger("simulador.tasa-inicial", 1000);
+    private final int tasaMaxima = Integer.getInteger("simulador.tasa-maxima", 256_000);
+    private final long p99MaxMs = Long.getLong("simulador.p99-max-ms", 500);
+
+    private final long origenNs = System.nanoTime();
+    private final AtomicLong ingeridas = new AtomicLong();
+    private final List<SesionSimulada> sesiones = new ArrayList<>();
+
+    private BrokerMqttEmbebido broker;
+    private PipelineIngesta pipeline;
+    private DetectorDesconexion detector;
+    private SensorWebSocketHandler webSocket;
+    private MqttService mqtt;
+    private final List<MqttClient> publicadores = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        SimuladorFlota simulador = new SimuladorFlota();
+        try {
+            simulador.iniciar();
+            simulador.ejecutar();
+        } finally {
+            simulador.detener();
+        }
+    }
+
+    // ================================
+    // 🧱 NODO, BROKER Y CLIENTES
+    // ================================
+    private void iniciar() throws Exception {
+        broker = new BrokerMqttEmbebido();
+
+        // El historial real (en memoria), contando lo que entra
+        SerieTemporalService series = new SerieTemporalService() {
+            @Override
+            public void registrar(String dispositivoId, String sensor, long timestamp, double valor) {
+                super.registrar(dispositivoId, sensor, timestamp, valor);
+                ingeridas.incrementAndGet();
+            }
+        };
+        RegistroSensores sensores = new RegistroSensores(List.of(SENSOR));
+        RegistroDispositivos registroDispositivos = new RegistroDispositivos(sensores);
+        pipeline = new PipelineIngesta(4, 8192);
+        detector = new DetectorDesconexion(45_000, 250);
+        webSocket = new SensorWebSocketHandler(new ReanudacionSensores(sensores, registroDispositivos, 64, 120_000),
+                256, PoliticaDesborde.COALESCER, 10_000, 50, 4096);
+
+        for (int i = 0; i < websockets; i++) {
+            SesionSimulada sesion = new SesionSimulada("ws-" + i);
+            sesiones.add(sesion);
+            webSocket.afterConnectionEstablished(sesion);
+        }
+
+        mqtt = new MqttService(new DispositivoFactory(), series, webSocket, pipeline, detector, sensores,
+                registroDispositivos, new RelayCluster("", "", 1024),
+                new DetectorAnomalias(new FeedAlertas(webSocket, 1000), 0.05, 4, 0.5, 20, List.of(),
+                        1_800_000, 0, 300_000),
+                new BandaMuerta(List.of(), 0, 60_000));
+        ReflectionTestUtils.setField(mqtt, "mqttHost", "127.0.0.1");
+        ReflectionTestUtils.setField(mqtt, "mqttPort", broker.getPuerto());
+        ReflectionTestUtils.setField(mqtt, "clientId", "backend_spring");
+        ReflectionTestUtils.setField(mqtt, "timeoutPublicacionMs", 5_000L);
+        mqtt.connect();
+
+        for (int i = 0; i < conexiones; i++) {
+            MqttClient cliente = new MqttClient(broker.getUrl(), "esp32-simulados-" + i, null);
+            MqttConnectOptions opciones = new MqttConnectOptions();
+            opciones.setMaxInflight(1000);
+            cliente.connect(opciones);
+            publicadores.add(cliente);
+        }
+
+        // Registro de toda la flota antes de medir
+        for (int d = 0; d < dispositivos; d++) {
+            String registro = String.format(
+                    "{\"dispositivoId\":\"%s\",\"apiarioId\":\"apiario_%03d\",\"tipo\":\"ESP32\","
+                            + "\"sensores\":[\"%s\"],\"actuadores\":[\"ventilador\",\"compuerta\"]}",
+                    dispositivo(d), d % 50, SENSOR);
+            publicadores.get(d % conexiones).publish("apiarios/dispositivos/registro",
+                    registro.getBytes(StandardCharsets.UTF_8), 1, false);
+        }
+        esperarRegistros();
+        System.out.printf("🐝 Flota lista: %d dispositivos, %d WebSockets, %d conexiones MQTT%n",
+                dispositivos, websockets, conexiones);
+    }
+
+    private void esperarRegistros() throws InterruptedException {
+        long limite = System.currentTimeMillis() + 30_000;
+        while (mqtt.getDispositivosDetectados().size() < dispositivos) {
+            if (System.currentTimeMillis() > limite) {
+                throw new IllegalStateException("Sólo se registraron "
+                        + mqtt.getDispositivosDetectados().size() + " de " + dispositivos + " dispositivos");
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private void detener() throws Exception {
+        for (MqttClient c : publicadores) {
+            if (c.isConnected()) {
+                c.disconnect();
+            }
+            c.close();
+        }
+        if (mqtt != null) {
+            mqtt.desconectar();
+            pipeline.detener();
+            detector.detener();
+            webSocket.detener();
+        }
+        if (broker != null) {
+            broker.close();
+        }
+    }
+
+    // ================================
+    // 📈 ETAPAS DE CARGA
+    // ================================
+    private void ejecutar() throws Exception {
+        System.out.println();
+        System.out.println("  msgs/s objetivo | publicados/s | historial/s | ws/s     | p50 ms | p95 ms | p99 ms | max ms | descartes | ok");
+        System.out.println("  ----------------+--------------+-------------+----------+--------+--------+--------+--------+-----------+---");
+
+        int maxSostenible = 0;
+        for (int tasa = tasaInicial; tasa <= tasaMaxima; tasa *= 2) {
+            Resultado r = etapa(tasa);
+            System.out.printf("  %15d | %12.0f | %11.0f | %8.0f | %6.1f | %6.1f | %6.1f | %6.1f | %9d | %s%n",
+                    tasa, r.publicadas / r.segundos, r.ingeridas / r.segundos, r.entregadas / r.segundos,
+                    r.percentil(0.50), r.percentil(0.95), r.percentil(0.99), r.percentil(1.0),
+                    r.descartes, r.sostenible ? "✅" : "❌");
+            if (!r.sostenible) {
+                break;
+            }
+            maxSostenible = (int) (r.publicadas / r.segundos);
+        }
+
+        System.out.println();
+        System.out.printf("🏁 Máximo sostenible: %d msgs/s (%d dispositivos, %d WebSockets, p99 <= %d ms)%n",
+                maxSostenible, dispositivos, websockets, p99MaxMs);
+    }
+
+    private Resultado etapa(int tasa) throws Exception {
+        for (SesionSimulada s : sesiones) {
+            s.reiniciar();
+        }
+        long ingeridasAntes = ingeridas.get();
+        long descartesAntes = pipeline.obtenerMetricas().getDescartados();
+        AtomicLong publicadas = new AtomicLong();
+
+        long inicio = System.nanoTime();
+        long fin = inicio + TimeUnit.SECONDS.toNanos(segundos);
+        CountDownLatch terminados = new CountDownLatch(conexiones);
+        for (int i = 0; i < conexiones; i++) {
+            int indice = i;
+            Thread hilo = new Thread(() -> {
+                try {
+                    publicar(indice, tasa, fin, publicadas);
+                } finally {
+                    terminados.countDown();
+                }
+            }, "simulador-esp32-" + i);
+            hilo.setDaemon(true);
+            hilo.start();
+        }
+        terminados.await();
+        double duracion = (System.nanoTime() - inicio) / 1e9;
+
+        // Margen para que se vacíen el pipeline y las colas de las sesiones
+        long limite = System.currentTimeMillis() + Math.max(2_000, p99MaxMs * 4);
+        while (ingeridas.get() - ingeridasAntes < publicadas.get() && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(Math.min(p99MaxMs, 1_000));
+
+        Resultado r = new Resultado();
+        r.segundos = duracion;
+        r.publicadas = publicadas.get();
+        r.ingeridas = ingeridas.get() - ingeridasAntes;
+        r.descartes = pipeline.obtenerMetricas().getDescartados() - descartesAntes;
+        List<long[]> latencias = new ArrayList<>();
+        for (SesionSimulada s : sesiones) {
+            r.entregadas += s.entregadas();
+            latencias.add(s.latencias());
+        }
+        r.ordenar(latencias);
+        r.sostenible = r.ingeridas >= r.publicadas && r.percentil(0.99) <= p99MaxMs;
+        return r;
+    }
+
+    // Un hilo por conexión MQTT; cada uno reparte su parte de la tasa en ticks
+    // de 10 ms entre sus dispositivos (d % conexiones == indice)
+    private void publicar(int indice, int tasa, long fin, AtomicLong publicadas) {
+        MqttClient cliente = publicadores.get(indice);
+        double porTick = (double) tasa / conexiones * TICK_NS / 1e9;
+        int propios = (dispositivos - indice + conexiones - 1) / conexiones;
+        if (propios == 0) {
+            return;
+        }
+
+        double acumulado = 0;
+        int siguiente = 0;
+        long tick = System.nanoTime();
+        while (tick < fin) {
+            acumulado += porTick;
+            for (; acumulado >= 1; acumulado--) {
+                String topic = "apiarios/dispositivos/" + dispositivo(indice + siguiente * conexiones) + "/" + SENSOR;
+                siguiente = (siguiente + 1) % propios;
+                byte[] payload = Long.toString(ahoraMicros()).getBytes(StandardCharsets.UTF_8);
+                try {
+                    cliente.publish(topic, payload, 0, false);
+                    publicadas.incrementAndGet();
+                } catch (Exception e) {
+                    // Sin este mensaje la etapa no llega al 100 % del historial
+                }
+            }
+            tick += TICK_NS;
+            long espera = tick - System.nanoTime();
+            if (espera > 0) {
+                LockSupport.parkNanos(espera);
+            }
+        }
+    }
+
+    private long ahoraMicros() {
+        return (System.nanoTime() - origenNs) / 1_000;
+    }
+
+    private static String dispositivo(int d) {
+        return String.format("SIM%05d", d);
+    }
+
+    // ================================
+    // 📊 RESULTADO DE UNA ETAPA
+    // ================================
+    private static class Resultado {
+        double segundos;
+        long publicadas;
+        long ingeridas;
+        long entregadas;
+        long descartes;
+        boolean sostenible;
+        long[] ordenadas = new long[0];
+
+        void ordenar(List<long[]> porSesion) {
+            int total = 0;
+            for (long[] l : porSesion) {
+                total += l.length;
+            }
+            ordenadas = new long[total];
+            int i = 0;
+            for (long[] l : porSesion) {
+                System.arraycopy(l, 0, ordenadas, i, l.length);
+                i += l.length;
+            }
+            Arrays.sort(ordenadas);
+        }
+
+        // En milisegundos; sin muestras cuenta como infinito (nada llegó)
+        double percentil(double p) {
+            if (ordenadas.length == 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+            int i = (int) Math.min(ordenadas.length - 1, Math.ceil(p * ordenadas.length) - 1);
+            return ordenadas[Math.max(0, i)] / 1_000.0;
+        }
+    }
+
+    // ================================
+    // 🔌 SESIÓN WEBSOCKET SIMULADA
+    // ================================
+    // Mide en sendMessage, que es donde el backend entrega el frame al socket
+    private class SesionSimulada implements WebSocketSession {
+
+        private final String id;
+        private final Map<String, Object> atributos = new ConcurrentHashMap<>();
+        private long[] latencias = new long[1 << 16];
+        private int cantidad;
+        private long entregadas;
+
+        SesionSimulada(String id) {
+            this.id = id;
+        }
+
+        synchronized void reiniciar() {
+            cantidad = 0;
+            entregadas = 0;
+        }
+
+        synchronized long entregadas() {
+            return entregadas;
+        }
+
+        synchronized long[] latencias() {
+            return Arrays.copyOf(latencias, cantidad);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> mensaje) {
+            long ahora = ahoraMicros();
+            if (!(mensaje instanceof TextMessage texto)) {
+                return;
+            }
+            String json = texto.getPayload();
+            int inicio = json.indexOf(MARCA_VALOR);
+            // Las alertas también traen "valor"; sólo cuentan las lecturas
+            if (inicio < 0 || json.contains("\"tipo\"")) {
+                return;
+            }
+            inicio += MARCA_VALOR.length();
+            int fin = json.indexOf('"', inicio);
+            long enviado;
+            try {
+                enviado = Long.parseLong(json, inicio, fin, 10);
+            } catch (NumberFormatException e) {
+                return;
+            }
+            registrar(ahora - enviado);
+        }
+
+        private synchronized void registrar(long latenciaMicros) {
+            if (cantidad == latencias.length) {
+                latencias = Arrays.copyOf(latencias, cantidad * 2);
+            }
+            latencias[cantidad++] = latenciaMicros;
+            entregadas++;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public URI getUri() {
+            return URI.create("ws://simulador/ws/sensores");
+        }
+
+        @Override
+        public HttpHeaders getHandshakeHeaders() {
+            return new HttpHeaders();
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return atributos;
+        }
+
+        @Override
+        public Principal getPrincipal() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public String getAcceptedProtocol() {
+            return null;
+        }
+
+        @Override
+        public void setTextMessageSizeLimit(int limite) {
+        }
+
+        @Override
+        public int getTextMessageSizeLimit() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void setBinaryMessageSizeLimit(int limite) {
+        }
+
+        @Override
+        public int getBinaryMessageSizeLimit() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public List<WebSocketExtension> getExtensions() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void close(CloseStatus status) {
+        }
+    }
+}
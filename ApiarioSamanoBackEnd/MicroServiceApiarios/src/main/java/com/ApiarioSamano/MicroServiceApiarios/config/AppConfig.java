@@ -1,13 +1,22 @@
 package com.ApiarioSamano.MicroServiceApiarios.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class AppConfig {
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(
+            @Value("${microservice.http.connect-timeout-ms:2000}") int connectTimeoutMs,
+            @Value("${microservice.http.read-timeout-ms:5000}") int readTimeoutMs) {
+        // Sin timeouts, una consulta abandonada tras el plazo de enriquecimiento
+        // seguiría ocupando un hilo del pool indefinidamente
+        var requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        return new RestTemplate(requestFactory);
     }
 }
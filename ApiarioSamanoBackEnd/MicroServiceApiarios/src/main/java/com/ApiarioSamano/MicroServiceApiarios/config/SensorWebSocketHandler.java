@@ -1,51 +1,417 @@
 package com.ApiarioSamano.MicroServiceApiarios.config;
 
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.FormatoEnvio;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.IndiceSuscripciones;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.LecturaSensorMensaje;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.MensajeTexto;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.MensajeWebSocket;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.PoliticaDesborde;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.ReanudacionSensores;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.SesionSensor;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.Suscripcion;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.websocket.Session;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.NativeWebSocketSession;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
+@Slf4j
 @Component
 public class SensorWebSocketHandler extends TextWebSocketHandler {
 
-    private static final Set<WebSocketSession> sessions = Collections.synchronizedSet(new HashSet<>());
+    private static final String TIMEOUT_ENVIO_TOMCAT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    private final Map<String, SesionSensor> sessions = new ConcurrentHashMap<>();
+    private final IndiceSuscripciones suscripciones = new IndiceSuscripciones();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ReanudacionSensores reanudacion;
+    private final int capacidadCola;
+    private final PoliticaDesborde politica;
+    private final long limiteEnvioMs;
+    private final long ventanaBinarioMs;
+    private final int maxDiccionario;
+    // Sólo retrasa los drenados binarios; nunca escribe en un socket
+    private final ScheduledExecutorService programador;
+    // Un drenado por sesión como mucho: un cliente que no lee bloquea su propio hilo
+    private final ExecutorService envioExecutor;
+
+    public SensorWebSocketHandler(
+            ReanudacionSensores reanudacion,
+            @Value("${websocket.envio.capacidad:256}") int capacidadCola,
+            @Value("${websocket.envio.politica:COALESCER}") PoliticaDesborde politica,
+            @Value("${websocket.envio.limite-ms:10000}") long limiteEnvioMs,
+            @Value("${websocket.binario.ventana-ms:50}") long ventanaBinarioMs,
+            @Value("${websocket.binario.diccionario:4096}") int maxDiccionario) {
+        this.reanudacion = reanudacion;
+        this.capacidadCola = capacidadCola;
+        this.politica = politica;
+        this.limiteEnvioMs = limiteEnvioMs;
+        this.ventanaBinarioMs = ventanaBinarioMs;
+        this.maxDiccionario = maxDiccionario;
+        this.programador = Executors.newSingleThreadScheduledExecutor(hilosConNombre("ws-ventana-"));
+        this.envioExecutor = Executors.newCachedThreadPool(hilosConNombre("ws-envio-"));
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessions.add(session);
-        System.out.println("🔌 WebSocket conectado: " + session.getId());
+        limitarEnvioBloqueante(session);
+        SesionSensor sesion = new SesionSensor(session, capacidadCola, politica, programador, envioExecutor,
+                ventanaBinarioMs, maxDiccionario);
+        sessions.put(session.getId(), sesion);
+        suscripciones.registrar(sesion);
+        log.info("🔌 [WS] WebSocket conectado: {}", session.getId());
+
+        // La URL puede traer la suscripción, el formato y desde dónde
+        // reanudar, así el estado inicial ya sale filtrado
+        Map<String, String> consulta = leerConsulta(session.getUri());
+        if (consulta.containsKey("formato")) {
+            try {
+                sesion.setFormato(FormatoEnvio.desdeTexto(consulta.get("formato")));
+            } catch (IllegalArgumentException e) {
+                enviarRespuesta(sesion, "error", e.getMessage());
+            }
+        }
+        List<String> dispositivos = separar(consulta.get("dispositivos"));
+        List<String> apiarios = separar(consulta.get("apiarios"));
+        List<String> sensores = separar(consulta.get("sensores"));
+        if (!dispositivos.isEmpty() || !apiarios.isEmpty() || !sensores.isEmpty()) {
+            suscripciones.suscribir(sesion, dispositivos, apiarios, sensores);
+        }
+
+        Map<String, Long> desde = new HashMap<>();
+        for (String par : separar(consulta.get("desde"))) {
+            int dosPuntos = par.lastIndexOf(':');
+            if (dosPuntos > 0) {
+                desde.put(par.substring(0, dosPuntos), leerSecuencia(par.substring(dosPuntos + 1)));
+            }
+        }
+        enviarEstadoInicial(sesion, reanudacion.dispositivosDe(dispositivos, apiarios),
+                leerSecuencia(consulta.get("epoca")), desde);
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        sessions.remove(session);
-        System.out.println("🔌 WebSocket desconectado: " + session.getId());
+        SesionSensor sesion = sessions.remove(session.getId());
+        if (sesion != null) {
+            suscripciones.eliminar(sesion);
+            sesion.descartarPendientes();
+        }
+        log.info("🔌 [WS] WebSocket desconectado: {}", session.getId());
     }
 
+    // ================================
+    // 📨 PROTOCOLO DE SUSCRIPCIÓN
+    // ================================
+    // { "accion": "suscribir" | "desuscribir",
+    //   "dispositivos": ["A1B2C3"], "apiarios": ["apiario_001"], "sensores": ["humedad_suelo"] }
+    //
+    // "apiarios" usa el apiarioId que anuncia el dispositivo al registrarse. Una
+    // sesión sin dispositivos ni apiarios recibe todos los dispositivos, filtrados
+    // por "sensores" si se indicó alguno.
+    //
+    // Tras suscribir llega un "instantanea" con el estado actual de lo pedido.
+    // Para retomar sin huecos se agrega "epoca" y "desde": {"A1B2C3": seq} con
+    // la época y la última secuencia vistas por dispositivo (ver enviarEstadoInicial).
+    //
+    // { "accion": "formato", "formato": "binario" | "json" }
+    //
+    // Negocia cómo llegan las lecturas (JSON por defecto). En binario se juntan
+    // las de cada dispositivo durante websocket.binario.ventana-ms en un solo
+    // BinaryMessage; el formato del frame está en CodificadorBinario. Las
+    // respuestas de control siguen siendo texto.
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        // Manejar mensajes entrantes si es necesario
-        System.out.println("📨 Mensaje WebSocket recibido: " + message.getPayload());
+        SesionSensor sesion = sessions.get(session.getId());
+        if (sesion == null) {
+            return;
+        }
+
+        JsonNode json;
+        try {
+            json = objectMapper.readTree(message.getPayload());
+        } catch (IOException e) {
+            enviarRespuesta(sesion, "error", "JSON inválido");
+            return;
+        }
+
+        String accion = json.path("accion").asText("");
+        if ("formato".equals(accion)) {
+            negociarFormato(sesion, json.path("formato").asText(""));
+            return;
+        }
+
+        List<String> dispositivos = leerLista(json, "dispositivos");
+        List<String> apiarios = leerLista(json, "apiarios");
+        List<String> sensores = leerLista(json, "sensores");
+
+        switch (accion) {
+            case "suscribir" -> suscripciones.suscribir(sesion, dispositivos, apiarios, sensores);
+            case "desuscribir" -> suscripciones.desuscribir(sesion, dispositivos, apiarios, sensores);
+            default -> {
+                enviarRespuesta(sesion, "error", "Acción desconocida: " + accion);
+                return;
+            }
+        }
+
+        enviarRespuesta(sesion, "suscripcion", null);
+
+        if ("suscribir".equals(accion)) {
+            Map<String, Long> desde = new HashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> it = json.path("desde").fields();
+            while (it.hasNext()) {
+                Map.Entry<String, JsonNode> e = it.next();
+                desde.put(e.getKey(), e.getValue().asLong());
+            }
+            enviarEstadoInicial(sesion, reanudacion.dispositivosDe(dispositivos, apiarios),
+                    json.path("epoca").asLong(), desde);
+        }
+    }
+
+    // ================================
+    // 📸 ESTADO INICIAL Y REANUDACIÓN
+    // ================================
+    // { "tipo": "instantanea", "epoca": "...", "reanudados": ["A1B2C3"],
+    //   "dispositivos": [{ "dispositivoId", "apiarioId", "seq",
+    //                      "sensores": [{ "sensor", "valor", "timestamp" }] }] }
+    //
+    // Cada lectura lleva "seq", consecutiva por dispositivo dentro de una
+    // época. Un dispositivo en "desde" cuyas lecturas siguientes siguen en el
+    // anillo va a "reanudados" y sus lecturas llegan a continuación, una por
+    // una; el resto viene con su estado actual y la secuencia que refleja. El
+    // cliente aplica una lectura sólo si su seq supera la última que aplicó
+    // para ese dispositivo y sensor.
+    private void enviarEstadoInicial(SesionSensor sesion, Collection<String> dispositivos, long epoca,
+            Map<String, Long> desde) {
+        Suscripcion s = sesion.getSuscripcion();
+        boolean mismaEpoca = epoca == reanudacion.getEpoca();
+        List<Map<String, Object>> estados = new ArrayList<>();
+        List<String> reanudados = new ArrayList<>();
+        List<LecturaSensorMensaje> reenvio = new ArrayList<>();
+
+        for (String dispositivoId : dispositivos) {
+            Long ultima = mismaEpoca ? desde.get(dispositivoId) : null;
+            if (ultima != null && reanudacion.reenviar(dispositivoId, ultima, l -> {
+                if (s.aceptaSensor(l.sensor())) {
+                    reenvio.add(l);
+                }
+            })) {
+                reanudados.add(dispositivoId);
+                continue;
+            }
+            Map<String, Object> estado = reanudacion.instantanea(dispositivoId, s);
+            if (estado != null) {
+                estados.add(estado);
+            }
+        }
+
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("tipo", "instantanea");
+        respuesta.put("epoca", String.valueOf(reanudacion.getEpoca()));
+        respuesta.put("reanudados", reanudados);
+        respuesta.put("dispositivos", estados);
+        try {
+            sesion.encolar(new MensajeTexto(objectMapper.writeValueAsString(respuesta)));
+        } catch (IOException e) {
+            log.error("❌ [WS] Error enviando instantánea a {}: {}", sesion.getId(), e.getMessage());
+            return;
+        }
+        for (LecturaSensorMensaje l : reenvio) {
+            sesion.encolarSinCoalescer(l);
+        }
+    }
+
+    // Tomcat corta un envío bloqueante que no avanza en este tiempo (20 s por
+    // defecto) y la sesión se cierra; así un socket atascado no retiene su
+    // hilo más allá del límite aunque la limpieza todavía no haya pasado
+    private void limitarEnvioBloqueante(WebSocketSession session) {
+        if (session instanceof NativeWebSocketSession nativa) {
+            Session ws = nativa.getNativeSession(Session.class);
+            if (ws != null) {
+                ws.getUserProperties().put(TIMEOUT_ENVIO_TOMCAT, limiteEnvioMs);
+            }
+        }
+    }
+
+    private static Map<String, String> leerConsulta(URI uri) {
+        Map<String, String> consulta = new HashMap<>();
+        String query = uri != null ? uri.getRawQuery() : null;
+        if (query == null || query.isEmpty()) {
+            return consulta;
+        }
+        for (String par : query.split("&")) {
+            int igual = par.indexOf('=');
+            String clave = igual >= 0 ? par.substring(0, igual) : par;
+            String valor = igual >= 0 ? par.substring(igual + 1) : "";
+            consulta.put(URLDecoder.decode(clave, StandardCharsets.UTF_8),
+                    URLDecoder.decode(valor, StandardCharsets.UTF_8));
+        }
+        return consulta;
+    }
+
+    private static List<String> separar(String lista) {
+        List<String> valores = new ArrayList<>();
+        if (lista != null) {
+            for (String v : lista.split(",")) {
+                if (!v.isBlank()) {
+                    valores.add(v.trim());
+                }
+            }
+        }
+        return valores;
+    }
+
+    private static long leerSecuencia(String texto) {
+        try {
+            return texto != null ? Long.parseLong(texto.trim()) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void negociarFormato(SesionSensor sesion, String formato) {
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("tipo", "formato");
+        try {
+            sesion.setFormato(FormatoEnvio.desdeTexto(formato));
+        } catch (IllegalArgumentException e) {
+            respuesta.put("error", e.getMessage());
+        }
+        respuesta.put("formato", sesion.getFormato().name().toLowerCase());
+
+        try {
+            sesion.encolar(new MensajeTexto(objectMapper.writeValueAsString(respuesta)));
+        } catch (IOException e) {
+            log.error("❌ [WS] Error respondiendo formato a {}: {}", sesion.getId(), e.getMessage());
+        }
+    }
+
+    private List<String> leerLista(JsonNode json, String campo) {
+        List<String> valores = new ArrayList<>();
+        JsonNode nodo = json.path(campo);
+        if (nodo.isArray()) {
+            for (JsonNode elemento : nodo) {
+                valores.add(elemento.asText());
+            }
+        } else if (nodo.isTextual()) {
+            valores.add(nodo.asText());
+        }
+        return valores;
+    }
+
+    private void enviarRespuesta(SesionSensor sesion, String tipo, String error) {
+        Suscripcion s = sesion.getSuscripcion();
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("tipo", tipo);
+        if (error != null) {
+            respuesta.put("error", error);
+        }
+        respuesta.put("dispositivos", s.getDispositivos());
+        respuesta.put("apiarios", s.getApiarios());
+        respuesta.put("sensores", s.getSensores());
+
+        try {
+            sesion.encolar(new MensajeTexto(objectMapper.writeValueAsString(respuesta)));
+        } catch (IOException e) {
+            log.error("❌ [WS] Error respondiendo suscripción a {}: {}", sesion.getId(), e.getMessage());
+        }
     }
 
-    // 🔥 MÉTODO PARA ENVIAR DATOS A TODOS LOS CLIENTES
-    public static void enviarATodos(String mensaje) {
-        synchronized (sessions) {
-            for (WebSocketSession session : sessions) {
+    // 🎯 ENVÍA SÓLO A LAS SESIONES SUSCRITAS AL DISPOSITIVO/APIARIO/SENSOR DEL MENSAJE
+    public void enviar(MensajeWebSocket mensaje) {
+        if (mensaje instanceof LecturaSensorMensaje lectura) {
+            reanudacion.secuenciar(lectura, () -> repartir(lectura));
+        } else {
+            repartir(mensaje);
+        }
+    }
+
+    private void repartir(MensajeWebSocket mensaje) {
+        suscripciones.paraCadaInteresada(mensaje.dispositivoId(), mensaje.apiarioId(), mensaje.sensor(), sesion -> {
+            if (sesion.isOpen()) {
+                sesion.encolar(mensaje);
+            }
+        });
+    }
+
+    // ================================
+    // 🧹 LIMPIEZA DE SESIONES MUERTAS O ATASCADAS
+    // ================================
+    @Scheduled(fixedRateString = "${websocket.envio.limpieza-ms:5000}")
+    public void limpiarSesiones() {
+        long ahora = System.currentTimeMillis();
+
+        for (SesionSensor sesion : sessions.values()) {
+            if (!sesion.isOpen()) {
+                sessions.remove(sesion.getId());
+                suscripciones.eliminar(sesion);
+                sesion.descartarPendientes();
+                continue;
+            }
+
+            if (sesion.envioBloqueadoMs(ahora) > limiteEnvioMs) {
+                log.warn("⚠️ [WS] WebSocket {} lleva más de {} ms sin aceptar datos, cerrando sesión",
+                        sesion.getId(), limiteEnvioMs);
+                sessions.remove(sesion.getId());
+                suscripciones.eliminar(sesion);
+                sesion.descartarPendientes();
                 try {
-                    if (session.isOpen()) {
-                        session.sendMessage(new TextMessage(mensaje));
-                    }
+                    sesion.getSession().close(CloseStatus.SESSION_NOT_RELIABLE);
                 } catch (IOException e) {
-                    System.err.println("❌ Error enviando WebSocket: " + e.getMessage());
+                    log.error("❌ [WS] Error cerrando WebSocket {}: {}", sesion.getId(), e.getMessage());
                 }
             }
         }
     }
-}
\ No newline at end of file
+
+    public boolean estaObservado(String dispositivoId, String apiarioId) {
+        return suscripciones.observado(dispositivoId, apiarioId);
+    }
+
+    public int getSesionesActivas() {
+        return sessions.size();
+    }
+
+    @PreDestroy
+    public void detener() {
+        programador.shutdownNow();
+        envioExecutor.shutdownNow();
+    }
+
+    private static ThreadFactory hilosConNombre(String prefijo) {
+        AtomicInteger contador = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefijo + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -1,18 +1,39 @@
 package com.ApiarioSamano.MicroServiceApiarios.controller;
 
 import com.ApiarioSamano.MicroServiceApiarios.dto.CodigoResponse;
+import com.ApiarioSamano.MicroServiceApiarios.dto.AlertaDTO.AlertaSensorDTO;
 import com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO.ApiarioRequestDTO;
+import com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO.ReporteImportacionDTO;
+import com.ApiarioSamano.MicroServiceApiarios.dto.ComandoDTO.ComandoFlotaRequest;
+import com.ApiarioSamano.MicroServiceApiarios.dto.ComandoDTO.LoteComandosResponse;
+import com.ApiarioSamano.MicroServiceApiarios.dto.HistorialMedicoDTO.PaginaEventosHistorialDTO;
+import com.ApiarioSamano.MicroServiceApiarios.dto.IngestaDTO.MetricasIngestaDTO;
 import com.ApiarioSamano.MicroServiceApiarios.dto.RecetaDTO.RecetaRequest;
+import com.ApiarioSamano.MicroServiceApiarios.dto.ReglaDTO.ReglaDTO;
+import com.ApiarioSamano.MicroServiceApiarios.dto.SensorDTO.HistorialSensorResponse;
 import com.ApiarioSamano.MicroServiceApiarios.model.Receta;
 import com.ApiarioSamano.MicroServiceApiarios.model.Apiarios;
 import com.ApiarioSamano.MicroServiceApiarios.model.Dispositivo;
 import com.ApiarioSamano.MicroServiceApiarios.service.ApiariosService;
+import com.ApiarioSamano.MicroServiceApiarios.service.Cache.EstadisticasCacheEntidades;
+import com.ApiarioSamano.MicroServiceApiarios.service.Importacion.ImportacionApiariosService;
 import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.MqttService;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Anomalias.FeedAlertas;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Comandos.ServicioComandos;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Reglas.MotorReglas;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.SeriesTemporales.ResolucionSerie;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.SeriesTemporales.SerieTemporalService;
 
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +44,12 @@ public class ApiariosController {
 
     private final ApiariosService apiariosService;
     private final MqttService mqtt;
+    private final SerieTemporalService serieTemporalService;
+    private final ServicioComandos servicioComandos;
+    private final FeedAlertas feedAlertas;
+    private final MotorReglas motorReglas;
+    private final ImportacionApiariosService importacionApiarios;
+    private final EstadisticasCacheEntidades estadisticasCache;
 
     // 🟢 Crear nuevo apiario
     @PostMapping
@@ -30,6 +57,39 @@ public class ApiariosController {
         return apiariosService.crearApiario(apiarioDTO);
     }
 
+    // 📥 Alta masiva desde CSV (con encabezado) o NDJSON, leída en streaming
+    @PostMapping("/importar")
+    public ResponseEntity<CodigoResponse<ReporteImportacionDTO>> importarApiarios(
+            @RequestParam(defaultValue = "csv") String formato,
+            InputStream cuerpo) {
+        try {
+            ReporteImportacionDTO reporte = importacionApiarios.importar(cuerpo,
+                    ImportacionApiariosService.normalizarFormato(formato));
+            return ResponseEntity.ok(new CodigoResponse<>(200, "Importación terminada", reporte));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new CodigoResponse<>(400, e.getMessage(), null));
+        } catch (Exception e) {
+            return ResponseEntity.status(500)
+                    .body(new CodigoResponse<>(500, "Error interno: " + e.getMessage(), null));
+        }
+    }
+
+    // 📤 Exportación de apiarios y dispositivos vinculados, en streaming
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarApiarios(@RequestParam(defaultValue = "csv") String formato) {
+        String f;
+        try {
+            f = ImportacionApiariosService.normalizarFormato(formato);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean csv = ImportacionApiariosService.CSV.equals(f);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"apiarios." + f + "\"")
+                .body(salida -> importacionApiarios.exportar(salida, f));
+    }
+
     // 🟡 Modificar un apiario existente
     @PutMapping("/{id}")
     public CodigoResponse<Apiarios> modificarApiario(
@@ -64,10 +124,16 @@ public class ApiariosController {
         }
     }
 
-    // 🔍 Obtener todos los apiarios
+    // 🔍 Obtener todos los apiarios; con ?after= y/o ?limit= devuelve una
+    // página del listado resumido
     @GetMapping
-    public CodigoResponse<List<Apiarios>> obtenerTodos() {
-        return apiariosService.obtenerTodos();
+    public CodigoResponse<?> obtenerTodos(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return apiariosService.obtenerTodos();
+        }
+        return apiariosService.listarResumen(after, limit);
     }
 
     // 🔍 Historial completo
@@ -88,12 +154,29 @@ public class ApiariosController {
         return apiariosService.obtenerPorId(id);
     }
 
+    // 📜 Eventos del historial médico, por páginas (?after=&limit=)
+    @GetMapping("/historial-medico/{idHistorial}/eventos")
+    public ResponseEntity<CodigoResponse<PaginaEventosHistorialDTO>> obtenerEventosHistorial(
+            @PathVariable Long idHistorial,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        CodigoResponse<PaginaEventosHistorialDTO> response = apiariosService.listarEventosHistorial(idHistorial, after,
+                limit);
+        return ResponseEntity.status(response.getCodigo()).body(response);
+    }
+
     // 🔍 Historial médico completo
     @GetMapping("/historial-medico/{idHistorial}")
     public CodigoResponse obtenerHistorialMedicoPorId(@PathVariable Long idHistorial) {
         return apiariosService.obtenerHistorialMedicoPorId(idHistorial);
     }
 
+    // 📊 Tasa de aciertos de la caché de segundo nivel y de consultas
+    @GetMapping("/cache/estadisticas")
+    public ResponseEntity<Map<String, Object>> estadisticasCache() {
+        return ResponseEntity.ok(estadisticasCache.estadisticas());
+    }
+
     // ===========================
     // ESTADO MQTT
     // ===========================
@@ -104,6 +187,12 @@ public class ApiariosController {
                 : "🔴 No conectado al broker MQTT";
     }
 
+    // 📊 Métricas del pipeline de ingesta (profundidad de colas, descartes, lag)
+    @GetMapping("/mqtt/ingesta")
+    public ResponseEntity<MetricasIngestaDTO> metricasIngesta() {
+        return ResponseEntity.ok(mqtt.getMetricasIngesta());
+    }
+
     // ===========================
     // COMANDOS MQTT - ACTUALIZADOS PARA DISPOSITIVOS
     // ===========================
@@ -143,6 +232,51 @@ public class ApiariosController {
         return "Servo 2 movido a " + grados + " grados para dispositivo " + dispositivoId;
     }
 
+    // 🚨 Comandos para varios dispositivos en una sola llamada (p. ej. cerrar
+    // todas las compuertas antes de una tormenta). Responde 202 con el id del
+    // lote; el estado de cada comando se consulta después.
+    @PostMapping("/comandos/flota")
+    public ResponseEntity<LoteComandosResponse> comandosFlota(@RequestBody ComandoFlotaRequest request) {
+        try {
+            return ResponseEntity.accepted().body(servicioComandos.enviarLote(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // 📋 Estado de un lote de comandos (PENDIENTE / ENVIADO / CONFIRMADO / FALLIDO por dispositivo)
+    @GetMapping("/comandos/lotes/{loteId}")
+    public ResponseEntity<LoteComandosResponse> estadoLoteComandos(@PathVariable String loteId) {
+        LoteComandosResponse lote = servicioComandos.consultar(loteId);
+        if (lote != null) {
+            return ResponseEntity.ok(lote);
+        }
+        return ResponseEntity.notFound().build();
+    }
+
+    // ⚡ Reglas automáticas sensor -> actuador (se evalúan con cada lectura)
+    @GetMapping("/reglas")
+    public ResponseEntity<List<ReglaDTO>> obtenerReglas() {
+        return ResponseEntity.ok(motorReglas.listar());
+    }
+
+    @PostMapping("/reglas")
+    public ResponseEntity<ReglaDTO> crearRegla(@RequestBody ReglaDTO regla) {
+        try {
+            return ResponseEntity.ok(motorReglas.crear(regla));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @DeleteMapping("/reglas/{id}")
+    public ResponseEntity<Void> eliminarRegla(@PathVariable String id) {
+        if (motorReglas.eliminar(id)) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.notFound().build();
+    }
+
     // 📡 Obtener dispositivos detectados
     @GetMapping("/dispositivos/detectados")
     public ResponseEntity<Map<String, Dispositivo>> obtenerDispositivosDetectados() {
@@ -166,4 +300,32 @@ public class ApiariosController {
         return ResponseEntity.ok(datos);
     }
 
-}
\ No newline at end of file
+    // 📈 Historial de sensores de un DISPOSITIVO (from/to en epoch ms)
+    @GetMapping("/dispositivos/{dispositivoId}/sensores/historial")
+    public ResponseEntity<HistorialSensorResponse> obtenerHistorialSensores(
+            @PathVariable String dispositivoId,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to,
+            @RequestParam(defaultValue = "auto") String resolution,
+            @RequestParam(required = false) String sensor) {
+        try {
+            long hasta = to != null ? to : System.currentTimeMillis();
+            long desde = from != null ? from : hasta - 24L * 60 * 60 * 1000;
+            return ResponseEntity.ok(serieTemporalService.consultar(
+                    dispositivoId, sensor, desde, hasta, ResolucionSerie.desdeCodigo(resolution)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // 🚨 Alertas de anomalías de sensores (más nuevas que ?desde=<id>), las
+    // mismas que llegan por /ws/sensores con "tipo": "alerta"
+    @GetMapping("/alertas")
+    public ResponseEntity<List<AlertaSensorDTO>> obtenerAlertas(
+            @RequestParam(defaultValue = "0") long desde,
+            @RequestParam(required = false) String dispositivoId,
+            @RequestParam(defaultValue = "100") int limite) {
+        return ResponseEntity.ok(feedAlertas.consultar(desde, dispositivoId, Math.max(1, Math.min(limite, 1000))));
+    }
+
+}
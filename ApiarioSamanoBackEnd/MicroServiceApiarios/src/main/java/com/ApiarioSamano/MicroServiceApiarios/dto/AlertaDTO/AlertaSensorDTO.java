@@ -0,0 +1,22 @@
+package com.ApiarioSamano.MicroServiceApiarios.dto.AlertaDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AlertaSensorDTO {
+    // Creciente por nodo: el feed se pagina con ?desde=<último id visto>
+    private long id;
+    private String dispositivoId;
+    private String apiarioId;
+    private String sensor;
+    private String anomalia;
+    private double valor;
+    // Lo que se esperaba: media EWMA, valor anterior o valor repetido
+    private double referencia;
+    private String detalle;
+    private long timestamp;
+}
@@ -0,0 +1,23 @@
+package com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Una fila de los archivos de importación/exportación de apiarios (CSV o
+ * NDJSON). Al importar, el id se ignora.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ApiarioFilaDTO {
+    private Long id;
+    private Integer numeroApiario;
+    private String ubicacion;
+    private String salud;
+    private String dispositivoId;
+    private LocalDateTime fechaVinculacion;
+}
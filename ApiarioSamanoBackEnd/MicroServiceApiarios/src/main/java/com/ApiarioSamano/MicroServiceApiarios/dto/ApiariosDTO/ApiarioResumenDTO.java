@@ -0,0 +1,29 @@
+package com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ApiarioResumenDTO {
+    private Long id;
+    private Integer numeroApiario;
+    private String ubicacion;
+    private String salud;
+    private String dispositivoId;
+    private RecetaResumenDTO receta;
+
+    // Para la proyección de ApiariosRepository.listarResumenDesde: la receta
+    // llega aplanada (null si el apiario no tiene)
+    public ApiarioResumenDTO(Long id, Integer numeroApiario, String ubicacion, String salud, String dispositivoId,
+            Long idReceta, String descripcionReceta, LocalDateTime fechaReceta, Long totalMedicamentos) {
+        this(id, numeroApiario, ubicacion, salud, dispositivoId,
+                idReceta != null
+                        ? new RecetaResumenDTO(idReceta, descripcionReceta, fechaReceta, totalMedicamentos)
+                        : null);
+    }
+}
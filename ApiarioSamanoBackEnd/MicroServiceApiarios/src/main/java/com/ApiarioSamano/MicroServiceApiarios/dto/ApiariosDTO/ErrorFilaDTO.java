@@ -0,0 +1,13 @@
+package com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ErrorFilaDTO {
+    private long linea;
+    private String mensaje;
+}
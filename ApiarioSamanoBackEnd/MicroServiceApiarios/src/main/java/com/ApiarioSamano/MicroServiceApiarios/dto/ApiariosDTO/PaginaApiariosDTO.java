@@ -0,0 +1,16 @@
+package com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaginaApiariosDTO {
+    private List<ApiarioResumenDTO> apiarios;
+    // Valor para ?after= de la página siguiente; null si no hay más
+    private Long siguiente;
+}
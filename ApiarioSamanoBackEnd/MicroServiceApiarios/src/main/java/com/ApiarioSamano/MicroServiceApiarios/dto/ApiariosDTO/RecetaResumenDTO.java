@@ -0,0 +1,17 @@
+package com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecetaResumenDTO {
+    private Long id;
+    private String descripcion;
+    private LocalDateTime fechaDeCreacion;
+    private Long totalMedicamentos;
+}
@@ -0,0 +1,21 @@
+package com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ReporteImportacionDTO {
+    private String formato;
+    private long filasLeidas;
+    private long importadas;
+    private long rechazadas;
+    private int lotes;
+    private long duracionMs;
+    private List<ErrorFilaDTO> errores = new ArrayList<>();
+    // Errores que no caben en la lista (sólo se cuentan)
+    private long erroresOmitidos;
+}
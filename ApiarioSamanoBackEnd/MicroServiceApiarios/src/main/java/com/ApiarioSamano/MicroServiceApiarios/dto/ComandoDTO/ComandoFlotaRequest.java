@@ -0,0 +1,18 @@
+package com.ApiarioSamano.MicroServiceApiarios.dto.ComandoDTO;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// { "dispositivos": ["A1B2C3", "D4E5F6"],
+//   "actuadores": { "compuerta": false, "ventilador": true, "servo1": 90 } }
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ComandoFlotaRequest {
+    private List<String> dispositivos;
+    private Map<String, Object> actuadores;
+}
@@ -0,0 +1,18 @@
+package com.ApiarioSamano.MicroServiceApiarios.dto.ComandoDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EstadoComandoDTO {
+    private String dispositivoId;
+    private String actuador;
+    private String valor;
+    private String estado;
+    private int intentos;
+    private Long confirmadoEn;
+    private String error;
+}
@@ -0,0 +1,21 @@
+package com.ApiarioSamano.MicroServiceApiarios.dto.ComandoDTO;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LoteComandosResponse {
+    private String loteId;
+    private long creado;
+    private boolean terminado;
+    private int total;
+    private int pendientes;
+    private int confirmados;
+    private int fallidos;
+    private List<EstadoComandoDTO> comandos;
+}
@@ -0,0 +1,18 @@
+package com.ApiarioSamano.MicroServiceApiarios.dto.HistorialMedicoDTO;
+
+import java.util.List;
+
+import com.ApiarioSamano.MicroServiceApiarios.model.EventoHistorialMedico;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaginaEventosHistorialDTO {
+    private List<EventoHistorialMedico> eventos;
+    // Valor para ?after= de la página siguiente; null si no hay más
+    private Long siguiente;
+}
@@ -0,0 +1,22 @@
+package com.ApiarioSamano.MicroServiceApiarios.dto.IngestaDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MetricasIngestaDTO {
+    private int workers;
+    private int capacidadPorWorker;
+    private int profundidad;
+    private int[] profundidadPorWorker;
+    private long recibidos;
+    private long procesados;
+    private long descartados;
+    private long errores;
+    private long lagUltimoMs;
+    private double lagPromedioMs;
+    private long lagMaxMs;
+}
@@ -0,0 +1,31 @@
+package com.ApiarioSamano.MicroServiceApiarios.dto.ReglaDTO;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// { "sensor": "humedad_suelo", "operador": ">", "umbral": 80, "histeresis": 5,
+//   "duracionMs": 120000, "actuador": "compuerta", "valor": "OFF", "valorAlSalir": "ON",
+//   "dispositivos": ["A1B2C3"] }
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReglaDTO {
+    private String id;
+    private String sensor;
+    // ">" o "<" (también MAYOR / MENOR)
+    private String operador;
+    private double umbral;
+    // La regla se libera al cruzar umbral -/+ histeresis en sentido contrario
+    private double histeresis;
+    // Tiempo que la condición debe cumplirse sin interrupción
+    private long duracionMs;
+    private String actuador;
+    private Object valor;
+    // Opcional: comando al liberarse la regla
+    private Object valorAlSalir;
+    // Vacío = todos los dispositivos que reporten el sensor
+    private List<String> dispositivos;
+}
@@ -0,0 +1,19 @@
+package com.ApiarioSamano.MicroServiceApiarios.dto.SensorDTO;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HistorialSensorResponse {
+    private String dispositivoId;
+    private long desde;
+    private long hasta;
+    private String resolucion;
+    private Map<String, List<PuntoSerieDTO>> series;
+}
@@ -0,0 +1,16 @@
+package com.ApiarioSamano.MicroServiceApiarios.dto.SensorDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PuntoSerieDTO {
+    private long timestamp;
+    private double valor;
+    private double min;
+    private double max;
+    private long conteo;
+}
@@ -1,6 +1,8 @@
 package com.ApiarioSamano.MicroServiceApiarios.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,10 +13,17 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Entity
 @Table(name = "apiarios")
+// Caché de segundo nivel: se lee mucho más de lo que se escribe
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "apiarios")
 public class Apiarios {
 
+    // Secuencia con reserva de 50 ids: Hibernate puede agrupar los INSERT
+    // (IDENTITY obliga a uno por fila). db/alinear-secuencias.sql la pone por
+    // delante de los ids que ya existían
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "apiarios_seq")
+    @SequenceGenerator(name = "apiarios_seq", sequenceName = "apiarios_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "numero_apiario", nullable = false)
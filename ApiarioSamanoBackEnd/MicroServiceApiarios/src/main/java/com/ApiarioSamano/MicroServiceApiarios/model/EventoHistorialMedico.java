@@ -0,0 +1,48 @@
+package com.ApiarioSamano.MicroServiceApiarios.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entrada del historial médico de un apiario. Sólo se insertan: agregar un
+ * evento es un INSERT, sin importar cuántos tenga ya el historial.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "historialmedico_evento", indexes = @Index(name = "idx_evento_historial", columnList = "id_historial_medico, id"))
+public class EventoHistorialMedico {
+
+    public static final String TIPO_NOTA = "NOTA";
+    public static final String TIPO_RECETA_CUMPLIDA = "RECETA_CUMPLIDA";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "id_historial_medico", nullable = false, updatable = false)
+    private Long idHistorialMedico;
+
+    @Column(name = "tipo", length = 30, nullable = false, updatable = false)
+    private String tipo;
+
+    @Column(name = "descripcion", columnDefinition = "TEXT", updatable = false)
+    private String descripcion;
+
+    @Column(name = "id_receta", updatable = false)
+    private Long idReceta;
+
+    @Column(name = "fecha", nullable = false, updatable = false)
+    private LocalDateTime fecha;
+}
@@ -2,8 +2,11 @@ package com.ApiarioSamano.MicroServiceApiarios.model;
 
 import java.time.LocalDateTime;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -19,6 +22,8 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Entity
 @Table(name = "historialmedico")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "historialmedico")
 public class HistorialMedico {
 
     @Id
@@ -32,4 +37,9 @@ public class HistorialMedico {
     @Column(length = 500)
     private String notas;
 
+    // true cuando las notas ya se pasaron a eventos (MigracionNotasHistorial);
+    // null en los historiales anteriores a la migración
+    @Column(name = "notas_migradas")
+    private Boolean notasMigradas;
+
 }
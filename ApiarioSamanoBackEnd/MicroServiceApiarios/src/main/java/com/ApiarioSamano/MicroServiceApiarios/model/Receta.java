@@ -2,10 +2,13 @@ package com.ApiarioSamano.MicroServiceApiarios.model;
 
 import java.util.List;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -24,6 +27,8 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Entity
 @Table(name = "receta")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "receta")
 public class Receta {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -36,7 +41,11 @@ public class Receta {
     @CreationTimestamp
     private LocalDateTime fechaDeCreacion;
 
+    // Ids de los medicamentos en su propia región; al ser el lado inverso,
+    // hibernate.cache.auto_evict_collection_cache la invalida cuando se
+    // inserta, modifica o borra un RecetaMedicamento de la receta
     @OneToMany(mappedBy = "receta", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "receta.medicamentos")
     private List<RecetaMedicamento> medicamentos;
 
 }
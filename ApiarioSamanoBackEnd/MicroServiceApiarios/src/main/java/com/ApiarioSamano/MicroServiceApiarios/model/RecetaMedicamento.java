@@ -4,6 +4,8 @@ import com.ApiarioSamano.MicroServiceApiarios.dto.MedicamentosDTO.MedicamentosRe
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -13,6 +15,8 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Entity
 @Table(name = "recetamedicamento")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "recetamedicamento")
 public class RecetaMedicamento {
 
     @Id
@@ -27,6 +31,7 @@ public class RecetaMedicamento {
     @Column(name = "id_medicamento")
     private Long idMedicamento;
 
+    // No pasa por la caché: se completa en cada petición desde Almacén
     @Transient
     private MedicamentosResponse medicamentoInfo;
 }
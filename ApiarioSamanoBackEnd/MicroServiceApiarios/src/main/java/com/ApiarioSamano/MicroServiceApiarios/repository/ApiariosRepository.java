@@ -1,9 +1,61 @@
 package com.ApiarioSamano.MicroServiceApiarios.repository;
 
+import com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO.ApiarioFilaDTO;
+import com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO.ApiarioResumenDTO;
 import com.ApiarioSamano.MicroServiceApiarios.model.Apiarios;
+
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ApiariosRepository extends JpaRepository<Apiarios, Long> {
+
+    // Apiarios con receta, medicamentos de la receta e historial en una sola
+    // consulta, en vez de un select por cada asociación EAGER de cada apiario.
+    // En la caché de consultas queda la lista de ids y las entidades salen de
+    // la de segundo nivel; cualquier escritura en las tablas la invalida
+    @EntityGraph(attributePaths = { "receta", "receta.medicamentos", "historialMedico" })
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT a FROM Apiarios a ORDER BY a.id")
+    List<Apiarios> findAllConDetalle();
+
+    // Página por cursor (id > after): sin OFFSET, cuesta lo mismo al final
+    // de la lista que al principio. Cada página (after, limit) se guarda en
+    // la caché de consultas
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("""
+            SELECT new com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO.ApiarioResumenDTO(
+                a.id, a.numeroApiario, a.ubicacion, a.salud, a.dispositivoId,
+                r.id, r.descripcion, r.fechaDeCreacion,
+                (SELECT COUNT(m) FROM RecetaMedicamento m WHERE m.receta = r))
+            FROM Apiarios a LEFT JOIN a.receta r
+            WHERE a.id > :after
+            ORDER BY a.id
+            """)
+    List<ApiarioResumenDTO> listarResumenDesde(@Param("after") Long after, Limit limit);
+
+    // Exportación: mismo cursor, sin entidades en el contexto de persistencia
+    @Query("""
+            SELECT new com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO.ApiarioFilaDTO(
+                a.id, a.numeroApiario, a.ubicacion, a.salud, a.dispositivoId, a.fechaVinculacion)
+            FROM Apiarios a
+            WHERE a.id > :after
+            ORDER BY a.id
+            """)
+    List<ApiarioFilaDTO> listarFilasDesde(@Param("after") Long after, Limit limit);
+
+    // De los dispositivos dados, los que ya están vinculados a algún apiario
+    @Query("SELECT a.dispositivoId FROM Apiarios a WHERE a.dispositivoId IN :dispositivos")
+    List<String> findDispositivosVinculados(@Param("dispositivos") Collection<String> dispositivos);
 }
@@ -0,0 +1,19 @@
+package com.ApiarioSamano.MicroServiceApiarios.repository;
+
+import com.ApiarioSamano.MicroServiceApiarios.model.EventoHistorialMedico;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface EventoHistorialMedicoRepository extends JpaRepository<EventoHistorialMedico, Long> {
+
+    // Página por cursor: eventos del historial con id > after, en orden
+    List<EventoHistorialMedico> findByIdHistorialMedicoAndIdGreaterThanOrderByIdAsc(
+            Long idHistorialMedico, Long after, Limit limit);
+
+    List<EventoHistorialMedico> findByIdHistorialMedico(Long idHistorialMedico);
+}
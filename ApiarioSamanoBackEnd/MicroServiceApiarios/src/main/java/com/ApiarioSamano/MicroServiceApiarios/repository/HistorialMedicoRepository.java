@@ -1,9 +1,31 @@
 package com.ApiarioSamano.MicroServiceApiarios.repository;
 
 import com.ApiarioSamano.MicroServiceApiarios.model.HistorialMedico;
+
+import java.util.List;
+import java.util.Optional;
+
+import jakarta.persistence.LockModeType;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface HistorialMedicoRepository extends JpaRepository<HistorialMedico, Long> {
+
+    // Historiales de antes de los eventos: sus notas aún no se migraron
+    @Query("""
+            SELECT h.id FROM HistorialMedico h
+            WHERE h.notas IS NOT NULL AND h.notas <> ''
+              AND (h.notasMigradas IS NULL OR h.notasMigradas = false)
+            """)
+    List<Long> findIdsConNotasSinMigrar();
+
+    // SELECT ... FOR UPDATE: dos instancias no migran el mismo historial a la vez
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM HistorialMedico h WHERE h.id = :id")
+    Optional<HistorialMedico> findParaMigrar(@Param("id") Long id);
 }
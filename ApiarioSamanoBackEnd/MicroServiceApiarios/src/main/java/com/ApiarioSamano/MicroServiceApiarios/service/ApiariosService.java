@@ -2,7 +2,10 @@ package com.ApiarioSamano.MicroServiceApiarios.service;
 
 import com.ApiarioSamano.MicroServiceApiarios.dto.CodigoResponse;
 import com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO.ApiarioRequestDTO;
+import com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO.ApiarioResumenDTO;
+import com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO.PaginaApiariosDTO;
 import com.ApiarioSamano.MicroServiceApiarios.dto.HistorialMedicoDTO.HistorialMedicoDTO;
+import com.ApiarioSamano.MicroServiceApiarios.dto.HistorialMedicoDTO.PaginaEventosHistorialDTO;
 import com.ApiarioSamano.MicroServiceApiarios.dto.MedicamentosDTO.MedicamentosResponse;
 import com.ApiarioSamano.MicroServiceApiarios.dto.RecetaDTO.RecetaRequest;
 import com.ApiarioSamano.MicroServiceApiarios.factory.ApiariosFactory;
@@ -10,17 +13,18 @@ import com.ApiarioSamano.MicroServiceApiarios.factory.HistorialFactory;
 import com.ApiarioSamano.MicroServiceApiarios.factory.RecetaFactory;
 import com.ApiarioSamano.MicroServiceApiarios.model.*;
 import com.ApiarioSamano.MicroServiceApiarios.repository.*;
+import com.ApiarioSamano.MicroServiceApiarios.service.MicroServicesAPI.MedicamentosServiceClient.CargadorMedicamentos;
 import com.ApiarioSamano.MicroServiceApiarios.service.MicroServicesAPI.MedicamentosServiceClient.IMedicamentosService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 @Service
@@ -28,11 +32,15 @@ import java.util.*;
 @Log4j2
 public class ApiariosService {
 
+    private static final int LIMITE_PAGINA_DEFECTO = 100;
+    private static final int LIMITE_PAGINA_MAXIMO = 1000;
+
     private final ApiariosRepository apiariosRepository;
     private final RecetaRepository recetaRepository;
     private final HistorialMedicoRepository historialMedicoRepository;
     private final HistorialRecetasRepository historialRecetasRepository;
     private final RecetaMedicamentoRepository recetaMedicamentoRepository;
+    private final EventoHistorialMedicoRepository eventoHistorialRepository;
 
     private final ApiariosFactory apiariosFactory;
     private final RecetaFactory recetaFactory;
@@ -172,11 +180,17 @@ public class ApiariosService {
 
             // Crear medicamentos
             if (recetaDTO.getMedicamentos() != null && !recetaDTO.getMedicamentos().isEmpty()) {
+                // Todos los medicamentos de la receta en una sola llamada a Almacén
+                Map<Long, MedicamentosResponse> infos = medicamentosService.obtenerPorIds(
+                        recetaDTO.getMedicamentos().stream().map(med -> med.getId()).toList());
+
                 List<RecetaMedicamento> lista = recetaDTO.getMedicamentos()
                         .stream()
                         .map(med -> {
-                            log.debug("🔍 Obteniendo información del medicamento ID: {}", med.getId());
-                            MedicamentosResponse info = medicamentosService.obtenerPorId(med.getId());
+                            MedicamentosResponse info = infos.get(med.getId());
+                            if (info == null) {
+                                throw new RuntimeException("Medicamento no encontrado con ID: " + med.getId());
+                            }
 
                             RecetaMedicamento rm = recetaFactory.crearRecetaMedicamento(med.getId(), info);
                             rm.setReceta(recetaGuardada);
@@ -194,9 +208,7 @@ public class ApiariosService {
             HistorialMedico historial = apiario.getHistorialMedico();
             if (historial == null) {
                 log.info("📋 Creando historial médico para apiario {}", idApiario);
-                HistorialMedicoDTO dto = new HistorialMedicoDTO("Historial creado automáticamente");
-                historial = historialFactory.crearHistorialMedico(dto);
-                historial = historialMedicoRepository.save(historial);
+                historial = crearHistorial("Historial creado automáticamente");
 
                 apiario.setHistorialMedico(historial);
                 apiariosRepository.save(apiario);
@@ -221,7 +233,7 @@ public class ApiariosService {
     // ==========================================================
 
     // ==========================================================
-    // 🔥 Marcar receta como cumplida - GUARDAR EN NOTAS
+    // 🔥 Marcar receta como cumplida - EVENTO EN EL HISTORIAL
     // ==========================================================
     @Transactional
     public CodigoResponse<Apiarios> eliminarRecetaCumplida(Long idApiario) {
@@ -245,9 +257,7 @@ public class ApiariosService {
             HistorialMedico historial = apiario.getHistorialMedico();
             if (historial == null) {
                 log.info("📋 Creando nuevo historial médico para apiario {}", idApiario);
-                HistorialMedicoDTO dto = new HistorialMedicoDTO("Historial creado al marcar receta como cumplida");
-                historial = historialFactory.crearHistorialMedico(dto);
-                historial = historialMedicoRepository.save(historial);
+                historial = crearHistorial("Historial creado al marcar receta como cumplida");
 
                 apiario.setHistorialMedico(historial);
                 apiario = apiariosRepository.save(apiario);
@@ -256,14 +266,9 @@ public class ApiariosService {
                 log.info("📋 Historial médico ya existe: ID={}", historial.getId());
             }
 
-            // 4. Construir la información de la receta para agregar a notas
+            // 4. Construir la descripción del evento
             StringBuilder recetaInfo = new StringBuilder();
 
-            // Fecha actual
-            recetaInfo.append("[")
-                    .append(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")))
-                    .append("] ");
-
             // Descripción de la receta
             String descripcionOriginal = receta.getDescripcion().replace("CUMPLIDA - ", "");
             recetaInfo.append("RECETA CUMPLIDA: ").append(descripcionOriginal);
@@ -271,35 +276,29 @@ public class ApiariosService {
             // Medicamentos si existen
             if (receta.getMedicamentos() != null && !receta.getMedicamentos().isEmpty()) {
                 recetaInfo.append(" - Medicamentos: ");
+                CargadorMedicamentos cargador = new CargadorMedicamentos(medicamentosService);
                 for (RecetaMedicamento rm : receta.getMedicamentos()) {
-                    try {
-                        MedicamentosResponse info = medicamentosService.obtenerPorId(rm.getIdMedicamento());
-                        recetaInfo.append(info.getNombre()).append(", ");
-                    } catch (Exception e) {
-                        recetaInfo.append("Med-ID:").append(rm.getIdMedicamento()).append(", ");
-                    }
+                    cargador.cargar(rm.getIdMedicamento(), info -> {
+                        if (info != null) {
+                            recetaInfo.append(info.getNombre()).append(", ");
+                        } else {
+                            recetaInfo.append("Med-ID:").append(rm.getIdMedicamento()).append(", ");
+                        }
+                    });
                 }
+                cargador.despachar();
                 // Eliminar última coma
                 if (recetaInfo.toString().endsWith(", ")) {
                     recetaInfo.setLength(recetaInfo.length() - 2);
                 }
             }
 
-            // 5. Agregar la receta a las notas del historial
-            String notasActuales = historial.getNotas();
-            String nuevaNota = recetaInfo.toString();
-
-            if (notasActuales == null || notasActuales.trim().isEmpty()) {
-                // Si no hay notas, crear la primera
-                historial.setNotas(nuevaNota);
-            } else {
-                // Si ya hay notas, agregar la nueva con separador
-                historial.setNotas(notasActuales + "\n---\n" + nuevaNota);
-            }
-
-            // Guardar el historial actualizado
-            historial = historialMedicoRepository.save(historial);
-            log.info("✅ Receta agregada a notas del historial: {}", nuevaNota);
+            // 5. Un INSERT en los eventos del historial; las notas no se tocan
+            EventoHistorialMedico evento = eventoHistorialRepository.save(new EventoHistorialMedico(
+                    null, historial.getId(), EventoHistorialMedico.TIPO_RECETA_CUMPLIDA,
+                    recetaInfo.toString(), receta.getId(), LocalDateTime.now()));
+            log.info("✅ Evento {} agregado al historial {}: {}", evento.getId(), historial.getId(),
+                    evento.getDescripcion());
 
             // 6. Marcar receta como cumplida en su descripción
             if (!descripcionOriginal.startsWith("CUMPLIDA - ")) {
@@ -313,12 +312,8 @@ public class ApiariosService {
             Apiarios apiarioActualizado = apiariosRepository.save(apiario);
             log.info("✅ Receta desvinculada del apiario");
 
-            // 8. VERIFICACIÓN FINAL
-            log.info("🔍 VERIFICACIÓN FINAL: Notas actualizadas en historial ID: {}", historial.getId());
-            log.info("📝 Contenido de notas:\n{}", historial.getNotas());
-
             log.info("🎉 Receta marcada como cumplida exitosamente para apiario {}", idApiario);
-            return new CodigoResponse<>(200, "Receta cumplida y guardada en notas del historial", apiarioActualizado);
+            return new CodigoResponse<>(200, "Receta cumplida y guardada en el historial", apiarioActualizado);
 
         } catch (Exception e) {
             log.error("❌ ERROR al marcar receta como cumplida: {}", e.getMessage(), e);
@@ -331,7 +326,7 @@ public class ApiariosService {
     // ==========================================================
     public CodigoResponse<List<Apiarios>> obtenerTodos() {
         try {
-            List<Apiarios> apiarios = apiariosRepository.findAll();
+            List<Apiarios> apiarios = apiariosRepository.findAllConDetalle();
             log.info("✅ Obtenidos {} apiarios", apiarios.size());
             return new CodigoResponse<>(200, "Apiarios obtenidos", apiarios);
         } catch (Exception e) {
@@ -340,6 +335,32 @@ public class ApiariosService {
         }
     }
 
+    // ==========================================================
+    // 📄 Listado resumido por páginas (cursor = último id visto)
+    // ==========================================================
+    public CodigoResponse<PaginaApiariosDTO> listarResumen(Long after, Integer limit) {
+        int tamaño = limit == null ? LIMITE_PAGINA_DEFECTO : limit;
+        if (tamaño < 1 || tamaño > LIMITE_PAGINA_MAXIMO) {
+            return new CodigoResponse<>(400, "limit debe estar entre 1 y " + LIMITE_PAGINA_MAXIMO, null);
+        }
+        try {
+            // Se pide uno de más para saber si hay otra página
+            List<ApiarioResumenDTO> apiarios = apiariosRepository.listarResumenDesde(
+                    after == null ? 0L : after, Limit.of(tamaño + 1));
+
+            Long siguiente = null;
+            if (apiarios.size() > tamaño) {
+                apiarios = apiarios.subList(0, tamaño);
+                siguiente = apiarios.get(tamaño - 1).getId();
+            }
+            log.info("✅ Página de {} apiarios (after={}, siguiente={})", apiarios.size(), after, siguiente);
+            return new CodigoResponse<>(200, "Apiarios obtenidos", new PaginaApiariosDTO(apiarios, siguiente));
+        } catch (Exception e) {
+            log.error("❌ ERROR al listar apiarios: {}", e.getMessage(), e);
+            return new CodigoResponse<>(500, "Error interno: " + e.getMessage(), null);
+        }
+    }
+
     // ==========================================================
     // 🔍 Obtener apiario por ID
     // ==========================================================
@@ -349,15 +370,10 @@ public class ApiariosService {
                     .orElseThrow(() -> new RuntimeException("Apiario no encontrado"));
 
             // Cargar información de medicamentos
-            if (apiario.getReceta() != null && apiario.getReceta().getMedicamentos() != null) {
-                for (RecetaMedicamento rm : apiario.getReceta().getMedicamentos()) {
-                    try {
-                        log.debug("🔍 Cargando medicamento ID: {} para apiario", rm.getIdMedicamento());
-                        rm.setMedicamentoInfo(medicamentosService.obtenerPorId(rm.getIdMedicamento()));
-                    } catch (Exception ignored) {
-                        rm.setMedicamentoInfo(null);
-                    }
-                }
+            if (apiario.getReceta() != null) {
+                CargadorMedicamentos cargador = new CargadorMedicamentos(medicamentosService);
+                cargarMedicamentos(cargador, apiario.getReceta());
+                cargador.despachar();
             }
 
             log.info("✅ Apiario encontrado: {}", apiario.getId());
@@ -380,22 +396,14 @@ public class ApiariosService {
             List<HistorialRecetas> relaciones = historialRecetasRepository.findByHistorialMedico(historial);
             List<Receta> recetas = new ArrayList<>();
 
+            // Los medicamentos de todas las recetas se piden juntos al final
+            CargadorMedicamentos cargador = new CargadorMedicamentos(medicamentosService);
             for (HistorialRecetas hr : relaciones) {
                 Receta r = hr.getReceta();
-
-                // Cargar info del medicamento
-                if (r.getMedicamentos() != null) {
-                    for (RecetaMedicamento rm : r.getMedicamentos()) {
-                        try {
-                            log.debug("🔍 Cargando medicamento ID: {} para historial", rm.getIdMedicamento());
-                            rm.setMedicamentoInfo(medicamentosService.obtenerPorId(rm.getIdMedicamento()));
-                        } catch (Exception ignored) {
-                            rm.setMedicamentoInfo(null);
-                        }
-                    }
-                }
+                cargarMedicamentos(cargador, r);
                 recetas.add(r);
             }
+            cargador.despachar();
 
             Map<String, Object> respuesta = new HashMap<>();
             respuesta.put("historialMedico", historial);
@@ -410,6 +418,38 @@ public class ApiariosService {
         }
     }
 
+    // ==========================================================
+    // 📜 Eventos del historial médico por páginas (cursor = último id)
+    // ==========================================================
+    public CodigoResponse<PaginaEventosHistorialDTO> listarEventosHistorial(Long idHistorial, Long after,
+            Integer limit) {
+        int tamaño = limit == null ? LIMITE_PAGINA_DEFECTO : limit;
+        if (tamaño < 1 || tamaño > LIMITE_PAGINA_MAXIMO) {
+            return new CodigoResponse<>(400, "limit debe estar entre 1 y " + LIMITE_PAGINA_MAXIMO, null);
+        }
+        try {
+            if (!historialMedicoRepository.existsById(idHistorial)) {
+                return new CodigoResponse<>(404, "Historial médico no encontrado con ID: " + idHistorial, null);
+            }
+
+            List<EventoHistorialMedico> eventos = eventoHistorialRepository
+                    .findByIdHistorialMedicoAndIdGreaterThanOrderByIdAsc(
+                            idHistorial, after == null ? 0L : after, Limit.of(tamaño + 1));
+
+            Long siguiente = null;
+            if (eventos.size() > tamaño) {
+                eventos = eventos.subList(0, tamaño);
+                siguiente = eventos.get(tamaño - 1).getId();
+            }
+            return new CodigoResponse<>(200, "Eventos del historial obtenidos",
+                    new PaginaEventosHistorialDTO(eventos, siguiente));
+
+        } catch (Exception e) {
+            log.error("❌ ERROR al obtener eventos del historial: {}", e.getMessage(), e);
+            return new CodigoResponse<>(500, "Error interno: " + e.getMessage(), null);
+        }
+    }
+
     // ==========================================================
     // 🔍 Obtener historial completo del apiario
     // ==========================================================
@@ -435,38 +475,20 @@ public class ApiariosService {
             List<HistorialRecetas> relaciones = historialRecetasRepository.findByHistorialMedico(historial);
             List<Receta> recetas = new ArrayList<>();
 
+            // Recetas del historial y receta activa: un solo viaje a Almacén
+            CargadorMedicamentos cargador = new CargadorMedicamentos(medicamentosService);
             for (HistorialRecetas hr : relaciones) {
                 Receta receta = hr.getReceta();
-
-                // Cargar información de medicamentos
-                if (receta.getMedicamentos() != null) {
-                    for (RecetaMedicamento rm : receta.getMedicamentos()) {
-                        try {
-                            log.debug("🔍 Cargando medicamento ID: {} para historial completo", rm.getIdMedicamento());
-                            rm.setMedicamentoInfo(medicamentosService.obtenerPorId(rm.getIdMedicamento()));
-                        } catch (Exception ignored) {
-                            rm.setMedicamentoInfo(null);
-                        }
-                    }
-                }
+                cargarMedicamentos(cargador, receta);
                 recetas.add(receta);
             }
 
+            Receta recetaActiva = apiario.getReceta();
+            cargarMedicamentos(cargador, recetaActiva);
+            cargador.despachar();
+
             respuesta.put("recetas", recetas);
             respuesta.put("totalRecetas", recetas.size());
-
-            // Cargar receta activa
-            Receta recetaActiva = apiario.getReceta();
-            if (recetaActiva != null && recetaActiva.getMedicamentos() != null) {
-                for (RecetaMedicamento rm : recetaActiva.getMedicamentos()) {
-                    try {
-                        log.debug("🔍 Cargando medicamento ID: {} para receta activa", rm.getIdMedicamento());
-                        rm.setMedicamentoInfo(medicamentosService.obtenerPorId(rm.getIdMedicamento()));
-                    } catch (Exception ignored) {
-                        rm.setMedicamentoInfo(null);
-                    }
-                }
-            }
             respuesta.put("recetaActiva", recetaActiva);
 
             log.info("✅ Historial completo obtenido para apiario {}", idApiario);
@@ -477,4 +499,24 @@ public class ApiariosService {
             return new CodigoResponse<>(500, "Error interno: " + e.getMessage(), null);
         }
     }
-}
\ No newline at end of file
+
+    // Historial nuevo con su nota de creación como primer evento: las notas
+    // quedan vacías (la migración no toca historiales que ya tienen eventos)
+    private HistorialMedico crearHistorial(String nota) {
+        HistorialMedico historial = historialMedicoRepository.save(
+                historialFactory.crearHistorialMedico(new HistorialMedicoDTO(null)));
+        eventoHistorialRepository.save(new EventoHistorialMedico(
+                null, historial.getId(), EventoHistorialMedico.TIPO_NOTA, nota, null, LocalDateTime.now()));
+        return historial;
+    }
+
+    // Anota los medicamentos de la receta; la info se asigna al despachar
+    private void cargarMedicamentos(CargadorMedicamentos cargador, Receta receta) {
+        if (receta == null || receta.getMedicamentos() == null) {
+            return;
+        }
+        for (RecetaMedicamento rm : receta.getMedicamentos()) {
+            cargador.cargar(rm.getIdMedicamento(), rm::setMedicamentoInfo);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.Cache;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aciertos y fallos de la caché de segundo nivel de Hibernate (regiones de
+ * entidades y colecciones de ehcache.xml) y de la caché de consultas, más
+ * las sentencias JDBC preparadas desde el arranque: si la caché funciona,
+ * refrescar el panel casi no las hace crecer.
+ *
+ * Necesita hibernate.generate_statistics=true; sin él todo queda en cero.
+ */
+@Component
+public class EstadisticasCacheEntidades {
+
+    // Regiones declaradas en las entidades (@Cache(region = ...))
+    private static final List<String> REGIONES = List.of(
+            "apiarios", "receta", "receta.medicamentos", "recetamedicamento", "historialmedico");
+
+    private final Statistics statistics;
+
+    public EstadisticasCacheEntidades(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public Map<String, Object> estadisticas() {
+        List<Map<String, Object>> regiones = new ArrayList<>();
+        for (String region : REGIONES) {
+            CacheRegionStatistics r = statistics.getCacheRegionStatistics(region);
+            if (r != null) {
+                regiones.add(datosRegion(region, r.getHitCount(), r.getMissCount(), r.getPutCount(),
+                        r.getElementCountInMemory()));
+            }
+        }
+
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("estadisticasHabilitadas", statistics.isStatisticsEnabled());
+        datos.put("segundoNivel", datosRegion("segundo-nivel", statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(), statistics.getSecondLevelCachePutCount(), null));
+        datos.put("consultas", datosRegion("consultas", statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount(), null));
+        datos.put("regiones", regiones);
+        datos.put("sentenciasJdbc", statistics.getPrepareStatementCount());
+        return datos;
+    }
+
+    private static Map<String, Object> datosRegion(String nombre, long aciertos, long fallos, long escrituras,
+            Long entradas) {
+        long total = aciertos + fallos;
+
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("region", nombre);
+        // ehcache no siempre informa el número de entradas
+        if (entradas != null && entradas >= 0) {
+            datos.put("entradas", entradas);
+        }
+        datos.put("aciertos", aciertos);
+        datos.put("fallos", fallos);
+        datos.put("escrituras", escrituras);
+        datos.put("tasaAciertos", total == 0 ? 0.0 : (double) aciertos / total);
+        return datos;
+    }
+}
@@ -0,0 +1,133 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.Enriquecimiento;
+
+import com.ApiarioSamano.MicroServiceApiarios.config.JwtTokenProvider;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pool acotado para las consultas remotas con las que se completan las
+ * respuestas (medicamentos de Almacén), para lanzar en paralelo las que no
+ * dependen entre sí.
+ *
+ * Cada tarea corre con el JWT y el MDC de quien la envió: el token se copia
+ * como texto al enviar, así el hilo del pool nunca toca la petición servlet,
+ * que puede haberse reciclado si la tarea sigue viva tras el plazo. Con el
+ * pool y la cola llenos la tarea corre en el hilo que la envía.
+ */
+@Slf4j
+@Component
+public class EjecutorEnriquecimiento {
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final ThreadPoolExecutor executor;
+    private final long limiteMs;
+
+    public EjecutorEnriquecimiento(
+            JwtTokenProvider jwtTokenProvider,
+            @Value("${enriquecimiento.hilos:16}") int hilos,
+            @Value("${enriquecimiento.cola:256}") int cola,
+            @Value("${enriquecimiento.limite-ms:3000}") long limiteMs) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.limiteMs = limiteMs;
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(cola), hilosConNombre("enriquecimiento-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Plazo para una petición que arranca ahora (System.nanoTime()); las
+     * tareas de una misma petición comparten el mismo.
+     */
+    public long plazo() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(limiteMs);
+    }
+
+    public <T> CompletableFuture<T> enviar(Supplier<T> tarea) {
+        String token = jwtTokenProvider.getCurrentJwtToken();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+
+        return CompletableFuture.supplyAsync(() -> {
+            Map<String, String> mdcPrevio = MDC.getCopyOfContextMap();
+            if (mdc != null) {
+                MDC.setContextMap(mdc);
+            }
+            try {
+                return jwtTokenProvider.conToken(token, tarea);
+            } finally {
+                // Con CallerRunsPolicy el hilo puede ser el de la petición
+                if (mdcPrevio != null) {
+                    MDC.setContextMap(mdcPrevio);
+                } else {
+                    MDC.clear();
+                }
+            }
+        }, executor);
+    }
+
+    /**
+     * Espera todas las tareas hasta el plazo y devuelve sus resultados en
+     * orden. Si alguna falla o el plazo vence se cancelan las que faltan y se
+     * lanza RuntimeException.
+     */
+    public <T> List<T> esperarTodas(List<CompletableFuture<T>> tareas, long plazo) {
+        try {
+            CompletableFuture.allOf(tareas.toArray(new CompletableFuture<?>[0]))
+                    .get(Math.max(0, plazo - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return tareas.stream().map(CompletableFuture::join).toList();
+
+        } catch (TimeoutException e) {
+            long enCurso = tareas.stream().filter(t -> !t.isDone()).count();
+            cancelar(tareas);
+            log.warn("⏱️ [ENRIQUECIMIENTO] Plazo de {} ms vencido con {} consultas en curso", limiteMs, enCurso);
+            throw new RuntimeException("Tiempo de espera agotado consultando otros microservicios", e);
+
+        } catch (ExecutionException e) {
+            cancelar(tareas);
+            Throwable causa = e.getCause();
+            throw causa instanceof RuntimeException r ? r : new RuntimeException(causa);
+
+        } catch (InterruptedException e) {
+            cancelar(tareas);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrumpido esperando consultas a otros microservicios", e);
+        }
+    }
+
+    private static void cancelar(List<? extends CompletableFuture<?>> tareas) {
+        for (CompletableFuture<?> t : tareas) {
+            t.cancel(true);
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        executor.shutdownNow();
+    }
+
+    private static ThreadFactory hilosConNombre(String prefijo) {
+        AtomicInteger contador = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefijo + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,139 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.Historial;
+
+import com.ApiarioSamano.MicroServiceApiarios.model.EventoHistorialMedico;
+import com.ApiarioSamano.MicroServiceApiarios.model.HistorialMedico;
+import com.ApiarioSamano.MicroServiceApiarios.repository.EventoHistorialMedicoRepository;
+import com.ApiarioSamano.MicroServiceApiarios.repository.HistorialMedicoRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pasa a eventos las notas que se acumulaban en HistorialMedico.notas
+ * ("[fecha] texto", separadas por "\n---\n"). Corre al terminar de crear los
+ * beans, antes de que arranque el servidor web, así ninguna petición agrega
+ * eventos a un historial a medio migrar. Cada historial va en su propia
+ * transacción, bloqueado con SELECT ... FOR UPDATE y marcado con
+ * notas_migradas: otra instancia que arranque a la vez lo encuentra ya
+ * migrado y no duplica eventos. Las notas originales no se borran.
+ */
+@Slf4j
+@Component
+public class MigracionNotasHistorial implements SmartInitializingSingleton {
+
+    private static final String SEPARADOR = "\n---\n";
+    private static final Pattern CON_FECHA = Pattern.compile("^\\[(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2})\\]\\s*(.*)$",
+            Pattern.DOTALL);
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final HistorialMedicoRepository historialMedicoRepository;
+    private final EventoHistorialMedicoRepository eventoRepository;
+    private final TransactionTemplate transaccion;
+
+    public MigracionNotasHistorial(
+            HistorialMedicoRepository historialMedicoRepository,
+            EventoHistorialMedicoRepository eventoRepository,
+            PlatformTransactionManager transactionManager) {
+        this.historialMedicoRepository = historialMedicoRepository;
+        this.eventoRepository = eventoRepository;
+        this.transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        migrar();
+    }
+
+    public void migrar() {
+        List<Long> pendientes;
+        try {
+            pendientes = historialMedicoRepository.findIdsConNotasSinMigrar();
+        } catch (Exception e) {
+            log.error("❌ [HISTORIAL] No se pudieron buscar notas por migrar: {}", e.getMessage());
+            return;
+        }
+        if (pendientes.isEmpty()) {
+            return;
+        }
+
+        log.info("📋 [HISTORIAL] Migrando a eventos las notas de {} historiales...", pendientes.size());
+        int eventos = 0;
+        for (Long id : pendientes) {
+            try {
+                Integer creados = transaccion.execute(estado -> migrarHistorial(id));
+                eventos += creados != null ? creados : 0;
+            } catch (Exception e) {
+                log.error("❌ [HISTORIAL] Falló la migración del historial {}: {}", id, e.getMessage());
+            }
+        }
+        log.info("✅ [HISTORIAL] Migración terminada: {} eventos creados", eventos);
+    }
+
+    private int migrarHistorial(Long idHistorial) {
+        HistorialMedico historial = historialMedicoRepository.findParaMigrar(idHistorial).orElse(null);
+        if (historial == null || Boolean.TRUE.equals(historial.getNotasMigradas())) {
+            return 0;
+        }
+
+        LocalDateTime fechaBase = historial.getFechaAplicacion() != null
+                ? historial.getFechaAplicacion()
+                : LocalDateTime.now();
+
+        // Sin marca pero con eventos: la migró una versión anterior o ya se le
+        // agregó algo. Sólo se crean las notas que aún no están como evento
+        Set<String> existentes = new HashSet<>();
+        for (EventoHistorialMedico e : eventoRepository.findByIdHistorialMedico(idHistorial)) {
+            existentes.add(e.getTipo() + "|" + e.getDescripcion());
+        }
+
+        List<EventoHistorialMedico> eventos = new ArrayList<>();
+        if (historial.getNotas() != null) {
+            for (String nota : historial.getNotas().split(Pattern.quote(SEPARADOR))) {
+                if (nota.isBlank()) {
+                    continue;
+                }
+                EventoHistorialMedico evento = aEvento(idHistorial, nota.trim(), fechaBase);
+                if (!existentes.contains(evento.getTipo() + "|" + evento.getDescripcion())) {
+                    eventos.add(evento);
+                }
+            }
+        }
+        eventoRepository.saveAll(eventos);
+        historial.setNotasMigradas(true);
+        return eventos.size();
+    }
+
+    static EventoHistorialMedico aEvento(Long idHistorial, String nota, LocalDateTime fechaBase) {
+        LocalDateTime fecha = fechaBase;
+        String texto = nota;
+
+        Matcher m = CON_FECHA.matcher(nota);
+        if (m.matches()) {
+            try {
+                fecha = LocalDateTime.parse(m.group(1), FORMATO_FECHA);
+                texto = m.group(2);
+            } catch (DateTimeParseException e) {
+                // Se deja la nota tal cual con la fecha del historial
+            }
+        }
+
+        String tipo = texto.startsWith("RECETA CUMPLIDA:")
+                ? EventoHistorialMedico.TIPO_RECETA_CUMPLIDA
+                : EventoHistorialMedico.TIPO_NOTA;
+        return new EventoHistorialMedico(null, idHistorial, tipo, texto, null, fecha);
+    }
+}
@@ -0,0 +1,363 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.Importacion;
+
+import com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO.ApiarioFilaDTO;
+import com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO.ApiarioRequestDTO;
+import com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO.ErrorFilaDTO;
+import com.ApiarioSamano.MicroServiceApiarios.dto.ApiariosDTO.ReporteImportacionDTO;
+import com.ApiarioSamano.MicroServiceApiarios.factory.ApiariosFactory;
+import com.ApiarioSamano.MicroServiceApiarios.model.Apiarios;
+import com.ApiarioSamano.MicroServiceApiarios.repository.ApiariosRepository;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+
+import org.hibernate.jpa.SpecHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Alta masiva y exportación de apiarios (con su dispositivo vinculado) en CSV
+ * o NDJSON, leyendo y escribiendo en streaming: ni el archivo ni la tabla se
+ * cargan completos en memoria.
+ *
+ * Al importar, las filas válidas se guardan en lotes de {@code lote}, cada uno
+ * en su propia transacción con INSERTs agrupados por JDBC. Si un lote falla
+ * se reintentan sus filas de a una para que sólo queden fuera las culpables.
+ */
+@Slf4j
+@Service
+public class ImportacionApiariosService {
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    private static final List<String> COLUMNAS = List.of(
+            "id", "numeroApiario", "ubicacion", "salud", "dispositivoId", "fechaVinculacion");
+    private static final int PAGINA_EXPORTACION = 1000;
+
+    private final ApiariosRepository apiariosRepository;
+    private final ApiariosFactory apiariosFactory;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transaccion;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader lectorJson;
+    private final int lote;
+    private final int maxErrores;
+
+    public ImportacionApiariosService(
+            ApiariosRepository apiariosRepository,
+            ApiariosFactory apiariosFactory,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            @Value("${importacion.apiarios.lote:500}") int lote,
+            @Value("${importacion.apiarios.max-errores:1000}") int maxErrores) {
+        this.apiariosRepository = apiariosRepository;
+        this.apiariosFactory = apiariosFactory;
+        this.entityManager = entityManager;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.lectorJson = objectMapper.readerFor(ApiarioFilaDTO.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.lote = Math.max(1, lote);
+        this.maxErrores = maxErrores;
+    }
+
+    public static String normalizarFormato(String formato) {
+        String f = formato == null ? CSV : formato.trim().toLowerCase(Locale.ROOT);
+        if (!CSV.equals(f) && !NDJSON.equals(f)) {
+            throw new IllegalArgumentException("formato debe ser csv o ndjson");
+        }
+        return f;
+    }
+
+    // ==========================================================
+    // 📥 IMPORTAR
+    // ==========================================================
+    public ReporteImportacionDTO importar(InputStream entrada, String formato) throws IOException {
+        long inicio = System.currentTimeMillis();
+        ReporteImportacionDTO reporte = new ReporteImportacionDTO();
+        reporte.setFormato(formato);
+
+        List<FilaPendiente> pendientes = new ArrayList<>(lote);
+        Set<String> dispositivosVistos = new HashSet<>();
+        Map<String, Integer> columnas = null;
+
+        BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+        String linea;
+        long numeroLinea = 0;
+        while ((linea = lector.readLine()) != null) {
+            numeroLinea++;
+            if (numeroLinea == 1 && !linea.isEmpty() && linea.charAt(0) == '\uFEFF') {
+                linea = linea.substring(1);
+            }
+            if (linea.isBlank()) {
+                continue;
+            }
+
+            if (CSV.equals(formato) && columnas == null) {
+                columnas = leerEncabezado(linea);
+                continue;
+            }
+
+            reporte.setFilasLeidas(reporte.getFilasLeidas() + 1);
+            try {
+                ApiarioFilaDTO fila = CSV.equals(formato) ? leerCsv(linea, columnas) : lectorJson.readValue(linea);
+                validar(fila);
+                String dispositivo = fila.getDispositivoId();
+                if (dispositivo != null && !dispositivosVistos.add(dispositivo)) {
+                    throw new IllegalArgumentException("dispositivoId " + dispositivo + " repetido en el archivo");
+                }
+                pendientes.add(new FilaPendiente(numeroLinea, fila));
+            } catch (Exception e) {
+                rechazar(reporte, numeroLinea, mensaje(e));
+            }
+
+            if (pendientes.size() >= lote) {
+                guardarLote(pendientes, reporte);
+                pendientes.clear();
+            }
+        }
+        if (!pendientes.isEmpty()) {
+            guardarLote(pendientes, reporte);
+        }
+
+        reporte.setDuracionMs(System.currentTimeMillis() - inicio);
+        log.info("✅ [IMPORTACION] {} filas: {} importadas, {} rechazadas en {} lotes ({} ms)",
+                reporte.getFilasLeidas(), reporte.getImportadas(), reporte.getRechazadas(), reporte.getLotes(),
+                reporte.getDuracionMs());
+        return reporte;
+    }
+
+    private void guardarLote(List<FilaPendiente> filas, ReporteImportacionDTO reporte) {
+        reporte.setLotes(reporte.getLotes() + 1);
+
+        // Dispositivos ya vinculados en la BD: una consulta por lote
+        List<String> dispositivos = new ArrayList<>();
+        for (FilaPendiente f : filas) {
+            if (f.fila.getDispositivoId() != null) {
+                dispositivos.add(f.fila.getDispositivoId());
+            }
+        }
+        Set<String> vinculados = dispositivos.isEmpty()
+                ? Set.of()
+                : new HashSet<>(apiariosRepository.findDispositivosVinculados(dispositivos));
+
+        List<FilaPendiente> validas = new ArrayList<>(filas.size());
+        for (FilaPendiente f : filas) {
+            if (vinculados.contains(f.fila.getDispositivoId())) {
+                rechazar(reporte, f.linea, "dispositivoId " + f.fila.getDispositivoId()
+                        + " ya está vinculado a otro apiario");
+            } else {
+                validas.add(f);
+            }
+        }
+        if (validas.isEmpty()) {
+            return;
+        }
+
+        try {
+            transaccion.executeWithoutResult(estado -> persistir(validas));
+            reporte.setImportadas(reporte.getImportadas() + validas.size());
+        } catch (Exception e) {
+            log.warn("⚠️ [IMPORTACION] Falló el lote {} ({}); reintentando sus filas de a una",
+                    reporte.getLotes(), mensaje(e));
+            for (FilaPendiente f : validas) {
+                try {
+                    transaccion.executeWithoutResult(estado -> persistir(List.of(f)));
+                    reporte.setImportadas(reporte.getImportadas() + 1);
+                } catch (Exception ef) {
+                    rechazar(reporte, f.linea, mensaje(ef));
+                }
+            }
+        }
+
+        log.info("📦 [IMPORTACION] Lote {}: {} filas leídas, {} importadas, {} rechazadas",
+                reporte.getLotes(), reporte.getFilasLeidas(), reporte.getImportadas(), reporte.getRechazadas());
+    }
+
+    // Entidades nuevas en cada intento: tras un rollback las anteriores
+    // quedan con ids que nunca llegaron a la BD
+    private void persistir(List<FilaPendiente> filas) {
+        // Las filas importadas no se guardan en la caché de segundo nivel: un
+        // archivo grande desalojaría los apiarios que se consultan a diario
+        entityManager.setProperty(SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        for (FilaPendiente f : filas) {
+            entityManager.persist(aEntidad(f.fila));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Apiarios aEntidad(ApiarioFilaDTO fila) {
+        Apiarios apiario = apiariosFactory.crear(new ApiarioRequestDTO(
+                fila.getNumeroApiario(), fila.getUbicacion(), fila.getSalud(), fila.getDispositivoId()));
+        if (fila.getDispositivoId() != null) {
+            apiario.setFechaVinculacion(
+                    fila.getFechaVinculacion() != null ? fila.getFechaVinculacion() : LocalDateTime.now());
+        }
+        return apiario;
+    }
+
+    private Map<String, Integer> leerEncabezado(String linea) {
+        Map<String, Integer> columnas = new HashMap<>();
+        List<String> nombres = FormatoCsv.separar(linea);
+        for (int i = 0; i < nombres.size(); i++) {
+            columnas.put(nombres.get(i).trim(), i);
+        }
+        for (String requerida : List.of("numeroApiario", "ubicacion", "salud")) {
+            if (!columnas.containsKey(requerida)) {
+                throw new IllegalArgumentException("Falta la columna " + requerida + " en el encabezado CSV");
+            }
+        }
+        return columnas;
+    }
+
+    private ApiarioFilaDTO leerCsv(String linea, Map<String, Integer> columnas) {
+        List<String> campos = FormatoCsv.separar(linea);
+        ApiarioFilaDTO fila = new ApiarioFilaDTO();
+        String numero = campo(campos, columnas, "numeroApiario");
+        if (numero != null) {
+            try {
+                fila.setNumeroApiario(Integer.valueOf(numero));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("numeroApiario no es un número: " + numero);
+            }
+        }
+        fila.setUbicacion(campo(campos, columnas, "ubicacion"));
+        fila.setSalud(campo(campos, columnas, "salud"));
+        fila.setDispositivoId(campo(campos, columnas, "dispositivoId"));
+        String fecha = campo(campos, columnas, "fechaVinculacion");
+        if (fecha != null) {
+            fila.setFechaVinculacion(LocalDateTime.parse(fecha));
+        }
+        return fila;
+    }
+
+    private static String campo(List<String> campos, Map<String, Integer> columnas, String nombre) {
+        Integer i = columnas.get(nombre);
+        if (i == null || i >= campos.size()) {
+            return null;
+        }
+        String valor = campos.get(i).trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    // Las mismas reglas que crearApiario, más los largos de columna
+    private static void validar(ApiarioFilaDTO fila) {
+        if (fila.getNumeroApiario() == null) {
+            throw new IllegalArgumentException("numeroApiario es requerido");
+        }
+        if (fila.getUbicacion() == null || fila.getUbicacion().isBlank()) {
+            throw new IllegalArgumentException("ubicacion es requerido");
+        }
+        if (fila.getSalud() == null || fila.getSalud().isBlank()) {
+            throw new IllegalArgumentException("salud es requerido");
+        }
+        if (fila.getUbicacion().length() > 200) {
+            throw new IllegalArgumentException("ubicacion supera los 200 caracteres");
+        }
+        if (fila.getSalud().length() > 100) {
+            throw new IllegalArgumentException("salud supera los 100 caracteres");
+        }
+        if (fila.getDispositivoId() != null && fila.getDispositivoId().isBlank()) {
+            fila.setDispositivoId(null);
+        }
+        if (fila.getDispositivoId() != null && fila.getDispositivoId().length() > 50) {
+            throw new IllegalArgumentException("dispositivoId supera los 50 caracteres");
+        }
+    }
+
+    private void rechazar(ReporteImportacionDTO reporte, long linea, String mensaje) {
+        reporte.setRechazadas(reporte.getRechazadas() + 1);
+        if (reporte.getErrores().size() < maxErrores) {
+            reporte.getErrores().add(new ErrorFilaDTO(linea, mensaje));
+        } else {
+            reporte.setErroresOmitidos(reporte.getErroresOmitidos() + 1);
+        }
+    }
+
+    private static String mensaje(Throwable e) {
+        Throwable causa = e;
+        while (causa.getCause() != null && causa.getCause() != causa) {
+            causa = causa.getCause();
+        }
+        return causa.getMessage() != null ? causa.getMessage() : causa.getClass().getSimpleName();
+    }
+
+    // ==========================================================
+    // 📤 EXPORTAR
+    // ==========================================================
+    public void exportar(OutputStream salida, String formato) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        if (CSV.equals(formato)) {
+            escritor.write(String.join(",", COLUMNAS));
+            escritor.write('\n');
+        }
+
+        long after = 0;
+        long total = 0;
+        List<ApiarioFilaDTO> pagina;
+        do {
+            pagina = apiariosRepository.listarFilasDesde(after, Limit.of(PAGINA_EXPORTACION));
+            for (ApiarioFilaDTO fila : pagina) {
+                if (CSV.equals(formato)) {
+                    escritor.write(aCsv(fila));
+                } else {
+                    escritor.write(objectMapper.writeValueAsString(fila));
+                }
+                escritor.write('\n');
+                after = fila.getId();
+            }
+            total += pagina.size();
+            escritor.flush();
+        } while (pagina.size() == PAGINA_EXPORTACION);
+
+        log.info("✅ [EXPORTACION] {} apiarios exportados en {}", total, formato);
+    }
+
+    private static String aCsv(ApiarioFilaDTO fila) {
+        return String.join(",",
+                FormatoCsv.escapar(fila.getId()),
+                FormatoCsv.escapar(fila.getNumeroApiario()),
+                FormatoCsv.escapar(fila.getUbicacion()),
+                FormatoCsv.escapar(fila.getSalud()),
+                FormatoCsv.escapar(fila.getDispositivoId()),
+                FormatoCsv.escapar(fila.getFechaVinculacion()));
+    }
+
+    private static final class FilaPendiente {
+        private final long linea;
+        private final ApiarioFilaDTO fila;
+
+        private FilaPendiente(long linea, ApiarioFilaDTO fila) {
+            this.linea = linea;
+            this.fila = fila;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.MicroServicesAPI.MedicamentosServiceClient;
+
+import com.ApiarioSamano.MicroServiceApiarios.dto.MedicamentosDTO.MedicamentosResponse;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Carga diferida de medicamentos para una petición: se anotan todos los ids
+ * que hacen falta con {@link #cargar} y {@link #despachar} los pide juntos,
+ * sin repetidos, en una sola llamada a {@link IMedicamentosService#obtenerPorIds}.
+ * Un historial con 40 recetas cuesta un viaje a Almacén y no 40.
+ *
+ * No es thread-safe: se crea uno por petición.
+ */
+@Slf4j
+public class CargadorMedicamentos {
+
+    private final IMedicamentosService medicamentosService;
+    private final Set<Long> ids = new LinkedHashSet<>();
+    private final List<Pendiente> pendientes = new ArrayList<>();
+
+    public CargadorMedicamentos(IMedicamentosService medicamentosService) {
+        this.medicamentosService = medicamentosService;
+    }
+
+    /**
+     * Anota el id; al despachar, {@code destino} recibe el medicamento o null
+     * si no existe o no se pudo obtener.
+     */
+    public void cargar(Long id, Consumer<MedicamentosResponse> destino) {
+        if (id != null) {
+            ids.add(id);
+        }
+        pendientes.add(new Pendiente(id, destino));
+    }
+
+    /**
+     * Pide todos los ids anotados y entrega cada resultado. Si la llamada
+     * falla, todos reciben null, igual que cuando se pedían de a uno.
+     */
+    public Map<Long, MedicamentosResponse> despachar() {
+        Map<Long, MedicamentosResponse> medicamentos;
+        try {
+            medicamentos = ids.isEmpty() ? Map.of() : medicamentosService.obtenerPorIds(ids);
+        } catch (Exception e) {
+            log.error("❌ [MEDICAMENTOS] No se pudieron cargar {} medicamentos: {}", ids.size(), e.getMessage());
+            medicamentos = Map.of();
+        }
+
+        for (Pendiente p : pendientes) {
+            p.destino.accept(p.id != null ? medicamentos.get(p.id) : null);
+        }
+        ids.clear();
+        pendientes.clear();
+        return medicamentos;
+    }
+
+    private static final class Pendiente {
+        private final Long id;
+        private final Consumer<MedicamentosResponse> destino;
+
+        private Pendiente(Long id, Consumer<MedicamentosResponse> destino) {
+            this.id = id;
+            this.destino = destino;
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package com.ApiarioSamano.MicroServiceApiarios.service.MicroServicesAPI.MedicamentosServiceClient;
 
 import com.ApiarioSamano.MicroServiceApiarios.dto.MedicamentosDTO.MedicamentosResponse;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface IMedicamentosService {
     List<MedicamentosResponse> obtenerTodos();
 
     MedicamentosResponse obtenerPorId(Long id);
+
+    // id -> medicamento; los que no existen no aparecen en el mapa
+    Map<Long, MedicamentosResponse> obtenerPorIds(Collection<Long> ids);
 }
\ No newline at end of file
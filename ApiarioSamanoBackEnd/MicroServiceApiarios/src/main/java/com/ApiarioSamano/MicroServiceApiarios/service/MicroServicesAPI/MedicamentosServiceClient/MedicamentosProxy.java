@@ -2,12 +2,19 @@ package com.ApiarioSamano.MicroServiceApiarios.service.MicroServicesAPI.Medicame
 
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
+import com.ApiarioSamano.MicroServiceApiarios.config.JwtTokenProvider;
 import com.ApiarioSamano.MicroServiceApiarios.dto.MedicamentosDTO.MedicamentosResponse;
+import com.ApiarioSamano.MicroServiceApiarios.service.Cache.CacheConRecarga;
+import com.ApiarioSamano.MicroServiceApiarios.service.Enriquecimiento.EjecutorEnriquecimiento;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
@@ -15,90 +22,77 @@ import java.util.concurrent.ConcurrentMap;
 public class MedicamentosProxy implements IMedicamentosService {
 
     private final MicroServiceClientMedicamentos realService;
-    private final ConcurrentMap<String, CacheEntry> cache;
+    private final EjecutorEnriquecimiento ejecutor;
+    private final JwtTokenProvider jwtTokenProvider;
 
     // Tiempo de vida del cache en milisegundos (5 minutos - los medicamentos pueden
-    // cambiar)
+    // cambiar); desde el minuto 4 se sirve el valor y se recarga en segundo plano
     private static final long CACHE_TTL = 5 * 60 * 1000;
-
-    public MedicamentosProxy(MicroServiceClientMedicamentos realService) {
+    private static final long CACHE_REFRESCO = 4 * 60 * 1000;
+    // Ids que Almacén no conoce o listas vacías: se vuelven a pedir pronto
+    private static final long CACHE_TTL_NEGATIVO = 30 * 1000;
+    private static final int CACHE_MAX_MEDICAMENTOS = 2000;
+
+    // Ids por llamada a /por-ids, para no pasarse del largo de URL
+    private static final int MAX_IDS_POR_LLAMADA = 100;
+
+    private final CacheConRecarga<String, List<MedicamentosResponse>> cacheTodos = new CacheConRecarga<>(
+            "MEDICAMENTOS-TODOS", 1, CACHE_TTL, CACHE_REFRESCO, CACHE_TTL_NEGATIVO,
+            lista -> lista == null || lista.isEmpty());
+    private final CacheConRecarga<Long, MedicamentosResponse> cachePorId = new CacheConRecarga<>(
+            "MEDICAMENTOS", CACHE_MAX_MEDICAMENTOS, CACHE_TTL, CACHE_REFRESCO, CACHE_TTL_NEGATIVO);
+
+    public MedicamentosProxy(MicroServiceClientMedicamentos realService, EjecutorEnriquecimiento ejecutor,
+            JwtTokenProvider jwtTokenProvider) {
         this.realService = realService;
-        this.cache = new ConcurrentHashMap<>();
+        this.ejecutor = ejecutor;
+        this.jwtTokenProvider = jwtTokenProvider;
     }
 
     @Override
     public List<MedicamentosResponse> obtenerTodos() {
-        String cacheKey = "TODOS_MEDICAMENTOS";
-
-        CacheEntry cacheEntry = getFromCache(cacheKey);
-        if (cacheEntry != null && !isCacheExpired(cacheEntry)) {
-            log.info("✅ [CACHE-MEDICAMENTOS] Retornando todos los medicamentos desde cache");
-            @SuppressWarnings("unchecked")
-            List<MedicamentosResponse> cachedMedicamentos = (List<MedicamentosResponse>) cacheEntry.getData();
-            return cachedMedicamentos;
-        }
-
-        log.info("🔍 [CACHE-MEDICAMENTOS] Cache miss para todos los medicamentos, llamando al servicio real...");
-        List<MedicamentosResponse> medicamentos = realService.obtenerTodos();
-
-        // Almacenar en cache solo si se obtuvieron medicamentos
-        if (medicamentos != null && !medicamentos.isEmpty()) {
-            cache.put(cacheKey, new CacheEntry(medicamentos, System.currentTimeMillis()));
-            log.debug("💾 [CACHE-MEDICAMENTOS] Medicamentos almacenados en cache. Cantidad: {}", medicamentos.size());
-        } else {
-            log.warn("⚠️ [CACHE-MEDICAMENTOS] No se almacenó en cache porque no se obtuvieron medicamentos");
-        }
-
-        return medicamentos;
+        log.debug("🔍 [CACHE-MEDICAMENTOS] Consultando todos los medicamentos");
+        return cacheTodos.obtener("TODOS_MEDICAMENTOS", conToken(realService::obtenerTodos));
     }
 
     @Override
     public MedicamentosResponse obtenerPorId(Long id) {
-        String cacheKey = "MEDICAMENTO_ID_" + id;
-
-        CacheEntry cacheEntry = getFromCache(cacheKey);
-        if (cacheEntry != null && !isCacheExpired(cacheEntry)) {
-            log.info("✅ [CACHE-MEDICAMENTOS] Retornando medicamento ID {} desde cache", id);
-            return (MedicamentosResponse) cacheEntry.getData();
-        }
-
-        log.info("🔍 [CACHE-MEDICAMENTOS] Cache miss para medicamento ID {}, llamando al servicio real...", id);
-        MedicamentosResponse medicamento = realService.obtenerPorId(id);
-
-        // Almacenar en cache
-        cache.put(cacheKey, new CacheEntry(medicamento, System.currentTimeMillis()));
-        log.debug("💾 [CACHE-MEDICAMENTOS] Medicamento ID {} almacenado en cache", id);
-
-        return medicamento;
+        log.debug("🔍 [CACHE-MEDICAMENTOS] Consultando medicamento ID {}", id);
+        return cachePorId.obtener(id, conToken(() -> realService.obtenerPorId(id)));
     }
 
-    /**
-     * Clase interna para manejar entradas de cache con timestamp
-     */
-    private static class CacheEntry {
-        private final Object data;
-        private final long timestamp;
-
-        public CacheEntry(Object data, long timestamp) {
-            this.data = data;
-            this.timestamp = timestamp;
-        }
+    @Override
+    public Map<Long, MedicamentosResponse> obtenerPorIds(Collection<Long> ids) {
+        String token = jwtTokenProvider.getCurrentJwtToken();
+        return cachePorId.obtenerVarios(ids,
+                faltantes -> jwtTokenProvider.conToken(token, () -> pedirPorIds(faltantes)));
+    }
 
-        public Object getData() {
-            return data;
+    // Las llamadas de cada tramo van en paralelo: la espera es la de la más
+    // lenta, acotada por el plazo de la petición
+    private Map<Long, MedicamentosResponse> pedirPorIds(List<Long> faltantes) {
+        log.info("🔍 [CACHE-MEDICAMENTOS] {} medicamentos por pedir al servicio real en un solo lote...",
+                faltantes.size());
+
+        long plazo = ejecutor.plazo();
+        List<CompletableFuture<Map<Long, MedicamentosResponse>>> llamadas = new ArrayList<>();
+        for (int i = 0; i < faltantes.size(); i += MAX_IDS_POR_LLAMADA) {
+            List<Long> lote = List.copyOf(faltantes.subList(i, Math.min(i + MAX_IDS_POR_LLAMADA, faltantes.size())));
+            llamadas.add(ejecutor.enviar(() -> realService.obtenerPorIds(lote)));
         }
 
-        public long getTimestamp() {
-            return timestamp;
+        Map<Long, MedicamentosResponse> obtenidos = new HashMap<>();
+        for (Map<Long, MedicamentosResponse> parcial : ejecutor.esperarTodas(llamadas, plazo)) {
+            obtenidos.putAll(parcial);
         }
+        return obtenidos;
     }
 
-    private CacheEntry getFromCache(String key) {
-        return cache.get(key);
-    }
-
-    private boolean isCacheExpired(CacheEntry entry) {
-        return (System.currentTimeMillis() - entry.getTimestamp()) > CACHE_TTL;
+    // La recarga en segundo plano no ve la petición: se lleva el JWT de quien
+    // la dispara
+    private <T> Supplier<T> conToken(Supplier<T> llamada) {
+        String token = jwtTokenProvider.getCurrentJwtToken();
+        return () -> jwtTokenProvider.conToken(token, llamada);
     }
 
     /**
@@ -106,45 +100,26 @@ public class MedicamentosProxy implements IMedicamentosService {
      */
 
     public void limpiarCacheCompleto() {
-        cache.clear();
+        cacheTodos.invalidarTodo();
+        cachePorId.invalidarTodo();
         log.info("🗑️ [CACHE-MEDICAMENTOS] Cache de medicamentos limpiado completamente");
     }
 
     public void limpiarCachePorId(Long id) {
-        String key = "MEDICAMENTO_ID_" + id;
-        cache.remove(key);
+        cachePorId.invalidar(id);
         log.info("🗑️ [CACHE-MEDICAMENTOS] Cache limpiado para medicamento ID {}", id);
     }
 
     public void limpiarCacheTodos() {
-        cache.remove("TODOS_MEDICAMENTOS");
+        cacheTodos.invalidarTodo();
         log.info("🗑️ [CACHE-MEDICAMENTOS] Cache limpiado para todos los medicamentos");
     }
 
     public int obtenerTamañoCache() {
-        return cache.size();
-    }
-
-    public void limpiarCacheExpirado() {
-        int initialSize = cache.size();
-        cache.entrySet().removeIf(entry -> {
-            CacheEntry cacheEntry = entry.getValue();
-            return isCacheExpired(cacheEntry);
-        });
-        int finalSize = cache.size();
-        log.info("🧹 [CACHE-MEDICAMENTOS] Cache expirado limpiado: {} entradas removidas", (initialSize - finalSize));
+        return cacheTodos.tamaño() + cachePorId.tamaño();
     }
 
-    public boolean isCacheActivo(String key) {
-        CacheEntry entry = cache.get(key);
-        return entry != null && !isCacheExpired(entry);
-    }
-
-    public long getTiempoRestanteCache(String key) {
-        CacheEntry entry = cache.get(key);
-        if (entry == null || isCacheExpired(entry)) {
-            return 0;
-        }
-        return CACHE_TTL - (System.currentTimeMillis() - entry.getTimestamp());
+    public List<Map<String, Object>> obtenerEstadisticasCache() {
+        return List.of(cacheTodos.estadisticas(), cachePorId.estadisticas());
     }
-}
\ No newline at end of file
+}
@@ -12,7 +12,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class MicroServiceClientMedicamentos implements IMedicamentosService {
@@ -127,4 +131,52 @@ public class MicroServiceClientMedicamentos implements IMedicamentosService {
             throw new RuntimeException("Error al obtener medicamento desde el microservicio", e);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public Map<Long, MedicamentosResponse> obtenerPorIds(Collection<Long> ids) {
+        log.info("🔄 [MEDICAMENTOS] Iniciando obtención de {} medicamentos por ID", ids.size());
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+
+        String token = jwtTokenProvider.getCurrentJwtToken();
+        if (token == null) {
+            log.error("❌ [MEDICAMENTOS] No se encontró un token JWT válido en la solicitud actual.");
+            throw new RuntimeException("No se encontró un token JWT válido en la solicitud actual.");
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+
+        try {
+            String endpoint = urlAlmacen + "/por-ids?ids="
+                    + ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+            log.info("🌐 [MEDICAMENTOS] Realizando llamada HTTP GET a {}", endpoint);
+
+            ResponseEntity<CodigoResponse<MedicamentosResponse[]>> response = restTemplate.exchange(
+                    endpoint,
+                    HttpMethod.GET,
+                    entity,
+                    new ParameterizedTypeReference<CodigoResponse<MedicamentosResponse[]>>() {
+                    });
+
+            CodigoResponse<MedicamentosResponse[]> codigoResponse = response.getBody();
+            Map<Long, MedicamentosResponse> medicamentos = new HashMap<>();
+            if (codigoResponse != null && codigoResponse.getData() != null) {
+                for (MedicamentosResponse m : codigoResponse.getData()) {
+                    medicamentos.put(m.getId(), m);
+                }
+            }
+            log.info("✅ [MEDICAMENTOS] {} de {} medicamentos obtenidos", medicamentos.size(), ids.size());
+            return medicamentos;
+
+        } catch (Exception e) {
+            log.error("❌ [MEDICAMENTOS] Error al obtener medicamentos por ID desde el microservicio: {}",
+                    e.getMessage(), e);
+            throw new RuntimeException("Error al obtener medicamentos desde el microservicio", e);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Anomalias;
+
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.TiposSensor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detección de anomalías en línea sobre cada lectura numérica, en el mismo
+ * worker de ingesta que la procesa: sin ventanas ni historial, sólo
+ * {@link EstadisticaSensor} por sensor.
+ *
+ * - DESVIACION: |valor - media| > z * sigma, con media y varianza EWMA y tras
+ *   un mínimo de muestras para que la media se asiente.
+ * - CAMBIO_BRUSCO: pendiente contra la lectura anterior mayor que el límite
+ *   por minuto configurado para ese sensor (sin límite no se evalúa).
+ * - SENSOR_PLANO: el mismo valor (± tolerancia) durante plano-ms; se avisa una
+ *   vez por racha.
+ *
+ * Las dos primeras se silencian silencio-ms por sensor para no generar una
+ * alerta por lectura mientras dura el evento.
+ */
+@Component
+public class DetectorAnomalias {
+
+    private final FeedAlertas feedAlertas;
+
+    private final double alfa;
+    private final double umbralZ;
+    private final double sigmaMin;
+    private final int minMuestras;
+    private final long planoMs;
+    private final double toleranciaPlano;
+    private final long silencioMs;
+    private final Map<String, Double> limitesCambio = new HashMap<>();
+
+    private final Map<String, EstadisticaSensor[]> estadisticas = new ConcurrentHashMap<>();
+    // Momento de la última alerta de cada dispositivo
+    private final Map<String, Long> ultimaAlerta = new ConcurrentHashMap<>();
+
+    public DetectorAnomalias(
+            FeedAlertas feedAlertas,
+            @Value("${anomalias.ewma.alfa:0.05}") double alfa,
+            @Value("${anomalias.desviacion.z:4}") double umbralZ,
+            @Value("${anomalias.desviacion.sigma-min:0.5}") double sigmaMin,
+            @Value("${anomalias.desviacion.min-muestras:20}") int minMuestras,
+            @Value("${anomalias.cambio.limites:}") List<String> limitesCambio,
+            @Value("${anomalias.plano.ms:1800000}") long planoMs,
+            @Value("${anomalias.plano.tolerancia:0}") double toleranciaPlano,
+            @Value("${anomalias.silencio-ms:300000}") long silencioMs) {
+        if (alfa <= 0 || alfa > 1) {
+            throw new IllegalArgumentException("anomalias.ewma.alfa debe estar en (0, 1]");
+        }
+        this.feedAlertas = feedAlertas;
+        this.alfa = alfa;
+        this.umbralZ = umbralZ;
+        this.sigmaMin = sigmaMin;
+        this.minMuestras = minMuestras;
+        this.planoMs = planoMs;
+        this.toleranciaPlano = toleranciaPlano;
+        this.silencioMs = silencioMs;
+
+        // "sensor=unidades por minuto", p. ej. humedad_suelo=20
+        for (String limite : limitesCambio) {
+            int igual = limite.indexOf('=');
+            if (igual > 0) {
+                this.limitesCambio.put(limite.substring(0, igual).trim(),
+                        Double.parseDouble(limite.substring(igual + 1).trim()));
+            }
+        }
+    }
+
+    // ================================
+    // 🔎 EVALUAR LECTURA (worker de ingesta)
+    // ================================
+    public void evaluar(String dispositivoId, String apiarioId, int tipo, String sensor, double valor,
+            long timestamp) {
+        if (tipo < 0 || tipo >= TiposSensor.MAX_TIPOS) {
+            return;
+        }
+        EstadisticaSensor[] sensores = estadisticas.computeIfAbsent(dispositivoId,
+                k -> new EstadisticaSensor[TiposSensor.MAX_TIPOS]);
+
+        List<AlertaPendiente> alertas = null;
+        synchronized (sensores) {
+            EstadisticaSensor e = sensores[tipo];
+            if (e == null) {
+                e = new EstadisticaSensor();
+                sensores[tipo] = e;
+            }
+            // Una lectura atrasada (relay de otro nodo) no entra a la estadística
+            if (e.muestras > 0 && timestamp < e.ultimoTimestamp) {
+                return;
+            }
+
+            if (e.muestras >= minMuestras && !e.enSilencio(TipoAnomalia.DESVIACION, timestamp, silencioMs)) {
+                double sigma = Math.max(Math.sqrt(e.varianza), sigmaMin);
+                double z = Math.abs(valor - e.media) / sigma;
+                if (z > umbralZ) {
+                    e.marcarAlerta(TipoAnomalia.DESVIACION, timestamp);
+                    alertas = agregar(alertas, new AlertaPendiente(TipoAnomalia.DESVIACION, e.media,
+                            String.format("%.1f desviaciones de la media", z)));
+                }
+            }
+
+            Double limite = limitesCambio.get(sensor);
+            if (limite != null && e.muestras > 0
+                    && !e.enSilencio(TipoAnomalia.CAMBIO_BRUSCO, timestamp, silencioMs)) {
+                // Piso de 1 s: dos lecturas casi simultáneas no son una pendiente infinita
+                long intervalo = Math.max(timestamp - e.ultimoTimestamp, 1000);
+                double porMinuto = Math.abs(valor - e.ultimoValor) * 60_000d / intervalo;
+                if (porMinuto > limite) {
+                    e.marcarAlerta(TipoAnomalia.CAMBIO_BRUSCO, timestamp);
+                    alertas = agregar(alertas, new AlertaPendiente(TipoAnomalia.CAMBIO_BRUSCO, e.ultimoValor,
+                            String.format("%.2f por minuto (límite %.2f)", porMinuto, limite)));
+                }
+            }
+
+            if (e.muestras == 0 || Math.abs(valor - e.ultimoValor) > toleranciaPlano) {
+                e.planoDesde = timestamp;
+                e.planoAvisado = false;
+            } else if (!e.planoAvisado && timestamp - e.planoDesde >= planoMs) {
+                e.planoAvisado = true;
+                alertas = agregar(alertas, new AlertaPendiente(TipoAnomalia.SENSOR_PLANO, valor,
+                        "Sin cambios desde hace " + (timestamp - e.planoDesde) / 60_000 + " min"));
+            }
+
+            e.actualizar(valor, timestamp, alfa);
+        }
+
+        // Fuera del lock: el feed toca el WebSocket
+        if (alertas != null) {
+            ultimaAlerta.merge(dispositivoId, timestamp, Math::max);
+            for (AlertaPendiente a : alertas) {
+                feedAlertas.publicar(dispositivoId, apiarioId, sensor, a.tipo, valor, a.referencia, a.detalle,
+                        timestamp);
+            }
+        }
+    }
+
+    public boolean anomaliaDesde(String dispositivoId, long desde) {
+        Long ultima = ultimaAlerta.get(dispositivoId);
+        return ultima != null && ultima >= desde;
+    }
+
+    public void olvidar(String dispositivoId) {
+        estadisticas.remove(dispositivoId);
+        ultimaAlerta.remove(dispositivoId);
+    }
+
+    private static List<AlertaPendiente> agregar(List<AlertaPendiente> alertas, AlertaPendiente alerta) {
+        if (alertas == null) {
+            alertas = new ArrayList<>(2);
+        }
+        alertas.add(alerta);
+        return alertas;
+    }
+
+    private static class AlertaPendiente {
+        final TipoAnomalia tipo;
+        final double referencia;
+        final String detalle;
+
+        AlertaPendiente(TipoAnomalia tipo, double referencia, String detalle) {
+            this.tipo = tipo;
+            this.referencia = referencia;
+            this.detalle = detalle;
+        }
+    }
+}
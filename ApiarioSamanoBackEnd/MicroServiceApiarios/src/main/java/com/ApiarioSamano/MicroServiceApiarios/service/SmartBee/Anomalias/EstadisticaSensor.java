@@ -0,0 +1,49 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Anomalias;
+
+/**
+ * Estado de detección de un sensor de un dispositivo: media y varianza
+ * exponenciales, última lectura y desde cuándo no cambia. Memoria constante
+ * por sensor; la protege el lock del arreglo de su dispositivo.
+ */
+class EstadisticaSensor {
+
+    long muestras;
+    double media;
+    double varianza;
+
+    double ultimoValor;
+    long ultimoTimestamp;
+
+    // Primera lectura de la racha actual con el mismo valor
+    long planoDesde;
+    boolean planoAvisado;
+
+    // Última alerta de cada TipoAnomalia, para no repetirla en cada lectura
+    final long[] ultimaAlerta = new long[TipoAnomalia.values().length];
+
+    /**
+     * Incorpora la lectura a la media y varianza exponenciales (West, 1979).
+     */
+    void actualizar(double valor, long timestamp, double alfa) {
+        if (muestras == 0) {
+            media = valor;
+            varianza = 0;
+        } else {
+            double diferencia = valor - media;
+            double incremento = alfa * diferencia;
+            media += incremento;
+            varianza = (1 - alfa) * (varianza + diferencia * incremento);
+        }
+        muestras++;
+        ultimoValor = valor;
+        ultimoTimestamp = timestamp;
+    }
+
+    boolean enSilencio(TipoAnomalia tipo, long ahora, long silencioMs) {
+        return ahora - ultimaAlerta[tipo.ordinal()] < silencioMs;
+    }
+
+    void marcarAlerta(TipoAnomalia tipo, long ahora) {
+        ultimaAlerta[tipo.ordinal()] = ahora;
+    }
+}
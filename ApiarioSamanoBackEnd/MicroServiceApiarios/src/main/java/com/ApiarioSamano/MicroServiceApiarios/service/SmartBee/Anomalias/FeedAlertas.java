@@ -0,0 +1,78 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Anomalias;
+
+import com.ApiarioSamano.MicroServiceApiarios.config.SensorWebSocketHandler;
+import com.ApiarioSamano.MicroServiceApiarios.dto.AlertaDTO.AlertaSensorDTO;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.AlertaMensaje;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Últimas alertas de anomalías en memoria (acotadas), para el feed REST, y
+ * salida inmediata por /ws/sensores a las sesiones suscritas al dispositivo.
+ */
+@Slf4j
+@Component
+public class FeedAlertas {
+
+    private final SensorWebSocketHandler sensorWebSocketHandler;
+    private final int capacidad;
+
+    private final ArrayDeque<AlertaSensorDTO> alertas = new ArrayDeque<>();
+    private long ultimoId;
+
+    public FeedAlertas(SensorWebSocketHandler sensorWebSocketHandler,
+            @Value("${anomalias.feed.capacidad:1000}") int capacidad) {
+        this.sensorWebSocketHandler = sensorWebSocketHandler;
+        this.capacidad = capacidad;
+    }
+
+    public AlertaSensorDTO publicar(String dispositivoId, String apiarioId, String sensor, TipoAnomalia tipo,
+            double valor, double referencia, String detalle, long timestamp) {
+        AlertaSensorDTO alerta;
+        synchronized (alertas) {
+            alerta = new AlertaSensorDTO(++ultimoId, dispositivoId, apiarioId, sensor, tipo.name(), valor,
+                    referencia, detalle, timestamp);
+            if (alertas.size() >= capacidad) {
+                alertas.pollFirst();
+            }
+            alertas.addLast(alerta);
+        }
+
+        log.info("🚨 [ANOMALÍA] {} en {} de {}: {} ({})", tipo, sensor, dispositivoId, valor, detalle);
+        try {
+            sensorWebSocketHandler.enviar(new AlertaMensaje(alerta));
+        } catch (Exception e) {
+            log.error("❌ Error enviando alerta por WebSocket: {}", e.getMessage());
+        }
+        return alerta;
+    }
+
+    /**
+     * Alertas con id mayor que {@code desde}, de la más antigua a la más
+     * reciente, opcionalmente de un solo dispositivo. Devuelve las primeras
+     * {@code limite}: el cliente pide la siguiente página con el id de la
+     * última recibida sin saltarse ninguna.
+     */
+    public List<AlertaSensorDTO> consultar(long desde, String dispositivoId, int limite) {
+        List<AlertaSensorDTO> resultado = new ArrayList<>();
+        synchronized (alertas) {
+            // Los ids son crecientes: se salta lo ya visto y se corta al llenar la página
+            for (AlertaSensorDTO a : alertas) {
+                if (resultado.size() >= limite) {
+                    break;
+                }
+                if (a.getId() > desde && (dispositivoId == null || dispositivoId.equals(a.getDispositivoId()))) {
+                    resultado.add(a);
+                }
+            }
+        }
+        return resultado;
+    }
+}
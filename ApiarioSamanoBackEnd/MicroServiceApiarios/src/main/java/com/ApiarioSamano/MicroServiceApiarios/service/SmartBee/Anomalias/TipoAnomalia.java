@@ -0,0 +1,10 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Anomalias;
+
+public enum TipoAnomalia {
+    // La lectura se aleja más de z desviaciones de la media móvil (EWMA)
+    DESVIACION,
+    // El valor cambió más rápido que el límite por minuto del sensor
+    CAMBIO_BRUSCO,
+    // El sensor repite el mismo valor durante demasiado tiempo (atascado)
+    SENSOR_PLANO
+}
@@ -0,0 +1,104 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Lectura ya procesada que un nodo reenvía a los demás. Formato binario
+ * compacto: versión, nodo de origen, dispositivo, sensor, tipo, timestamp y
+ * el valor (double) o el texto.
+ */
+public class LecturaRelay {
+
+    public static final byte NUMERICO = 1;
+    public static final byte TEXTO = 2;
+    public static final byte DESCONECTADO = 3;
+
+    private static final byte VERSION = 1;
+
+    private final String nodoOrigen;
+    private final String dispositivoId;
+    private final String sensor;
+    private final byte tipo;
+    private final long timestamp;
+    private final double valor;
+    private final String texto;
+
+    public LecturaRelay(String nodoOrigen, String dispositivoId, String sensor, byte tipo, long timestamp,
+            double valor, String texto) {
+        this.nodoOrigen = nodoOrigen;
+        this.dispositivoId = dispositivoId;
+        this.sensor = sensor;
+        this.tipo = tipo;
+        this.timestamp = timestamp;
+        this.valor = valor;
+        this.texto = texto;
+    }
+
+    public String getNodoOrigen() {
+        return nodoOrigen;
+    }
+
+    public String getDispositivoId() {
+        return dispositivoId;
+    }
+
+    public String getSensor() {
+        return sensor;
+    }
+
+    public byte getTipo() {
+        return tipo;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public double getValor() {
+        return valor;
+    }
+
+    public String getTexto() {
+        return texto;
+    }
+
+    public byte[] codificar() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(nodoOrigen);
+            out.writeUTF(dispositivoId);
+            out.writeUTF(sensor);
+            out.writeByte(tipo);
+            out.writeLong(timestamp);
+            if (tipo == NUMERICO) {
+                out.writeDouble(valor);
+            } else if (tipo == TEXTO) {
+                out.writeUTF(texto);
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream no lanza
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static LecturaRelay decodificar(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        if (in.readByte() != VERSION) {
+            throw new IOException("Versión de relay desconocida");
+        }
+        String nodo = in.readUTF();
+        String dispositivo = in.readUTF();
+        String sensor = in.readUTF();
+        byte tipo = in.readByte();
+        long timestamp = in.readLong();
+        double valor = tipo == NUMERICO ? in.readDouble() : Double.NaN;
+        String texto = tipo == TEXTO ? in.readUTF() : null;
+        return new LecturaRelay(nodo, dispositivo, sensor, tipo, timestamp, valor, texto);
+    }
+}
@@ -0,0 +1,190 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Cluster;
+
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta.AnilloAcotado;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta.MensajeMqtt;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Varias instancias del microservicio consumiendo el mismo broker.
+ *
+ * Con {@code mqtt.cluster.grupo} definido cada instancia usa un client id
+ * propio y se suscribe a los topics de dispositivos mediante una suscripción
+ * compartida ($share/grupo/...), así el broker reparte los mensajes y cada
+ * lectura se procesa en un solo nodo. Ese nodo la reenvía ya procesada por
+ * apiarios/relay/dispositivos/{id}; el resto de nodos (suscripción normal)
+ * actualizan su estado y sus WebSockets sin volver a procesarla.
+ *
+ * Sin grupo todo queda como antes: un solo consumidor con el client id fijo.
+ */
+@Slf4j
+@Component
+public class RelayCluster {
+
+    public static final String PREFIJO_RELAY = "apiarios/relay/dispositivos/";
+    private static final String FILTRO_DISPOSITIVOS = "apiarios/dispositivos/#";
+
+    @FunctionalInterface
+    public interface Publicador {
+        void publicar(String topic, byte[] payload) throws Exception;
+    }
+
+    private final String grupo;
+    private final String nodoId;
+    private final AnilloAcotado<MensajeMqtt> pendientes;
+
+    private final AtomicLong reenviados = new AtomicLong();
+    private final AtomicLong descartados = new AtomicLong();
+    private final AtomicLong recibidos = new AtomicLong();
+
+    private final AtomicBoolean emisorEsperando = new AtomicBoolean();
+
+    private volatile Thread emisor;
+    private volatile boolean activo;
+
+    public RelayCluster(
+            @Value("${mqtt.cluster.grupo:}") String grupo,
+            @Value("${mqtt.cluster.nodo:${HOSTNAME:}}") String nodo,
+            @Value("${mqtt.cluster.relay.capacidad:4096}") int capacidad) {
+        this.grupo = grupo == null ? "" : grupo.trim();
+        this.nodoId = nodo == null || nodo.isBlank()
+                ? UUID.randomUUID().toString().substring(0, 8)
+                : nodo.trim();
+        this.pendientes = new AnilloAcotado<>(capacidad);
+    }
+
+    public boolean isHabilitado() {
+        return !grupo.isEmpty();
+    }
+
+    public String getNodoId() {
+        return nodoId;
+    }
+
+    /**
+     * En cluster el client id fijo colisionaría entre instancias: el broker
+     * desconecta a la anterior cada vez que se conecta otra.
+     */
+    public String clientId(String base) {
+        return isHabilitado() ? base + "-" + nodoId : base;
+    }
+
+    public String filtroIngesta() {
+        return isHabilitado() ? "$share/" + grupo + "/" + FILTRO_DISPOSITIVOS : FILTRO_DISPOSITIVOS;
+    }
+
+    public String filtroRelay() {
+        return PREFIJO_RELAY + "+";
+    }
+
+    // ================================
+    // 📤 REENVÍO A OTROS NODOS
+    // ================================
+    public synchronized void iniciar(Publicador publicador) {
+        if (!isHabilitado() || activo) {
+            return;
+        }
+        activo = true;
+        Thread t = new Thread(() -> emitir(publicador), "mqtt-relay");
+        t.setDaemon(true);
+        emisor = t;
+        t.start();
+        log.info("🔗 [CLUSTER] Nodo {} en el grupo compartido '{}'", nodoId, grupo);
+    }
+
+    /**
+     * Nunca bloquea al worker de ingesta: si el emisor no da abasto la lectura
+     * sólo se pierde para los otros nodos (QoS 0, igual que un WebSocket lento).
+     */
+    public void reenviar(String dispositivoId, String sensor, byte tipo, long timestamp, double valor,
+            String texto) {
+        if (!activo) {
+            return;
+        }
+        LecturaRelay lectura = new LecturaRelay(nodoId, dispositivoId, sensor, tipo, timestamp, valor, texto);
+        if (!pendientes.ofrecer(new MensajeMqtt(PREFIJO_RELAY + dispositivoId, lectura.codificar(),
+                System.nanoTime()))) {
+            descartados.incrementAndGet();
+            return;
+        }
+        // Igual que los workers de ingesta: sólo se despierta al emisor dormido
+        Thread t = emisor;
+        if (t != null && emisorEsperando.get() && emisorEsperando.compareAndSet(true, false)) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    private void emitir(Publicador publicador) {
+        while (activo) {
+            MensajeMqtt mensaje = pendientes.tomar();
+            if (mensaje == null) {
+                emisorEsperando.set(true);
+                if (activo && pendientes.vacio()) {
+                    LockSupport.park(this);
+                }
+                emisorEsperando.set(false);
+                continue;
+            }
+            try {
+                publicador.publicar(mensaje.getTopic(), mensaje.getPayload());
+                reenviados.incrementAndGet();
+            } catch (Exception e) {
+                long total = descartados.incrementAndGet();
+                if ((total & 1023) == 1) {
+                    log.warn("⚠️ [CLUSTER] No se pudo reenviar {}: {}", mensaje.getTopic(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    // ================================
+    // 📥 LECTURAS DE OTROS NODOS
+    // ================================
+    /**
+     * Devuelve la lectura o null si es de este mismo nodo o no se entiende.
+     */
+    public LecturaRelay recibir(byte[] payload) {
+        try {
+            LecturaRelay lectura = LecturaRelay.decodificar(payload);
+            if (nodoId.equals(lectura.getNodoOrigen())) {
+                return null;
+            }
+            recibidos.incrementAndGet();
+            return lectura;
+        } catch (IOException e) {
+            log.warn("⚠️ [CLUSTER] Mensaje de relay inválido: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public long getReenviados() {
+        return reenviados.get();
+    }
+
+    public long getRecibidos() {
+        return recibidos.get();
+    }
+
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    @PreDestroy
+    public synchronized void detener() {
+        activo = false;
+        Thread t = emisor;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+}
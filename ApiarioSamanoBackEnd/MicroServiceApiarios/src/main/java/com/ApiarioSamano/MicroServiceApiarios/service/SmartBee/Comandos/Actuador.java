@@ -0,0 +1,74 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Comandos;
+
+/**
+ * Actuadores que aceptan comandos en apiarios/dispositivos/{id}/comandos/{nombre}
+ * y cómo se codifica su payload.
+ */
+public enum Actuador {
+
+    VENTILADOR("ventilador", false),
+    COMPUERTA("compuerta", false),
+    LUZ("luz", false),
+    SERVO1("servo1", true),
+    SERVO2("servo2", true);
+
+    private final String nombre;
+    private final boolean grados;
+
+    Actuador(String nombre, boolean grados) {
+        this.nombre = nombre;
+        this.grados = grados;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String topic(String dispositivoId) {
+        return "apiarios/dispositivos/" + dispositivoId + "/comandos/" + nombre;
+    }
+
+    public static Actuador desdeNombre(String nombre) {
+        for (Actuador a : values()) {
+            if (a.nombre.equalsIgnoreCase(nombre)) {
+                return a;
+            }
+        }
+        throw new IllegalArgumentException("Actuador desconocido: " + nombre);
+    }
+
+    /**
+     * Payload que espera el ESP32: ON/OFF para los interruptores y grados
+     * (0-180) para los servos.
+     */
+    public String payload(Object valor) {
+        if (grados) {
+            int g;
+            if (valor instanceof Number n) {
+                g = n.intValue();
+            } else {
+                try {
+                    g = Integer.parseInt(String.valueOf(valor).trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(nombre + " espera grados, no " + valor);
+                }
+            }
+            if (g < 0 || g > 180) {
+                throw new IllegalArgumentException(nombre + " fuera de rango (0-180): " + g);
+            }
+            return String.valueOf(g);
+        }
+
+        if (valor instanceof Boolean b) {
+            return b ? "ON" : "OFF";
+        }
+        String texto = String.valueOf(valor).trim();
+        if (texto.equalsIgnoreCase("true") || texto.equalsIgnoreCase("ON")) {
+            return "ON";
+        }
+        if (texto.equalsIgnoreCase("false") || texto.equalsIgnoreCase("OFF")) {
+            return "OFF";
+        }
+        throw new IllegalArgumentException(nombre + " espera true/false u ON/OFF, no " + valor);
+    }
+}
@@ -0,0 +1,134 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Comandos;
+
+import com.ApiarioSamano.MicroServiceApiarios.config.SensorWebSocketHandler;
+import com.ApiarioSamano.MicroServiceApiarios.model.Dispositivo;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.MqttService;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Anomalias.DetectorAnomalias;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta.PipelineIngesta;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Intervalo de reporte de cada dispositivo según quién lo mira y cuánta carga
+ * hay, publicado en apiarios/dispositivos/{id}/comandos/intervalo (ms, QoS 1,
+ * retenido para que un ESP32 que reinicia lo reciba al suscribirse).
+ *
+ * - Rápido si alguna sesión WebSocket está suscrita al dispositivo o a su
+ *   apiario, o si tuvo una anomalía reciente. Las sesiones sin filtro (que
+ *   reciben toda la flota) no cuentan: acelerarían a todos los dispositivos.
+ * - Lento en otro caso.
+ * - Ambos se multiplican por un factor que se duplica mientras el lag del
+ *   pipeline de ingesta supera lag-alto-ms y se divide a la mitad cuando baja
+ *   de lag-bajo-ms.
+ *
+ * Sólo se publica cuando el intervalo deseado cambia. En cluster cada nodo
+ * decide con sus propias sesiones; conviene habilitarlo en uno solo.
+ */
+@Slf4j
+@Service
+public class ControlIntervalo {
+
+    private final MqttService mqttService;
+    private final SensorWebSocketHandler sensorWebSocketHandler;
+    private final DetectorAnomalias detectorAnomalias;
+    private final PipelineIngesta pipelineIngesta;
+
+    private final boolean habilitado;
+    private final long rapidoMs;
+    private final long lentoMs;
+    private final long maximoMs;
+    private final long ventanaAnomaliaMs;
+    private final double lagAltoMs;
+    private final double lagBajoMs;
+    private final int factorMaximo;
+
+    private int factor = 1;
+    private final Map<String, Long> enviados = new ConcurrentHashMap<>();
+
+    public ControlIntervalo(
+            MqttService mqttService,
+            SensorWebSocketHandler sensorWebSocketHandler,
+            DetectorAnomalias detectorAnomalias,
+            PipelineIngesta pipelineIngesta,
+            @Value("${mqtt.intervalo.habilitado:true}") boolean habilitado,
+            @Value("${mqtt.intervalo.rapido-ms:2000}") long rapidoMs,
+            @Value("${mqtt.intervalo.lento-ms:60000}") long lentoMs,
+            @Value("${mqtt.intervalo.maximo-ms:300000}") long maximoMs,
+            @Value("${mqtt.intervalo.ventana-anomalia-ms:600000}") long ventanaAnomaliaMs,
+            @Value("${mqtt.intervalo.lag-alto-ms:500}") double lagAltoMs,
+            @Value("${mqtt.intervalo.lag-bajo-ms:100}") double lagBajoMs,
+            @Value("${mqtt.intervalo.factor-maximo:8}") int factorMaximo) {
+        this.mqttService = mqttService;
+        this.sensorWebSocketHandler = sensorWebSocketHandler;
+        this.detectorAnomalias = detectorAnomalias;
+        this.pipelineIngesta = pipelineIngesta;
+        this.habilitado = habilitado;
+        this.rapidoMs = rapidoMs;
+        this.lentoMs = lentoMs;
+        this.maximoMs = maximoMs;
+        this.ventanaAnomaliaMs = ventanaAnomaliaMs;
+        this.lagAltoMs = lagAltoMs;
+        this.lagBajoMs = lagBajoMs;
+        this.factorMaximo = Math.max(1, factorMaximo);
+    }
+
+    // ================================
+    // ⏱️ EVALUACIÓN PERIÓDICA
+    // ================================
+    @Scheduled(fixedRateString = "${mqtt.intervalo.evaluacion-ms:5000}")
+    public void evaluar() {
+        if (!habilitado || !mqttService.estaConectado()) {
+            return;
+        }
+        ajustarFactor(pipelineIngesta.getLagPromedioMs());
+
+        long ahora = System.currentTimeMillis();
+        int cambios = 0;
+        for (Dispositivo d : mqttService.getDispositivosDetectados().values()) {
+            String id = d.getDispositivoId();
+            long deseado = intervalo(id, d.getApiarioId(), ahora);
+            Long actual = enviados.get(id);
+            if (actual != null && actual == deseado) {
+                continue;
+            }
+            try {
+                mqttService.publicarIntervalo(id, deseado);
+                enviados.put(id, deseado);
+                cambios++;
+            } catch (Exception e) {
+                // Se reintenta en la siguiente evaluación
+                log.warn("⚠️ [INTERVALO] No se pudo enviar a {}: {}", id, e.getMessage());
+                return;
+            }
+        }
+        if (cambios > 0) {
+            log.info("⏱️ [INTERVALO] {} dispositivos con nuevo intervalo (factor de carga x{})", cambios, factor);
+        }
+    }
+
+    private void ajustarFactor(double lagMs) {
+        int anterior = factor;
+        if (lagMs > lagAltoMs) {
+            factor = Math.min(factor * 2, factorMaximo);
+        } else if (lagMs < lagBajoMs) {
+            factor = Math.max(factor / 2, 1);
+        }
+        if (factor != anterior) {
+            log.info("⏱️ [INTERVALO] Lag de ingesta {} ms, factor de carga x{} -> x{}",
+                    String.format("%.1f", lagMs), anterior, factor);
+        }
+    }
+
+    private long intervalo(String dispositivoId, String apiarioId, long ahora) {
+        boolean rapido = sensorWebSocketHandler.estaObservado(dispositivoId, apiarioId)
+                || detectorAnomalias.anomaliaDesde(dispositivoId, ahora - ventanaAnomaliaMs);
+        return Math.min((rapido ? rapidoMs : lentoMs) * factor, maximoMs);
+    }
+}
@@ -0,0 +1,12 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Comandos;
+
+public enum EstadoComando {
+    // En cola o esperando reconexión
+    PENDIENTE,
+    // Publicado con QoS 1, esperando el PUBACK
+    ENVIADO,
+    // El broker confirmó la entrega (PUBACK)
+    CONFIRMADO,
+    // Se agotaron los intentos
+    FALLIDO
+}
@@ -0,0 +1,145 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Comandos;
+
+import com.ApiarioSamano.MicroServiceApiarios.dto.ComandoDTO.EstadoComandoDTO;
+import com.ApiarioSamano.MicroServiceApiarios.dto.ComandoDTO.LoteComandosResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Comandos publicados juntos desde una sola petición. El estado de cada uno
+ * lo actualizan los hilos de envío; el lote sólo los agrega al consultarse.
+ */
+public class LoteComandos {
+
+    private final String id;
+    private final long creado;
+    private final List<Comando> comandos;
+
+    public LoteComandos(String id, long creado, List<Comando> comandos) {
+        this.id = id;
+        this.creado = creado;
+        this.comandos = comandos;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getCreado() {
+        return creado;
+    }
+
+    public List<Comando> getComandos() {
+        return comandos;
+    }
+
+    public boolean isTerminado() {
+        for (Comando c : comandos) {
+            if (!c.isTerminado()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public LoteComandosResponse aRespuesta() {
+        int pendientes = 0;
+        int confirmados = 0;
+        int fallidos = 0;
+        List<EstadoComandoDTO> detalle = new ArrayList<>(comandos.size());
+
+        for (Comando c : comandos) {
+            EstadoComando estado = c.getEstado();
+            switch (estado) {
+                case CONFIRMADO -> confirmados++;
+                case FALLIDO -> fallidos++;
+                default -> pendientes++;
+            }
+            detalle.add(new EstadoComandoDTO(c.getDispositivoId(), c.getActuador().getNombre(), c.getPayload(),
+                    estado.name(), c.getIntentos(), c.getConfirmadoEn(), c.getError()));
+        }
+
+        return new LoteComandosResponse(id, creado, pendientes == 0, comandos.size(),
+                pendientes, confirmados, fallidos, detalle);
+    }
+
+    // ================================
+    // 📦 COMANDO INDIVIDUAL
+    // ================================
+    public static class Comando {
+
+        private final String dispositivoId;
+        private final Actuador actuador;
+        private final String payload;
+
+        private volatile EstadoComando estado = EstadoComando.PENDIENTE;
+        private volatile int intentos;
+        private volatile Long confirmadoEn;
+        private volatile String error;
+
+        public Comando(String dispositivoId, Actuador actuador, String payload) {
+            this.dispositivoId = dispositivoId;
+            this.actuador = actuador;
+            this.payload = payload;
+        }
+
+        public String getDispositivoId() {
+            return dispositivoId;
+        }
+
+        public Actuador getActuador() {
+            return actuador;
+        }
+
+        public String getPayload() {
+            return payload;
+        }
+
+        public String getTopic() {
+            return actuador.topic(dispositivoId);
+        }
+
+        public EstadoComando getEstado() {
+            return estado;
+        }
+
+        public int getIntentos() {
+            return intentos;
+        }
+
+        public Long getConfirmadoEn() {
+            return confirmadoEn;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public boolean isTerminado() {
+            return estado == EstadoComando.CONFIRMADO || estado == EstadoComando.FALLIDO;
+        }
+
+        // Sólo lo llama el hilo que tiene el comando en ese momento
+        void enviando() {
+            intentos++;
+            estado = EstadoComando.ENVIADO;
+        }
+
+        void confirmado(long ahora) {
+            confirmadoEn = ahora;
+            error = null;
+            estado = EstadoComando.CONFIRMADO;
+        }
+
+        void reintentar(String motivo) {
+            error = motivo;
+            estado = EstadoComando.PENDIENTE;
+        }
+
+        void fallido(String motivo) {
+            error = motivo;
+            estado = EstadoComando.FALLIDO;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Comandos;
+
+import com.ApiarioSamano.MicroServiceApiarios.dto.ComandoDTO.ComandoFlotaRequest;
+import com.ApiarioSamano.MicroServiceApiarios.dto.ComandoDTO.LoteComandosResponse;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Comandos.LoteComandos.Comando;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.MqttService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Comandos de actuadores para muchos dispositivos en una sola petición.
+ *
+ * La petición sólo valida y encola; los hilos "mqtt-comandos" publican con
+ * QoS 1 y esperan el PUBACK del broker, que es lo que se reporta como
+ * CONFIRMADO. Si el cliente está desconectado no se reconecta aquí (Paho lo
+ * hace solo): el comando se reintenta con espera creciente hasta agotar los
+ * intentos.
+ */
+@Slf4j
+@Service
+public class ServicioComandos {
+
+    private final MqttService mqttService;
+    private final ScheduledExecutorService envio;
+
+    private final int maxDispositivos;
+    private final int maxIntentos;
+    private final long esperaBaseMs;
+    private final long retencionMs;
+
+    private final Map<String, LoteComandos> lotes = new ConcurrentHashMap<>();
+
+    public ServicioComandos(
+            MqttService mqttService,
+            @Value("${mqtt.comandos.hilos:8}") int hilos,
+            @Value("${mqtt.comandos.max-dispositivos:1000}") int maxDispositivos,
+            @Value("${mqtt.comandos.intentos:5}") int maxIntentos,
+            @Value("${mqtt.comandos.espera-ms:1000}") long esperaBaseMs,
+            @Value("${mqtt.comandos.retencion-ms:3600000}") long retencionMs) {
+        this.mqttService = mqttService;
+        this.maxDispositivos = maxDispositivos;
+        this.maxIntentos = Math.max(1, maxIntentos);
+        this.esperaBaseMs = esperaBaseMs;
+        this.retencionMs = retencionMs;
+
+        AtomicInteger contador = new AtomicInteger();
+        this.envio = Executors.newScheduledThreadPool(Math.max(1, hilos), r -> {
+            Thread t = new Thread(r, "mqtt-comandos-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // ================================
+    // 📤 NUEVO LOTE
+    // ================================
+    public LoteComandosResponse enviarLote(ComandoFlotaRequest request) {
+        if (request.getDispositivos() == null || request.getDispositivos().isEmpty()) {
+            throw new IllegalArgumentException("Se requiere al menos un dispositivo");
+        }
+        if (request.getActuadores() == null || request.getActuadores().isEmpty()) {
+            throw new IllegalArgumentException("Se requiere al menos un actuador");
+        }
+
+        // Sin duplicados y conservando el orden en que llegaron
+        LinkedHashSet<String> dispositivos = new LinkedHashSet<>();
+        for (String d : request.getDispositivos()) {
+            if (d != null && !d.isBlank()) {
+                dispositivos.add(d.trim());
+            }
+        }
+        if (dispositivos.size() > maxDispositivos) {
+            throw new IllegalArgumentException("Máximo " + maxDispositivos + " dispositivos por lote");
+        }
+
+        // Se valida todo antes de encolar nada: o sale el lote completo o ninguno
+        List<Actuador> actuadores = new ArrayList<>();
+        List<String> payloads = new ArrayList<>();
+        for (Map.Entry<String, Object> e : request.getActuadores().entrySet()) {
+            Actuador actuador = Actuador.desdeNombre(e.getKey());
+            actuadores.add(actuador);
+            payloads.add(actuador.payload(e.getValue()));
+        }
+
+        List<Comando> comandos = new ArrayList<>(dispositivos.size() * actuadores.size());
+        for (String d : dispositivos) {
+            for (int i = 0; i < actuadores.size(); i++) {
+                comandos.add(new Comando(d, actuadores.get(i), payloads.get(i)));
+            }
+        }
+
+        LoteComandos lote = new LoteComandos(UUID.randomUUID().toString(), System.currentTimeMillis(), comandos);
+        lotes.put(lote.getId(), lote);
+        for (Comando c : comandos) {
+            programar(c, 0);
+        }
+
+        log.info("📤 [COMANDOS] Lote {} con {} comandos para {} dispositivos",
+                lote.getId(), comandos.size(), dispositivos.size());
+        return lote.aRespuesta();
+    }
+
+    public LoteComandosResponse consultar(String loteId) {
+        LoteComandos lote = lotes.get(loteId);
+        return lote != null ? lote.aRespuesta() : null;
+    }
+
+    // ================================
+    // ⚙️ ENVÍO CON REINTENTOS
+    // ================================
+    private void programar(Comando comando, long esperaMs) {
+        try {
+            if (esperaMs <= 0) {
+                envio.execute(() -> publicar(comando));
+            } else {
+                envio.schedule(() -> publicar(comando), esperaMs, TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            comando.fallido("Servicio de comandos detenido");
+        }
+    }
+
+    private void publicar(Comando comando) {
+        comando.enviando();
+        try {
+            // Bloquea este hilo (no el de la petición) hasta el PUBACK
+            mqttService.publicarConfirmado(comando.getTopic(), comando.getPayload());
+            comando.confirmado(System.currentTimeMillis());
+            log.debug("✅ [COMANDOS] {} -> {}", comando.getTopic(), comando.getPayload());
+
+        } catch (Exception e) {
+            String motivo = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            if (comando.getIntentos() >= maxIntentos) {
+                comando.fallido(motivo);
+                log.warn("❌ [COMANDOS] {} falló tras {} intentos: {}",
+                        comando.getTopic(), comando.getIntentos(), motivo);
+                return;
+            }
+            comando.reintentar(motivo);
+            programar(comando, esperaBaseMs << Math.min(comando.getIntentos() - 1, 6));
+        }
+    }
+
+    // ================================
+    // 🧹 LIMPIEZA DE LOTES TERMINADOS
+    // ================================
+    @Scheduled(fixedRateString = "${mqtt.comandos.limpieza-ms:60000}")
+    public void limpiarLotes() {
+        long limite = System.currentTimeMillis() - retencionMs;
+        lotes.values().removeIf(lote -> lote.getCreado() < limite && lote.isTerminado());
+    }
+
+    @PreDestroy
+    public void detener() {
+        envio.shutdownNow();
+    }
+}
@@ -0,0 +1,138 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado;
+
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.RuedaTemporizadores.Temporizador;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Detecta sensores que dejaron de reportar. Cada lectura re-arma el
+ * temporizador de su sensor; si pasa el umbral sin lecturas se avisa una
+ * sola vez hasta que el sensor vuelva a reportar.
+ */
+@Slf4j
+@Component
+public class DetectorDesconexion {
+
+    private final long umbralMs;
+    private final long tickMs;
+
+    // dispositivoId -> sensor -> temporizador
+    private final Map<String, Map<String, Temporizador<ClaveSensor>>> temporizadores = new ConcurrentHashMap<>();
+    private final RuedaTemporizadores<ClaveSensor> rueda;
+    private final ScheduledExecutorService reloj;
+
+    private volatile BiConsumer<String, String> alDesconectar = (d, s) -> {
+    };
+
+    public DetectorDesconexion(
+            @Value("${sensores.desconexion.umbral-ms:45000}") long umbralMs,
+            @Value("${sensores.desconexion.tick-ms:250}") long tickMs) {
+        this.umbralMs = umbralMs;
+        this.tickMs = tickMs;
+        this.rueda = new RuedaTemporizadores<>(tickMs, umbralMs, this::vencido, System.currentTimeMillis());
+
+        // Hilo propio: no compite con las tareas @Scheduled (instantáneas, purgas)
+        this.reloj = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "detector-desconexion");
+            t.setDaemon(true);
+            return t;
+        });
+        reloj.scheduleAtFixedRate(this::avanzar, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void setAlDesconectar(BiConsumer<String, String> alDesconectar) {
+        this.alDesconectar = alDesconectar;
+    }
+
+    // ================================
+    // 📥 ACTIVIDAD
+    // ================================
+    public void registrarLectura(String dispositivoId, String sensor, long ahora) {
+        Map<String, Temporizador<ClaveSensor>> sensores = temporizadores
+                .computeIfAbsent(dispositivoId, k -> new ConcurrentHashMap<>());
+
+        Temporizador<ClaveSensor> t = sensores.get(sensor);
+        if (t == null) {
+            t = sensores.computeIfAbsent(sensor,
+                    k -> rueda.crear(new ClaveSensor(dispositivoId, sensor), ahora));
+        }
+        rueda.tocar(t, ahora);
+    }
+
+    /**
+     * El dispositivo ya avisó la desconexión: no hace falta volver a avisar.
+     */
+    public void marcarDesconectado(String dispositivoId, String sensor) {
+        Map<String, Temporizador<ClaveSensor>> sensores = temporizadores.get(dispositivoId);
+        Temporizador<ClaveSensor> t = sensores != null ? sensores.get(sensor) : null;
+        if (t != null) {
+            rueda.desarmar(t);
+        }
+    }
+
+    public void olvidar(String dispositivoId) {
+        Map<String, Temporizador<ClaveSensor>> sensores = temporizadores.remove(dispositivoId);
+        if (sensores != null) {
+            sensores.values().forEach(rueda::cancelar);
+        }
+    }
+
+    public boolean estaConectado(String dispositivoId, String sensor) {
+        Map<String, Temporizador<ClaveSensor>> sensores = temporizadores.get(dispositivoId);
+        Temporizador<ClaveSensor> t = sensores != null ? sensores.get(sensor) : null;
+        return t != null && t.isArmado();
+    }
+
+    public long getUmbralMs() {
+        return umbralMs;
+    }
+
+    // ================================
+    // ⏱️ RUEDA
+    // ================================
+    private void avanzar() {
+        try {
+            rueda.avanzar(System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error("❌ [DESCONEXION] Error avanzando la rueda: {}", e.getMessage(), e);
+        }
+    }
+
+    private void vencido(Temporizador<ClaveSensor> t) {
+        ClaveSensor clave = t.getValor();
+        log.info("❌ Sensor {} de {} inactivo por {} segundos", clave.sensor, clave.dispositivoId,
+                (System.currentTimeMillis() - t.getUltimaActividad()) / 1000);
+        try {
+            alDesconectar.accept(clave.dispositivoId, clave.sensor);
+        } catch (Exception e) {
+            log.error("❌ [DESCONEXION] Error notificando {}/{}: {}", clave.dispositivoId, clave.sensor,
+                    e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        reloj.shutdownNow();
+    }
+
+    private static final class ClaveSensor {
+        private final String dispositivoId;
+        private final String sensor;
+
+        ClaveSensor(String dispositivoId, String sensor) {
+            this.dispositivoId = dispositivoId;
+            this.sensor = sensor;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado;
+
+import java.util.Arrays;
+
+/**
+ * Último estado de cada sensor de un dispositivo en arreglos paralelos
+ * indexados por id de tipo ({@link TiposSensor}): valor, timestamp y un byte
+ * de estado. Las lecturas no numéricas guardan su texto aparte, que sólo se
+ * reserva si aparece alguna.
+ *
+ * Escribe el worker de ingesta del dispositivo y leen los endpoints REST; el
+ * volumen por dispositivo es bajo y un monitor sin contención basta.
+ */
+public class EstadoDispositivo {
+
+    public static final byte SIN_DATO = 0;
+    public static final byte NUMERICO = 1;
+    public static final byte TEXTO = 2;
+    public static final byte DESCONECTADO = 3;
+
+    private double[] valores = new double[0];
+    private long[] timestamps = new long[0];
+    private byte[] estados = new byte[0];
+    private String[] textos;
+
+    // Bit i encendido = el dispositivo anunció el tipo i al registrarse
+    private long anunciados;
+
+    public synchronized void anunciar(long tipos) {
+        anunciados = tipos;
+    }
+
+    public synchronized boolean admite(int tipo) {
+        return anunciados == 0 || (anunciados & (1L << tipo)) != 0;
+    }
+
+    public synchronized void registrarValor(int tipo, double valor, long timestamp) {
+        asegurar(tipo);
+        valores[tipo] = valor;
+        timestamps[tipo] = timestamp;
+        estados[tipo] = NUMERICO;
+        if (textos != null) {
+            textos[tipo] = null;
+        }
+    }
+
+    public synchronized void registrarTexto(int tipo, String texto, long timestamp) {
+        asegurar(tipo);
+        if (textos == null) {
+            textos = new String[estados.length];
+        }
+        textos[tipo] = texto;
+        timestamps[tipo] = timestamp;
+        estados[tipo] = TEXTO;
+    }
+
+    public synchronized void marcarDesconectado(int tipo) {
+        if (tipo < estados.length && estados[tipo] != SIN_DATO) {
+            estados[tipo] = DESCONECTADO;
+            if (textos != null) {
+                textos[tipo] = null;
+            }
+        }
+    }
+
+    public synchronized void limpiar() {
+        Arrays.fill(estados, SIN_DATO);
+        textos = null;
+    }
+
+    public synchronized byte estado(int tipo) {
+        return tipo < estados.length ? estados[tipo] : SIN_DATO;
+    }
+
+    public synchronized double valor(int tipo) {
+        return tipo < valores.length ? valores[tipo] : Double.NaN;
+    }
+
+    public synchronized long timestamp(int tipo) {
+        return tipo < timestamps.length ? timestamps[tipo] : 0L;
+    }
+
+    /**
+     * Valor en texto tal como lo exponía la API (los enteros sin ".0").
+     */
+    public synchronized String texto(int tipo) {
+        return switch (estado(tipo)) {
+            case NUMERICO -> ValorSensor.formatear(valores[tipo]);
+            case TEXTO -> textos[tipo];
+            case DESCONECTADO -> "SENSOR_DESCONECTADO";
+            default -> null;
+        };
+    }
+
+    /**
+     * Carga un valor de la instantánea sin pisar uno más reciente que ya haya
+     * llegado por MQTT.
+     */
+    public synchronized boolean restaurar(int tipo, byte estado, double valor, long timestamp, String texto) {
+        if (tipo < estados.length && estados[tipo] != SIN_DATO && timestamps[tipo] >= timestamp) {
+            return false;
+        }
+        if (estado == TEXTO) {
+            registrarTexto(tipo, texto, timestamp);
+        } else {
+            registrarValor(tipo, valor, timestamp);
+            estados[tipo] = estado;
+        }
+        return true;
+    }
+
+    public synchronized String textoCrudo(int tipo) {
+        return textos != null && tipo < textos.length ? textos[tipo] : null;
+    }
+
+    public synchronized int capacidad() {
+        return estados.length;
+    }
+
+    private void asegurar(int tipo) {
+        if (tipo < estados.length) {
+            return;
+        }
+        int n = tipo + 1;
+        valores = Arrays.copyOf(valores, n);
+        timestamps = Arrays.copyOf(timestamps, n);
+        estados = Arrays.copyOf(estados, n);
+        if (textos != null) {
+            textos = Arrays.copyOf(textos, n);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado;
+
+import com.ApiarioSamano.MicroServiceApiarios.model.Dispositivo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instantánea en disco del registro de dispositivos y del último valor de sus
+ * sensores, para que un reinicio no deje los tableros vacíos hasta que cada
+ * ESP32 vuelva a anunciarse.
+ *
+ * La carga corre en segundo plano al arrancar y fusiona sin pisar lo que ya
+ * haya llegado por MQTT; mientras tanto no se guarda, así un arranque a medias
+ * no sobreescribe el archivo bueno.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InstantaneaEstado {
+
+    private static final int MAGIC = 0x53424456; // "SBDV"
+    private static final int VERSION = 1;
+
+    private final RegistroDispositivos registroDispositivos;
+    private final RegistroSensores registroSensores;
+    private final DetectorDesconexion detectorDesconexion;
+
+    @Value("${sensores.estado.archivo:./data/estado/dispositivos.snap}")
+    private String archivo;
+
+    private volatile boolean cargado;
+
+    // ================================
+    // 📂 CARGA (arranque en caliente)
+    // ================================
+    @PostConstruct
+    public void iniciarCarga() {
+        Thread hilo = new Thread(this::cargar, "carga-estado");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    void cargar() {
+        Path ruta = Paths.get(archivo);
+        try {
+            if (!Files.isRegularFile(ruta)) {
+                return;
+            }
+
+            long inicio = System.currentTimeMillis();
+            int dispositivos = 0;
+            int lecturas = 0;
+
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(ruta)))) {
+
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    log.warn("⚠️ [ESTADO] Instantánea ignorada, formato desconocido: {}", ruta);
+                    return;
+                }
+                in.readLong(); // momento de la instantánea
+
+                // Los ids de tipo del archivo se traducen a los de este proceso
+                int numTipos = in.readInt();
+                int[] tipos = new int[numTipos];
+                for (int i = 0; i < numTipos; i++) {
+                    tipos[i] = registroSensores.getTipos().internar(in.readUTF());
+                }
+
+                long ahora = System.currentTimeMillis();
+                int numDispositivos = in.readInt();
+                for (int d = 0; d < numDispositivos; d++) {
+                    String dispositivoId = in.readUTF();
+                    if (in.readBoolean() && registroDispositivos.restaurar(leerDispositivo(in, dispositivoId))) {
+                        dispositivos++;
+                    }
+
+                    EstadoDispositivo estado = registroSensores.estado(dispositivoId);
+                    int numLecturas = in.readInt();
+                    for (int l = 0; l < numLecturas; l++) {
+                        int tipo = tipos[in.readUnsignedShort()];
+                        byte codigo = in.readByte();
+                        long timestamp = in.readLong();
+                        double valor = in.readDouble();
+                        String texto = codigo == EstadoDispositivo.TEXTO ? in.readUTF() : null;
+
+                        if (tipo == TiposSensor.NINGUNO) {
+                            continue;
+                        }
+                        if (restaurarLectura(dispositivoId, estado, tipo, codigo, valor, timestamp, texto, ahora)) {
+                            lecturas++;
+                        }
+                    }
+                }
+            }
+
+            log.info("📂 [ESTADO] {} dispositivos y {} lecturas restaurados desde {} en {} ms",
+                    dispositivos, lecturas, ruta, System.currentTimeMillis() - inicio);
+
+        } catch (IOException e) {
+            log.error("❌ [ESTADO] No se pudo leer {}: {}", ruta, e.getMessage());
+        } finally {
+            cargado = true;
+        }
+    }
+
+    private boolean restaurarLectura(String dispositivoId, EstadoDispositivo estado, int tipo, byte codigo,
+            double valor, long timestamp, String texto, long ahora) {
+
+        // Lo que ya superó el umbral durante el reinicio vuelve como desconectado
+        boolean vigente = codigo != EstadoDispositivo.DESCONECTADO
+                && ahora - timestamp < detectorDesconexion.getUmbralMs();
+        byte efectivo = vigente ? codigo : EstadoDispositivo.DESCONECTADO;
+
+        if (!estado.restaurar(tipo, efectivo, valor, timestamp, texto)) {
+            return false;
+        }
+        if (vigente) {
+            // El detector cuenta desde la lectura original, no desde el arranque
+            detectorDesconexion.registrarLectura(dispositivoId, registroSensores.getTipos().nombre(tipo),
+                    timestamp);
+        }
+        return true;
+    }
+
+    // ================================
+    // 💾 GUARDADO
+    // ================================
+    @PreDestroy
+    @Scheduled(fixedRateString = "${sensores.estado.instantanea-ms:30000}",
+            initialDelayString = "${sensores.estado.instantanea-ms:30000}")
+    public void guardar() {
+        if (!cargado) {
+            return;
+        }
+        // Se reinician las marcas antes de escribir: un cambio durante la
+        // escritura queda para la siguiente instantánea. Si la escritura
+        // falla se vuelven a marcar para reintentar en el próximo turno
+        boolean dispositivos = registroDispositivos.tomarModificado();
+        boolean sensores = registroSensores.tomarModificado();
+        if (!dispositivos && !sensores) {
+            return;
+        }
+
+        Path ruta = Paths.get(archivo);
+        Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+        try {
+            if (ruta.getParent() != null) {
+                Files.createDirectories(ruta.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporal)))) {
+                escribir(out);
+            }
+            Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("💾 [ESTADO] Instantánea guardada en {}", ruta);
+
+        } catch (IOException e) {
+            if (dispositivos) {
+                registroDispositivos.marcarModificado();
+            }
+            if (sensores) {
+                registroSensores.marcarModificado();
+            }
+            log.error("❌ [ESTADO] Error guardando {}: {}", ruta, e.getMessage());
+        }
+    }
+
+    private void escribir(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(System.currentTimeMillis());
+
+        TiposSensor tipos = registroSensores.getTipos();
+        int numTipos = tipos.cantidad();
+        out.writeInt(numTipos);
+        for (int i = 0; i < numTipos; i++) {
+            out.writeUTF(tipos.nombre(i));
+        }
+
+        // Se junta primero la lista de ids para escribir el total por adelantado
+        Map<String, Dispositivo> registrados = registroDispositivos.getDispositivos();
+        List<String> ids = new ArrayList<>(registrados.keySet());
+        registroSensores.paraCadaDispositivo((id, estado) -> {
+            if (!registrados.containsKey(id)) {
+                ids.add(id);
+            }
+        });
+
+        out.writeInt(ids.size());
+        for (String id : ids) {
+            out.writeUTF(id);
+            Dispositivo dispositivo = registrados.get(id);
+            out.writeBoolean(dispositivo != null);
+            if (dispositivo != null) {
+                escribirDispositivo(out, dispositivo);
+            }
+
+            EstadoDispositivo estado = registroSensores.estado(id);
+            synchronized (estado) {
+                int capacidad = Math.min(estado.capacidad(), numTipos);
+                int conDato = 0;
+                for (int t = 0; t < capacidad; t++) {
+                    if (estado.estado(t) != EstadoDispositivo.SIN_DATO) {
+                        conDato++;
+                    }
+                }
+                out.writeInt(conDato);
+                for (int t = 0; t < capacidad; t++) {
+                    byte codigo = estado.estado(t);
+                    if (codigo == EstadoDispositivo.SIN_DATO) {
+                        continue;
+                    }
+                    out.writeShort(t);
+                    out.writeByte(codigo);
+                    out.writeLong(estado.timestamp(t));
+                    out.writeDouble(estado.valor(t));
+                    if (codigo == EstadoDispositivo.TEXTO) {
+                        out.writeUTF(estado.textoCrudo(t));
+                    }
+                }
+            }
+        }
+    }
+
+    // ================================
+    // 🧱 DISPOSITIVO
+    // ================================
+    private static void escribirDispositivo(DataOutputStream out, Dispositivo d) throws IOException {
+        escribirTexto(out, d.getApiarioId());
+        escribirTexto(out, d.getTipo());
+        escribirLista(out, d.getSensores());
+        escribirLista(out, d.getActuadores());
+        out.writeBoolean(d.getTimestamp() != null);
+        if (d.getTimestamp() != null) {
+            out.writeLong(d.getTimestamp());
+        }
+    }
+
+    private static Dispositivo leerDispositivo(DataInputStream in, String dispositivoId) throws IOException {
+        Dispositivo d = new Dispositivo();
+        d.setDispositivoId(dispositivoId);
+        d.setApiarioId(leerTexto(in));
+        d.setTipo(leerTexto(in));
+        d.setSensores(leerLista(in));
+        d.setActuadores(leerLista(in));
+        d.setTimestamp(in.readBoolean() ? in.readLong() : null);
+        return d;
+    }
+
+    private static void escribirTexto(DataOutputStream out, String texto) throws IOException {
+        out.writeBoolean(texto != null);
+        if (texto != null) {
+            out.writeUTF(texto);
+        }
+    }
+
+    private static String leerTexto(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void escribirLista(DataOutputStream out, List<String> lista) throws IOException {
+        out.writeInt(lista != null ? lista.size() : -1);
+        if (lista != null) {
+            for (String s : lista) {
+                escribirTexto(out, s);
+            }
+        }
+    }
+
+    private static List<String> leerLista(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0) {
+            return null;
+        }
+        List<String> lista = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            lista.add(leerTexto(in));
+        }
+        return lista;
+    }
+}
@@ -0,0 +1,59 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado;
+
+import com.ApiarioSamano.MicroServiceApiarios.model.Dispositivo;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dispositivos que se anunciaron en apiarios/dispositivos/registro.
+ */
+@Component
+@RequiredArgsConstructor
+public class RegistroDispositivos {
+
+    private final RegistroSensores registroSensores;
+
+    private final Map<String, Dispositivo> dispositivos = new ConcurrentHashMap<>();
+    private volatile boolean modificado;
+
+    public void registrar(Dispositivo dispositivo) {
+        dispositivos.put(dispositivo.getDispositivoId(), dispositivo);
+        registroSensores.anunciar(dispositivo.getDispositivoId(), dispositivo.getSensores());
+        modificado = true;
+    }
+
+    /**
+     * Alta desde la instantánea: un registro recibido por MQTT mientras se
+     * cargaba el archivo es más reciente y se conserva.
+     */
+    public boolean restaurar(Dispositivo dispositivo) {
+        if (dispositivos.putIfAbsent(dispositivo.getDispositivoId(), dispositivo) != null) {
+            return false;
+        }
+        registroSensores.anunciar(dispositivo.getDispositivoId(), dispositivo.getSensores());
+        return true;
+    }
+
+    public Dispositivo obtener(String dispositivoId) {
+        return dispositivoId != null ? dispositivos.get(dispositivoId) : null;
+    }
+
+    public Map<String, Dispositivo> getDispositivos() {
+        return dispositivos;
+    }
+
+    public void marcarModificado() {
+        modificado = true;
+    }
+
+    public boolean tomarModificado() {
+        boolean m = modificado;
+        modificado = false;
+        return m;
+    }
+}
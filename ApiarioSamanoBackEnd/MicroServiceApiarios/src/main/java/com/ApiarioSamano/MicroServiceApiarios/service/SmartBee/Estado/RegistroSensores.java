@@ -0,0 +1,155 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Último valor de cada sensor de cada dispositivo.
+ *
+ * Los tipos de sensor se internan al registrarse el dispositivo con la lista
+ * que anuncia en {@code Dispositivo.sensores}; una lectura de un tipo que nadie
+ * anunció (o que su dispositivo no anunció) no se admite.
+ */
+@Component
+public class RegistroSensores {
+
+    private final TiposSensor tipos;
+    private final Map<String, EstadoDispositivo> estados = new ConcurrentHashMap<>();
+
+    // Cambió algo desde la última instantánea; se lee antes de escribir para
+    // no ensuciar la línea de caché en cada lectura
+    private volatile boolean modificado;
+
+    public RegistroSensores(
+            @Value("${sensores.tipos.predeterminados:humedad_suelo}") List<String> predeterminados) {
+        this.tipos = new TiposSensor(predeterminados);
+    }
+
+    public TiposSensor getTipos() {
+        return tipos;
+    }
+
+    public void anunciar(String dispositivoId, List<String> sensores) {
+        long bits = 0;
+        if (sensores != null) {
+            for (String sensor : sensores) {
+                int tipo = tipos.internar(sensor);
+                if (tipo != TiposSensor.NINGUNO) {
+                    bits |= 1L << tipo;
+                }
+            }
+        }
+        estado(dispositivoId).anunciar(bits);
+        marcarModificado();
+    }
+
+    /**
+     * Id del tipo nombrado en topic[inicio, fin) si el dispositivo lo admite,
+     * o {@link TiposSensor#NINGUNO}.
+     */
+    public int admitir(String dispositivoId, String topic, int inicio, int fin) {
+        int tipo = tipos.buscar(topic, inicio, fin);
+        if (tipo == TiposSensor.NINGUNO) {
+            return tipo;
+        }
+        EstadoDispositivo estado = estados.get(dispositivoId);
+        return estado == null || estado.admite(tipo) ? tipo : TiposSensor.NINGUNO;
+    }
+
+    public EstadoDispositivo estado(String dispositivoId) {
+        return estados.computeIfAbsent(dispositivoId, k -> new EstadoDispositivo());
+    }
+
+    /**
+     * Como {@link #estado(String)} pero sin crearlo: null si nunca se supo del
+     * dispositivo.
+     */
+    public EstadoDispositivo buscar(String dispositivoId) {
+        return estados.get(dispositivoId);
+    }
+
+    public void registrarValor(String dispositivoId, int tipo, double valor, long timestamp) {
+        estado(dispositivoId).registrarValor(tipo, valor, timestamp);
+        marcarModificado();
+    }
+
+    public void registrarTexto(String dispositivoId, int tipo, String texto, long timestamp) {
+        estado(dispositivoId).registrarTexto(tipo, texto, timestamp);
+        marcarModificado();
+    }
+
+    /**
+     * Lectura procesada en otro nodo: sólo se aplica si es más reciente que la
+     * que ya se tiene (los nodos de un grupo compartido no se coordinan).
+     */
+    public boolean registrarRemoto(String dispositivoId, int tipo, byte estado, double valor, String texto,
+            long timestamp) {
+        boolean aplicada = estado(dispositivoId).restaurar(tipo, estado, valor, timestamp, texto);
+        if (aplicada) {
+            marcarModificado();
+        }
+        return aplicada;
+    }
+
+    public void marcarDesconectado(String dispositivoId, int tipo) {
+        EstadoDispositivo estado = estados.get(dispositivoId);
+        if (estado != null) {
+            estado.marcarDesconectado(tipo);
+            marcarModificado();
+        }
+    }
+
+    public void limpiar(String dispositivoId) {
+        EstadoDispositivo estado = estados.get(dispositivoId);
+        if (estado != null) {
+            estado.limpiar();
+            marcarModificado();
+        }
+    }
+
+    public void paraCadaDispositivo(BiConsumer<String, EstadoDispositivo> accion) {
+        estados.forEach(accion);
+    }
+
+    public void marcarModificado() {
+        if (!modificado) {
+            modificado = true;
+        }
+    }
+
+    /**
+     * Devuelve si hubo cambios y reinicia la marca.
+     */
+    public boolean tomarModificado() {
+        boolean m = modificado;
+        modificado = false;
+        return m;
+    }
+
+    /**
+     * Vista sensor -> valor de los sensores con dato vigente (el formato que
+     * devuelve /dispositivos/{id}/sensores).
+     */
+    public Map<String, String> instantanea(String dispositivoId) {
+        Map<String, String> datos = new LinkedHashMap<>();
+        EstadoDispositivo estado = estados.get(dispositivoId);
+        if (estado == null) {
+            return datos;
+        }
+        synchronized (estado) {
+            for (int tipo = 0; tipo < estado.capacidad(); tipo++) {
+                byte e = estado.estado(tipo);
+                if (e == EstadoDispositivo.NUMERICO || e == EstadoDispositivo.TEXTO) {
+                    datos.put(tipos.nombre(tipo), estado.texto(tipo));
+                }
+            }
+        }
+        return datos;
+    }
+}
@@ -0,0 +1,178 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Rueda de temporizadores con re-armado perezoso.
+ *
+ * Cada temporizador vive en la ranura de su vencimiento. Una actividad nueva
+ * sólo escribe {@link Temporizador#ultimaActividad}; no mueve nada. Cuando la
+ * rueda pasa por la ranura revisa el vencimiento real: si la actividad lo
+ * empujó hacia adelante lo reinserta en su nueva ranura, si no, lo desarma y
+ * llama al callback una sola vez. El temporizador vuelve a la rueda con la
+ * siguiente actividad.
+ *
+ * Un temporizador está a lo sumo una vez en la rueda: {@code enRueda} dice si
+ * ya ocupa una ranura, aparte de {@code armado}, y sólo se inserta quien lo
+ * cambia de false a true. Desarmar y volver a tocar no agrega una copia.
+ *
+ * Un solo hilo llama a {@link #avanzar}; {@link #tocar} se puede llamar desde
+ * cualquiera.
+ */
+public class RuedaTemporizadores<T> {
+
+    private final long tickMs;
+    private final long umbralMs;
+    private final int mascara;
+    private final Queue<Temporizador<T>>[] ranuras;
+    private final Consumer<Temporizador<T>> alVencer;
+
+    private long ultimoTick;
+
+    @SuppressWarnings("unchecked")
+    public RuedaTemporizadores(long tickMs, long umbralMs, Consumer<Temporizador<T>> alVencer, long ahora) {
+        this.tickMs = tickMs;
+        this.umbralMs = umbralMs;
+        this.alVencer = alVencer;
+
+        // Suficientes ranuras para que el umbral dé menos de una vuelta
+        int necesarias = (int) Math.min(1 << 16, umbralMs / tickMs + 2);
+        int tamaño = Integer.highestOneBit(Math.max(2, necesarias - 1)) << 1;
+        this.mascara = tamaño - 1;
+        this.ranuras = new Queue[tamaño];
+        for (int i = 0; i < tamaño; i++) {
+            ranuras[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.ultimoTick = ahora / tickMs;
+    }
+
+    public Temporizador<T> crear(T valor, long ahora) {
+        Temporizador<T> t = new Temporizador<>(valor, ahora);
+        t.armado.set(true);
+        insertarSiFuera(t, ahora + umbralMs);
+        return t;
+    }
+
+    /**
+     * Registra actividad; si el temporizador ya había vencido lo vuelve a armar.
+     */
+    public void tocar(Temporizador<T> t, long ahora) {
+        t.ultimaActividad = ahora;
+        if (!t.cancelado && !t.armado.get() && t.armado.compareAndSet(false, true)) {
+            // Si se desarmó sin salir de su ranura, la rueda lo reinserta al pasar
+            insertarSiFuera(t, ahora + umbralMs);
+        }
+    }
+
+    /**
+     * El temporizador no vuelve a dispararse ni a armarse; la rueda lo suelta
+     * cuando pasa por su ranura.
+     */
+    public void cancelar(Temporizador<T> t) {
+        t.cancelado = true;
+    }
+
+    /**
+     * Desarma sin cancelar: no dispara hasta la próxima actividad. Queda en su
+     * ranura hasta que la rueda pase por ella.
+     */
+    public void desarmar(Temporizador<T> t) {
+        t.armado.set(false);
+    }
+
+    // ================================
+    // ⏱️ AVANCE (un solo hilo)
+    // ================================
+    public void avanzar(long ahora) {
+        long tickActual = ahora / tickMs;
+        // Si el hilo se atrasó más de una vuelta basta con revisar cada ranura una vez
+        long desde = Math.max(ultimoTick + 1, tickActual - mascara);
+
+        for (long tick = desde; tick <= tickActual; tick++) {
+            Queue<Temporizador<T>> ranura = ranuras[(int) (tick & mascara)];
+            // Lo que se reinserte en esta misma ranura se revisa en la siguiente vuelta
+            for (int n = ranura.size(); n > 0; n--) {
+                Temporizador<T> t = ranura.poll();
+                if (t == null) {
+                    break;
+                }
+                // Antes de mirar armado: un tocar que llegue desde aquí lo reinserta
+                t.enRueda.set(false);
+                revisar(t, ahora);
+            }
+        }
+        ultimoTick = tickActual;
+    }
+
+    private void revisar(Temporizador<T> t, long ahora) {
+        if (t.cancelado || !t.armado.get()) {
+            return;
+        }
+
+        long vence = t.ultimaActividad + umbralMs;
+        if (vence > ahora) {
+            insertarSiFuera(t, vence);
+            return;
+        }
+
+        if (!t.armado.compareAndSet(true, false)) {
+            return;
+        }
+        // Una lectura pudo llegar entre la comprobación y el CAS: si vio el
+        // temporizador armado no lo reinsertó, así que lo hacemos aquí
+        if (t.ultimaActividad + umbralMs > ahora) {
+            if (t.armado.compareAndSet(false, true)) {
+                insertarSiFuera(t, t.ultimaActividad + umbralMs);
+            }
+            return;
+        }
+        alVencer.accept(t);
+    }
+
+    private void insertarSiFuera(Temporizador<T> t, long vence) {
+        if (!t.enRueda.compareAndSet(false, true)) {
+            return;
+        }
+        // Redondeo hacia arriba: nunca se revisa antes de tiempo
+        long tick = (vence + tickMs - 1) / tickMs;
+        ranuras[(int) (tick & mascara)].add(t);
+    }
+
+    // Entradas en todas las ranuras (para pruebas)
+    int entradas() {
+        int total = 0;
+        for (Queue<Temporizador<T>> ranura : ranuras) {
+            total += ranura.size();
+        }
+        return total;
+    }
+
+    public static final class Temporizador<T> {
+
+        private final T valor;
+        private final AtomicBoolean armado = new AtomicBoolean();
+        private final AtomicBoolean enRueda = new AtomicBoolean();
+        private volatile long ultimaActividad;
+        private volatile boolean cancelado;
+
+        private Temporizador(T valor, long ahora) {
+            this.valor = valor;
+            this.ultimaActividad = ahora;
+        }
+
+        public T getValor() {
+            return valor;
+        }
+
+        public long getUltimaActividad() {
+            return ultimaActividad;
+        }
+
+        public boolean isArmado() {
+            return armado.get();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Catálogo de tipos de sensor internados como enteros pequeños.
+ *
+ * Sólo entran tipos que algún dispositivo anunció al registrarse (más los
+ * predeterminados), así un topic arbitrario no puede inflar el catálogo. La
+ * búsqueda compara contra una región del topic sin crear substrings.
+ */
+public class TiposSensor {
+
+    public static final int MAX_TIPOS = 64;
+    public static final int NINGUNO = -1;
+
+    private volatile String[] nombres = new String[0];
+
+    public TiposSensor(List<String> predeterminados) {
+        predeterminados.forEach(this::internar);
+    }
+
+    public int buscar(String nombre) {
+        return buscar(nombre, 0, nombre.length());
+    }
+
+    public int buscar(String texto, int inicio, int fin) {
+        String[] actuales = nombres;
+        int largo = fin - inicio;
+        for (int i = 0; i < actuales.length; i++) {
+            String n = actuales[i];
+            if (n.length() == largo && texto.regionMatches(inicio, n, 0, largo)) {
+                return i;
+            }
+        }
+        return NINGUNO;
+    }
+
+    public synchronized int internar(String nombre) {
+        int id = buscar(nombre);
+        if (id != NINGUNO) {
+            return id;
+        }
+        if (nombres.length >= MAX_TIPOS) {
+            return NINGUNO;
+        }
+        String[] nuevos = Arrays.copyOf(nombres, nombres.length + 1);
+        nuevos[nombres.length] = nombre;
+        nombres = nuevos;
+        return nombres.length - 1;
+    }
+
+    public String nombre(int id) {
+        return nombres[id];
+    }
+
+    public int cantidad() {
+        return nombres.length;
+    }
+}
@@ -0,0 +1,92 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Conversión de payloads de sensor sin pasar por String en el caso común.
+ */
+public final class ValorSensor {
+
+    // Potencias de 10 exactas en double
+    private static final double[] POTENCIAS = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    private ValorSensor() {
+    }
+
+    /**
+     * Decimal ASCII ("23", "-4.75", " 61.2\n") a double; NaN si el payload no
+     * es numérico. Con hasta 15 dígitos y sin exponente el resultado es exacto
+     * (entero / potencia de 10, ambos representables); el resto se delega en
+     * {@link Double#parseDouble}.
+     */
+    public static double parsear(byte[] payload) {
+        int i = 0;
+        int fin = payload.length;
+        while (i < fin && payload[i] <= ' ') {
+            i++;
+        }
+        while (fin > i && payload[fin - 1] <= ' ') {
+            fin--;
+        }
+        if (i == fin) {
+            return Double.NaN;
+        }
+
+        int inicio = i;
+        boolean negativo = false;
+        if (payload[i] == '-' || payload[i] == '+') {
+            negativo = payload[i] == '-';
+            i++;
+        }
+
+        long mantisa = 0;
+        int digitos = 0;
+        int decimales = 0;
+        boolean punto = false;
+        boolean hayDigitos = false;
+        for (; i < fin; i++) {
+            byte b = payload[i];
+            if (b >= '0' && b <= '9') {
+                hayDigitos = true;
+                if (mantisa != 0 || b != '0') {
+                    digitos++;
+                }
+                mantisa = mantisa * 10 + (b - '0');
+                if (punto) {
+                    decimales++;
+                }
+                if (digitos > 15 || decimales >= POTENCIAS.length) {
+                    return lento(payload, inicio, fin);
+                }
+            } else if (b == '.' && !punto) {
+                punto = true;
+            } else {
+                return lento(payload, inicio, fin);
+            }
+        }
+
+        if (!hayDigitos) {
+            return Double.NaN;
+        }
+        double valor = decimales == 0 ? mantisa : mantisa / POTENCIAS[decimales];
+        return negativo ? -valor : valor;
+    }
+
+    private static double lento(byte[] payload, int inicio, int fin) {
+        try {
+            double valor = Double.parseDouble(new String(payload, inicio, fin - inicio, StandardCharsets.US_ASCII));
+            return Double.isInfinite(valor) ? Double.NaN : valor;
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    public static String formatear(double valor) {
+        if (valor == Math.rint(valor) && Math.abs(valor) < 1e15) {
+            return Long.toString((long) valor);
+        }
+        return Double.toString(valor);
+    }
+}
@@ -0,0 +1,84 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cola circular acotada sin locks (esquema de secuencias por ranura de D.
+ * Vyukov). Admite varios productores y varios consumidores; {@link #ofrecer}
+ * nunca bloquea: si no hay espacio devuelve false y el llamador decide.
+ */
+public class AnilloAcotado<T> {
+
+    private final int mascara;
+    private final AtomicReferenceArray<T> elementos;
+    private final AtomicLongArray secuencias;
+
+    private final AtomicLong cola = new AtomicLong();   // siguiente posición a escribir
+    private final AtomicLong cabeza = new AtomicLong(); // siguiente posición a leer
+
+    public AnilloAcotado(int capacidadMinima) {
+        int capacidad = Integer.highestOneBit(Math.max(2, capacidadMinima - 1)) << 1;
+        this.mascara = capacidad - 1;
+        this.elementos = new AtomicReferenceArray<>(capacidad);
+        this.secuencias = new AtomicLongArray(capacidad);
+        for (int i = 0; i < capacidad; i++) {
+            secuencias.set(i, i);
+        }
+    }
+
+    public int capacidad() {
+        return mascara + 1;
+    }
+
+    public boolean ofrecer(T elemento) {
+        while (true) {
+            long pos = cola.get();
+            int i = (int) (pos & mascara);
+            long dif = secuencias.get(i) - pos;
+
+            if (dif == 0) {
+                if (cola.compareAndSet(pos, pos + 1)) {
+                    elementos.lazySet(i, elemento);
+                    secuencias.set(i, pos + 1);
+                    return true;
+                }
+            } else if (dif < 0) {
+                return false; // llena
+            }
+            // otro productor ganó la ranura: reintentar
+        }
+    }
+
+    public T tomar() {
+        while (true) {
+            long pos = cabeza.get();
+            int i = (int) (pos & mascara);
+            long dif = secuencias.get(i) - (pos + 1);
+
+            if (dif == 0) {
+                if (cabeza.compareAndSet(pos, pos + 1)) {
+                    T elemento = elementos.get(i);
+                    elementos.lazySet(i, null);
+                    secuencias.set(i, pos + mascara + 1);
+                    return elemento;
+                }
+            } else if (dif < 0) {
+                return null; // vacía
+            }
+        }
+    }
+
+    /**
+     * Aproximado bajo concurrencia; suficiente para métricas.
+     */
+    public int tamaño() {
+        long t = cola.get() - cabeza.get();
+        return (int) Math.max(0, Math.min(t, capacidad()));
+    }
+
+    public boolean vacio() {
+        return tamaño() == 0;
+    }
+}
@@ -0,0 +1,153 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lote de lecturas de un dispositivo en apiarios/dispositivos/{id}/lote, para
+ * que un ESP32 vacíe en un solo mensaje lo que juntó sin conexión. Se decodifica
+ * en una pasada, entregando cada lectura sin armar listas intermedias.
+ *
+ * Binario (big-endian), primer byte = versión:
+ * <pre>
+ * u8   versión = 1
+ * i64  base en ms epoch (0 = hora de llegada del lote)
+ * u8   sensores, y por cada uno: u8 largo + nombre UTF-8
+ * u16  lecturas, y por cada una: u8 índice de sensor, u32 edad en ms, f32 valor
+ * </pre>
+ * El timestamp de cada lectura es base - edad, así un dispositivo sin reloj
+ * sólo necesita saber hace cuánto tomó cada lectura.
+ *
+ * JSON, primer byte '[':
+ * <pre>
+ * [{"sensor": "humedad_suelo", "valor": 41.5, "timestamp": 1700000000000},
+ *  {"sensor": "temperatura", "valor": 22, "edadMs": 30000}]
+ * </pre>
+ * Sin timestamp la lectura se fecha con la llegada menos edadMs (0 si falta).
+ *
+ * Ninguna lectura queda fechada después de la llegada del lote: un ESP32 que
+ * aún no sincronizó NTP puede mandar fechas futuras, y una sola dejaría al
+ * sensor ignorando lecturas (estado y anomalías sólo aceptan más nuevas)
+ * hasta que el reloj real la alcance. Esas lecturas se fechan con la llegada.
+ */
+public final class DecodificadorLote {
+
+    public static final int VERSION_BINARIO = 1;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    @FunctionalInterface
+    public interface Lectura {
+        void aceptar(String sensor, long timestamp, double valor);
+    }
+
+    private DecodificadorLote() {
+    }
+
+    /**
+     * Entrega cada lectura del lote y devuelve cuántas había.
+     *
+     * @throws IllegalArgumentException si el payload no es un lote válido; las
+     *         lecturas anteriores al error ya se entregaron
+     */
+    public static int decodificar(byte[] payload, long llegada, Lectura destino) {
+        if (payload.length == 0) {
+            throw new IllegalArgumentException("Lote vacío");
+        }
+        if (payload[0] == '[') {
+            return decodificarJson(payload, llegada, destino);
+        }
+        if (payload[0] == VERSION_BINARIO) {
+            return decodificarBinario(payload, llegada, destino);
+        }
+        throw new IllegalArgumentException("Formato de lote desconocido: 0x" + Integer.toHexString(payload[0] & 0xFF));
+    }
+
+    // ================================
+    // 🧱 BINARIO
+    // ================================
+    private static int decodificarBinario(byte[] payload, long llegada, Lectura destino) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        try {
+            buffer.get();
+            long base = buffer.getLong();
+            if (base == 0) {
+                base = llegada;
+            }
+
+            String[] sensores = new String[buffer.get() & 0xFF];
+            for (int i = 0; i < sensores.length; i++) {
+                int largo = buffer.get() & 0xFF;
+                sensores[i] = new String(payload, buffer.position(), largo, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + largo);
+            }
+
+            int lecturas = buffer.getShort() & 0xFFFF;
+            for (int i = 0; i < lecturas; i++) {
+                int sensor = buffer.get() & 0xFF;
+                long edad = buffer.getInt() & 0xFFFFFFFFL;
+                float valor = buffer.getFloat();
+                if (sensor >= sensores.length) {
+                    throw new IllegalArgumentException("Índice de sensor fuera de la tabla: " + sensor);
+                }
+                // Por el texto del float: 41.3f llega como 41.3 y no como 41.29999923706055
+                destino.aceptar(sensores[sensor], acotar(base - edad, llegada),
+                        Double.parseDouble(Float.toString(valor)));
+            }
+            return lecturas;
+
+        } catch (RuntimeException e) {
+            if (e instanceof IllegalArgumentException) {
+                throw e;
+            }
+            throw new IllegalArgumentException("Lote binario truncado", e);
+        }
+    }
+
+    private static long acotar(long timestamp, long llegada) {
+        return Math.min(timestamp, llegada);
+    }
+
+    // ================================
+    // 🧾 JSON
+    // ================================
+    private static int decodificarJson(byte[] payload, long llegada, Lectura destino) {
+        int lecturas = 0;
+        try (JsonParser parser = JSON.createParser(payload)) {
+            parser.nextToken(); // [
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String sensor = null;
+                double valor = Double.NaN;
+                long timestamp = 0;
+                long edad = 0;
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String campo = parser.getCurrentName();
+                    JsonToken token = parser.nextToken();
+                    switch (campo) {
+                        case "sensor" -> sensor = parser.getText();
+                        case "valor" -> valor = token.isNumeric() ? parser.getDoubleValue() : Double.NaN;
+                        case "timestamp" -> timestamp = parser.getLongValue();
+                        case "edadMs" -> edad = parser.getLongValue();
+                        default -> parser.skipChildren();
+                    }
+                }
+
+                if (sensor == null) {
+                    throw new IllegalArgumentException("Lectura sin sensor en la posición " + lecturas);
+                }
+                destino.aceptar(sensor, acotar((timestamp != 0 ? timestamp : llegada) - edad, llegada), valor);
+                lecturas++;
+            }
+            return lecturas;
+
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Lote JSON inválido: " + e.getMessage(), e);
+        }
+    }
+}
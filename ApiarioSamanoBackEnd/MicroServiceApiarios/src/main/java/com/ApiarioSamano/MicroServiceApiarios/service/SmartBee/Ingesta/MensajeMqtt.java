@@ -0,0 +1,30 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta;
+
+/**
+ * Mensaje tal como llegó del broker. El payload se decodifica en el worker,
+ * no en el hilo de callback de Paho.
+ */
+public class MensajeMqtt {
+
+    private final String topic;
+    private final byte[] payload;
+    private final long recibidoNanos;
+
+    public MensajeMqtt(String topic, byte[] payload, long recibidoNanos) {
+        this.topic = topic;
+        this.payload = payload;
+        this.recibidoNanos = recibidoNanos;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public long getRecibidoNanos() {
+        return recibidoNanos;
+    }
+}
@@ -0,0 +1,12 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta;
+
+/**
+ * Recibe cada lectura numérica aceptada, en el worker de ingesta que la
+ * procesó. {@code local} es false para las que llegaron por el relay de otro
+ * nodo del cluster.
+ */
+@FunctionalInterface
+public interface OyenteLectura {
+
+    void lectura(String dispositivoId, int tipo, String sensor, double valor, long timestamp, boolean local);
+}
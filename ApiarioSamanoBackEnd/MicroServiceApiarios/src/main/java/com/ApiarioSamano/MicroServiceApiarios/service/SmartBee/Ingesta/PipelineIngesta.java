@@ -0,0 +1,241 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta;
+
+import com.ApiarioSamano.MicroServiceApiarios.dto.IngestaDTO.MetricasIngestaDTO;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Desacopla el callback de Paho del procesamiento de mensajes.
+ *
+ * El hilo de Paho sólo calcula la partición del dispositivo y deja el mensaje
+ * en el anillo del worker correspondiente; nunca bloquea, si el anillo está
+ * lleno el mensaje se descarta y se cuenta. Todos los mensajes de un mismo
+ * dispositivo caen en el mismo worker, así se conserva su orden.
+ *
+ * Un worker sin mensajes duerme sin plazo; sólo lo despierta el productor que
+ * encuentra su anillo recién pasado de vacío a no vacío.
+ */
+@Slf4j
+@Component
+public class PipelineIngesta {
+
+    private final int numWorkers;
+    private final int capacidad;
+
+    private Worker[] workers = new Worker[0];
+    private volatile boolean activo;
+
+    private final AtomicLong recibidos = new AtomicLong();
+    private final AtomicLong descartados = new AtomicLong();
+    private final AtomicLong procesados = new AtomicLong();
+    private final AtomicLong errores = new AtomicLong();
+    private final AtomicLong lagMaxNanos = new AtomicLong();
+    private volatile long lagUltimoNanos;
+
+    public PipelineIngesta(
+            @Value("${mqtt.ingesta.workers:4}") int numWorkers,
+            @Value("${mqtt.ingesta.capacidad:8192}") int capacidad) {
+        this.numWorkers = Math.max(1, numWorkers);
+        this.capacidad = capacidad;
+    }
+
+    public synchronized void iniciar(Consumer<MensajeMqtt> procesador) {
+        if (activo) {
+            return;
+        }
+        activo = true;
+        workers = new Worker[numWorkers];
+        for (int i = 0; i < numWorkers; i++) {
+            workers[i] = new Worker(i, new AnilloAcotado<>(capacidad), procesador);
+            workers[i].start();
+        }
+        log.info("🚀 [INGESTA] {} workers iniciados, capacidad {} mensajes por worker",
+                numWorkers, workers[0].anillo.capacidad());
+    }
+
+    // ================================
+    // 📥 ENTRADA (hilo de callback MQTT)
+    // ================================
+    public boolean publicar(String topic, byte[] payload) {
+        recibidos.incrementAndGet();
+
+        Worker[] ws = workers;
+        if (!activo || ws.length == 0) {
+            descartados.incrementAndGet();
+            return false;
+        }
+
+        Worker worker = ws[particion(topic, ws.length)];
+        if (!worker.anillo.ofrecer(new MensajeMqtt(topic, payload, System.nanoTime()))) {
+            long total = descartados.incrementAndGet();
+            if ((total & 1023) == 1) {
+                log.warn("⚠️ [INGESTA] Anillo del worker {} lleno, {} mensajes descartados en total",
+                        worker.indice, total);
+            }
+            return false;
+        }
+
+        worker.despertar();
+        return true;
+    }
+
+    /**
+     * Hash del segmento que sigue a "dispositivos/" sin crear substrings. Topics
+     * sin dispositivo (p. ej. el de registro) caen en una partición fija.
+     */
+    static int particion(String topic, int particiones) {
+        int inicio = topic.indexOf("dispositivos/");
+        if (inicio < 0) {
+            return 0;
+        }
+        inicio += "dispositivos/".length();
+
+        int h = 0;
+        for (int i = inicio; i < topic.length(); i++) {
+            char c = topic.charAt(i);
+            if (c == '/') {
+                break;
+            }
+            h = 31 * h + c;
+        }
+        return Math.floorMod(h ^ (h >>> 16), particiones);
+    }
+
+    // ================================
+    // 📊 MÉTRICAS
+    // ================================
+    public MetricasIngestaDTO obtenerMetricas() {
+        Worker[] ws = workers;
+        int[] profundidades = new int[ws.length];
+        int total = 0;
+        for (int i = 0; i < ws.length; i++) {
+            profundidades[i] = ws[i].anillo.tamaño();
+            total += profundidades[i];
+        }
+
+        return new MetricasIngestaDTO(
+                ws.length,
+                ws.length > 0 ? ws[0].anillo.capacidad() : 0,
+                total,
+                profundidades,
+                recibidos.get(),
+                procesados.get(),
+                descartados.get(),
+                errores.get(),
+                TimeUnit.NANOSECONDS.toMillis(lagUltimoNanos),
+                getLagPromedioMs(),
+                TimeUnit.NANOSECONDS.toMillis(lagMaxNanos.get()));
+    }
+
+    /**
+     * Lag suavizado en ms; lo usan otros componentes para adaptar su carga.
+     * Cada worker lleva su propio promedio (un solo escritor, sin carreras) y
+     * aquí se promedian.
+     */
+    public double getLagPromedioMs() {
+        Worker[] ws = workers;
+        if (ws.length == 0) {
+            return 0;
+        }
+        double suma = 0;
+        for (Worker w : ws) {
+            suma += w.lagPromedioNanos;
+        }
+        return suma / ws.length / 1_000_000.0;
+    }
+
+    public void reiniciarLagMaximo() {
+        lagMaxNanos.set(0);
+    }
+
+    private void registrarLag(Worker worker, long lag) {
+        lagUltimoNanos = lag;
+        worker.lagPromedioNanos = worker.lagPromedioNanos * 0.95 + lag * 0.05;
+        lagMaxNanos.accumulateAndGet(lag, Math::max);
+    }
+
+    @PreDestroy
+    public synchronized void detener() {
+        activo = false;
+        for (Worker w : workers) {
+            w.interrupt();
+        }
+        for (Worker w : workers) {
+            try {
+                w.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ================================
+    // ⚙️ WORKER
+    // ================================
+    private class Worker extends Thread {
+
+        private final int indice;
+        private final AnilloAcotado<MensajeMqtt> anillo;
+        private final Consumer<MensajeMqtt> procesador;
+        private final AtomicBoolean esperando = new AtomicBoolean();
+        // Sólo lo escribe este worker
+        private volatile double lagPromedioNanos;
+
+        Worker(int indice, AnilloAcotado<MensajeMqtt> anillo, Consumer<MensajeMqtt> procesador) {
+            super("mqtt-ingesta-" + indice);
+            this.indice = indice;
+            this.anillo = anillo;
+            this.procesador = procesador;
+            setDaemon(true);
+        }
+
+        // Con el worker ocupado no cuesta más que una lectura; si duerme, sólo
+        // el primer productor que lo encuentra así paga el unpark
+        void despertar() {
+            if (esperando.get() && esperando.compareAndSet(true, false)) {
+                LockSupport.unpark(this);
+            }
+        }
+
+        // Anuncia que va a dormir antes de volver a mirar el anillo: quien
+        // ofrezca después ve el anuncio y lo despierta, así no hace falta
+        // sondear con un plazo
+        private void esperar() {
+            esperando.set(true);
+            if (activo && anillo.vacio()) {
+                LockSupport.park(this);
+            }
+            esperando.set(false);
+        }
+
+        @Override
+        public void run() {
+            while (activo && !isInterrupted()) {
+                MensajeMqtt mensaje = anillo.tomar();
+                if (mensaje == null) {
+                    esperar();
+                    continue;
+                }
+
+                registrarLag(this, System.nanoTime() - mensaje.getRecibidoNanos());
+                try {
+                    procesador.accept(mensaje);
+                    procesados.incrementAndGet();
+                } catch (Exception e) {
+                    errores.incrementAndGet();
+                    log.error("❌ [INGESTA] Error procesando {}: {}", mensaje.getTopic(), e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
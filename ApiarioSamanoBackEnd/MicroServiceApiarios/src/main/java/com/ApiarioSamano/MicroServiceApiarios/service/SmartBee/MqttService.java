@@ -2,20 +2,41 @@ package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee;
 
 import com.ApiarioSamano.MicroServiceApiarios.config.SensorWebSocketHandler;
 import com.ApiarioSamano.MicroServiceApiarios.dto.DispositivoDTO.DispositivoRequestDTO;
+import com.ApiarioSamano.MicroServiceApiarios.dto.IngestaDTO.MetricasIngestaDTO;
 import com.ApiarioSamano.MicroServiceApiarios.factory.DispositivoFactory;
 import com.ApiarioSamano.MicroServiceApiarios.model.Dispositivo;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Anomalias.DetectorAnomalias;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Cluster.LecturaRelay;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Cluster.RelayCluster;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.DetectorDesconexion;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.EstadoDispositivo;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.RegistroDispositivos;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.RegistroSensores;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.TiposSensor;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.ValorSensor;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta.DecodificadorLote;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta.MensajeMqtt;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta.OyenteLectura;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta.PipelineIngesta;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.SeriesTemporales.SerieTemporalService;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Topicos.CoincidenciaTopico;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Topicos.ManejadorTopico;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Topicos.RouterTopicos;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.BandaMuerta;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.LecturaSensorMensaje;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.eclipse.paho.client.mqttv3.*;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class MqttService {
@@ -29,19 +50,41 @@ public class MqttService {
     @Value("${mqtt.client}")
     private String clientId;
 
+    @Value("${mqtt.publicacion.timeout-ms:10000}")
+    private long timeoutPublicacionMs;
+
     private MqttClient client;
+    // Lo registra el motor de reglas (depende de este servicio, no al revés)
+    private volatile OyenteLectura oyenteLecturas;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     private final DispositivoFactory dispositivoFactory;
-
-    // Almacenar dispositivos detectados
-    private final Map<String, Dispositivo> dispositivosDetectados = new ConcurrentHashMap<>();
-
-    // Últimos datos de sensores
-    private final Map<String, Map<String, String>> ultimosDatosSensores = new ConcurrentHashMap<>();
-
-    // Timestamps de sensores
-    private final Map<String, Map<String, Long>> timestampsSensores = new ConcurrentHashMap<>();
+    private final SerieTemporalService serieTemporalService;
+    private final SensorWebSocketHandler sensorWebSocketHandler;
+    private final PipelineIngesta pipelineIngesta;
+    private final DetectorDesconexion detectorDesconexion;
+    private final RegistroSensores registroSensores;
+    private final RegistroDispositivos registroDispositivos;
+    private final RelayCluster relayCluster;
+    private final DetectorAnomalias detectorAnomalias;
+    private final BandaMuerta bandaMuerta;
+
+    // Rutas MQTT: se compilan una vez, el primer '+' siempre es el dispositivo.
+    // Los literales tienen prioridad sobre "+/+", que cubre cualquier sensor.
+    private final RouterTopicos<ManejadorTopico> router = RouterTopicos.<ManejadorTopico>builder()
+            .ruta("apiarios/dispositivos/registro",
+                    (c, m) -> procesarRegistroDispositivo(texto(m)))
+            .ruta("apiarios/dispositivos/+/status",
+                    (c, m) -> procesarEstado(c.comodin(0), texto(m)))
+            .ruta("apiarios/dispositivos/+/sensor_status",
+                    (c, m) -> procesarEstadoSensor(c.comodin(0), texto(m)))
+            .ruta("apiarios/dispositivos/+/lote",
+                    (c, m) -> procesarLote(c.comodin(0), m))
+            .ruta("apiarios/dispositivos/+/+",
+                    (c, m) -> procesarDatoSensor(c, m))
+            .ruta(RelayCluster.PREFIJO_RELAY + "+",
+                    (c, m) -> procesarRelay(m))
+            .build();
 
     // ========================
     // CONEXIÓN
@@ -50,43 +93,106 @@ public class MqttService {
     public void connect() {
         try {
             String url = "tcp://" + mqttHost + ":" + mqttPort;
-            client = new MqttClient(url, clientId, null);
+            client = new MqttClient(url, relayCluster.clientId(clientId), null);
+            // Sin esto un publish QoS 1 sin PUBACK bloquea para siempre
+            client.setTimeToWait(timeoutPublicacionMs);
 
             MqttConnectOptions options = new MqttConnectOptions();
             options.setAutomaticReconnect(true);
             options.setCleanSession(true);
             options.setConnectionTimeout(10);
 
-            client.connect(options);
+            // Un solo callback para todas las suscripciones: los listeners por
+            // filtro de Paho no reconocen los filtros $share/...
+            client.setCallback(new MqttCallbackExtended() {
+                @Override
+                public void connectComplete(boolean reconnect, String serverURI) {
+                    if (reconnect) {
+                        // Con cleanSession el broker olvidó las suscripciones
+                        log.info("📡 Reconectado al broker MQTT: {}", serverURI);
+                        suscribir();
+                    }
+                }
 
-            System.out.println("📡 Conectado al broker MQTT: " + url);
+                @Override
+                public void connectionLost(Throwable causa) {
+                    log.warn("⚠️ Conexión MQTT perdida: {}", causa.getMessage());
+                }
+
+                @Override
+                public void messageArrived(String topic, MqttMessage msg) {
+                    // El callback sólo encola
+                    pipelineIngesta.publicar(topic, msg.getPayload());
+                }
 
-            // Suscripción
-            client.subscribe("apiarios/dispositivos/#", (topic, msg) -> {
-                String payload = new String(msg.getPayload());
-                procesarMensaje(topic, payload);
+                @Override
+                public void deliveryComplete(IMqttDeliveryToken token) {
+                }
             });
 
+            detectorDesconexion.setAlDesconectar(this::sensorInactivo);
+
+            // Los mensajes se procesan en los workers del pipeline, no en el hilo de Paho
+            pipelineIngesta.iniciar(this::procesarMensaje);
+
+            client.connect(options);
+
+            log.info("📡 Conectado al broker MQTT: {} como {}", url, client.getClientId());
+
+            suscribir();
+            relayCluster.iniciar((topic, payload) -> client.publish(topic, payload, 0, false));
+
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("❌ Error conectando al broker MQTT: {}", e.getMessage(), e);
+        }
+    }
+
+    private void suscribir() {
+        try {
+            if (relayCluster.isHabilitado()) {
+                // Las lecturas se reparten entre los nodos del grupo; los registros
+                // y el relay los recibe cada nodo completo
+                client.subscribe(
+                        new String[] { relayCluster.filtroIngesta(), "apiarios/dispositivos/registro",
+                                relayCluster.filtroRelay() },
+                        new int[] { 0, 0, 0 });
+            } else {
+                client.subscribe(relayCluster.filtroIngesta(), 0);
+            }
+            log.info("📡 Suscrito a {}", relayCluster.filtroIngesta());
+        } catch (MqttException e) {
+            log.error("❌ Error suscribiendo a MQTT: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void desconectar() {
+        relayCluster.detener();
+        try {
+            if (client != null && client.isConnected()) {
+                client.disconnect();
+            }
+        } catch (MqttException e) {
+            log.warn("⚠️ Error desconectando de MQTT: {}", e.getMessage());
         }
     }
 
     // ================================
     // 🔍 PROCESAR MENSAJES RECIBIDOS
     // ================================
-    private void procesarMensaje(String topic, String payload) {
-        System.out.println("📥 Mensaje recibido -> Topic: " + topic + "   Payload: " + payload);
-
-        if (topic.equals("apiarios/dispositivos/registro")) {
-            procesarRegistroDispositivo(payload);
-        } else if (topic.contains("/dispositivos/") && topic.contains("/status")) {
-            procesarEstado(topic, payload);
-        } else if (topic.contains("/dispositivos/") && topic.contains("/humedad_suelo")) {
-            procesarDatoSensor(topic, payload, "humedad_suelo");
-        } else if (topic.contains("/dispositivos/") && topic.contains("/sensor_status")) {
-            procesarEstadoSensor(topic, payload);
+    private void procesarMensaje(MensajeMqtt mensaje) {
+        CoincidenciaTopico<ManejadorTopico> coincidencia = router.buscar(mensaje.getTopic());
+        if (coincidencia == null) {
+            // Comandos propios y topics desconocidos
+            return;
         }
+
+        log.debug("📥 Mensaje recibido -> Topic: {}", mensaje.getTopic());
+        coincidencia.getDestino().manejar(coincidencia, mensaje);
+    }
+
+    private static String texto(MensajeMqtt mensaje) {
+        return new String(mensaje.getPayload(), StandardCharsets.UTF_8);
     }
 
     // ================================
@@ -100,161 +206,268 @@ public class MqttService {
             // Creamos el dispositivo mediante la fábrica
             Dispositivo dispositivo = dispositivoFactory.crear(dto);
 
-            // Guardamos en memoria
-            dispositivosDetectados.put(dispositivo.getDispositivoId(), dispositivo);
+            // Guardamos en el registro (se persiste en la instantánea de estado)
+            registroDispositivos.registrar(dispositivo);
 
-            System.out.println("✅ Dispositivo registrado (Factory Method):");
-            System.out.println("   - ID Dispositivo: " + dispositivo.getDispositivoId());
-            System.out.println("   - Tipo: " + dispositivo.getTipo());
-            System.out.println("   - Sensores: " + dispositivo.getSensores());
-            System.out.println("   - Actuadores: " + dispositivo.getActuadores());
+            log.info("✅ Dispositivo registrado (Factory Method): ID={}, Tipo={}, Sensores={}, Actuadores={}",
+                    dispositivo.getDispositivoId(), dispositivo.getTipo(),
+                    dispositivo.getSensores(), dispositivo.getActuadores());
 
         } catch (Exception e) {
-            System.err.println("❌ Error procesando registro de dispositivo: " + e.getMessage());
-            e.printStackTrace();
+            log.error("❌ Error procesando registro de dispositivo: {}", e.getMessage(), e);
         }
     }
 
     // ================================
     // 📊 PROCESAR DATOS SENSOR
     // ================================
-    private void procesarDatoSensor(String topic, String payload, String tipoSensor) {
-        String dispositivoId = extraerDispositivoId(topic);
+    private void procesarDatoSensor(CoincidenciaTopico<ManejadorTopico> coincidencia, MensajeMqtt mensaje) {
+        String dispositivoId = coincidencia.comodin(0);
+
+        // El tipo se busca sobre el topic sin crear el substring del sensor
+        int tipo = registroSensores.admitir(dispositivoId, mensaje.getTopic(),
+                coincidencia.inicioComodin(1), coincidencia.finComodin(1));
+        if (tipo == TiposSensor.NINGUNO) {
+            log.debug("⚠️ Sensor no anunciado en {}", mensaje.getTopic());
+            return;
+        }
+        String tipoSensor = registroSensores.getTipos().nombre(tipo);
+        long ahora = System.currentTimeMillis();
 
-        if (payload.equals("SENSOR_DESCONECTADO") || payload.contains("DESCONECTADO")) {
-            if (ultimosDatosSensores.containsKey(dispositivoId)) {
-                ultimosDatosSensores.get(dispositivoId).remove(tipoSensor);
+        // Parseo único: el mismo double va al estado, al historial y al WebSocket
+        double valor = ValorSensor.parsear(mensaje.getPayload());
+        if (!Double.isNaN(valor)) {
+            registroSensores.registrarValor(dispositivoId, tipo, valor, ahora);
+            detectorDesconexion.registrarLectura(dispositivoId, tipoSensor, ahora);
+            serieTemporalService.registrar(dispositivoId, tipoSensor, ahora, valor);
+            relayCluster.reenviar(dispositivoId, tipoSensor, LecturaRelay.NUMERICO, ahora, valor, null);
+            String apiarioId = apiarioDe(dispositivoId);
+            // El historial, las anomalías y las reglas ven todas; los WebSockets sólo los cambios
+            if (bandaMuerta.admitir(dispositivoId, tipo, tipoSensor, valor, ahora)) {
+                enviarPorWebSocket(new LecturaSensorMensaje(dispositivoId, apiarioId, tipoSensor, valor, ahora));
             }
+            detectorAnomalias.evaluar(dispositivoId, apiarioId, tipo, tipoSensor, valor, ahora);
+            notificarLectura(dispositivoId, tipo, tipoSensor, valor, ahora, true);
+            log.debug("📊 {} de {}: {}", tipoSensor, dispositivoId, valor);
+            return;
+        }
 
+        String payload = texto(mensaje);
+        if (payload.contains("DESCONECTADO")) {
+            registroSensores.marcarDesconectado(dispositivoId, tipo);
+            bandaMuerta.reiniciar(dispositivoId, tipo);
+
+            // Ya se avisó: el detector no debe volver a avisar por inactividad
+            detectorDesconexion.marcarDesconectado(dispositivoId, tipoSensor);
+            relayCluster.reenviar(dispositivoId, tipoSensor, LecturaRelay.DESCONECTADO, ahora, Double.NaN, null);
             enviarPorWebSocket(dispositivoId, tipoSensor, "SENSOR_DESCONECTADO");
 
-            System.out.println("❌ Sensor " + tipoSensor + " de " + dispositivoId + ": DESCONECTADO");
+            log.info("❌ Sensor {} de {}: DESCONECTADO", tipoSensor, dispositivoId);
             return;
         }
 
-        ultimosDatosSensores
-                .computeIfAbsent(dispositivoId, k -> new ConcurrentHashMap<>())
-                .put(tipoSensor, payload);
-
-        timestampsSensores
-                .computeIfAbsent(dispositivoId, k -> new ConcurrentHashMap<>())
-                .put(tipoSensor, System.currentTimeMillis());
-
+        // Lectura no numérica: se guarda y se reenvía, pero no entra al historial
+        log.warn("⚠️ Lectura no numérica de {} en {}: {}", tipoSensor, dispositivoId, payload);
+        registroSensores.registrarTexto(dispositivoId, tipo, payload, ahora);
+        bandaMuerta.reiniciar(dispositivoId, tipo);
+        detectorDesconexion.registrarLectura(dispositivoId, tipoSensor, ahora);
+        relayCluster.reenviar(dispositivoId, tipoSensor, LecturaRelay.TEXTO, ahora, Double.NaN, payload);
         enviarPorWebSocket(dispositivoId, tipoSensor, payload);
-
-        System.out.println("📊 " + tipoSensor + " de " + dispositivoId + ": " + payload);
     }
 
-    private void enviarPorWebSocket(String dispositivoId, String tipoSensor, String valor) {
+    // ================================
+    // 📦 LOTE DE LECTURAS (varios sensores y timestamps en un mensaje)
+    // ================================
+    // Lo que el ESP32 juntó sin conexión: todo entra al historial con su
+    // timestamp, pero el último valor, las anomalías y las reglas sólo avanzan
+    // con lecturas más nuevas que las que ya tenían. A los WebSockets va
+    // únicamente el estado final de cada sensor.
+    private void procesarLote(String dispositivoId, MensajeMqtt mensaje) {
+        String apiarioId = apiarioDe(dispositivoId);
+        long llegada = System.currentTimeMillis();
+        double[] ultimos = new double[TiposSensor.MAX_TIPOS];
+        long[] momentos = new long[TiposSensor.MAX_TIPOS];
+        long[] aplicados = new long[1];
+
+        int total;
         try {
-            String mensajeWebSocket = String.format("""
-                    {
-                        "dispositivoId": "%s",
-                        "sensor": "%s",
-                        "valor": "%s",
-                        "timestamp": "%d"
-                    }
-                    """, dispositivoId, tipoSensor, valor, System.currentTimeMillis());
-
-            SensorWebSocketHandler.enviarATodos(mensajeWebSocket);
+            total = DecodificadorLote.decodificar(mensaje.getPayload(), llegada, (sensor, timestamp, valor) -> {
+                int tipo = registroSensores.admitir(dispositivoId, sensor, 0, sensor.length());
+                if (tipo == TiposSensor.NINGUNO || Double.isNaN(valor) || Double.isInfinite(valor)) {
+                    return;
+                }
+                serieTemporalService.registrar(dispositivoId, sensor, timestamp, valor);
+                relayCluster.reenviar(dispositivoId, sensor, LecturaRelay.NUMERICO, timestamp, valor, null);
+                if (!registroSensores.registrarRemoto(dispositivoId, tipo, EstadoDispositivo.NUMERICO, valor, null,
+                        timestamp)) {
+                    return;
+                }
+                detectorAnomalias.evaluar(dispositivoId, apiarioId, tipo, sensor, valor, timestamp);
+                notificarLectura(dispositivoId, tipo, sensor, valor, timestamp, true);
+                ultimos[tipo] = valor;
+                momentos[tipo] = timestamp;
+                aplicados[0] |= 1L << tipo;
+            });
+        } catch (IllegalArgumentException e) {
+            // Lo decodificado antes del error ya se registró
+            log.warn("⚠️ Lote inválido de {}: {}", dispositivoId, e.getMessage());
+            total = -1;
+        }
 
-        } catch (Exception e) {
-            System.err.println("❌ Error enviando por WebSocket: " + e.getMessage());
+        for (long bits = aplicados[0]; bits != 0; bits &= bits - 1) {
+            int tipo = Long.numberOfTrailingZeros(bits);
+            String sensor = registroSensores.getTipos().nombre(tipo);
+            // El dispositivo reportó ahora aunque la lectura sea vieja
+            detectorDesconexion.registrarLectura(dispositivoId, sensor, llegada);
+            if (bandaMuerta.admitir(dispositivoId, tipo, sensor, ultimos[tipo], momentos[tipo])) {
+                enviarPorWebSocket(new LecturaSensorMensaje(dispositivoId, apiarioId, sensor, ultimos[tipo],
+                        momentos[tipo]));
+            }
         }
+        log.debug("📦 Lote de {}: {} lecturas", dispositivoId, total);
     }
 
-    private void procesarEstado(String topic, String payload) {
-        String dispositivoId = extraerDispositivoId(topic);
-        System.out.println("🟢 Estado de " + dispositivoId + ": " + payload);
+    // ================================
+    // 🔗 LECTURAS PROCESADAS EN OTRO NODO
+    // ================================
+    // Ya se validaron y guardaron en el historial del nodo de origen; aquí sólo
+    // se actualiza el último valor y se reparte a los WebSockets locales.
+    private void procesarRelay(MensajeMqtt mensaje) {
+        LecturaRelay lectura = relayCluster.recibir(mensaje.getPayload());
+        if (lectura == null) {
+            return;
+        }
+        String dispositivoId = lectura.getDispositivoId();
+        String sensor = lectura.getSensor();
+        int tipo = registroSensores.getTipos().internar(sensor);
+        if (tipo == TiposSensor.NINGUNO) {
+            return;
+        }
+
+        switch (lectura.getTipo()) {
+            case LecturaRelay.NUMERICO -> {
+                if (!registroSensores.registrarRemoto(dispositivoId, tipo, EstadoDispositivo.NUMERICO,
+                        lectura.getValor(), null, lectura.getTimestamp())) {
+                    return;
+                }
+                detectorDesconexion.registrarLectura(dispositivoId, sensor, lectura.getTimestamp());
+                String apiarioId = apiarioDe(dispositivoId);
+                if (bandaMuerta.admitir(dispositivoId, tipo, sensor, lectura.getValor(), lectura.getTimestamp())) {
+                    enviarPorWebSocket(new LecturaSensorMensaje(dispositivoId, apiarioId, sensor,
+                            lectura.getValor(), lectura.getTimestamp()));
+                }
+                // Cada nodo ve todas las lecturas (propias y del relay), así sus
+                // estadísticas no dependen de cómo se repartió la ingesta
+                detectorAnomalias.evaluar(dispositivoId, apiarioId, tipo, sensor, lectura.getValor(),
+                        lectura.getTimestamp());
+                notificarLectura(dispositivoId, tipo, sensor, lectura.getValor(), lectura.getTimestamp(), false);
+            }
+            case LecturaRelay.TEXTO -> {
+                if (!registroSensores.registrarRemoto(dispositivoId, tipo, EstadoDispositivo.TEXTO,
+                        Double.NaN, lectura.getTexto(), lectura.getTimestamp())) {
+                    return;
+                }
+                detectorDesconexion.registrarLectura(dispositivoId, sensor, lectura.getTimestamp());
+                bandaMuerta.reiniciar(dispositivoId, tipo);
+                enviarPorWebSocket(dispositivoId, sensor, lectura.getTexto());
+            }
+            case LecturaRelay.DESCONECTADO -> {
+                registroSensores.marcarDesconectado(dispositivoId, tipo);
+                bandaMuerta.reiniciar(dispositivoId, tipo);
+                detectorDesconexion.marcarDesconectado(dispositivoId, sensor);
+                enviarPorWebSocket(dispositivoId, sensor, "SENSOR_DESCONECTADO");
+            }
+            default -> log.debug("⚠️ Tipo de relay desconocido: {}", lectura.getTipo());
+        }
     }
 
-    private void procesarEstadoSensor(String topic, String payload) {
-        String dispositivoId = extraerDispositivoId(topic);
-        System.out.println("🔍 Estado sensor de " + dispositivoId + ": " + payload);
+    public void setOyenteLecturas(OyenteLectura oyente) {
+        this.oyenteLecturas = oyente;
     }
 
-    private String extraerDispositivoId(String topic) {
-        String[] partes = topic.split("/");
-        for (int i = 0; i < partes.length; i++) {
-            if (partes[i].equals("dispositivos") && i + 1 < partes.length) {
-                return partes[i + 1];
-            }
+    private void notificarLectura(String dispositivoId, int tipo, String sensor, double valor, long timestamp,
+            boolean local) {
+        OyenteLectura oyente = oyenteLecturas;
+        if (oyente == null) {
+            return;
+        }
+        try {
+            oyente.lectura(dispositivoId, tipo, sensor, valor, timestamp, local);
+        } catch (Exception e) {
+            log.error("❌ Error evaluando reglas para {}: {}", dispositivoId, e.getMessage());
         }
-        return "desconocido";
     }
 
-    // ================================
-    // 🔄 LIMPIAR DATOS ANTIGUOS
-    // ================================
-    @Scheduled(fixedRate = 30000)
-    public void limpiarDatosAntiguos() {
-        long ahora = System.currentTimeMillis();
-        long UMBRAL_DESCONEXION = 45000;
-
-        System.out.println("🔄 Revisando datos de sensores antiguos...");
+    private String apiarioDe(String dispositivoId) {
+        Dispositivo dispositivo = registroDispositivos.obtener(dispositivoId);
+        return dispositivo != null ? dispositivo.getApiarioId() : null;
+    }
 
-        for (String dispositivoId : timestampsSensores.keySet()) {
-            Map<String, Long> timestamps = timestampsSensores.get(dispositivoId);
+    private void enviarPorWebSocket(String dispositivoId, String tipoSensor, String valor) {
+        enviarPorWebSocket(new LecturaSensorMensaje(
+                dispositivoId, apiarioDe(dispositivoId), tipoSensor, valor, System.currentTimeMillis()));
+    }
 
-            for (String sensor : timestamps.keySet()) {
-                long ultimaActualizacion = timestamps.get(sensor);
-                long tiempoInactivo = ahora - ultimaActualizacion;
+    private void enviarPorWebSocket(LecturaSensorMensaje lectura) {
+        try {
+            // Sólo se encola en las sesiones suscritas; el JSON se arma en los workers
+            sensorWebSocketHandler.enviar(lectura);
+        } catch (Exception e) {
+            log.error("❌ Error enviando por WebSocket: {}", e.getMessage());
+        }
+    }
 
-                if (tiempoInactivo > UMBRAL_DESCONEXION) {
-                    System.out.println("❌ Sensor " + sensor + " de " + dispositivoId + " inactivo por "
-                            + (tiempoInactivo / 1000) + " segundos");
+    private void procesarEstado(String dispositivoId, String payload) {
+        log.debug("🟢 Estado de {}: {}", dispositivoId, payload);
+    }
 
-                    if (ultimosDatosSensores.containsKey(dispositivoId)) {
-                        ultimosDatosSensores.get(dispositivoId).remove(sensor);
-                    }
+    private void procesarEstadoSensor(String dispositivoId, String payload) {
+        log.debug("🔍 Estado sensor de {}: {}", dispositivoId, payload);
+    }
 
-                    enviarPorWebSocket(dispositivoId, sensor, "SENSOR_DESCONECTADO");
-                }
-            }
+    // ================================
+    // 🔄 SENSORES INACTIVOS
+    // ================================
+    // Lo llama el DetectorDesconexion una sola vez cuando un sensor supera el
+    // umbral sin lecturas; vuelve a armarse con la siguiente lectura.
+    private void sensorInactivo(String dispositivoId, String sensor) {
+        int tipo = registroSensores.getTipos().buscar(sensor);
+        if (tipo != TiposSensor.NINGUNO) {
+            registroSensores.marcarDesconectado(dispositivoId, tipo);
+            bandaMuerta.reiniciar(dispositivoId, tipo);
         }
+        enviarPorWebSocket(dispositivoId, sensor, "SENSOR_DESCONECTADO");
     }
 
     // ================================
     // 🧹 LIMPIEZA MANUAL
     // ================================
     public void limpiarDatosDispositivo(String dispositivoId) {
-        if (ultimosDatosSensores.containsKey(dispositivoId)) {
-            ultimosDatosSensores.get(dispositivoId).clear();
-        }
-        if (timestampsSensores.containsKey(dispositivoId)) {
-            timestampsSensores.get(dispositivoId).clear();
-        }
-        System.out.println("🧹 Datos limpiados para dispositivo: " + dispositivoId);
+        registroSensores.limpiar(dispositivoId);
+        detectorDesconexion.olvidar(dispositivoId);
+        detectorAnomalias.olvidar(dispositivoId);
+        bandaMuerta.olvidar(dispositivoId);
+        log.info("🧹 Datos limpiados para dispositivo: {}", dispositivoId);
     }
 
     // ================================
     // GETTERS
     // ================================
     public Map<String, Dispositivo> getDispositivosDetectados() {
-        return dispositivosDetectados;
+        return registroDispositivos.getDispositivos();
     }
 
     public Dispositivo getDispositivo(String dispositivoId) {
-        return dispositivosDetectados.get(dispositivoId);
+        return registroDispositivos.obtener(dispositivoId);
     }
 
     public Map<String, String> getUltimosDatosSensores(String dispositivoId) {
-        Map<String, String> datos = ultimosDatosSensores.getOrDefault(dispositivoId, new HashMap<>());
-
-        Map<String, Long> timestamps = timestampsSensores.getOrDefault(dispositivoId, new HashMap<>());
-        long ahora = System.currentTimeMillis();
-        long UMBRAL_DESCONEXION = 45000;
-
-        for (String sensor : datos.keySet()) {
-            if (timestamps.containsKey(sensor)) {
-                long tiempoInactivo = ahora - timestamps.get(sensor);
-                if (tiempoInactivo > UMBRAL_DESCONEXION) {
-                    datos.put(sensor, "SENSOR_DESCONECTADO");
-                }
-            }
-        }
+        // Los sensores inactivos ya los marcó el detector de desconexión
+        return registroSensores.instantanea(dispositivoId);
+    }
 
-        return datos;
+    public MetricasIngestaDTO getMetricasIngesta() {
+        return pipelineIngesta.obtenerMetricas();
     }
 
     public boolean estaConectado() {
@@ -284,22 +497,49 @@ public class MqttService {
         publicar("apiarios/dispositivos/" + dispositivoId + "/comandos/servo2", String.valueOf(grados));
     }
 
+    /**
+     * Publica con QoS 1 y espera el PUBACK (hasta mqtt.publicacion.timeout-ms).
+     * No reconecta: si el cliente está caído falla y el llamador decide.
+     */
+    public void publicarConfirmado(String topic, String mensaje) throws MqttException {
+        if (!estaConectado()) {
+            throw new MqttException(MqttException.REASON_CODE_CLIENT_NOT_CONNECTED);
+        }
+        MqttMessage msg = new MqttMessage(mensaje.getBytes(StandardCharsets.UTF_8));
+        msg.setQos(1);
+        client.publish(topic, msg);
+    }
+
+    /**
+     * Intervalo de reporte en ms para el dispositivo, QoS 1 y retenido: un
+     * ESP32 que reinicia lo recibe al suscribirse a sus comandos.
+     */
+    public void publicarIntervalo(String dispositivoId, long intervaloMs) throws MqttException {
+        if (!estaConectado()) {
+            throw new MqttException(MqttException.REASON_CODE_CLIENT_NOT_CONNECTED);
+        }
+        client.publish("apiarios/dispositivos/" + dispositivoId + "/comandos/intervalo",
+                String.valueOf(intervaloMs).getBytes(StandardCharsets.UTF_8), 1, true);
+    }
+
+    // Sin conexión el comando se descarta: Paho reconecta solo y un connect()
+    // aquí crearía un segundo cliente con el mismo id peleándose la sesión
     private void publicar(String topic, String mensaje) {
         try {
             if (!estaConectado()) {
-                System.out.println("⚠️ Cliente MQTT desconectado, reconectando...");
-                connect();
+                log.warn("⚠️ Cliente MQTT desconectado, se descarta {} -> {}", topic, mensaje);
+                return;
             }
 
-            MqttMessage msg = new MqttMessage(mensaje.getBytes());
+            MqttMessage msg = new MqttMessage(mensaje.getBytes(StandardCharsets.UTF_8));
             msg.setQos(1);
 
             client.publish(topic, msg);
 
-            System.out.println("📤 Publicado -> Topic: " + topic + "   Mensaje: " + mensaje);
+            log.info("📤 Publicado -> Topic: {}   Mensaje: {}", topic, mensaje);
 
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("❌ Error publicando en {}: {}", topic, e.getMessage(), e);
         }
     }
 }
@@ -0,0 +1,35 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Reglas;
+
+public enum Comparador {
+
+    MAYOR(">"),
+    MENOR("<");
+
+    private final String simbolo;
+
+    Comparador(String simbolo) {
+        this.simbolo = simbolo;
+    }
+
+    public String getSimbolo() {
+        return simbolo;
+    }
+
+    public static Comparador desdeTexto(String texto) {
+        for (Comparador c : values()) {
+            if (c.simbolo.equals(texto) || c.name().equalsIgnoreCase(texto)) {
+                return c;
+            }
+        }
+        throw new IllegalArgumentException("Operador desconocido: " + texto);
+    }
+
+    boolean cumple(double valor, double umbral) {
+        return this == MAYOR ? valor > umbral : valor < umbral;
+    }
+
+    // Con histéresis la regla activa sólo se libera al alejarse del umbral
+    boolean libera(double valor, double umbral, double histeresis) {
+        return this == MAYOR ? valor < umbral - histeresis : valor > umbral + histeresis;
+    }
+}
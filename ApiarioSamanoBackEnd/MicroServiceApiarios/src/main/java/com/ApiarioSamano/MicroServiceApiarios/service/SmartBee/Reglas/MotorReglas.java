@@ -0,0 +1,277 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Reglas;
+
+import com.ApiarioSamano.MicroServiceApiarios.dto.ComandoDTO.ComandoFlotaRequest;
+import com.ApiarioSamano.MicroServiceApiarios.dto.ReglaDTO.ReglaDTO;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.MqttService;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Comandos.Actuador;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Comandos.ServicioComandos;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.RegistroSensores;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.TiposSensor;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta.OyenteLectura;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Reglas.Regla.Transicion;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reglas que mueven actuadores según los sensores, evaluadas en el worker de
+ * ingesta sobre cada lectura numérica.
+ *
+ * Las reglas se compilan en un índice por tipo de sensor que se reemplaza
+ * entero al crear o borrar una; una lectura sólo recorre las reglas de su
+ * sensor y nunca toma un lock global. El comando sale por ServicioComandos
+ * (QoS 1 con reintentos, fuera del worker), con una cubeta de tokens por
+ * dispositivo para no inundarlo si una regla oscila.
+ *
+ * En cluster todos los nodos evalúan todas las lecturas (propias y del relay)
+ * y llegan a las mismas transiciones; sólo envía el comando el nodo que
+ * ingirió la lectura que la provocó. Si el comando no sale (cubeta vacía) ese
+ * nodo revierte la transición y la reintenta con la siguiente lectura.
+ */
+@Slf4j
+@Component
+public class MotorReglas implements OyenteLectura {
+
+    private final MqttService mqttService;
+    private final ServicioComandos servicioComandos;
+    private final RegistroSensores registroSensores;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String archivo;
+    private final double comandosPorMinuto;
+
+    // Definiciones en orden de creación; se modifican bajo el lock del motor
+    private final Map<String, Regla> reglas = new LinkedHashMap<>();
+    // tipo de sensor -> reglas que lo usan (null si ninguna)
+    private volatile Regla[][] indice = new Regla[TiposSensor.MAX_TIPOS][];
+
+    private final Map<String, CubetaTokens> cubetas = new ConcurrentHashMap<>();
+
+    public MotorReglas(
+            MqttService mqttService,
+            ServicioComandos servicioComandos,
+            RegistroSensores registroSensores,
+            @Value("${reglas.archivo:./data/reglas/reglas.json}") String archivo,
+            @Value("${reglas.comandos-por-minuto:6}") double comandosPorMinuto) {
+        this.mqttService = mqttService;
+        this.servicioComandos = servicioComandos;
+        this.registroSensores = registroSensores;
+        this.archivo = archivo;
+        this.comandosPorMinuto = comandosPorMinuto;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        cargar();
+        mqttService.setOyenteLecturas(this);
+    }
+
+    // ================================
+    // ⚡ EVALUACIÓN (worker de ingesta)
+    // ================================
+    @Override
+    public void lectura(String dispositivoId, int tipo, String sensor, double valor, long timestamp,
+            boolean local) {
+        Regla[][] actual = indice;
+        if (tipo < 0 || tipo >= actual.length || actual[tipo] == null) {
+            return;
+        }
+        for (Regla regla : actual[tipo]) {
+            if (!regla.aplicaA(dispositivoId)) {
+                continue;
+            }
+            Transicion t = regla.evaluar(dispositivoId, valor, timestamp);
+            if (!local || t == Transicion.NINGUNA) {
+                continue;
+            }
+            String payload = t == Transicion.ACTIVAR ? regla.getPayload() : regla.getPayloadAlSalir();
+            if (payload != null && !disparar(regla, dispositivoId, payload)) {
+                regla.revertir(dispositivoId, t);
+            }
+        }
+    }
+
+    // false si el comando no salió; el llamador revierte la transición
+    private boolean disparar(Regla regla, String dispositivoId, String payload) {
+        CubetaTokens cubeta = cubetas.computeIfAbsent(dispositivoId, k -> new CubetaTokens(comandosPorMinuto));
+        if (!cubeta.tomar(System.currentTimeMillis())) {
+            log.warn("⚠️ [REGLAS] Límite de comandos alcanzado para {}, se omite {} {} (regla {})",
+                    dispositivoId, regla.getActuador().getNombre(), payload, regla.getId());
+            return false;
+        }
+        try {
+            servicioComandos.enviarLote(new ComandoFlotaRequest(
+                    List.of(dispositivoId), Map.of(regla.getActuador().getNombre(), payload)));
+            log.info("⚡ [REGLAS] Regla {} -> {} {} en {}",
+                    regla.getId(), regla.getActuador().getNombre(), payload, dispositivoId);
+            return true;
+        } catch (Exception e) {
+            log.error("❌ [REGLAS] Error disparando regla {}: {}", regla.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    // ================================
+    // 📝 ADMINISTRACIÓN
+    // ================================
+    public synchronized List<ReglaDTO> listar() {
+        List<ReglaDTO> lista = new ArrayList<>(reglas.size());
+        for (Regla r : reglas.values()) {
+            lista.add(r.aDTO());
+        }
+        return lista;
+    }
+
+    public synchronized ReglaDTO crear(ReglaDTO dto) {
+        dto.setId(UUID.randomUUID().toString());
+        Regla regla = compilar(dto);
+        reglas.put(regla.getId(), regla);
+        reindexar();
+        guardar();
+        log.info("📝 [REGLAS] Regla {} creada: {} {} {} -> {} {}", regla.getId(), dto.getSensor(),
+                dto.getOperador(), dto.getUmbral(), dto.getActuador(), dto.getValor());
+        return regla.aDTO();
+    }
+
+    public synchronized boolean eliminar(String id) {
+        if (reglas.remove(id) == null) {
+            return false;
+        }
+        reindexar();
+        guardar();
+        log.info("🗑️ [REGLAS] Regla {} eliminada", id);
+        return true;
+    }
+
+    private Regla compilar(ReglaDTO dto) {
+        if (dto.getSensor() == null || dto.getSensor().isBlank()) {
+            throw new IllegalArgumentException("Se requiere el sensor");
+        }
+        if (dto.getHisteresis() < 0 || dto.getDuracionMs() < 0) {
+            throw new IllegalArgumentException("La histéresis y la duración no pueden ser negativas");
+        }
+        String sensor = dto.getSensor().trim();
+        int tipo = registroSensores.getTipos().internar(sensor);
+        if (tipo == TiposSensor.NINGUNO) {
+            throw new IllegalArgumentException("No se admiten más tipos de sensor: " + sensor);
+        }
+
+        Actuador actuador = Actuador.desdeNombre(dto.getActuador());
+        String payload = actuador.payload(dto.getValor());
+        String payloadAlSalir = dto.getValorAlSalir() != null ? actuador.payload(dto.getValorAlSalir()) : null;
+
+        HashSet<String> dispositivos = null;
+        if (dto.getDispositivos() != null && !dto.getDispositivos().isEmpty()) {
+            dispositivos = new HashSet<>(dto.getDispositivos());
+        }
+        return new Regla(dto.getId(), tipo, sensor, Comparador.desdeTexto(dto.getOperador()), dto.getUmbral(),
+                dto.getHisteresis(), dto.getDuracionMs(), actuador, payload, payloadAlSalir, dispositivos);
+    }
+
+    private void reindexar() {
+        List<List<Regla>> porTipo = new ArrayList<>(TiposSensor.MAX_TIPOS);
+        for (int i = 0; i < TiposSensor.MAX_TIPOS; i++) {
+            porTipo.add(null);
+        }
+        for (Regla r : reglas.values()) {
+            if (porTipo.get(r.getTipo()) == null) {
+                porTipo.set(r.getTipo(), new ArrayList<>());
+            }
+            porTipo.get(r.getTipo()).add(r);
+        }
+
+        Regla[][] nuevo = new Regla[TiposSensor.MAX_TIPOS][];
+        for (int i = 0; i < nuevo.length; i++) {
+            if (porTipo.get(i) != null) {
+                nuevo[i] = porTipo.get(i).toArray(new Regla[0]);
+            }
+        }
+        indice = nuevo;
+    }
+
+    // ================================
+    // 💾 PERSISTENCIA
+    // ================================
+    private synchronized void cargar() {
+        Path ruta = Paths.get(archivo);
+        if (!Files.isRegularFile(ruta)) {
+            return;
+        }
+        try {
+            List<ReglaDTO> guardadas = objectMapper.readValue(ruta.toFile(), new TypeReference<List<ReglaDTO>>() {
+            });
+            for (ReglaDTO dto : guardadas) {
+                if (dto.getId() == null || dto.getId().isBlank()) {
+                    dto.setId(UUID.randomUUID().toString());
+                }
+                try {
+                    Regla regla = compilar(dto);
+                    reglas.put(regla.getId(), regla);
+                } catch (IllegalArgumentException e) {
+                    log.warn("⚠️ [REGLAS] Regla {} ignorada: {}", dto.getId(), e.getMessage());
+                }
+            }
+            reindexar();
+            log.info("📂 [REGLAS] {} reglas cargadas desde {}", reglas.size(), ruta);
+        } catch (IOException e) {
+            log.error("❌ [REGLAS] No se pudo leer {}: {}", ruta, e.getMessage());
+        }
+    }
+
+    private void guardar() {
+        Path ruta = Paths.get(archivo);
+        Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+        try {
+            if (ruta.getParent() != null) {
+                Files.createDirectories(ruta.getParent());
+            }
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(temporal.toFile(), listar());
+            Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("❌ [REGLAS] Error guardando {}: {}", ruta, e.getMessage());
+        }
+    }
+
+    // ================================
+    // 🪣 LÍMITE DE COMANDOS POR DISPOSITIVO
+    // ================================
+    private static class CubetaTokens {
+        private final double capacidad;
+        private double tokens;
+        private long ultimo;
+
+        CubetaTokens(double porMinuto) {
+            this.capacidad = Math.max(1, porMinuto);
+            this.tokens = capacidad;
+            this.ultimo = System.currentTimeMillis();
+        }
+
+        synchronized boolean tomar(long ahora) {
+            tokens = Math.min(capacidad, tokens + (ahora - ultimo) * capacidad / 60_000d);
+            ultimo = ahora;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Reglas;
+
+import com.ApiarioSamano.MicroServiceApiarios.dto.ReglaDTO.ReglaDTO;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Comandos.Actuador;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Regla ya validada, con el tipo de sensor resuelto y los payloads listos. El
+ * estado (desde cuándo se cumple, si está activa) es por dispositivo.
+ */
+class Regla {
+
+    enum Transicion {
+        NINGUNA, ACTIVAR, LIBERAR
+    }
+
+    private final String id;
+    private final int tipo;
+    private final String sensor;
+    private final Comparador comparador;
+    private final double umbral;
+    private final double histeresis;
+    private final long duracionMs;
+    private final Actuador actuador;
+    private final String payload;
+    private final String payloadAlSalir;
+    // null = todos
+    private final Set<String> dispositivos;
+
+    private final Map<String, EstadoRegla> estados = new ConcurrentHashMap<>();
+
+    Regla(String id, int tipo, String sensor, Comparador comparador, double umbral, double histeresis,
+            long duracionMs, Actuador actuador, String payload, String payloadAlSalir, Set<String> dispositivos) {
+        this.id = id;
+        this.tipo = tipo;
+        this.sensor = sensor;
+        this.comparador = comparador;
+        this.umbral = umbral;
+        this.histeresis = histeresis;
+        this.duracionMs = duracionMs;
+        this.actuador = actuador;
+        this.payload = payload;
+        this.payloadAlSalir = payloadAlSalir;
+        this.dispositivos = dispositivos;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    int getTipo() {
+        return tipo;
+    }
+
+    Actuador getActuador() {
+        return actuador;
+    }
+
+    String getPayload() {
+        return payload;
+    }
+
+    String getPayloadAlSalir() {
+        return payloadAlSalir;
+    }
+
+    boolean aplicaA(String dispositivoId) {
+        return dispositivos == null || dispositivos.contains(dispositivoId);
+    }
+
+    /**
+     * Avanza el estado del dispositivo con la lectura. La transición se decide
+     * sólo con las lecturas, así todos los nodos del cluster llegan a la misma.
+     */
+    Transicion evaluar(String dispositivoId, double valor, long timestamp) {
+        EstadoRegla e = estados.computeIfAbsent(dispositivoId, k -> new EstadoRegla());
+        synchronized (e) {
+            if (e.activa) {
+                if (comparador.libera(valor, umbral, histeresis)) {
+                    e.activa = false;
+                    e.cumpleDesde = -1;
+                    return Transicion.LIBERAR;
+                }
+                return Transicion.NINGUNA;
+            }
+
+            if (!comparador.cumple(valor, umbral)) {
+                e.cumpleDesde = -1;
+                return Transicion.NINGUNA;
+            }
+            if (e.cumpleDesde < 0) {
+                e.cumpleDesde = timestamp;
+            }
+            if (timestamp - e.cumpleDesde >= duracionMs) {
+                e.activa = true;
+                return Transicion.ACTIVAR;
+            }
+            return Transicion.NINGUNA;
+        }
+    }
+
+    /**
+     * Deshace la transición cuando su comando no salió (límite de comandos o
+     * error al encolarlo): la siguiente lectura que la cumpla la vuelve a
+     * intentar en vez de dejar la regla activa con el actuador sin mover.
+     */
+    void revertir(String dispositivoId, Transicion t) {
+        EstadoRegla e = estados.get(dispositivoId);
+        if (e == null) {
+            return;
+        }
+        synchronized (e) {
+            if (t == Transicion.ACTIVAR && e.activa) {
+                // cumpleDesde se conserva: no vuelve a esperar la duración
+                e.activa = false;
+            } else if (t == Transicion.LIBERAR && !e.activa) {
+                e.activa = true;
+            }
+        }
+    }
+
+    ReglaDTO aDTO() {
+        return new ReglaDTO(id, sensor, comparador.getSimbolo(), umbral, histeresis, duracionMs,
+                actuador.getNombre(), payload, payloadAlSalir, dispositivos != null ? new ArrayList<>(dispositivos) : null);
+    }
+
+    private static class EstadoRegla {
+        long cumpleDesde = -1;
+        boolean activa;
+    }
+}
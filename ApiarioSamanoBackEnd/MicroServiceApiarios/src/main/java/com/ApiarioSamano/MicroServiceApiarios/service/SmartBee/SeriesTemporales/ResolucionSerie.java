@@ -0,0 +1,30 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.SeriesTemporales;
+
+public enum ResolucionSerie {
+    CRUDO("raw"),
+    MINUTO("1m"),
+    HORA("1h"),
+    AUTO("auto");
+
+    private final String codigo;
+
+    ResolucionSerie(String codigo) {
+        this.codigo = codigo;
+    }
+
+    public String getCodigo() {
+        return codigo;
+    }
+
+    public static ResolucionSerie desdeCodigo(String codigo) {
+        if (codigo == null || codigo.isBlank()) {
+            return AUTO;
+        }
+        for (ResolucionSerie r : values()) {
+            if (r.codigo.equalsIgnoreCase(codigo) || r.name().equalsIgnoreCase(codigo)) {
+                return r;
+            }
+        }
+        throw new IllegalArgumentException("Resolución no soportada: " + codigo + " (usar raw, 1m, 1h o auto)");
+    }
+}
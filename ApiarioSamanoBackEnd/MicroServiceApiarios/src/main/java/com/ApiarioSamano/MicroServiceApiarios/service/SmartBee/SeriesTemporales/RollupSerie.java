@@ -0,0 +1,195 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.SeriesTemporales;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.ApiarioSamano.MicroServiceApiarios.dto.SensorDTO.PuntoSerieDTO;
+
+/**
+ * Agregados (min/max/suma/conteo) por cubetas de tamaño fijo, ordenadas por
+ * inicio de cubeta. Lo normal es actualizar la última cubeta o abrir una nueva
+ * al final; sólo una lectura atrasada que cae en una cubeta inexistente obliga
+ * a insertar en medio.
+ */
+class RollupSerie {
+
+    private static final int CAPACIDAD_INICIAL = 64;
+
+    private final long paso;
+
+    private long[] inicios = new long[CAPACIDAD_INICIAL];
+    private double[] minimos = new double[CAPACIDAD_INICIAL];
+    private double[] maximos = new double[CAPACIDAD_INICIAL];
+    private double[] sumas = new double[CAPACIDAD_INICIAL];
+    private long[] conteos = new long[CAPACIDAD_INICIAL];
+
+    // Las cubetas válidas viven en [primero, fin)
+    private int primero;
+    private int fin;
+
+    RollupSerie(long paso) {
+        this.paso = paso;
+    }
+
+    long getPaso() {
+        return paso;
+    }
+
+    int tamaño() {
+        return fin - primero;
+    }
+
+    void agregar(long timestamp, double valor) {
+        long inicio = timestamp - Math.floorMod(timestamp, paso);
+
+        if (fin > primero && inicios[fin - 1] == inicio) {
+            acumular(fin - 1, valor);
+            return;
+        }
+
+        if (fin == primero || inicios[fin - 1] < inicio) {
+            asegurarCapacidad();
+            escribirCubeta(fin, inicio, valor);
+            fin++;
+            return;
+        }
+
+        // Lectura atrasada. La capacidad se asegura antes de buscar: compactar
+        // mueve las cubetas al inicio del arreglo y cambiaría la posición
+        asegurarCapacidad();
+        int pos = Arrays.binarySearch(inicios, primero, fin, inicio);
+        if (pos >= 0) {
+            acumular(pos, valor);
+            return;
+        }
+
+        int insercion = -pos - 1;
+        int mover = fin - insercion;
+        System.arraycopy(inicios, insercion, inicios, insercion + 1, mover);
+        System.arraycopy(minimos, insercion, minimos, insercion + 1, mover);
+        System.arraycopy(maximos, insercion, maximos, insercion + 1, mover);
+        System.arraycopy(sumas, insercion, sumas, insercion + 1, mover);
+        System.arraycopy(conteos, insercion, conteos, insercion + 1, mover);
+        escribirCubeta(insercion, inicio, valor);
+        fin++;
+    }
+
+    void consultar(long desde, long hasta, List<PuntoSerieDTO> salida) {
+        long primerInicio = desde - Math.floorMod(desde, paso);
+        int pos = Arrays.binarySearch(inicios, primero, fin, primerInicio);
+        int i = pos >= 0 ? pos : -pos - 1;
+
+        for (; i < fin && inicios[i] <= hasta; i++) {
+            salida.add(new PuntoSerieDTO(
+                    inicios[i],
+                    sumas[i] / conteos[i],
+                    minimos[i],
+                    maximos[i],
+                    conteos[i]));
+        }
+    }
+
+    long primerInicio() {
+        return fin > primero ? inicios[primero] : Long.MAX_VALUE;
+    }
+
+    /**
+     * Descarta las cubetas que terminan antes del límite. Sólo avanza el índice;
+     * el arreglo se compacta cuando la parte muerta supera a la viva.
+     */
+    void purgarAntesDe(long limite) {
+        while (primero < fin && inicios[primero] + paso <= limite) {
+            primero++;
+        }
+        if (primero == fin) {
+            primero = 0;
+            fin = 0;
+        } else if (primero > tamaño()) {
+            compactar(inicios.length);
+        }
+    }
+
+    void escribir(DataOutputStream out) throws IOException {
+        out.writeInt(tamaño());
+        for (int i = primero; i < fin; i++) {
+            out.writeLong(inicios[i]);
+            out.writeDouble(minimos[i]);
+            out.writeDouble(maximos[i]);
+            out.writeDouble(sumas[i]);
+            out.writeLong(conteos[i]);
+        }
+    }
+
+    void leer(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        primero = 0;
+        fin = 0;
+        for (int i = 0; i < n; i++) {
+            asegurarCapacidad();
+            inicios[fin] = in.readLong();
+            minimos[fin] = in.readDouble();
+            maximos[fin] = in.readDouble();
+            sumas[fin] = in.readDouble();
+            conteos[fin] = in.readLong();
+            fin++;
+        }
+    }
+
+    private void escribirCubeta(int i, long inicio, double valor) {
+        inicios[i] = inicio;
+        minimos[i] = valor;
+        maximos[i] = valor;
+        sumas[i] = valor;
+        conteos[i] = 1;
+    }
+
+    private void acumular(int i, double valor) {
+        if (valor < minimos[i]) {
+            minimos[i] = valor;
+        }
+        if (valor > maximos[i]) {
+            maximos[i] = valor;
+        }
+        sumas[i] += valor;
+        conteos[i]++;
+    }
+
+    private void asegurarCapacidad() {
+        if (fin < inicios.length) {
+            return;
+        }
+        if (primero > 0) {
+            compactar(inicios.length);
+            if (fin < inicios.length) {
+                return;
+            }
+        }
+        compactar(inicios.length * 2);
+    }
+
+    private void compactar(int capacidad) {
+        int n = tamaño();
+        inicios = moverLongs(inicios, capacidad, n);
+        minimos = moverDoubles(minimos, capacidad, n);
+        maximos = moverDoubles(maximos, capacidad, n);
+        sumas = moverDoubles(sumas, capacidad, n);
+        conteos = moverLongs(conteos, capacidad, n);
+        primero = 0;
+        fin = n;
+    }
+
+    private long[] moverLongs(long[] origen, int capacidad, int n) {
+        long[] destino = capacidad == origen.length ? origen : new long[capacidad];
+        System.arraycopy(origen, primero, destino, 0, n);
+        return destino;
+    }
+
+    private double[] moverDoubles(double[] origen, int capacidad, int n) {
+        double[] destino = capacidad == origen.length ? origen : new double[capacidad];
+        System.arraycopy(origen, primero, destino, 0, n);
+        return destino;
+    }
+}
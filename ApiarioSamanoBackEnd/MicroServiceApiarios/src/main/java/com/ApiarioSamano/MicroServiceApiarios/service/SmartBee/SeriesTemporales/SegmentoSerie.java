@@ -0,0 +1,83 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.SeriesTemporales;
+
+import java.util.Arrays;
+
+/**
+ * Bloque append-only de lecturas crudas: timestamps y valores en arreglos
+ * primitivos paralelos. Una serie se compone de varios segmentos; cuando uno se
+ * llena se abre el siguiente y los antiguos se descartan completos al vencer la
+ * retención.
+ */
+class SegmentoSerie {
+
+    static final int CAPACIDAD = 1024;
+
+    private final long[] timestamps;
+    private final double[] valores;
+    private int tamaño;
+
+    // Rango real del segmento (las lecturas pueden llegar ligeramente desordenadas)
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+
+    SegmentoSerie() {
+        this(CAPACIDAD);
+    }
+
+    SegmentoSerie(int capacidad) {
+        this.timestamps = new long[capacidad];
+        this.valores = new double[capacidad];
+    }
+
+    boolean lleno() {
+        return tamaño == timestamps.length;
+    }
+
+    int tamaño() {
+        return tamaño;
+    }
+
+    void agregar(long timestamp, double valor) {
+        timestamps[tamaño] = timestamp;
+        valores[tamaño] = valor;
+        tamaño++;
+
+        if (timestamp < minTimestamp) {
+            minTimestamp = timestamp;
+        }
+        if (timestamp > maxTimestamp) {
+            maxTimestamp = timestamp;
+        }
+    }
+
+    long timestamp(int i) {
+        return timestamps[i];
+    }
+
+    double valor(int i) {
+        return valores[i];
+    }
+
+    long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    boolean intersecta(long desde, long hasta) {
+        return tamaño > 0 && maxTimestamp >= desde && minTimestamp <= hasta;
+    }
+
+    /**
+     * Copia compacta usada al persistir: evita escribir la capacidad sin usar.
+     */
+    long[] copiarTimestamps() {
+        return Arrays.copyOf(timestamps, tamaño);
+    }
+
+    double[] copiarValores() {
+        return Arrays.copyOf(valores, tamaño);
+    }
+}
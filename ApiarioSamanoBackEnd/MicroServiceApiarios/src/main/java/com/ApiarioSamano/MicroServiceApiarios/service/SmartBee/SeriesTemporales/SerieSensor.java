@@ -0,0 +1,178 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.SeriesTemporales;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import com.ApiarioSamano.MicroServiceApiarios.dto.SensorDTO.PuntoSerieDTO;
+
+/**
+ * Historial de un (dispositivo, sensor): segmentos crudos append-only más los
+ * rollups de 1 minuto y 1 hora, alimentados en la misma escritura.
+ */
+class SerieSensor {
+
+    static final long MINUTO_MS = 60_000L;
+    static final long HORA_MS = 3_600_000L;
+
+    private final String dispositivoId;
+    private final String sensor;
+
+    private final ArrayDeque<SegmentoSerie> segmentos = new ArrayDeque<>();
+    private final RollupSerie porMinuto = new RollupSerie(MINUTO_MS);
+    private final RollupSerie porHora = new RollupSerie(HORA_MS);
+
+    private boolean modificada;
+
+    SerieSensor(String dispositivoId, String sensor) {
+        this.dispositivoId = dispositivoId;
+        this.sensor = sensor;
+    }
+
+    String getDispositivoId() {
+        return dispositivoId;
+    }
+
+    String getSensor() {
+        return sensor;
+    }
+
+    synchronized void registrar(long timestamp, double valor) {
+        SegmentoSerie actual = segmentos.peekLast();
+        if (actual == null || actual.lleno()) {
+            actual = new SegmentoSerie();
+            segmentos.addLast(actual);
+        }
+        actual.agregar(timestamp, valor);
+        porMinuto.agregar(timestamp, valor);
+        porHora.agregar(timestamp, valor);
+        modificada = true;
+    }
+
+    synchronized List<PuntoSerieDTO> consultar(long desde, long hasta, ResolucionSerie resolucion) {
+        List<PuntoSerieDTO> puntos = new ArrayList<>();
+
+        switch (resolucion) {
+            case MINUTO -> porMinuto.consultar(desde, hasta, puntos);
+            case HORA -> porHora.consultar(desde, hasta, puntos);
+            default -> consultarCrudo(desde, hasta, puntos);
+        }
+        return puntos;
+    }
+
+    private void consultarCrudo(long desde, long hasta, List<PuntoSerieDTO> puntos) {
+        int inicio = puntos.size();
+        long anterior = Long.MIN_VALUE;
+        boolean ordenados = true;
+        for (SegmentoSerie segmento : segmentos) {
+            if (!segmento.intersecta(desde, hasta)) {
+                continue;
+            }
+            for (int i = 0; i < segmento.tamaño(); i++) {
+                long t = segmento.timestamp(i);
+                if (t >= desde && t <= hasta) {
+                    double v = segmento.valor(i);
+                    puntos.add(new PuntoSerieDTO(t, v, v, v, 1));
+                    ordenados &= t >= anterior;
+                    anterior = t;
+                }
+            }
+        }
+        // Los lotes de un dispositivo que estuvo sin conexión llegan tarde y
+        // quedan detrás de lecturas más nuevas: se ordena sólo si hizo falta
+        if (!ordenados) {
+            puntos.subList(inicio, puntos.size()).sort(Comparator.comparingLong(PuntoSerieDTO::getTimestamp));
+        }
+    }
+
+    /**
+     * Primer instante cubierto por los datos crudos; sirve para decidir si una
+     * consulta en modo auto puede responderse sin rollups.
+     */
+    synchronized long primerTimestampCrudo() {
+        SegmentoSerie primero = segmentos.peekFirst();
+        return primero == null ? Long.MAX_VALUE : primero.getMinTimestamp();
+    }
+
+    synchronized long primerInicioMinuto() {
+        return porMinuto.primerInicio();
+    }
+
+    synchronized void purgar(long limiteCrudo, long limiteMinuto, long limiteHora) {
+        Iterator<SegmentoSerie> it = segmentos.iterator();
+        while (it.hasNext()) {
+            SegmentoSerie segmento = it.next();
+            // Nunca se descarta el segmento abierto aunque esté vencido: se reutiliza
+            if (segmento.getMaxTimestamp() < limiteCrudo && it.hasNext()) {
+                it.remove();
+                modificada = true;
+            } else {
+                break;
+            }
+        }
+        porMinuto.purgarAntesDe(limiteMinuto);
+        porHora.purgarAntesDe(limiteHora);
+    }
+
+    synchronized boolean vacia() {
+        return segmentos.isEmpty() && porMinuto.tamaño() == 0 && porHora.tamaño() == 0;
+    }
+
+    synchronized boolean isModificada() {
+        return modificada;
+    }
+
+    /**
+     * escribir() da la serie por guardada al serializarla; si luego falla el
+     * renombrado del archivo, se vuelve a marcar para el siguiente intento.
+     */
+    synchronized void marcarModificada() {
+        modificada = true;
+    }
+
+    // ================================
+    // 💾 PERSISTENCIA
+    // ================================
+    synchronized void escribir(DataOutputStream out) throws IOException {
+        out.writeUTF(dispositivoId);
+        out.writeUTF(sensor);
+
+        out.writeInt(segmentos.size());
+        for (SegmentoSerie segmento : segmentos) {
+            long[] ts = segmento.copiarTimestamps();
+            double[] vs = segmento.copiarValores();
+            out.writeInt(ts.length);
+            for (int i = 0; i < ts.length; i++) {
+                out.writeLong(ts[i]);
+                out.writeDouble(vs[i]);
+            }
+        }
+
+        porMinuto.escribir(out);
+        porHora.escribir(out);
+        modificada = false;
+    }
+
+    static SerieSensor leer(DataInputStream in) throws IOException {
+        SerieSensor serie = new SerieSensor(in.readUTF(), in.readUTF());
+
+        int numSegmentos = in.readInt();
+        for (int s = 0; s < numSegmentos; s++) {
+            int n = in.readInt();
+            SegmentoSerie segmento = new SegmentoSerie(Math.max(n, SegmentoSerie.CAPACIDAD));
+            for (int i = 0; i < n; i++) {
+                segmento.agregar(in.readLong(), in.readDouble());
+            }
+            serie.segmentos.addLast(segmento);
+        }
+
+        serie.porMinuto.leer(in);
+        serie.porHora.leer(in);
+        return serie;
+    }
+}
@@ -0,0 +1,234 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.SeriesTemporales;
+
+import com.ApiarioSamano.MicroServiceApiarios.dto.SensorDTO.HistorialSensorResponse;
+import com.ApiarioSamano.MicroServiceApiarios.dto.SensorDTO.PuntoSerieDTO;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Almacén embebido de series de tiempo de los sensores MQTT.
+ *
+ * Cada (dispositivo, sensor) guarda sus lecturas crudas en segmentos
+ * append-only y mantiene rollups de 1 minuto y 1 hora en la misma escritura,
+ * así una consulta de semanas se responde leyendo unos cientos de cubetas. Cada
+ * serie se persiste en su propio archivo binario cuando cambió desde la última
+ * instantánea y se recarga al arrancar.
+ */
+@Slf4j
+@Service
+public class SerieTemporalService {
+
+    private static final int MAGIC = 0x53425453; // "SBTS"
+    private static final int VERSION = 1;
+    private static final String EXTENSION = ".serie";
+
+    @Value("${sensores.historial.directorio:./data/series}")
+    private String directorio;
+
+    @Value("${sensores.historial.retencion.crudo:2d}")
+    private Duration retencionCrudo;
+
+    @Value("${sensores.historial.retencion.minuto:14d}")
+    private Duration retencionMinuto;
+
+    @Value("${sensores.historial.retencion.hora:365d}")
+    private Duration retencionHora;
+
+    // dispositivoId -> sensor -> serie
+    private final Map<String, Map<String, SerieSensor>> series = new ConcurrentHashMap<>();
+
+    // ================================
+    // 📥 ESCRITURA
+    // ================================
+    public void registrar(String dispositivoId, String sensor, long timestamp, double valor) {
+        if (Double.isNaN(valor) || Double.isInfinite(valor)) {
+            return;
+        }
+        series.computeIfAbsent(dispositivoId, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(sensor, k -> new SerieSensor(dispositivoId, sensor))
+                .registrar(timestamp, valor);
+    }
+
+    // ================================
+    // 🔍 CONSULTA
+    // ================================
+    public HistorialSensorResponse consultar(String dispositivoId, String sensor, long desde, long hasta,
+            ResolucionSerie resolucion) {
+
+        if (desde > hasta) {
+            throw new IllegalArgumentException("'from' debe ser menor o igual que 'to'");
+        }
+
+        Map<String, SerieSensor> delDispositivo = series.getOrDefault(dispositivoId, Map.of());
+        List<SerieSensor> consultadas = new ArrayList<>();
+        for (SerieSensor serie : delDispositivo.values()) {
+            if (sensor == null || sensor.equals(serie.getSensor())) {
+                consultadas.add(serie);
+            }
+        }
+
+        // Una sola resolución para toda la respuesta: en modo auto, la más
+        // gruesa que necesite alguno de los sensores
+        ResolucionSerie usada = resolucion;
+        if (resolucion == ResolucionSerie.AUTO && !consultadas.isEmpty()) {
+            usada = ResolucionSerie.CRUDO;
+            for (SerieSensor serie : consultadas) {
+                ResolucionSerie r = elegirResolucion(serie, desde, hasta);
+                if (r.ordinal() > usada.ordinal()) {
+                    usada = r;
+                }
+            }
+        }
+
+        Map<String, List<PuntoSerieDTO>> resultado = new LinkedHashMap<>();
+        for (SerieSensor serie : consultadas) {
+            resultado.put(serie.getSensor(), serie.consultar(desde, hasta, usada));
+        }
+
+        return new HistorialSensorResponse(dispositivoId, desde, hasta, usada.getCodigo(), resultado);
+    }
+
+    /**
+     * En modo auto se usan datos crudos para ventanas cortas que aún están
+     * retenidas, minutos hasta una semana y horas para todo lo demás.
+     */
+    private ResolucionSerie elegirResolucion(SerieSensor serie, long desde, long hasta) {
+        long rango = hasta - desde;
+
+        if (rango <= Duration.ofHours(6).toMillis() && desde >= serie.primerTimestampCrudo()) {
+            return ResolucionSerie.CRUDO;
+        }
+        if (rango <= Duration.ofDays(7).toMillis() && desde >= serie.primerInicioMinuto()) {
+            return ResolucionSerie.MINUTO;
+        }
+        return ResolucionSerie.HORA;
+    }
+
+    // ================================
+    // 🧹 RETENCIÓN
+    // ================================
+    @Scheduled(fixedRateString = "${sensores.historial.purga-ms:60000}")
+    public void aplicarRetencion() {
+        long ahora = System.currentTimeMillis();
+        long limiteCrudo = ahora - retencionCrudo.toMillis();
+        long limiteMinuto = ahora - retencionMinuto.toMillis();
+        long limiteHora = ahora - retencionHora.toMillis();
+
+        for (Map<String, SerieSensor> delDispositivo : series.values()) {
+            for (SerieSensor serie : delDispositivo.values()) {
+                serie.purgar(limiteCrudo, limiteMinuto, limiteHora);
+            }
+        }
+    }
+
+    // ================================
+    // 💾 PERSISTENCIA
+    // ================================
+    @PostConstruct
+    public void cargar() {
+        Path dir = Paths.get(directorio);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+
+        int cargadas = 0;
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+            for (Path archivo : archivos) {
+                try (DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(archivo)))) {
+
+                    if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                        log.warn("⚠️ [SERIES] Archivo ignorado, formato desconocido: {}", archivo);
+                        continue;
+                    }
+                    SerieSensor serie = SerieSensor.leer(in);
+                    series.computeIfAbsent(serie.getDispositivoId(), k -> new ConcurrentHashMap<>())
+                            .put(serie.getSensor(), serie);
+                    cargadas++;
+
+                } catch (IOException e) {
+                    log.error("❌ [SERIES] No se pudo leer {}: {}", archivo, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.error("❌ [SERIES] No se pudo listar {}: {}", dir, e.getMessage());
+        }
+
+        log.info("📈 [SERIES] {} series de sensores cargadas desde {}", cargadas, dir);
+    }
+
+    @PreDestroy
+    @Scheduled(fixedRateString = "${sensores.historial.instantanea-ms:300000}",
+            initialDelayString = "${sensores.historial.instantanea-ms:300000}")
+    public void guardar() {
+        Path dir = Paths.get(directorio);
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            log.error("❌ [SERIES] No se pudo crear el directorio {}: {}", dir, e.getMessage());
+            return;
+        }
+
+        int escritas = 0;
+        for (Map<String, SerieSensor> delDispositivo : series.values()) {
+            for (SerieSensor serie : delDispositivo.values()) {
+                if (!serie.isModificada()) {
+                    continue;
+                }
+                try {
+                    guardarSerie(dir, serie);
+                    escritas++;
+                } catch (IOException e) {
+                    serie.marcarModificada();
+                    log.error("❌ [SERIES] Error guardando {}/{}: {}",
+                            serie.getDispositivoId(), serie.getSensor(), e.getMessage());
+                }
+            }
+        }
+
+        if (escritas > 0) {
+            log.debug("💾 [SERIES] {} series guardadas en {}", escritas, dir);
+        }
+    }
+
+    private void guardarSerie(Path dir, SerieSensor serie) throws IOException {
+        String nombre = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (serie.getDispositivoId() + "\u0000" + serie.getSensor()).getBytes(StandardCharsets.UTF_8));
+        Path destino = dir.resolve(nombre + EXTENSION);
+        Path temporal = dir.resolve(nombre + EXTENSION + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporal)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            serie.escribir(out);
+        }
+
+        Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
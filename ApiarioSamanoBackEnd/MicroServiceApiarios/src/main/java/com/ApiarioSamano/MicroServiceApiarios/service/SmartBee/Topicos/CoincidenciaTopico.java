@@ -0,0 +1,57 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Topicos;
+
+/**
+ * Resultado de {@link RouterTopicos#buscar}: el destino registrado y los
+ * offsets de cada comodín dentro del topic, en el orden en que aparecen en el
+ * filtro.
+ */
+public final class CoincidenciaTopico<T> {
+
+    private final String topic;
+    private final T destino;
+    private final int[] offsets;
+    private final int comodines;
+
+    CoincidenciaTopico(String topic, T destino, int[] offsets, int comodines) {
+        this.topic = topic;
+        this.destino = destino;
+        this.offsets = offsets;
+        this.comodines = comodines;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public T getDestino() {
+        return destino;
+    }
+
+    public int getComodines() {
+        return comodines;
+    }
+
+    /**
+     * Texto del comodín i-ésimo ('+' o el resto capturado por '#').
+     */
+    public String comodin(int i) {
+        if (i < 0 || i >= comodines) {
+            throw new IndexOutOfBoundsException("El filtro sólo tiene " + comodines + " comodines");
+        }
+        return topic.substring(offsets[i * 2], offsets[i * 2 + 1]);
+    }
+
+    public int inicioComodin(int i) {
+        return offsets[i * 2];
+    }
+
+    public int finComodin(int i) {
+        return offsets[i * 2 + 1];
+    }
+
+    public boolean comodinEs(int i, String valor) {
+        int inicio = offsets[i * 2];
+        int largo = offsets[i * 2 + 1] - inicio;
+        return largo == valor.length() && topic.regionMatches(inicio, valor, 0, largo);
+    }
+}
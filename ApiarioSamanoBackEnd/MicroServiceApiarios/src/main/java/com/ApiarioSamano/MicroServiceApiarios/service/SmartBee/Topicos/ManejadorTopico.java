@@ -0,0 +1,8 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Topicos;
+
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta.MensajeMqtt;
+
+@FunctionalInterface
+public interface ManejadorTopico {
+    void manejar(CoincidenciaTopico<ManejadorTopico> coincidencia, MensajeMqtt mensaje);
+}
@@ -0,0 +1,204 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Topicos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trie de filtros MQTT precompilado.
+ *
+ * Los filtros se registran una vez al arrancar ({@link Builder}) y después el
+ * router es inmutable y seguro entre hilos. La búsqueda recorre el topic una
+ * sola vez comparando cada nivel contra los hijos literales sin crear
+ * substrings; los comodines sólo guardan offsets, y el texto se materializa
+ * cuando el manejador lo pide.
+ *
+ * Prioridad por nivel: literal, luego '+', luego '#'. Si una rama literal no
+ * llega a un filtro completo se prueba la siguiente.
+ */
+public final class RouterTopicos<T> {
+
+    private final Nodo<T> raiz;
+    private final int maxComodines;
+
+    private RouterTopicos(Nodo<T> raiz, int maxComodines) {
+        this.raiz = raiz;
+        this.maxComodines = maxComodines;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Devuelve la coincidencia o null si ningún filtro aplica.
+     */
+    public CoincidenciaTopico<T> buscar(String topic) {
+        int[] offsets = new int[Math.max(2, maxComodines * 2)];
+        Nodo<T> hoja = buscar(raiz, topic, 0, offsets, 0);
+        if (hoja == null) {
+            return null;
+        }
+        return new CoincidenciaTopico<>(topic, hoja.destino, offsets, hoja.comodines);
+    }
+
+    private Nodo<T> buscar(Nodo<T> nodo, String topic, int inicio, int[] offsets, int capturas) {
+        int fin = topic.indexOf('/', inicio);
+        if (fin < 0) {
+            fin = topic.length();
+        }
+        boolean ultimo = fin == topic.length();
+        int largo = fin - inicio;
+
+        // 1) Hijo literal
+        Nodo<T>[] literales = nodo.literales;
+        for (int i = 0; i < literales.length; i++) {
+            Nodo<T> hijo = literales[i];
+            if (hijo.literal.length() == largo && topic.regionMatches(inicio, hijo.literal, 0, largo)) {
+                Nodo<T> r = ultimo ? terminal(hijo, offsets, capturas, topic.length())
+                        : buscar(hijo, topic, fin + 1, offsets, capturas);
+                if (r != null) {
+                    return r;
+                }
+                break;
+            }
+        }
+
+        // 2) Comodín de un nivel
+        if (nodo.mas != null) {
+            offsets[capturas * 2] = inicio;
+            offsets[capturas * 2 + 1] = fin;
+            Nodo<T> r = ultimo ? terminal(nodo.mas, offsets, capturas + 1, topic.length())
+                    : buscar(nodo.mas, topic, fin + 1, offsets, capturas + 1);
+            if (r != null) {
+                return r;
+            }
+        }
+
+        // 3) Comodín multinivel: se queda con el resto del topic
+        if (nodo.numeral != null) {
+            offsets[capturas * 2] = inicio;
+            offsets[capturas * 2 + 1] = topic.length();
+            return nodo.numeral;
+        }
+        return null;
+    }
+
+    /**
+     * Al consumir el último nivel vale el propio nodo o un '#' colgando de él
+     * ("a/#" también coincide con "a").
+     */
+    private Nodo<T> terminal(Nodo<T> nodo, int[] offsets, int capturas, int largoTopic) {
+        if (nodo.destino != null) {
+            return nodo;
+        }
+        if (nodo.numeral != null) {
+            offsets[capturas * 2] = largoTopic;
+            offsets[capturas * 2 + 1] = largoTopic;
+            return nodo.numeral;
+        }
+        return null;
+    }
+
+    // ================================
+    // 🧱 CONSTRUCCIÓN
+    // ================================
+    public static final class Builder<T> {
+
+        private final Nodo<T> raiz = new Nodo<>("");
+        private int maxComodines;
+
+        public Builder<T> ruta(String filtro, T destino) {
+            String[] niveles = filtro.split("/", -1);
+            Nodo<T> nodo = raiz;
+            int comodines = 0;
+
+            for (int i = 0; i < niveles.length; i++) {
+                String nivel = niveles[i];
+                switch (nivel) {
+                    case "+" -> {
+                        if (nodo.mas == null) {
+                            nodo.mas = new Nodo<>("+");
+                        }
+                        nodo = nodo.mas;
+                        comodines++;
+                    }
+                    case "#" -> {
+                        if (i != niveles.length - 1) {
+                            throw new IllegalArgumentException("'#' sólo puede ir al final: " + filtro);
+                        }
+                        if (nodo.numeral == null) {
+                            nodo.numeral = new Nodo<>("#");
+                        }
+                        nodo = nodo.numeral;
+                        comodines++;
+                    }
+                    default -> {
+                        if (nivel.contains("+") || nivel.contains("#")) {
+                            throw new IllegalArgumentException("Comodín mal formado en " + filtro);
+                        }
+                        nodo = nodo.hijoLiteral(nivel);
+                    }
+                }
+            }
+
+            if (nodo.destino != null) {
+                throw new IllegalArgumentException("Filtro duplicado: " + filtro);
+            }
+            nodo.destino = destino;
+            nodo.comodines = comodines;
+            maxComodines = Math.max(maxComodines, comodines);
+            return this;
+        }
+
+        public RouterTopicos<T> build() {
+            raiz.congelar();
+            return new RouterTopicos<>(raiz, maxComodines);
+        }
+    }
+
+    private static final class Nodo<T> {
+
+        @SuppressWarnings("unchecked")
+        private static final Nodo<?>[] SIN_HIJOS = new Nodo<?>[0];
+
+        final String literal;
+        List<Nodo<T>> hijosEnConstruccion = new ArrayList<>();
+        Nodo<T>[] literales;
+        Nodo<T> mas;
+        Nodo<T> numeral;
+        T destino;
+        int comodines;
+
+        Nodo(String literal) {
+            this.literal = literal;
+        }
+
+        Nodo<T> hijoLiteral(String nivel) {
+            for (Nodo<T> hijo : hijosEnConstruccion) {
+                if (hijo.literal.equals(nivel)) {
+                    return hijo;
+                }
+            }
+            Nodo<T> nuevo = new Nodo<>(nivel);
+            hijosEnConstruccion.add(nuevo);
+            return nuevo;
+        }
+
+        @SuppressWarnings("unchecked")
+        void congelar() {
+            literales = hijosEnConstruccion.isEmpty()
+                    ? (Nodo<T>[]) SIN_HIJOS
+                    : hijosEnConstruccion.toArray((Nodo<T>[]) new Nodo<?>[0]);
+            hijosEnConstruccion = null;
+            for (Nodo<T> hijo : literales) {
+                hijo.congelar();
+            }
+            if (mas != null) {
+                mas.congelar();
+            }
+            if (numeral != null) {
+                numeral.congelar();
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket;
+
+import com.ApiarioSamano.MicroServiceApiarios.dto.AlertaDTO.AlertaSensorDTO;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.ValorSensor;
+
+/**
+ * Alerta de anomalía: sigue el enrutamiento de las lecturas de su sensor pero
+ * nunca se coalesce, cada alerta llega.
+ */
+public class AlertaMensaje extends MensajeWebSocket {
+
+    private final AlertaSensorDTO alerta;
+
+    public AlertaMensaje(AlertaSensorDTO alerta) {
+        this.alerta = alerta;
+    }
+
+    @Override
+    public String dispositivoId() {
+        return alerta.getDispositivoId();
+    }
+
+    @Override
+    public String apiarioId() {
+        return alerta.getApiarioId();
+    }
+
+    @Override
+    public String sensor() {
+        return alerta.getSensor();
+    }
+
+    @Override
+    public String clave() {
+        return null;
+    }
+
+    @Override
+    protected String construirTexto() {
+        return json(gen -> {
+            gen.writeStringField("tipo", "alerta");
+            gen.writeNumberField("id", alerta.getId());
+            gen.writeStringField("dispositivoId", alerta.getDispositivoId());
+            gen.writeStringField("sensor", alerta.getSensor());
+            gen.writeStringField("anomalia", alerta.getAnomalia());
+            gen.writeStringField("valor", ValorSensor.formatear(alerta.getValor()));
+            gen.writeStringField("referencia", ValorSensor.formatear(alerta.getReferencia()));
+            gen.writeStringField("detalle", alerta.getDetalle());
+            gen.writeStringField("timestamp", String.valueOf(alerta.getTimestamp()));
+        });
+    }
+}
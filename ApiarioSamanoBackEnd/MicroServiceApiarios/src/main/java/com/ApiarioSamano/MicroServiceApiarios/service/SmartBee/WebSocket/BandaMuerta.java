@@ -0,0 +1,107 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket;
+
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.TiposSensor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decide si una lectura numérica vale la pena para los WebSockets: sólo pasa
+ * si se aleja del último valor enviado más que la banda muerta de su sensor,
+ * o si desde el último envío pasó silencio-max-ms (latido). El historial no
+ * pasa por aquí, sigue recibiendo todas las lecturas.
+ *
+ * La banda se mide contra el último valor enviado, no contra la lectura
+ * anterior, así una deriva lenta termina por enviarse.
+ */
+@Component
+public class BandaMuerta {
+
+    private final double predeterminada;
+    private final long silencioMaxMs;
+    // sensor -> banda; negativa = porcentaje del último valor enviado
+    private final Map<String, Double> bandas = new HashMap<>();
+
+    private final Map<String, UltimoEnvio> enviados = new ConcurrentHashMap<>();
+
+    public BandaMuerta(
+            @Value("${websocket.banda-muerta.sensores:}") List<String> bandas,
+            @Value("${websocket.banda-muerta.predeterminada:0}") double predeterminada,
+            @Value("${websocket.banda-muerta.silencio-max-ms:60000}") long silencioMaxMs) {
+        this.predeterminada = predeterminada;
+        this.silencioMaxMs = silencioMaxMs;
+
+        // "sensor=0.5" absoluta o "sensor=2%" relativa
+        for (String banda : bandas) {
+            int igual = banda.indexOf('=');
+            if (igual <= 0) {
+                continue;
+            }
+            String valor = banda.substring(igual + 1).trim();
+            double b = valor.endsWith("%")
+                    ? -Double.parseDouble(valor.substring(0, valor.length() - 1).trim())
+                    : Double.parseDouble(valor);
+            this.bandas.put(banda.substring(0, igual).trim(), b);
+        }
+    }
+
+    /**
+     * true si la lectura debe ir a los WebSockets; en ese caso queda como el
+     * último valor enviado.
+     */
+    public boolean admitir(String dispositivoId, int tipo, String sensor, double valor, long timestamp) {
+        if (tipo < 0 || tipo >= TiposSensor.MAX_TIPOS) {
+            return true;
+        }
+        UltimoEnvio u = enviados.computeIfAbsent(dispositivoId, k -> new UltimoEnvio());
+        synchronized (u) {
+            if (u.hay(tipo) && timestamp - u.timestamp[tipo] < silencioMaxMs) {
+                double banda = bandas.getOrDefault(sensor, predeterminada);
+                double umbral = banda < 0 ? Math.abs(u.valor[tipo]) * -banda / 100 : banda;
+                if (Math.abs(valor - u.valor[tipo]) <= umbral) {
+                    return false;
+                }
+            }
+            u.registrar(tipo, valor, timestamp);
+            return true;
+        }
+    }
+
+    /**
+     * El sensor dejó de reportar valores numéricos (desconexión o texto): el
+     * próximo número se envía sí o sí.
+     */
+    public void reiniciar(String dispositivoId, int tipo) {
+        UltimoEnvio u = enviados.get(dispositivoId);
+        if (u != null && tipo >= 0 && tipo < TiposSensor.MAX_TIPOS) {
+            synchronized (u) {
+                u.presentes &= ~(1L << tipo);
+            }
+        }
+    }
+
+    public void olvidar(String dispositivoId) {
+        enviados.remove(dispositivoId);
+    }
+
+    private static class UltimoEnvio {
+        final double[] valor = new double[TiposSensor.MAX_TIPOS];
+        final long[] timestamp = new long[TiposSensor.MAX_TIPOS];
+        long presentes;
+
+        boolean hay(int tipo) {
+            return (presentes & (1L << tipo)) != 0;
+        }
+
+        void registrar(int tipo, double v, long ts) {
+            valor[tipo] = v;
+            timestamp[tipo] = ts;
+            presentes |= 1L << tipo;
+        }
+    }
+}
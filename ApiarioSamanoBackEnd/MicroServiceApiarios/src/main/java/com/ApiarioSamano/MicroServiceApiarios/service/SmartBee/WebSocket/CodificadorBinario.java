@@ -0,0 +1,160 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Frames binarios de lecturas para las sesiones que negociaron
+ * {@link FormatoEnvio#BINARIO}. Uno por sesión: guarda el diccionario de
+ * textos y el último timestamp, así que sólo lo usa el hilo que drena esa
+ * sesión.
+ *
+ * <pre>
+ * frame    = u8 tipo (1 = lecturas)
+ *            u8 banderas (bit 0: reiniciar diccionario y timestamp base a 0)
+ *            varint dispositivos
+ *            { ref dispositivoId, varint lecturas, { lectura } }
+ * lectura  = ref sensor
+ *            svarint delta de timestamp (ms) contra la lectura anterior del frame o del frame previo
+ *            svarint secuencia: la primera del dispositivo en el frame tal cual, las demás como delta
+ *                    contra la anterior del mismo dispositivo
+ *            u8 clase: 0 = float64 big-endian, 1 = entero svarint, 2 = texto (varint largo + UTF-8),
+ *                      3 = desconectado (sin valor)
+ * ref      = varint 0 seguido de varint largo + UTF-8 (el texto entra al diccionario con el siguiente índice)
+ *          | varint k > 0 (texto k-1 del diccionario)
+ * varint   = LEB128 sin signo; svarint = zigzag + LEB128
+ * </pre>
+ */
+public class CodificadorBinario {
+
+    public static final int TIPO_LECTURAS = 1;
+    public static final int BANDERA_REINICIO = 1;
+
+    public static final int CLASE_DOUBLE = 0;
+    public static final int CLASE_ENTERO = 1;
+    public static final int CLASE_TEXTO = 2;
+    public static final int CLASE_DESCONECTADO = 3;
+
+    private static final String DESCONECTADO = "SENSOR_DESCONECTADO";
+
+    // Entero exacto en un double: hasta 2^53 no hay pérdida
+    private static final double MAX_ENTERO = 9_007_199_254_740_992d;
+
+    private final int maxDiccionario;
+    private final Map<String, Integer> diccionario = new HashMap<>();
+    private long ultimoTimestamp;
+    private boolean reiniciar = true;
+
+    public CodificadorBinario(int maxDiccionario) {
+        this.maxDiccionario = maxDiccionario;
+    }
+
+    /**
+     * Codifica las lecturas en un solo frame, agrupadas por dispositivo en el
+     * orden en que aparece cada uno.
+     */
+    public byte[] codificar(List<LecturaSensorMensaje> lecturas) {
+        // Se reinicia antes de empezar: un frame nunca mezcla dos diccionarios
+        if (reiniciar || diccionario.size() + 2 * lecturas.size() > maxDiccionario) {
+            diccionario.clear();
+            ultimoTimestamp = 0;
+            reiniciar = true;
+        }
+
+        Map<String, ArrayList<LecturaSensorMensaje>> porDispositivo = new LinkedHashMap<>();
+        for (LecturaSensorMensaje l : lecturas) {
+            porDispositivo.computeIfAbsent(l.dispositivoId(), k -> new ArrayList<>()).add(l);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + lecturas.size() * 8);
+        out.write(TIPO_LECTURAS);
+        out.write(reiniciar ? BANDERA_REINICIO : 0);
+        reiniciar = false;
+
+        escribirVarint(out, porDispositivo.size());
+        for (Map.Entry<String, ArrayList<LecturaSensorMensaje>> e : porDispositivo.entrySet()) {
+            escribirRef(out, e.getKey());
+            escribirVarint(out, e.getValue().size());
+            long secuencia = 0;
+            for (LecturaSensorMensaje l : e.getValue()) {
+                escribirRef(out, l.sensor());
+                escribirVarint(out, zigzag(l.getTimestamp() - ultimoTimestamp));
+                ultimoTimestamp = l.getTimestamp();
+                escribirVarint(out, zigzag(l.getSecuencia() - secuencia));
+                secuencia = l.getSecuencia();
+                escribirValor(out, l);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * El próximo frame empieza diccionario y timestamp base desde cero.
+     */
+    public void reiniciar() {
+        reiniciar = true;
+    }
+
+    // ================================
+    // 🧱 VALORES
+    // ================================
+    private static void escribirValor(ByteArrayOutputStream out, LecturaSensorMensaje l) {
+        if (!l.isNumerico()) {
+            String texto = l.getValor();
+            if (DESCONECTADO.equals(texto)) {
+                out.write(CLASE_DESCONECTADO);
+            } else {
+                out.write(CLASE_TEXTO);
+                escribirTexto(out, texto);
+            }
+            return;
+        }
+
+        double v = l.getValorNumerico();
+        if (v == Math.rint(v) && Math.abs(v) <= MAX_ENTERO) {
+            // Humedad, compuertas y contadores son enteros: 1-3 bytes en vez de 8
+            out.write(CLASE_ENTERO);
+            escribirVarint(out, zigzag((long) v));
+        } else {
+            out.write(CLASE_DOUBLE);
+            long bits = Double.doubleToLongBits(v);
+            for (int i = 56; i >= 0; i -= 8) {
+                out.write((int) (bits >>> i));
+            }
+        }
+    }
+
+    private void escribirRef(ByteArrayOutputStream out, String texto) {
+        Integer indice = diccionario.get(texto);
+        if (indice != null) {
+            escribirVarint(out, indice + 1L);
+            return;
+        }
+        out.write(0);
+        escribirTexto(out, texto);
+        diccionario.put(texto, diccionario.size());
+    }
+
+    private static void escribirTexto(ByteArrayOutputStream out, String texto) {
+        byte[] bytes = (texto != null ? texto : "").getBytes(StandardCharsets.UTF_8);
+        escribirVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    static void escribirVarint(ByteArrayOutputStream out, long valor) {
+        while ((valor & ~0x7FL) != 0) {
+            out.write((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        out.write((int) valor);
+    }
+
+    static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+}
@@ -0,0 +1,17 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket;
+
+public enum FormatoEnvio {
+    // Un TextMessage JSON por lectura (predeterminado)
+    JSON,
+    // Lecturas agrupadas por dispositivo en frames binarios, ver CodificadorBinario
+    BINARIO;
+
+    public static FormatoEnvio desdeTexto(String texto) {
+        for (FormatoEnvio f : values()) {
+            if (f.name().equalsIgnoreCase(texto)) {
+                return f;
+            }
+        }
+        throw new IllegalArgumentException("Formato desconocido: " + texto);
+    }
+}
@@ -0,0 +1,134 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Índice inverso dispositivo/apiario -> sesiones interesadas.
+ *
+ * Una sesión que no se ha suscrito a ningún dispositivo ni apiario está en el
+ * conjunto de "globales" y recibe todos los dispositivos (compatibilidad con
+ * clientes que no conocen el protocolo). En cuanto se suscribe a algo concreto
+ * sale de ese conjunto, así los conjuntos de dispositivos/apiarios y el global
+ * nunca se solapan.
+ */
+public class IndiceSuscripciones {
+
+    private final Map<String, Set<SesionSensor>> porDispositivo = new ConcurrentHashMap<>();
+    private final Map<String, Set<SesionSensor>> porApiario = new ConcurrentHashMap<>();
+    private final Set<SesionSensor> globales = ConcurrentHashMap.newKeySet();
+
+    public void registrar(SesionSensor sesion) {
+        globales.add(sesion);
+    }
+
+    public void eliminar(SesionSensor sesion) {
+        Suscripcion s = sesion.getSuscripcion();
+        synchronized (s) {
+            for (String d : s.getDispositivos()) {
+                quitar(porDispositivo, d, sesion);
+            }
+            for (String a : s.getApiarios()) {
+                quitar(porApiario, a, sesion);
+            }
+        }
+        globales.remove(sesion);
+    }
+
+    public void suscribir(SesionSensor sesion, Collection<String> dispositivos, Collection<String> apiarios,
+            Collection<String> sensores) {
+        Suscripcion s = sesion.getSuscripcion();
+        synchronized (s) {
+            for (String d : dispositivos) {
+                if (s.getDispositivos().add(d)) {
+                    porDispositivo.computeIfAbsent(d, k -> ConcurrentHashMap.newKeySet()).add(sesion);
+                }
+            }
+            for (String a : apiarios) {
+                if (s.getApiarios().add(a)) {
+                    porApiario.computeIfAbsent(a, k -> ConcurrentHashMap.newKeySet()).add(sesion);
+                }
+            }
+            s.getSensores().addAll(sensores);
+            actualizarGlobal(sesion, s);
+        }
+    }
+
+    public void desuscribir(SesionSensor sesion, Collection<String> dispositivos, Collection<String> apiarios,
+            Collection<String> sensores) {
+        Suscripcion s = sesion.getSuscripcion();
+        synchronized (s) {
+            for (String d : dispositivos) {
+                if (s.getDispositivos().remove(d)) {
+                    quitar(porDispositivo, d, sesion);
+                }
+            }
+            for (String a : apiarios) {
+                if (s.getApiarios().remove(a)) {
+                    quitar(porApiario, a, sesion);
+                }
+            }
+            s.getSensores().removeAll(sensores);
+            actualizarGlobal(sesion, s);
+        }
+    }
+
+    /**
+     * Recorre cada sesión interesada en la lectura exactamente una vez.
+     */
+    public void paraCadaInteresada(String dispositivoId, String apiarioId, String sensor,
+            Consumer<SesionSensor> accion) {
+
+        Set<SesionSensor> delDispositivo = dispositivoId != null ? porDispositivo.get(dispositivoId) : null;
+        if (delDispositivo != null) {
+            for (SesionSensor sesion : delDispositivo) {
+                if (sesion.getSuscripcion().aceptaSensor(sensor)) {
+                    accion.accept(sesion);
+                }
+            }
+        }
+
+        Set<SesionSensor> delApiario = apiarioId != null ? porApiario.get(apiarioId) : null;
+        if (delApiario != null) {
+            for (SesionSensor sesion : delApiario) {
+                if ((delDispositivo == null || !delDispositivo.contains(sesion))
+                        && sesion.getSuscripcion().aceptaSensor(sensor)) {
+                    accion.accept(sesion);
+                }
+            }
+        }
+
+        for (SesionSensor sesion : globales) {
+            if (sesion.getSuscripcion().aceptaSensor(sensor)) {
+                accion.accept(sesion);
+            }
+        }
+    }
+
+    /**
+     * true si alguna sesión pidió explícitamente el dispositivo o su apiario
+     * (las globales no cuentan).
+     */
+    public boolean observado(String dispositivoId, String apiarioId) {
+        return (dispositivoId != null && porDispositivo.containsKey(dispositivoId))
+                || (apiarioId != null && porApiario.containsKey(apiarioId));
+    }
+
+    private void actualizarGlobal(SesionSensor sesion, Suscripcion s) {
+        if (s.getDispositivos().isEmpty() && s.getApiarios().isEmpty()) {
+            globales.add(sesion);
+        } else {
+            globales.remove(sesion);
+        }
+    }
+
+    private static void quitar(Map<String, Set<SesionSensor>> indice, String clave, SesionSensor sesion) {
+        indice.computeIfPresent(clave, (k, sesiones) -> {
+            sesiones.remove(sesion);
+            return sesiones.isEmpty() ? null : sesiones;
+        });
+    }
+}
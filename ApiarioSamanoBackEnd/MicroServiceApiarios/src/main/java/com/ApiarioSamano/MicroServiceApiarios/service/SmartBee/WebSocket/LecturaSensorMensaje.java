@@ -0,0 +1,92 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket;
+
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.ValorSensor;
+
+public class LecturaSensorMensaje extends MensajeWebSocket {
+
+    private final String dispositivoId;
+    private final String apiarioId;
+    private final String sensor;
+    private final String valor;
+    private final double valorNumerico;
+    private final long timestamp;
+
+    // La asigna ReanudacionSensores antes del fan-out, con el lock del dispositivo
+    private long secuencia;
+
+    public LecturaSensorMensaje(String dispositivoId, String apiarioId, String sensor, String valor,
+            long timestamp) {
+        this.dispositivoId = dispositivoId;
+        this.apiarioId = apiarioId;
+        this.sensor = sensor;
+        this.valor = valor;
+        this.valorNumerico = Double.NaN;
+        this.timestamp = timestamp;
+    }
+
+    // Lectura ya parseada: el texto se arma en el hilo de envío, no en la ingesta
+    public LecturaSensorMensaje(String dispositivoId, String apiarioId, String sensor, double valor,
+            long timestamp) {
+        this.dispositivoId = dispositivoId;
+        this.apiarioId = apiarioId;
+        this.sensor = sensor;
+        this.valor = null;
+        this.valorNumerico = valor;
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public String dispositivoId() {
+        return dispositivoId;
+    }
+
+    @Override
+    public String apiarioId() {
+        return apiarioId;
+    }
+
+    @Override
+    public String sensor() {
+        return sensor;
+    }
+
+    public String getValor() {
+        return valor != null ? valor : ValorSensor.formatear(valorNumerico);
+    }
+
+    public boolean isNumerico() {
+        return valor == null;
+    }
+
+    public double getValorNumerico() {
+        return valorNumerico;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getSecuencia() {
+        return secuencia;
+    }
+
+    void asignarSecuencia(long secuencia) {
+        this.secuencia = secuencia;
+    }
+
+    @Override
+    public String clave() {
+        return dispositivoId + "|" + sensor;
+    }
+
+    @Override
+    protected String construirTexto() {
+        return json(gen -> {
+            gen.writeStringField("dispositivoId", dispositivoId);
+            gen.writeStringField("sensor", sensor);
+            gen.writeStringField("valor", getValor());
+            gen.writeStringField("timestamp", String.valueOf(timestamp));
+            gen.writeStringField("seq", String.valueOf(secuencia));
+        });
+    }
+}
@@ -0,0 +1,23 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket;
+
+/**
+ * Mensaje ya serializado que no se coalesce (respuestas de control, avisos).
+ */
+public class MensajeTexto extends MensajeWebSocket {
+
+    private final String contenido;
+
+    public MensajeTexto(String contenido) {
+        this.contenido = contenido;
+    }
+
+    @Override
+    public String clave() {
+        return null;
+    }
+
+    @Override
+    protected String construirTexto() {
+        return contenido;
+    }
+}
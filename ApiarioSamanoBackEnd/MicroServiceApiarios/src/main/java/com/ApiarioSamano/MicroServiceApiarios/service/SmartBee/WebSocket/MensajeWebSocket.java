@@ -0,0 +1,73 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+/**
+ * Mensaje pendiente de envío a una sesión de /ws/sensores. El texto se
+ * construye al drenar la cola (no en el hilo de ingesta) y se comparte entre
+ * todas las sesiones que reciben el mismo mensaje.
+ */
+public abstract class MensajeWebSocket {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private volatile String texto;
+
+    /**
+     * Clave de coalescencia: dos mensajes con la misma clave se consideran
+     * versiones del mismo dato y sólo hace falta enviar el último. Null si el
+     * mensaje nunca debe reemplazarse.
+     */
+    public abstract String clave();
+
+    protected abstract String construirTexto();
+
+    // Datos de enrutamiento; null en mensajes que van a todas las sesiones
+    public String dispositivoId() {
+        return null;
+    }
+
+    public String apiarioId() {
+        return null;
+    }
+
+    public String sensor() {
+        return null;
+    }
+
+    public String texto() {
+        String t = texto;
+        if (t == null) {
+            t = construirTexto();
+            texto = t;
+        }
+        return t;
+    }
+
+    @FunctionalInterface
+    protected interface Campos {
+        void escribir(JsonGenerator json) throws IOException;
+    }
+
+    /**
+     * Objeto JSON con los campos dados. Los textos vienen de payloads MQTT e
+     * ids sacados del tópico: el generador los escapa (comillas, barras).
+     */
+    protected static String json(Campos campos) {
+        StringWriter out = new StringWriter(160);
+        try (JsonGenerator json = JSON.createGenerator(out)) {
+            json.writeStartObject();
+            campos.escribir(json);
+            json.writeEndObject();
+        } catch (IOException e) {
+            // Un StringWriter no falla; sólo por la firma
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,14 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket;
+
+/**
+ * Qué hacer cuando la cola de una sesión lenta está llena.
+ */
+public enum PoliticaDesborde {
+    /** Descartar el mensaje más antiguo de la cola. */
+    DESCARTAR_ANTIGUO,
+    /**
+     * Reemplazar el valor pendiente del mismo dispositivo+sensor por el nuevo;
+     * si no hay uno pendiente y la cola está llena se descarta el más antiguo.
+     */
+    COALESCER
+}
@@ -0,0 +1,208 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket;
+
+import com.ApiarioSamano.MicroServiceApiarios.model.Dispositivo;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.EstadoDispositivo;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.RegistroDispositivos;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.RegistroSensores;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.TiposSensor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Secuencia por dispositivo de las lecturas que salen por /ws/sensores, con
+ * las últimas de cada uno en un anillo para que un cliente que se reconecta
+ * retome desde la última que vio en vez de quedarse con un hueco.
+ *
+ * La secuencia sólo vale dentro de la misma época (un número al azar por
+ * proceso): tras un reinicio, o si el cliente cae en otro nodo, la época no
+ * coincide y recibe la instantánea del estado actual en lugar del reenvío.
+ */
+@Component
+public class ReanudacionSensores {
+
+    private static final String DESCONECTADO = "SENSOR_DESCONECTADO";
+
+    private final RegistroSensores registroSensores;
+    private final RegistroDispositivos registroDispositivos;
+    private final int capacidad;
+    private final long ventanaMs;
+
+    // Cabe en un número de JavaScript sin perder precisión
+    private final long epoca = ThreadLocalRandom.current().nextLong(1, 1L << 53);
+
+    private final Map<String, Historial> historiales = new ConcurrentHashMap<>();
+
+    public ReanudacionSensores(
+            RegistroSensores registroSensores,
+            RegistroDispositivos registroDispositivos,
+            @Value("${websocket.reanudacion.capacidad:64}") int capacidad,
+            @Value("${websocket.reanudacion.ventana-ms:120000}") long ventanaMs) {
+        this.registroSensores = registroSensores;
+        this.registroDispositivos = registroDispositivos;
+        this.capacidad = capacidad;
+        this.ventanaMs = ventanaMs;
+    }
+
+    public long getEpoca() {
+        return epoca;
+    }
+
+    // ================================
+    // 🔢 SECUENCIA (hilo de ingesta)
+    // ================================
+    /**
+     * Numera la lectura, la guarda y la reparte con el lock del dispositivo
+     * tomado: cada sesión encola las lecturas de un dispositivo en orden de
+     * secuencia.
+     */
+    public void secuenciar(LecturaSensorMensaje lectura, Runnable repartir) {
+        Historial h = historiales.computeIfAbsent(lectura.dispositivoId(), k -> new Historial(capacidad));
+        synchronized (h) {
+            h.agregar(lectura, System.currentTimeMillis());
+            repartir.run();
+        }
+    }
+
+    /**
+     * Entrega las lecturas del dispositivo posteriores a {@code desde}. Devuelve
+     * false sin entregar nada si alguna ya salió del anillo o es más vieja que
+     * la ventana; entonces corresponde la instantánea.
+     */
+    public boolean reenviar(String dispositivoId, long desde, Consumer<LecturaSensorMensaje> destino) {
+        Historial h = historiales.get(dispositivoId);
+        if (h == null) {
+            return desde == 0;
+        }
+        synchronized (h) {
+            return h.reenviar(desde, System.currentTimeMillis() - ventanaMs, destino);
+        }
+    }
+
+    public void olvidar(String dispositivoId) {
+        historiales.remove(dispositivoId);
+    }
+
+    // ================================
+    // 📸 INSTANTÁNEA
+    // ================================
+    /**
+     * Dispositivos que cubre una suscripción: los nombrados más los de los
+     * apiarios; sin ninguno de los dos, todos los que tienen estado.
+     */
+    public Set<String> dispositivosDe(Collection<String> dispositivos, Collection<String> apiarios) {
+        Set<String> ids = new LinkedHashSet<>(dispositivos);
+        if (dispositivos.isEmpty() && apiarios.isEmpty()) {
+            registroSensores.paraCadaDispositivo((id, estado) -> ids.add(id));
+            return ids;
+        }
+        if (!apiarios.isEmpty()) {
+            for (Dispositivo d : registroDispositivos.getDispositivos().values()) {
+                if (d.getApiarioId() != null && apiarios.contains(d.getApiarioId())) {
+                    ids.add(d.getDispositivoId());
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Estado actual del dispositivo con la secuencia de la última lectura que
+     * ya refleja, o null si no se sabe nada de él. La secuencia se lee antes
+     * que el estado: nunca queda por delante de lo que se muestra.
+     */
+    public Map<String, Object> instantanea(String dispositivoId, Suscripcion suscripcion) {
+        Historial h = historiales.get(dispositivoId);
+        long secuencia;
+        if (h != null) {
+            synchronized (h) {
+                secuencia = h.ultima;
+            }
+        } else {
+            secuencia = 0;
+        }
+
+        EstadoDispositivo estado = registroSensores.buscar(dispositivoId);
+        Dispositivo dispositivo = registroDispositivos.obtener(dispositivoId);
+        if (estado == null && dispositivo == null) {
+            return null;
+        }
+
+        List<Map<String, Object>> sensores = new ArrayList<>();
+        if (estado != null) {
+            TiposSensor tipos = registroSensores.getTipos();
+            synchronized (estado) {
+                for (int tipo = 0; tipo < estado.capacidad(); tipo++) {
+                    byte e = estado.estado(tipo);
+                    String sensor = tipos.nombre(tipo);
+                    if (e == EstadoDispositivo.SIN_DATO || !suscripcion.aceptaSensor(sensor)) {
+                        continue;
+                    }
+                    Map<String, Object> lectura = new LinkedHashMap<>();
+                    lectura.put("sensor", sensor);
+                    lectura.put("valor", e == EstadoDispositivo.DESCONECTADO ? DESCONECTADO : estado.texto(tipo));
+                    lectura.put("timestamp", String.valueOf(estado.timestamp(tipo)));
+                    sensores.add(lectura);
+                }
+            }
+        }
+
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("dispositivoId", dispositivoId);
+        datos.put("apiarioId", dispositivo != null ? dispositivo.getApiarioId() : null);
+        datos.put("seq", String.valueOf(secuencia));
+        datos.put("sensores", sensores);
+        return datos;
+    }
+
+    // ================================
+    // 🧱 ANILLO DE UN DISPOSITIVO
+    // ================================
+    private static final class Historial {
+
+        private final LecturaSensorMensaje[] lecturas;
+        private final long[] momentos;
+        private long ultima;
+
+        Historial(int capacidad) {
+            this.lecturas = new LecturaSensorMensaje[Math.max(1, capacidad)];
+            this.momentos = new long[lecturas.length];
+        }
+
+        void agregar(LecturaSensorMensaje lectura, long ahora) {
+            lectura.asignarSecuencia(++ultima);
+            int i = (int) (ultima % lecturas.length);
+            lecturas[i] = lectura;
+            momentos[i] = ahora;
+        }
+
+        boolean reenviar(long desde, long limite, Consumer<LecturaSensorMensaje> destino) {
+            if (desde > ultima) {
+                // Secuencia de otra vida del dispositivo en este proceso
+                return false;
+            }
+            if (desde == ultima) {
+                return true;
+            }
+            long primera = desde + 1;
+            if (ultima - primera >= lecturas.length || momentos[(int) (primera % lecturas.length)] < limite) {
+                return false;
+            }
+            for (long s = primera; s <= ultima; s++) {
+                destino.accept(lecturas[(int) (s % lecturas.length)]);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sesión WebSocket con su propia cola acotada de envío.
+ *
+ * El hilo de ingesta sólo encola; un hilo del pool de envío drena la cola y
+ * es el único que escribe en la sesión. Como mucho hay un drenado por sesión
+ * a la vez y el pool crece a demanda, así un navegador que no lee bloquea un
+ * hilo propio y únicamente se atrasa a sí mismo.
+ *
+ * En formato binario el drenado se retrasa una ventana corta para juntar en
+ * un mismo frame varias lecturas de cada dispositivo.
+ */
+@Slf4j
+public class SesionSensor {
+
+    private static final int MAX_POR_TURNO = 64;
+
+    private final WebSocketSession session;
+    private final int capacidad;
+    private final PoliticaDesborde politica;
+    private final ScheduledExecutorService programador;
+    private final Executor envio;
+    private final long ventanaBinarioMs;
+    private final int maxDiccionario;
+    private final Suscripcion suscripcion = new Suscripcion();
+
+    // clave -> mensaje, en orden de llegada. Sin coalescencia la clave es única.
+    private final LinkedHashMap<Object, MensajeWebSocket> pendientes = new LinkedHashMap<>();
+
+    private final AtomicBoolean programada = new AtomicBoolean(false);
+    private final AtomicLong descartados = new AtomicLong();
+    private final AtomicLong enviados = new AtomicLong();
+
+    private volatile FormatoEnvio formato = FormatoEnvio.JSON;
+    // Se reemplaza al negociar; sólo lo usa el hilo que drena
+    private volatile CodificadorBinario codificador;
+
+    // Momento en que empezó el envío en curso (0 si no hay ninguno)
+    private volatile long envioDesde;
+
+    public SesionSensor(WebSocketSession session, int capacidad, PoliticaDesborde politica,
+            ScheduledExecutorService programador, Executor envio, long ventanaBinarioMs, int maxDiccionario) {
+        this.session = session;
+        this.capacidad = capacidad;
+        this.politica = politica;
+        this.programador = programador;
+        this.envio = envio;
+        this.ventanaBinarioMs = ventanaBinarioMs;
+        this.maxDiccionario = maxDiccionario;
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    public String getId() {
+        return session.getId();
+    }
+
+    public Suscripcion getSuscripcion() {
+        return suscripcion;
+    }
+
+    public boolean isOpen() {
+        return session.isOpen();
+    }
+
+    public FormatoEnvio getFormato() {
+        return formato;
+    }
+
+    /**
+     * Cambia el formato de las lecturas siguientes. Pasar a binario empieza
+     * un diccionario nuevo, así que el primer frame lleva la bandera de
+     * reinicio.
+     */
+    public void setFormato(FormatoEnvio formato) {
+        if (formato == FormatoEnvio.BINARIO) {
+            this.codificador = new CodificadorBinario(maxDiccionario);
+        }
+        this.formato = formato;
+    }
+
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    public long getEnviados() {
+        return enviados.get();
+    }
+
+    public int pendientes() {
+        synchronized (pendientes) {
+            return pendientes.size();
+        }
+    }
+
+    /**
+     * Milisegundos que lleva bloqueado el envío actual, 0 si no está enviando.
+     */
+    public long envioBloqueadoMs(long ahora) {
+        long desde = envioDesde;
+        return desde == 0 ? 0 : ahora - desde;
+    }
+
+    // ================================
+    // 📥 ENCOLAR (hilo de ingesta)
+    // ================================
+    public void encolar(MensajeWebSocket mensaje) {
+        String clave = mensaje.clave();
+        encolar(mensaje, politica == PoliticaDesborde.COALESCER && clave != null ? clave : new Object());
+    }
+
+    /**
+     * Encola sin reemplazar ninguna versión pendiente del mismo dato (lecturas
+     * reenviadas al reanudar: el cliente quiere cada una).
+     */
+    public void encolarSinCoalescer(MensajeWebSocket mensaje) {
+        encolar(mensaje, new Object());
+    }
+
+    private void encolar(MensajeWebSocket mensaje, Object llave) {
+        synchronized (pendientes) {
+            if (pendientes.remove(llave) != null) {
+                // La versión nueva va al final y no en el lugar de la vieja: las
+                // lecturas de un dispositivo salen en orden de secuencia, así la
+                // última que vio el cliente sirve para reanudar
+                descartados.incrementAndGet();
+            } else if (pendientes.size() >= capacidad) {
+                Iterator<Object> it = pendientes.keySet().iterator();
+                it.next();
+                it.remove();
+                descartados.incrementAndGet();
+            }
+            pendientes.put(llave, mensaje);
+        }
+
+        programar();
+    }
+
+    private void programar() {
+        if (programada.compareAndSet(false, true)) {
+            try {
+                if (formato == FormatoEnvio.BINARIO && ventanaBinarioMs > 0) {
+                    programador.schedule(this::lanzarDrenado, ventanaBinarioMs, TimeUnit.MILLISECONDS);
+                } else {
+                    lanzarDrenado();
+                }
+            } catch (RejectedExecutionException e) {
+                // El pool se está cerrando
+                programada.set(false);
+            }
+        }
+    }
+
+    // El programador sólo cuenta la ventana: escribir en el socket puede
+    // bloquearse y eso se hace siempre en el pool de envío
+    private void lanzarDrenado() {
+        try {
+            envio.execute(this::drenar);
+        } catch (RejectedExecutionException e) {
+            programada.set(false);
+        }
+    }
+
+    // ================================
+    // 📤 DRENAR (hilo del pool de envío)
+    // ================================
+    private void drenar() {
+        List<MensajeWebSocket> lote = new ArrayList<>(MAX_POR_TURNO);
+
+        synchronized (pendientes) {
+            Iterator<MensajeWebSocket> it = pendientes.values().iterator();
+            while (it.hasNext() && lote.size() < MAX_POR_TURNO) {
+                lote.add(it.next());
+                it.remove();
+            }
+        }
+
+        int entregados = formato == FormatoEnvio.BINARIO ? enviarBinario(lote) : enviarTextos(lote);
+        if (entregados < lote.size()) {
+            // El envío falló: lo que quedaba del lote ya salió de la cola
+            descartados.addAndGet(lote.size() - entregados);
+        }
+
+        programada.set(false);
+
+        // Lo que llegó mientras se enviaba se drena en otro turno para no acaparar el hilo
+        if (session.isOpen() && pendientes() > 0) {
+            programar();
+        }
+    }
+
+    // Devuelve cuántos mensajes del lote se entregaron antes del primer fallo
+    private int enviarTextos(List<MensajeWebSocket> lote) {
+        int entregados = 0;
+        for (MensajeWebSocket mensaje : lote) {
+            if (!enviarTexto(mensaje)) {
+                break;
+            }
+            entregados++;
+        }
+        return entregados;
+    }
+
+    // Las lecturas seguidas van juntas en un frame; el resto (respuestas,
+    // avisos) sigue como texto y corta el frame para respetar el orden
+    private int enviarBinario(List<MensajeWebSocket> lote) {
+        CodificadorBinario cod = codificador;
+        List<LecturaSensorMensaje> lecturas = new ArrayList<>(lote.size());
+        int entregados = 0;
+
+        for (MensajeWebSocket mensaje : lote) {
+            if (mensaje instanceof LecturaSensorMensaje lectura) {
+                lecturas.add(lectura);
+                continue;
+            }
+            if (!enviarFrame(cod, lecturas)) {
+                return entregados;
+            }
+            entregados += lecturas.size();
+            lecturas.clear();
+            if (!enviarTexto(mensaje)) {
+                return entregados;
+            }
+            entregados++;
+        }
+        return enviarFrame(cod, lecturas) ? lote.size() : entregados;
+    }
+
+    private boolean enviarFrame(CodificadorBinario cod, List<LecturaSensorMensaje> lecturas) {
+        if (lecturas.isEmpty()) {
+            return true;
+        }
+        if (!enviarMensaje(new BinaryMessage(cod.codificar(lecturas)))) {
+            // El cliente pudo no recibir textos que el diccionario ya tiene
+            cod.reiniciar();
+            return false;
+        }
+        enviados.addAndGet(lecturas.size());
+        return true;
+    }
+
+    private boolean enviarTexto(MensajeWebSocket mensaje) {
+        if (!enviarMensaje(new TextMessage(mensaje.texto()))) {
+            return false;
+        }
+        enviados.incrementAndGet();
+        return true;
+    }
+
+    private boolean enviarMensaje(WebSocketMessage<?> mensaje) {
+        if (!session.isOpen()) {
+            return false;
+        }
+        try {
+            envioDesde = System.currentTimeMillis();
+            session.sendMessage(mensaje);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.warn("❌ [WS] Error enviando a sesión {}: {}", session.getId(), e.getMessage());
+            return false;
+        } finally {
+            envioDesde = 0;
+        }
+    }
+
+    public void descartarPendientes() {
+        synchronized (pendientes) {
+            pendientes.clear();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Filtro de una sesión. Los cambios se hacen bajo el lock del objeto desde
+ * {@link IndiceSuscripciones}; las lecturas desde el hilo de ingesta no
+ * necesitan lock porque los conjuntos son concurrentes.
+ */
+public class Suscripcion {
+
+    private final Set<String> dispositivos = ConcurrentHashMap.newKeySet();
+    private final Set<String> apiarios = ConcurrentHashMap.newKeySet();
+
+    // Vacío = todos los tipos de sensor
+    private final Set<String> sensores = ConcurrentHashMap.newKeySet();
+
+    public Set<String> getDispositivos() {
+        return dispositivos;
+    }
+
+    public Set<String> getApiarios() {
+        return apiarios;
+    }
+
+    public Set<String> getSensores() {
+        return sensores;
+    }
+
+    public boolean aceptaSensor(String sensor) {
+        return sensor == null || sensores.isEmpty() || sensores.contains(sensor);
+    }
+}
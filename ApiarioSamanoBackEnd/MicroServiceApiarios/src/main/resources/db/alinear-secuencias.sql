@@ -0,0 +1,7 @@
+-- Se ejecuta en cada arranque, después de que Hibernate actualiza el esquema
+-- (spring.jpa.defer-datasource-initialization). Es idempotente.
+--
+-- apiarios pasó de IDENTITY a la secuencia apiarios_seq (INCREMENT BY 50,
+-- optimizador pooled). Si la secuencia está por detrás del mayor id
+-- existente, se adelanta para que el siguiente bloque empiece después de él.
+SELECT setval('apiarios_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM apiarios), (SELECT last_value FROM apiarios_seq)));
@@ -0,0 +1,88 @@
+package com.ApiarioSamano.MicroServiceApiarios.config;
+
+import com.ApiarioSamano.MicroServiceApiarios.dto.AlertaDTO.AlertaSensorDTO;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.RegistroDispositivos;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.RegistroSensores;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.AlertaMensaje;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.PoliticaDesborde;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.ReanudacionSensores;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Clientes que dejan de leer no deben frenar el envío a los demás.
+ */
+class SensorWebSocketHandlerTest {
+
+    private static final int ATASCADOS = 8;
+
+    private final CountDownLatch liberar = new CountDownLatch(1);
+    private final RegistroSensores sensores = new RegistroSensores(List.of("temperatura"));
+    private final SensorWebSocketHandler handler = new SensorWebSocketHandler(
+            new ReanudacionSensores(sensores, new RegistroDispositivos(sensores), 64, 120_000),
+            256, PoliticaDesborde.COALESCER, 10_000, 0, 4096);
+
+    @AfterEach
+    void detener() {
+        liberar.countDown();
+        handler.detener();
+    }
+
+    @Test
+    void sesionesAtascadasNoRetienenElEnvioDeLasDemas() throws Exception {
+        CountDownLatch bloqueadas = new CountDownLatch(ATASCADOS);
+        for (int i = 0; i < ATASCADOS; i++) {
+            // El envío de la instantánea inicial no vuelve hasta el final del test
+            handler.afterConnectionEstablished(sesion("lenta-" + i, m -> {
+                bloqueadas.countDown();
+                liberar.await();
+            }));
+        }
+        assertTrue(bloqueadas.await(5, TimeUnit.SECONDS), "las sesiones lentas no empezaron a enviar");
+
+        List<String> recibidos = new CopyOnWriteArrayList<>();
+        CountDownLatch alerta = new CountDownLatch(1);
+        handler.afterConnectionEstablished(sesion("rapida", m -> {
+            String texto = ((TextMessage) m).getPayload();
+            recibidos.add(texto);
+            if (texto.contains("\"alerta\"")) {
+                alerta.countDown();
+            }
+        }));
+
+        handler.enviar(new AlertaMensaje(new AlertaSensorDTO(1, "esp32-01", "apiario_001", "temperatura",
+                "DESVIACION", 41.0, 30.0, "prueba", System.currentTimeMillis())));
+
+        assertTrue(alerta.await(5, TimeUnit.SECONDS), "la sesión rápida no recibió la alerta: " + recibidos);
+    }
+
+    private interface Envio {
+        void recibir(WebSocketMessage<?> mensaje) throws Exception;
+    }
+
+    private static WebSocketSession sesion(String id, Envio envio) throws Exception {
+        WebSocketSession sesion = mock(WebSocketSession.class);
+        when(sesion.getId()).thenReturn(id);
+        when(sesion.isOpen()).thenReturn(true);
+        doAnswer(inv -> {
+            envio.recibir(inv.getArgument(0));
+            return null;
+        }).when(sesion).sendMessage(any());
+        return sesion;
+    }
+}
@@ -0,0 +1,430 @@
+package com.ApiarioSamano.MicroServiceApiarios.mqtt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Broker MQTT 3.1.1 mínimo para pruebas, sin Mosquitto.
+ *
+ * Soporta lo que usan el backend y el simulador: CONNECT, SUBSCRIBE (con
+ * comodines y suscripciones compartidas $share/grupo/filtro repartidas en
+ * round-robin), UNSUBSCRIBE, PUBLISH QoS 0/1, PINGREQ y DISCONNECT. No guarda
+ * mensajes retenidos ni sesiones persistentes; QoS 2 se degrada a 1.
+ */
+public class BrokerMqttEmbebido implements AutoCloseable {
+
+    private static final int CONNECT = 1;
+    private static final int PUBLISH = 3;
+    private static final int PUBACK = 4;
+    private static final int SUBSCRIBE = 8;
+    private static final int UNSUBSCRIBE = 10;
+    private static final int PINGREQ = 12;
+    private static final int DISCONNECT = 14;
+
+    private final ServerSocket servidor;
+    private final Map<String, Sesion> sesiones = new ConcurrentHashMap<>();
+    private final Map<String, GrupoCompartido> grupos = new ConcurrentHashMap<>();
+    private final AtomicLong publicados = new AtomicLong();
+    private volatile boolean activo = true;
+
+    public BrokerMqttEmbebido() throws IOException {
+        this(0);
+    }
+
+    public BrokerMqttEmbebido(int puerto) throws IOException {
+        servidor = new ServerSocket(puerto, 128, InetAddress.getLoopbackAddress());
+        Thread aceptador = new Thread(this::aceptar, "broker-embebido");
+        aceptador.setDaemon(true);
+        aceptador.start();
+    }
+
+    public int getPuerto() {
+        return servidor.getLocalPort();
+    }
+
+    public String getUrl() {
+        return "tcp://127.0.0.1:" + getPuerto();
+    }
+
+    public long getPublicados() {
+        return publicados.get();
+    }
+
+    public int getClientesConectados() {
+        return sesiones.size();
+    }
+
+    private void aceptar() {
+        while (activo) {
+            try {
+                Socket socket = servidor.accept();
+                socket.setTcpNoDelay(true);
+                Sesion sesion = new Sesion(socket);
+                Thread t = new Thread(sesion::leer, "broker-sesion-" + socket.getPort());
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException e) {
+                if (activo) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        activo = false;
+        servidor.close();
+        for (Sesion s : sesiones.values()) {
+            s.cerrar();
+        }
+    }
+
+    // ================================
+    // 📨 ENRUTADO
+    // ================================
+    private void enrutar(String topic, byte[] payload, int qos) {
+        publicados.incrementAndGet();
+
+        for (Sesion s : sesiones.values()) {
+            int qosSesion = -1;
+            for (Suscripcion sub : s.suscripciones) {
+                if (coincide(sub.filtro, topic)) {
+                    qosSesion = Math.max(qosSesion, sub.qos);
+                }
+            }
+            if (qosSesion >= 0) {
+                s.entregar(topic, payload, Math.min(qos, qosSesion));
+            }
+        }
+
+        for (GrupoCompartido g : grupos.values()) {
+            if (coincide(g.filtro, topic)) {
+                Sesion elegida = g.siguiente();
+                if (elegida != null) {
+                    elegida.entregar(topic, payload, Math.min(qos, g.qos));
+                }
+            }
+        }
+    }
+
+    static boolean coincide(String filtro, String topic) {
+        String[] f = filtro.split("/", -1);
+        String[] t = topic.split("/", -1);
+        for (int i = 0; i < f.length; i++) {
+            if (f[i].equals("#")) {
+                return true;
+            }
+            if (i >= t.length) {
+                return false;
+            }
+            if (!f[i].equals("+") && !f[i].equals(t[i])) {
+                return false;
+            }
+        }
+        return f.length == t.length;
+    }
+
+    private static final class Suscripcion {
+        final String filtro;
+        final int qos;
+
+        Suscripcion(String filtro, int qos) {
+            this.filtro = filtro;
+            this.qos = qos;
+        }
+    }
+
+    private static final class GrupoCompartido {
+        final String filtro;
+        final int qos;
+        final List<Sesion> miembros = new CopyOnWriteArrayList<>();
+        final AtomicInteger turno = new AtomicInteger();
+
+        GrupoCompartido(String filtro, int qos) {
+            this.filtro = filtro;
+            this.qos = qos;
+        }
+
+        Sesion siguiente() {
+            List<Sesion> actuales = miembros;
+            if (actuales.isEmpty()) {
+                return null;
+            }
+            return actuales.get(Math.floorMod(turno.getAndIncrement(), actuales.size()));
+        }
+    }
+
+    // ================================
+    // 🔌 SESIÓN DE UN CLIENTE
+    // ================================
+    private final class Sesion {
+
+        private final Socket socket;
+        private final OutputStream out;
+        private final List<Suscripcion> suscripciones = new CopyOnWriteArrayList<>();
+        private final List<String> compartidas = new CopyOnWriteArrayList<>();
+        private final AtomicInteger siguienteId = new AtomicInteger();
+        private String clientId;
+
+        Sesion(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 8192);
+        }
+
+        void leer() {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                while (activo) {
+                    int cabecera = in.read();
+                    if (cabecera < 0) {
+                        break;
+                    }
+                    byte[] cuerpo = new byte[leerLongitud(in)];
+                    in.readFully(cuerpo);
+                    if (!procesar(cabecera >>> 4, cabecera & 0x0F, cuerpo)) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                // Cliente desconectado
+            } finally {
+                cerrar();
+            }
+        }
+
+        private boolean procesar(int tipo, int banderas, byte[] cuerpo) throws IOException {
+            Lector r = new Lector(cuerpo);
+            switch (tipo) {
+                case CONNECT -> {
+                    r.texto(); // "MQTT"
+                    r.byte1(); // nivel
+                    int flags = r.byte1();
+                    r.entero16(); // keepalive
+                    clientId = r.texto();
+                    if (clientId.isEmpty()) {
+                        clientId = "anonimo-" + socket.getPort();
+                    }
+                    // Mismo client id: el broker echa a la sesión anterior
+                    Sesion anterior = sesiones.put(clientId, this);
+                    if (anterior != null && anterior != this) {
+                        anterior.cerrar();
+                    }
+                    escribir(new byte[] { 0x20, 0x02, 0x00, 0x00 });
+                    if ((flags & 0x04) != 0) {
+                        r.texto();
+                        r.binario();
+                    }
+                }
+                case PUBLISH -> {
+                    int qos = Math.min(1, (banderas >>> 1) & 0x03);
+                    String topic = r.texto();
+                    int id = qos > 0 ? r.entero16() : 0;
+                    byte[] payload = r.resto();
+                    enrutar(topic, payload, qos);
+                    if (qos > 0) {
+                        escribir(new byte[] { 0x40, 0x02, (byte) (id >>> 8), (byte) id });
+                    }
+                }
+                case PUBACK -> {
+                    // Entregas QoS 1 a este cliente: no se reintentan
+                }
+                case SUBSCRIBE -> {
+                    int id = r.entero16();
+                    List<Integer> concedidos = new ArrayList<>();
+                    while (r.quedan()) {
+                        String filtro = r.texto();
+                        int qos = Math.min(1, r.byte1());
+                        suscribir(filtro, qos);
+                        concedidos.add(qos);
+                    }
+                    byte[] suback = new byte[4 + concedidos.size()];
+                    suback[0] = (byte) 0x90;
+                    suback[1] = (byte) (2 + concedidos.size());
+                    suback[2] = (byte) (id >>> 8);
+                    suback[3] = (byte) id;
+                    for (int i = 0; i < concedidos.size(); i++) {
+                        suback[4 + i] = concedidos.get(i).byteValue();
+                    }
+                    escribir(suback);
+                }
+                case UNSUBSCRIBE -> {
+                    int id = r.entero16();
+                    while (r.quedan()) {
+                        desuscribir(r.texto());
+                    }
+                    escribir(new byte[] { (byte) 0xB0, 0x02, (byte) (id >>> 8), (byte) id });
+                }
+                case PINGREQ -> escribir(new byte[] { (byte) 0xD0, 0x00 });
+                case DISCONNECT -> {
+                    return false;
+                }
+                default -> {
+                    // PUBREC/PUBREL/PUBCOMP: QoS 2 no soportado
+                }
+            }
+            return true;
+        }
+
+        private void suscribir(String filtro, int qos) {
+            if (filtro.startsWith("$share/")) {
+                int barra = filtro.indexOf('/', "$share/".length());
+                String grupo = filtro.substring("$share/".length(), barra);
+                String real = filtro.substring(barra + 1);
+                String clave = grupo + "|" + real;
+                GrupoCompartido g = grupos.computeIfAbsent(clave, k -> new GrupoCompartido(real, qos));
+                if (!g.miembros.contains(this)) {
+                    g.miembros.add(this);
+                    compartidas.add(clave);
+                }
+                return;
+            }
+            suscripciones.removeIf(s -> s.filtro.equals(filtro));
+            suscripciones.add(new Suscripcion(filtro, qos));
+        }
+
+        private void desuscribir(String filtro) {
+            if (filtro.startsWith("$share/")) {
+                int barra = filtro.indexOf('/', "$share/".length());
+                String clave = filtro.substring("$share/".length(), barra) + "|" + filtro.substring(barra + 1);
+                GrupoCompartido g = grupos.get(clave);
+                if (g != null) {
+                    g.miembros.remove(this);
+                }
+                compartidas.remove(clave);
+                return;
+            }
+            suscripciones.removeIf(s -> s.filtro.equals(filtro));
+        }
+
+        void entregar(String topic, byte[] payload, int qos) {
+            byte[] t = topic.getBytes(StandardCharsets.UTF_8);
+            int restante = 2 + t.length + (qos > 0 ? 2 : 0) + payload.length;
+            try {
+                synchronized (out) {
+                    out.write(0x30 | (qos << 1));
+                    escribirLongitud(out, restante);
+                    out.write(t.length >>> 8);
+                    out.write(t.length);
+                    out.write(t);
+                    if (qos > 0) {
+                        int id = (siguienteId.getAndIncrement() & 0xFFFF) % 65535 + 1;
+                        out.write(id >>> 8);
+                        out.write(id);
+                    }
+                    out.write(payload);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                cerrar();
+            }
+        }
+
+        private void escribir(byte[] paquete) throws IOException {
+            synchronized (out) {
+                out.write(paquete);
+                out.flush();
+            }
+        }
+
+        void cerrar() {
+            if (clientId != null) {
+                sesiones.remove(clientId, this);
+            }
+            for (String clave : compartidas) {
+                GrupoCompartido g = grupos.get(clave);
+                if (g != null) {
+                    g.miembros.remove(this);
+                }
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ya cerrado
+            }
+        }
+    }
+
+    // ================================
+    // 🔢 CODIFICACIÓN
+    // ================================
+    private static int leerLongitud(DataInputStream in) throws IOException {
+        int valor = 0;
+        int multiplicador = 1;
+        int b;
+        do {
+            b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            valor += (b & 0x7F) * multiplicador;
+            multiplicador *= 128;
+        } while ((b & 0x80) != 0);
+        return valor;
+    }
+
+    private static void escribirLongitud(OutputStream out, int longitud) throws IOException {
+        do {
+            int b = longitud % 128;
+            longitud /= 128;
+            if (longitud > 0) {
+                b |= 0x80;
+            }
+            out.write(b);
+        } while (longitud > 0);
+    }
+
+    private static final class Lector {
+        private final byte[] datos;
+        private int pos;
+
+        Lector(byte[] datos) {
+            this.datos = datos;
+        }
+
+        int byte1() {
+            return datos[pos++] & 0xFF;
+        }
+
+        int entero16() {
+            return (byte1() << 8) | byte1();
+        }
+
+        byte[] binario() {
+            int n = entero16();
+            byte[] b = new byte[n];
+            System.arraycopy(datos, pos, b, 0, n);
+            pos += n;
+            return b;
+        }
+
+        String texto() {
+            return new String(binario(), StandardCharsets.UTF_8);
+        }
+
+        byte[] resto() {
+            byte[] b = new byte[datos.length - pos];
+            System.arraycopy(datos, pos, b, 0, b.length);
+            pos = datos.length;
+            return b;
+        }
+
+        boolean quedan() {
+            return pos < datos.length;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ApiarioSamano.MicroServiceApiarios.repository;
+
+import com.ApiarioSamano.MicroServiceApiarios.model.Apiarios;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Arranca JPA con la configuración de caché de application.properties
+ * (jcache + ehcache.xml, missing_cache_strategy=fail) sobre H2: un error en
+ * la URI o una región sin declarar rompe el build en vez del arranque.
+ *
+ * Sin transacción del test: la caché de consultas solo sirve resultados
+ * posteriores al commit que tocó la tabla.
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CacheSegundoNivelTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ApiariosRepository apiariosRepository;
+
+    @AfterEach
+    void limpiar() {
+        apiariosRepository.deleteAll();
+    }
+
+    @Test
+    void sessionFactoryArrancaConLaCacheHabilitada() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+
+        assertTrue(sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled());
+        assertTrue(sessionFactory.getSessionFactoryOptions().isQueryCacheEnabled());
+        assertTrue(sessionFactory.getStatistics().isStatisticsEnabled());
+    }
+
+    @Test
+    void apiarioGuardadoQuedaEnSuRegion() {
+        Apiarios apiario = nuevoApiario(1);
+        apiariosRepository.save(apiario);
+
+        assertTrue(entityManagerFactory.getCache().contains(Apiarios.class, apiario.getId()));
+    }
+
+    @Test
+    void listadoCacheableSeSirveDesdeLaCacheDeConsultas() {
+        apiariosRepository.save(nuevoApiario(1));
+        apiariosRepository.save(nuevoApiario(2));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertEquals(2, apiariosRepository.findAllConDetalle().size());
+        assertEquals(2, apiariosRepository.findAllConDetalle().size());
+
+        assertEquals(1, statistics.getQueryCachePutCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    private static Apiarios nuevoApiario(int numero) {
+        Apiarios apiario = new Apiarios();
+        apiario.setNumeroApiario(numero);
+        apiario.setUbicacion("Apiario de prueba " + numero);
+        return apiario;
+    }
+}
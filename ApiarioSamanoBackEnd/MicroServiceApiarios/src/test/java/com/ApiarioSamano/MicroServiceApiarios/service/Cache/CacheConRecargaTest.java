@@ -0,0 +1,198 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.Cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheConRecargaTest {
+
+    private final ExecutorService hilos = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void detener() {
+        hilos.shutdownNow();
+    }
+
+    @Test
+    void lasPeticionesConcurrentesCompartenUnaSolaCarga() throws Exception {
+        CacheConRecarga<String, String> cache = new CacheConRecarga<>("test", 10, 60_000, 30_000, 1_000);
+        CountDownLatch liberar = new CountDownLatch(1);
+        AtomicInteger llamadas = new AtomicInteger();
+        Supplier<String> cargador = () -> {
+            llamadas.incrementAndGet();
+            bloquear(liberar);
+            return "valor";
+        };
+
+        List<Future<String>> resultados = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            resultados.add(hilos.submit(() -> cache.obtener("k", cargador)));
+        }
+        // Los ocho pasaron por la cache antes de que termine la carga
+        esperar(() -> estadistica(cache, "fallos") == 8, "no llegaron todas las peticiones");
+        liberar.countDown();
+
+        for (Future<String> r : resultados) {
+            assertEquals("valor", r.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, llamadas.get());
+    }
+
+    @Test
+    void elValorViejoSeSirveMientrasSeRecargaEnSegundoPlano() throws Exception {
+        CacheConRecarga<String, String> cache = new CacheConRecarga<>("test", 10, 60_000, 300, 1_000);
+        AtomicInteger version = new AtomicInteger();
+        Supplier<String> cargador = () -> "v" + version.incrementAndGet();
+
+        assertEquals("v1", cache.obtener("k", cargador));
+        Thread.sleep(350);
+
+        // Pasado el refresco no se espera: sale el valor viejo y la recarga va aparte
+        assertEquals("v1", cache.obtener("k", cargador));
+        assertEquals(1L, estadistica(cache, "aciertosViejos"));
+
+        esperar(() -> estadistica(cache, "cargas") == 2, "no se recargó en segundo plano");
+        assertEquals("v2", cache.obtener("k", () -> "no se debería cargar"));
+    }
+
+    @Test
+    void losNegativosVencenConSuPropioTtl() throws Exception {
+        CacheConRecarga<String, String> cache = new CacheConRecarga<>("test", 10, 60_000, 30_000, 150);
+        AtomicInteger llamadas = new AtomicInteger();
+        Supplier<String> inexistente = () -> {
+            llamadas.incrementAndGet();
+            return null;
+        };
+
+        assertNull(cache.obtener("k", inexistente));
+        assertNull(cache.obtener("k", inexistente));
+        assertEquals(1, llamadas.get());
+        assertEquals(1L, estadistica(cache, "aciertosNegativos"));
+
+        Thread.sleep(200);
+        assertNull(cache.obtener("k", inexistente));
+        assertEquals(2, llamadas.get());
+    }
+
+    @Test
+    void alLlenarseDesalojaLaMenosUsada() {
+        CacheConRecarga<String, String> cache = new CacheConRecarga<>("test", 2, 60_000, 30_000, 1_000);
+        cache.obtener("a", () -> "A");
+        cache.obtener("b", () -> "B");
+        // Usar "a" deja a "b" como la menos usada
+        cache.obtener("a", () -> "otra");
+        cache.obtener("c", () -> "C");
+
+        assertEquals(2, cache.tamaño());
+        assertEquals(1L, estadistica(cache, "desalojos"));
+        assertEquals("A", cache.obtener("a", () -> "otra"));
+        assertEquals("C", cache.obtener("c", () -> "otra"));
+        assertEquals("B2", cache.obtener("b", () -> "B2"));
+    }
+
+    @Test
+    void porLotesSoloSePideLoQueFalta() {
+        CacheConRecarga<Long, String> cache = new CacheConRecarga<>("test", 10, 60_000, 30_000, 1_000);
+        cache.obtener(1L, () -> "uno");
+        List<List<Long>> pedidas = new ArrayList<>();
+
+        Map<Long, String> resultado = cache.obtenerVarios(List.of(1L, 2L, 3L, 2L), faltan -> {
+            pedidas.add(faltan);
+            return Map.of(2L, "dos");
+        });
+
+        assertEquals(Map.of(1L, "uno", 2L, "dos"), resultado);
+        assertEquals(List.of(List.of(2L, 3L)), pedidas);
+
+        // La que no existe quedó como negativa y no se vuelve a pedir
+        cache.obtenerVarios(List.of(2L, 3L), faltan -> {
+            pedidas.add(faltan);
+            return Map.of();
+        });
+        assertEquals(1, pedidas.size());
+    }
+
+    @Test
+    void unaCargaInvalidadaNoGuardaSuValor() throws Exception {
+        CacheConRecarga<String, String> cache = new CacheConRecarga<>("test", 10, 60_000, 30_000, 1_000);
+        CountDownLatch cargando = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        Future<String> vieja = hilos.submit(() -> cache.obtener("k", () -> {
+            cargando.countDown();
+            bloquear(liberar);
+            return "viejo";
+        }));
+        assertTrue(cargando.await(5, TimeUnit.SECONDS));
+
+        cache.invalidar("k");
+        liberar.countDown();
+
+        // Quien ya esperaba recibe su resultado, pero la cache no lo conserva
+        assertEquals("viejo", vieja.get(5, TimeUnit.SECONDS));
+        assertEquals(0, cache.tamaño());
+        assertEquals("nuevo", cache.obtener("k", () -> "nuevo"));
+    }
+
+    @Test
+    void trasInvalidarNoSeEsperaLaCargaVieja() throws Exception {
+        CacheConRecarga<String, String> cache = new CacheConRecarga<>("test", 10, 60_000, 30_000, 1_000);
+        CountDownLatch cargando = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        Future<String> vieja = hilos.submit(() -> cache.obtener("k", () -> {
+            cargando.countDown();
+            bloquear(liberar);
+            return "viejo";
+        }));
+        assertTrue(cargando.await(5, TimeUnit.SECONDS));
+
+        cache.invalidarTodo();
+        assertEquals("nuevo", cache.obtener("k", () -> "nuevo"));
+
+        // La carga vieja termina después y no pisa el valor nuevo
+        liberar.countDown();
+        assertEquals("viejo", vieja.get(5, TimeUnit.SECONDS));
+        assertEquals("nuevo", cache.obtener("k", () -> "otro"));
+    }
+
+    private static long estadistica(CacheConRecarga<?, ?> cache, String nombre) {
+        return (Long) cache.estadisticas().get(nombre);
+    }
+
+    private static void bloquear(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("la prueba no liberó la carga");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void esperar(BooleanSupplier condicion, String mensaje) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5_000;
+        while (!condicion.getAsBoolean()) {
+            if (System.currentTimeMillis() > limite) {
+                throw new AssertionError(mensaje);
+            }
+            Thread.sleep(10);
+        }
+    }
+}
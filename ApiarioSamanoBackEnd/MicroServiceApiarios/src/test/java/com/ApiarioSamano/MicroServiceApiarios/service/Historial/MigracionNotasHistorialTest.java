@@ -0,0 +1,90 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.Historial;
+
+import com.ApiarioSamano.MicroServiceApiarios.model.EventoHistorialMedico;
+import com.ApiarioSamano.MicroServiceApiarios.model.HistorialMedico;
+import com.ApiarioSamano.MicroServiceApiarios.repository.EventoHistorialMedicoRepository;
+import com.ApiarioSamano.MicroServiceApiarios.repository.HistorialMedicoRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import(MigracionNotasHistorial.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MigracionNotasHistorialTest {
+
+    @Autowired
+    private MigracionNotasHistorial migracion;
+
+    @Autowired
+    private HistorialMedicoRepository historialMedicoRepository;
+
+    @Autowired
+    private EventoHistorialMedicoRepository eventoRepository;
+
+    @AfterEach
+    void limpiar() {
+        eventoRepository.deleteAll();
+        historialMedicoRepository.deleteAll();
+    }
+
+    @Test
+    void migraLasNotasYMarcaElHistorial() {
+        Long id = historialLegado("[2024-03-01 10:15] Revisión inicial\n---\n"
+                + "[2024-03-05 08:00] RECETA CUMPLIDA: Oxitetraciclina").getId();
+
+        migracion.migrar();
+
+        List<EventoHistorialMedico> eventos = eventoRepository.findByIdHistorialMedico(id);
+        assertEquals(2, eventos.size());
+        assertTrue(eventos.stream().anyMatch(e -> EventoHistorialMedico.TIPO_NOTA.equals(e.getTipo())
+                && "Revisión inicial".equals(e.getDescripcion())
+                && LocalDateTime.of(2024, 3, 1, 10, 15).equals(e.getFecha())));
+        assertTrue(eventos.stream().anyMatch(e -> EventoHistorialMedico.TIPO_RECETA_CUMPLIDA.equals(e.getTipo())));
+        assertEquals(Boolean.TRUE, historialMedicoRepository.findById(id).orElseThrow().getNotasMigradas());
+    }
+
+    @Test
+    void repetirLaMigracionNoDuplicaEventos() {
+        Long id = historialLegado("[2024-03-01 10:15] Revisión inicial").getId();
+
+        migracion.migrar();
+        migracion.migrar();
+
+        assertEquals(1, eventoRepository.findByIdHistorialMedico(id).size());
+    }
+
+    @Test
+    void eventoAgregadoAntesDeMigrarNoOcultaLasNotas() {
+        Long id = historialLegado("[2024-03-01 10:15] Revisión inicial").getId();
+        // Un evento nuevo en un historial con notas sin migrar
+        eventoRepository.save(new EventoHistorialMedico(null, id, EventoHistorialMedico.TIPO_RECETA_CUMPLIDA,
+                "RECETA CUMPLIDA: Ácido oxálico", null, LocalDateTime.now()));
+
+        migracion.migrar();
+
+        List<EventoHistorialMedico> eventos = eventoRepository.findByIdHistorialMedico(id);
+        assertEquals(2, eventos.size());
+        assertTrue(eventos.stream().anyMatch(e -> "Revisión inicial".equals(e.getDescripcion())));
+    }
+
+    private HistorialMedico historialLegado(String notas) {
+        HistorialMedico historial = new HistorialMedico();
+        historial.setNotas(notas);
+        return historialMedicoRepository.save(historial);
+    }
+}
@@ -0,0 +1,68 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Anomalias;
+
+import com.ApiarioSamano.MicroServiceApiarios.config.SensorWebSocketHandler;
+import com.ApiarioSamano.MicroServiceApiarios.dto.AlertaDTO.AlertaSensorDTO;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class FeedAlertasTest {
+
+    private final FeedAlertas feed = new FeedAlertas(mock(SensorWebSocketHandler.class), 100);
+
+    @Test
+    void paginarConElUltimoIdNoSaltaAlertas() {
+        for (int i = 0; i < 25; i++) {
+            publicar(i % 2 == 0 ? "esp32-a" : "esp32-b", i);
+        }
+
+        List<Long> vistos = new ArrayList<>();
+        long desde = 0;
+        List<AlertaSensorDTO> pagina;
+        while (!(pagina = feed.consultar(desde, null, 10)).isEmpty()) {
+            assertTrue(pagina.size() <= 10);
+            for (AlertaSensorDTO a : pagina) {
+                vistos.add(a.getId());
+            }
+            desde = pagina.get(pagina.size() - 1).getId();
+        }
+
+        assertEquals(25, vistos.size());
+        for (int i = 0; i < vistos.size(); i++) {
+            assertEquals(i + 1L, (long) vistos.get(i));
+        }
+    }
+
+    @Test
+    void filtraPorDispositivoEnOrdenAscendente() {
+        for (int i = 0; i < 10; i++) {
+            publicar(i % 2 == 0 ? "esp32-a" : "esp32-b", i);
+        }
+
+        List<AlertaSensorDTO> pagina = feed.consultar(2, "esp32-a", 3);
+
+        assertEquals(List.of(3L, 5L, 7L), pagina.stream().map(AlertaSensorDTO::getId).toList());
+    }
+
+    @Test
+    void capacidadDescartaLasMasAntiguas() {
+        FeedAlertas acotado = new FeedAlertas(mock(SensorWebSocketHandler.class), 5);
+        for (int i = 0; i < 8; i++) {
+            acotado.publicar("esp32-a", "1", "peso", TipoAnomalia.DESVIACION, i, 0, "prueba", i);
+        }
+
+        List<AlertaSensorDTO> todas = acotado.consultar(0, null, 100);
+
+        assertEquals(List.of(4L, 5L, 6L, 7L, 8L), todas.stream().map(AlertaSensorDTO::getId).toList());
+    }
+
+    private void publicar(String dispositivoId, int i) {
+        feed.publicar(dispositivoId, "1", "temperatura", TipoAnomalia.DESVIACION, i, 0, "prueba", i);
+    }
+}
@@ -0,0 +1,196 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Cluster;
+
+import com.ApiarioSamano.MicroServiceApiarios.config.SensorWebSocketHandler;
+import com.ApiarioSamano.MicroServiceApiarios.factory.DispositivoFactory;
+import com.ApiarioSamano.MicroServiceApiarios.mqtt.BrokerMqttEmbebido;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Anomalias.DetectorAnomalias;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Anomalias.FeedAlertas;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.DetectorDesconexion;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.RegistroDispositivos;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.RegistroSensores;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta.PipelineIngesta;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.MqttService;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.SeriesTemporales.SerieTemporalService;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.BandaMuerta;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.PoliticaDesborde;
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket.ReanudacionSensores;
+
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Dos nodos contra un broker embebido: la suscripción compartida reparte la
+ * ingesta y el relay lleva cada lectura al WebSocket del otro nodo.
+ */
+class ClusterMqttTest {
+
+    private static final int LECTURAS = 200;
+
+    private BrokerMqttEmbebido broker;
+    private final List<Nodo> nodos = new ArrayList<>();
+
+    @BeforeEach
+    void iniciar() throws Exception {
+        broker = new BrokerMqttEmbebido();
+        nodos.add(new Nodo("nodo-a"));
+        nodos.add(new Nodo("nodo-b"));
+        esperar(() -> broker.getClientesConectados() == 2, "los nodos no se conectaron");
+    }
+
+    @AfterEach
+    void detener() throws Exception {
+        for (Nodo n : nodos) {
+            n.detener();
+        }
+        broker.close();
+    }
+
+    @Test
+    void cadaLecturaSeProcesaEnUnSoloNodoYLleganATodosLosWebSockets() throws Exception {
+        Nodo a = nodos.get(0);
+        Nodo b = nodos.get(1);
+
+        // Client ids distintos: con el fijo el broker se quedaría con uno solo
+        assertNotEquals(a.clientId(), b.clientId());
+
+        MqttClient esp32 = new MqttClient(broker.getUrl(), "esp32-simulado", null);
+        esp32.connect(new MqttConnectOptions());
+        for (int i = 0; i < LECTURAS; i++) {
+            publicar(esp32, "D" + (i % 10), i);
+        }
+
+        // Historial = ingesta local: ninguna lectura se procesó dos veces
+        esperar(() -> a.ingeridas.get() + b.ingeridas.get() == LECTURAS, "faltan lecturas por ingerir");
+        assertTrue(a.ingeridas.get() > 0 && b.ingeridas.get() > 0, "la ingesta no se repartió");
+
+        // Una última lectura por dispositivo: entre nodos no hay orden global,
+        // así el valor final no depende de qué nodo procesó qué
+        for (int d = 0; d < 10; d++) {
+            publicar(esp32, "D" + d, 1000 + d);
+        }
+        esp32.disconnect();
+        esp32.close();
+
+        esperar(() -> a.ingeridas.get() + b.ingeridas.get() == LECTURAS + 10, "faltan lecturas por ingerir");
+        Thread.sleep(200);
+        assertEquals(LECTURAS + 10, a.ingeridas.get() + b.ingeridas.get());
+
+        // Cada WebSocket y cada registro ven el último valor de todos los
+        // dispositivos, los haya ingerido su nodo o el otro
+        for (int d = 0; d < 10; d++) {
+            String dispositivo = "\"dispositivoId\":\"D" + d + "\"";
+            String ultimo = "\"valor\":\"" + (1000 + d) + "\"";
+            String id = "D" + d;
+            String esperado = String.valueOf(1000 + d);
+            for (Nodo n : nodos) {
+                esperar(() -> n.recibidosWs.stream().anyMatch(m -> m.contains(dispositivo) && m.contains(ultimo)),
+                        n.nombre + " no recibió el último valor de " + id);
+                esperar(() -> esperado.equals(n.mqtt.getUltimosDatosSensores(id).get("humedad_suelo")),
+                        n.nombre + " no tiene el último valor de " + id);
+            }
+        }
+        assertTrue(a.relay.getRecibidos() > 0 && b.relay.getRecibidos() > 0);
+    }
+
+    private static void publicar(MqttClient cliente, String dispositivoId, int valor) throws Exception {
+        cliente.publish("apiarios/dispositivos/" + dispositivoId + "/humedad_suelo",
+                String.valueOf(valor).getBytes(StandardCharsets.UTF_8), 1, false);
+    }
+
+    private static void esperar(BooleanSupplier condicion, String mensaje) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 10_000;
+        while (!condicion.getAsBoolean()) {
+            if (System.currentTimeMillis() > limite) {
+                throw new AssertionError(mensaje);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    // ================================
+    // 🧱 UN NODO DEL MICROSERVICIO (sin contexto de Spring)
+    // ================================
+    private class Nodo {
+
+        final String nombre;
+        final AtomicInteger ingeridas = new AtomicInteger();
+        final List<String> recibidosWs = new CopyOnWriteArrayList<>();
+        final RelayCluster relay;
+        final PipelineIngesta pipeline;
+        final DetectorDesconexion detector;
+        final SensorWebSocketHandler webSocket;
+        final MqttService mqtt;
+
+        Nodo(String nombre) throws Exception {
+            this.nombre = nombre;
+
+            SerieTemporalService series = new SerieTemporalService() {
+                @Override
+                public void registrar(String dispositivoId, String sensor, long timestamp, double valor) {
+                    ingeridas.incrementAndGet();
+                }
+            };
+            RegistroSensores sensores = new RegistroSensores(List.of("humedad_suelo"));
+            RegistroDispositivos dispositivos = new RegistroDispositivos(sensores);
+            relay = new RelayCluster("apiarios-test", nombre, 1024);
+            pipeline = new PipelineIngesta(2, 1024);
+            detector = new DetectorDesconexion(45_000, 250);
+            webSocket = new SensorWebSocketHandler(new ReanudacionSensores(sensores, dispositivos, 64, 120_000),
+                    1024, PoliticaDesborde.COALESCER, 10_000, 50, 4096);
+
+            WebSocketSession sesion = mock(WebSocketSession.class);
+            when(sesion.getId()).thenReturn("ws-" + nombre);
+            when(sesion.isOpen()).thenReturn(true);
+            doAnswer(inv -> {
+                WebSocketMessage<?> m = inv.getArgument(0);
+                recibidosWs.add(((TextMessage) m).getPayload());
+                return null;
+            }).when(sesion).sendMessage(any());
+            webSocket.afterConnectionEstablished(sesion);
+
+            mqtt = new MqttService(new DispositivoFactory(), series, webSocket, pipeline, detector, sensores,
+                    dispositivos, relay,
+                    new DetectorAnomalias(new FeedAlertas(webSocket, 100), 0.05, 4, 0.5, 20, List.of(),
+                            1_800_000, 0, 300_000),
+                    new BandaMuerta(List.of(), 0, 60_000));
+            ReflectionTestUtils.setField(mqtt, "mqttHost", "127.0.0.1");
+            ReflectionTestUtils.setField(mqtt, "mqttPort", broker.getPuerto());
+            ReflectionTestUtils.setField(mqtt, "clientId", "backend_spring");
+            ReflectionTestUtils.setField(mqtt, "timeoutPublicacionMs", 5_000L);
+            mqtt.connect();
+        }
+
+        String clientId() {
+            return relay.clientId("backend_spring");
+        }
+
+        void detener() {
+            mqtt.desconectar();
+            pipeline.detener();
+            detector.detener();
+            webSocket.detener();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado;
+
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.RuedaTemporizadores.Temporizador;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Un sensor que alterna desconectado/lectura (desarmar y tocar) no debe
+ * agregar copias de su temporizador a la rueda.
+ */
+class RuedaTemporizadoresTest {
+
+    private static final long TICK_MS = 100;
+    private static final long UMBRAL_MS = 1000;
+
+    private final List<String> vencidos = new ArrayList<>();
+    private final RuedaTemporizadores<String> rueda = new RuedaTemporizadores<>(
+            TICK_MS, UMBRAL_MS, t -> vencidos.add(t.getValor()), 0);
+    private long reloj;
+
+    @Test
+    void desarmarYTocarNoDuplicaLaEntrada() {
+        Temporizador<String> t = rueda.crear("esp32:temperatura", 0);
+        rueda.tocar(t, 100);
+        rueda.desarmar(t);
+        rueda.tocar(t, 200);
+
+        assertEquals(1, rueda.entradas());
+
+        avanzarHasta(UMBRAL_MS * 3);
+
+        assertEquals(List.of("esp32:temperatura"), vencidos);
+        assertEquals(0, rueda.entradas());
+        assertFalse(t.isArmado());
+    }
+
+    @Test
+    void sensorIntermitenteMantieneUnaSolaEntrada() {
+        Temporizador<String> t = rueda.crear("esp32:humedad", 0);
+
+        // Lecturas y desconexiones alternadas mientras la rueda avanza
+        for (int i = 0; i < 50; i++) {
+            reloj += TICK_MS;
+            rueda.desarmar(t);
+            rueda.tocar(t, reloj);
+            rueda.avanzar(reloj);
+            assertEquals(1, rueda.entradas());
+        }
+        assertEquals(0, vencidos.size());
+
+        avanzarHasta(reloj + UMBRAL_MS * 3);
+
+        assertEquals(1, vencidos.size());
+        assertEquals(0, rueda.entradas());
+    }
+
+    @Test
+    void vuelveADispararTrasNuevaActividad() {
+        Temporizador<String> t = rueda.crear("esp32:peso", 0);
+        avanzarHasta(UMBRAL_MS * 2);
+        assertEquals(1, vencidos.size());
+
+        rueda.tocar(t, UMBRAL_MS * 2);
+        assertEquals(1, rueda.entradas());
+        avanzarHasta(UMBRAL_MS * 5);
+
+        assertEquals(2, vencidos.size());
+        assertEquals(0, rueda.entradas());
+    }
+
+    private void avanzarHasta(long fin) {
+        while (reloj < fin) {
+            reloj += TICK_MS;
+            rueda.avanzar(reloj);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DecodificadorLoteTest {
+
+    private static final long LLEGADA = 1_700_000_000_000L;
+
+    private final List<String> lecturas = new ArrayList<>();
+
+    @Test
+    void binarioConBaseExplicita() throws IOException {
+        byte[] lote = binario(LLEGADA - 60_000, new String[] { "humedad_suelo", "temperatura" },
+                new int[] { 0, 1, 0 }, new long[] { 30_000, 20_000, 0 }, new float[] { 41.3f, 22f, -1.5f });
+
+        assertEquals(3, decodificar(lote));
+        assertEquals(List.of(
+                "humedad_suelo|" + (LLEGADA - 90_000) + "|41.3",
+                "temperatura|" + (LLEGADA - 80_000) + "|22.0",
+                "humedad_suelo|" + (LLEGADA - 60_000) + "|-1.5"), lecturas);
+    }
+
+    @Test
+    void binarioSinRelojUsaLaLlegada() throws IOException {
+        byte[] lote = binario(0, new String[] { "peso" }, new int[] { 0, 0 }, new long[] { 5_000, 0 },
+                new float[] { 30f, 31f });
+
+        decodificar(lote);
+
+        assertEquals(List.of("peso|" + (LLEGADA - 5_000) + "|30.0", "peso|" + LLEGADA + "|31.0"), lecturas);
+    }
+
+    @Test
+    void binarioConRelojAdelantadoSeAcotaALaLlegada() throws IOException {
+        // Un ESP32 sin NTP cree que es una hora más tarde
+        byte[] lote = binario(LLEGADA + 3_600_000, new String[] { "peso" }, new int[] { 0, 0 },
+                new long[] { 7_200_000, 1_000 }, new float[] { 30f, 31f });
+
+        decodificar(lote);
+
+        assertEquals(List.of("peso|" + (LLEGADA - 3_600_000) + "|30.0", "peso|" + LLEGADA + "|31.0"), lecturas);
+    }
+
+    @Test
+    void jsonConTimestampYEdad() {
+        String lote = """
+                [{"sensor": "humedad_suelo", "valor": 41.5, "timestamp": %d},
+                 {"sensor": "temperatura", "valor": 22, "edadMs": 30000, "extra": {"a": [1, 2]}},
+                 {"sensor": "estado", "valor": "ABIERTA"},
+                 {"sensor": "peso", "valor": 30, "timestamp": %d, "edadMs": 1000}]
+                """.formatted(LLEGADA - 120_000, LLEGADA - 60_000);
+
+        assertEquals(4, decodificar(lote.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(List.of(
+                "humedad_suelo|" + (LLEGADA - 120_000) + "|41.5",
+                "temperatura|" + (LLEGADA - 30_000) + "|22.0",
+                "estado|" + LLEGADA + "|NaN",
+                "peso|" + (LLEGADA - 61_000) + "|30.0"), lecturas);
+    }
+
+    @Test
+    void jsonConFechaFuturaSeAcotaALaLlegada() {
+        String lote = """
+                [{"sensor": "peso", "valor": 30, "timestamp": %d},
+                 {"sensor": "peso", "valor": 31, "timestamp": %d, "edadMs": 1000}]
+                """.formatted(LLEGADA + 86_400_000L, LLEGADA + 500);
+
+        decodificar(lote.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(List.of("peso|" + LLEGADA + "|30.0", "peso|" + (LLEGADA - 500) + "|31.0"), lecturas);
+    }
+
+    @Test
+    void lotesInvalidos() {
+        assertInvalido(new byte[0], "vacío");
+        assertInvalido(new byte[] { 7, 0, 0 }, "desconocido");
+        assertInvalido(new byte[] { DecodificadorLote.VERSION_BINARIO, 0, 0 }, "truncado");
+        assertInvalido("[{\"valor\": 1}]".getBytes(StandardCharsets.UTF_8), "sin sensor");
+        assertInvalido("[{\"sensor\": ".getBytes(StandardCharsets.UTF_8), "JSON inválido");
+    }
+
+    @Test
+    void indiceDeSensorFueraDeLaTabla() throws IOException {
+        byte[] lote = binario(LLEGADA, new String[] { "peso" }, new int[] { 0, 3 }, new long[] { 0, 0 },
+                new float[] { 30f, 31f });
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> decodificar(lote));
+
+        assertTrue(e.getMessage().contains("fuera de la tabla"), e.getMessage());
+        // La lectura anterior al error ya se entregó
+        assertEquals(1, lecturas.size());
+    }
+
+    private int decodificar(byte[] lote) {
+        return DecodificadorLote.decodificar(lote, LLEGADA,
+                (sensor, timestamp, valor) -> lecturas.add(sensor + "|" + timestamp + "|" + valor));
+    }
+
+    private void assertInvalido(byte[] lote, String motivo) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> decodificar(lote));
+        assertTrue(e.getMessage().toLowerCase().contains(motivo.toLowerCase()), motivo + ": " + e.getMessage());
+    }
+
+    private static byte[] binario(long base, String[] sensores, int[] indices, long[] edades, float[] valores)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(DecodificadorLote.VERSION_BINARIO);
+        out.writeLong(base);
+        out.writeByte(sensores.length);
+        for (String sensor : sensores) {
+            byte[] nombre = sensor.getBytes(StandardCharsets.UTF_8);
+            out.writeByte(nombre.length);
+            out.write(nombre);
+        }
+        out.writeShort(indices.length);
+        for (int i = 0; i < indices.length; i++) {
+            out.writeByte(indices[i]);
+            out.writeInt((int) edades[i]);
+            out.writeFloat(valores[i]);
+        }
+        return bytes.toByteArray();
+    }
+}
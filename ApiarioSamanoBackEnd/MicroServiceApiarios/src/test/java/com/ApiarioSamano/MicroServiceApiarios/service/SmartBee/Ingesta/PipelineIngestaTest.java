@@ -0,0 +1,67 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Ingesta;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipelineIngestaTest {
+
+    private final PipelineIngesta pipeline = new PipelineIngesta(2, 64);
+    private final Queue<String> procesados = new ConcurrentLinkedQueue<>();
+
+    @AfterEach
+    void detener() {
+        pipeline.detener();
+    }
+
+    @Test
+    void sinMensajesLosWorkersDuermenSinPlazo() throws Exception {
+        pipeline.iniciar(m -> procesados.add(m.getTopic()));
+
+        // Con un sondeo periódico estarían en TIMED_WAITING
+        esperar(() -> workers().stream().allMatch(t -> t.getState() == Thread.State.WAITING),
+                "los workers no se durmieron");
+        assertEquals(2, workers().size());
+    }
+
+    @Test
+    void unMensajeDespiertaAlWorkerDormido() throws Exception {
+        pipeline.iniciar(m -> procesados.add(m.getTopic()));
+        esperar(() -> workers().stream().allMatch(t -> t.getState() == Thread.State.WAITING),
+                "los workers no se durmieron");
+
+        // Ráfagas separadas: cada una encuentra al worker dormido otra vez
+        for (int r = 0; r < 20; r++) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(pipeline.publicar("apiarios/dispositivos/D" + i + "/humedad_suelo", new byte[0]));
+            }
+            int esperados = (r + 1) * 10;
+            esperar(() -> procesados.size() == esperados, "faltan mensajes de la ráfaga");
+            Thread.sleep(5);
+        }
+        assertEquals(200L, pipeline.obtenerMetricas().getProcesados());
+    }
+
+    private static List<Thread> workers() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().startsWith("mqtt-ingesta-") && t.isAlive())
+                .toList();
+    }
+
+    private static void esperar(BooleanSupplier condicion, String mensaje) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5_000;
+        while (!condicion.getAsBoolean()) {
+            if (System.currentTimeMillis() > limite) {
+                throw new AssertionError(mensaje);
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.SeriesTemporales;
+
+import com.ApiarioSamano.MicroServiceApiarios.dto.SensorDTO.PuntoSerieDTO;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RollupSerieTest {
+
+    private static final long PASO = 60_000L;
+
+    private final RollupSerie rollup = new RollupSerie(PASO);
+
+    @Test
+    void lecturaAtrasadaTrasPurgarConArregloLleno() {
+        // Cubetas pares 0, 2, ..., 126: llenan la capacidad inicial (64)
+        for (int i = 0; i < 64; i++) {
+            rollup.agregar(i * 2 * PASO, i);
+        }
+        // Purgar la cabeza deja huecos al principio sin compactar
+        rollup.purgarAntesDe(20 * PASO);
+        assertEquals(54, rollup.tamaño());
+
+        // Cae entre dos cubetas existentes y obliga a compactar antes de insertar
+        rollup.agregar(41 * PASO + 5, 99.0);
+
+        List<PuntoSerieDTO> puntos = consultarTodo();
+        assertEquals(55, puntos.size());
+        assertOrdenadas(puntos);
+        assertEquals(20 * PASO, puntos.get(0).getTimestamp());
+
+        PuntoSerieDTO atrasada = puntos.get(11);
+        assertEquals(41 * PASO, atrasada.getTimestamp());
+        assertEquals(99.0, atrasada.getValor());
+        assertEquals(1, atrasada.getConteo());
+        // Las vecinas conservan sus agregados
+        assertEquals(20.0, puntos.get(10).getValor());
+        assertEquals(21.0, puntos.get(12).getValor());
+    }
+
+    @Test
+    void acumulaMinMaxYPromedioPorCubeta() {
+        rollup.agregar(5 * PASO + 1_000, 10.0);
+        rollup.agregar(5 * PASO + 30_000, 14.0);
+        rollup.agregar(5 * PASO + 59_999, 12.0);
+        rollup.agregar(6 * PASO, 1.0);
+
+        List<PuntoSerieDTO> puntos = consultarTodo();
+
+        assertEquals(2, puntos.size());
+        assertEquals(new PuntoSerieDTO(5 * PASO, 12.0, 10.0, 14.0, 3), puntos.get(0));
+        assertEquals(new PuntoSerieDTO(6 * PASO, 1.0, 1.0, 1.0, 1), puntos.get(1));
+    }
+
+    @Test
+    void consultaIncluyeLaCubetaDondeEmpiezaElRango() {
+        for (int i = 0; i < 10; i++) {
+            rollup.agregar(i * PASO, i);
+        }
+
+        List<PuntoSerieDTO> puntos = new ArrayList<>();
+        rollup.consultar(3 * PASO + 20_000, 6 * PASO, puntos);
+
+        assertEquals(List.of(3 * PASO, 4 * PASO, 5 * PASO, 6 * PASO),
+                puntos.stream().map(PuntoSerieDTO::getTimestamp).toList());
+    }
+
+    @Test
+    void creceMasAllaDeLaCapacidadInicial() {
+        for (int i = 0; i < 500; i++) {
+            rollup.agregar(i * PASO, i);
+        }
+
+        List<PuntoSerieDTO> puntos = consultarTodo();
+        assertEquals(500, puntos.size());
+        assertOrdenadas(puntos);
+        assertEquals(499.0, puntos.get(499).getValor());
+    }
+
+    @Test
+    void purgarTodoLaDejaVacia() {
+        for (int i = 0; i < 10; i++) {
+            rollup.agregar(i * PASO, i);
+        }
+
+        rollup.purgarAntesDe(10 * PASO);
+
+        assertEquals(0, rollup.tamaño());
+        assertEquals(Long.MAX_VALUE, rollup.primerInicio());
+        rollup.agregar(20 * PASO, 1.0);
+        assertEquals(20 * PASO, rollup.primerInicio());
+    }
+
+    @Test
+    void escribirYLeerConservaSoloLasCubetasVivas() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            rollup.agregar(i * PASO, i);
+            rollup.agregar(i * PASO + 1, -i);
+        }
+        rollup.purgarAntesDe(30 * PASO);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        rollup.escribir(new DataOutputStream(bytes));
+        RollupSerie leido = new RollupSerie(PASO);
+        leido.leer(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        List<PuntoSerieDTO> puntos = new ArrayList<>();
+        leido.consultar(0, Long.MAX_VALUE, puntos);
+        assertEquals(consultarTodo(), puntos);
+        assertEquals(70, leido.tamaño());
+        assertEquals(30 * PASO, leido.primerInicio());
+    }
+
+    private List<PuntoSerieDTO> consultarTodo() {
+        List<PuntoSerieDTO> puntos = new ArrayList<>();
+        rollup.consultar(0, Long.MAX_VALUE, puntos);
+        return puntos;
+    }
+
+    private static void assertOrdenadas(List<PuntoSerieDTO> puntos) {
+        for (int i = 1; i < puntos.size(); i++) {
+            assertTrue(puntos.get(i - 1).getTimestamp() < puntos.get(i).getTimestamp(),
+                    "cubetas desordenadas en " + i);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.SeriesTemporales;
+
+import com.ApiarioSamano.MicroServiceApiarios.dto.SensorDTO.PuntoSerieDTO;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SerieSensorTest {
+
+    // Inicio de una hora cualquiera
+    private static final long T0 = 472_222L * SerieSensor.HORA_MS;
+    private static final long SEGUNDO = 1_000L;
+
+    private final SerieSensor serie = new SerieSensor("esp32-01", "temperatura");
+
+    @Test
+    void escribirYLeerConservaCrudosYRollups() throws Exception {
+        // Más de dos segmentos y varias horas de rollups
+        int lecturas = SegmentoSerie.CAPACIDAD * 2 + 500;
+        for (int i = 0; i < lecturas; i++) {
+            serie.registrar(T0 + i * 10 * SEGUNDO, 20 + (i % 7));
+        }
+        assertTrue(serie.isModificada());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        serie.escribir(new DataOutputStream(bytes));
+        assertFalse(serie.isModificada());
+
+        SerieSensor leida = SerieSensor.leer(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals("esp32-01", leida.getDispositivoId());
+        assertEquals("temperatura", leida.getSensor());
+        assertFalse(leida.isModificada());
+        for (ResolucionSerie r : List.of(ResolucionSerie.CRUDO, ResolucionSerie.MINUTO, ResolucionSerie.HORA)) {
+            assertEquals(serie.consultar(0, Long.MAX_VALUE, r), leida.consultar(0, Long.MAX_VALUE, r), r.name());
+        }
+        assertEquals(lecturas, leida.consultar(0, Long.MAX_VALUE, ResolucionSerie.CRUDO).size());
+    }
+
+    @Test
+    void purgarDescartaSegmentosVencidosPeroNoElAbierto() {
+        int lecturas = SegmentoSerie.CAPACIDAD * 2 + 10;
+        for (int i = 0; i < lecturas; i++) {
+            serie.registrar(T0 + i * SEGUNDO, i);
+        }
+        long ultima = T0 + (lecturas - 1) * SEGUNDO;
+
+        // Todo vencido: sólo sobrevive el segmento abierto
+        serie.purgar(ultima + SEGUNDO, 0, 0);
+
+        List<PuntoSerieDTO> crudos = serie.consultar(0, Long.MAX_VALUE, ResolucionSerie.CRUDO);
+        assertEquals(10, crudos.size());
+        assertEquals(T0 + SegmentoSerie.CAPACIDAD * 2 * SEGUNDO, serie.primerTimestampCrudo());
+        // Los rollups tienen su propio límite
+        assertEquals(T0, serie.primerInicioMinuto());
+
+        serie.purgar(ultima + SEGUNDO, ultima + SerieSensor.MINUTO_MS, ultima + SerieSensor.HORA_MS);
+        assertEquals(Long.MAX_VALUE, serie.primerInicioMinuto());
+        assertTrue(serie.consultar(0, Long.MAX_VALUE, ResolucionSerie.HORA).isEmpty());
+    }
+
+    @Test
+    void lecturasAtrasadasSalenOrdenadas() {
+        serie.registrar(T0 + 30 * SEGUNDO, 3);
+        serie.registrar(T0 + 40 * SEGUNDO, 4);
+        // Lote de un dispositivo que estuvo sin conexión
+        serie.registrar(T0 + 10 * SEGUNDO, 1);
+        serie.registrar(T0 + 20 * SEGUNDO, 2);
+
+        List<PuntoSerieDTO> crudos = serie.consultar(0, Long.MAX_VALUE, ResolucionSerie.CRUDO);
+
+        assertEquals(List.of(1.0, 2.0, 3.0, 4.0), crudos.stream().map(PuntoSerieDTO::getValor).toList());
+        List<PuntoSerieDTO> minuto = serie.consultar(0, Long.MAX_VALUE, ResolucionSerie.MINUTO);
+        assertEquals(1, minuto.size());
+        assertEquals(4, minuto.get(0).getConteo());
+    }
+}
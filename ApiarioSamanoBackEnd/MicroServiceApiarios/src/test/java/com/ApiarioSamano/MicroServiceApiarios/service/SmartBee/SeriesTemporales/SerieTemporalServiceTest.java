@@ -0,0 +1,152 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.SeriesTemporales;
+
+import com.ApiarioSamano.MicroServiceApiarios.dto.SensorDTO.HistorialSensorResponse;
+import com.ApiarioSamano.MicroServiceApiarios.dto.SensorDTO.PuntoSerieDTO;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SerieTemporalServiceTest {
+
+    private static final String DISPOSITIVO = "esp32-01";
+    private static final String SENSOR = "temperatura";
+    // Inicio de una hora cualquiera
+    private static final long T0 = 472_222L * SerieSensor.HORA_MS;
+
+    @TempDir
+    Path directorio;
+
+    private SerieTemporalService service;
+
+    @BeforeEach
+    void iniciar() {
+        service = nuevoService();
+    }
+
+    @Test
+    void serieSigueModificadaSiFallaElRenombrado() throws Exception {
+        service.registrar(DISPOSITIVO, SENSOR, 1_000L, 21.5);
+
+        // Un directorio no vacío con el nombre del archivo impide el move
+        Path destino = directorio.resolve(nombreArchivo(DISPOSITIVO, SENSOR));
+        Files.createDirectories(destino);
+        Files.writeString(destino.resolve("ocupado"), "x");
+
+        service.guardar();
+        assertTrue(serie(service).isModificada());
+
+        Files.delete(destino.resolve("ocupado"));
+        Files.delete(destino);
+
+        service.guardar();
+        assertFalse(serie(service).isModificada());
+        assertTrue(Files.isRegularFile(destino));
+    }
+
+    @Test
+    void guardarYCargarRestauraLasSeries() {
+        for (int i = 0; i < 3_000; i++) {
+            service.registrar(DISPOSITIVO, SENSOR, T0 + i * 5_000L, i % 50);
+            service.registrar(DISPOSITIVO, "humedad", T0 + i * 5_000L, 60 - i % 10);
+        }
+        service.guardar();
+
+        SerieTemporalService recargado = nuevoService();
+        recargado.cargar();
+
+        for (ResolucionSerie r : List.of(ResolucionSerie.CRUDO, ResolucionSerie.MINUTO, ResolucionSerie.HORA)) {
+            assertEquals(service.consultar(DISPOSITIVO, null, 0, Long.MAX_VALUE, r).getSeries(),
+                    recargado.consultar(DISPOSITIVO, null, 0, Long.MAX_VALUE, r).getSeries(), r.name());
+        }
+        assertFalse(serie(recargado).isModificada());
+    }
+
+    @Test
+    void retencionDescartaCrudosVencidosYConservaRollups() {
+        long ahora = System.currentTimeMillis();
+        long viejo = ahora - Duration.ofDays(3).toMillis();
+        for (int i = 0; i < SegmentoSerie.CAPACIDAD; i++) {
+            service.registrar(DISPOSITIVO, SENSOR, viejo + i * 1_000L, 1.0);
+        }
+        service.registrar(DISPOSITIVO, SENSOR, ahora, 2.0);
+
+        service.aplicarRetencion();
+
+        assertEquals(ahora, serie(service).primerTimestampCrudo());
+        assertEquals(List.of(2.0), service.consultar(DISPOSITIVO, SENSOR, 0, Long.MAX_VALUE, ResolucionSerie.CRUDO)
+                .getSeries().get(SENSOR).stream().map(PuntoSerieDTO::getValor).toList());
+        // El rollup por minuto retiene 14 días
+        assertEquals(viejo - Math.floorMod(viejo, SerieSensor.MINUTO_MS), serie(service).primerInicioMinuto());
+    }
+
+    @Test
+    void autoEligeResolucionSegunElRango() {
+        for (int i = 0; i < 10 * 24 * 60; i++) {
+            service.registrar(DISPOSITIVO, SENSOR, T0 + i * SerieSensor.MINUTO_MS, i);
+        }
+
+        assertEquals("raw", resolucionAuto(T0, T0 + Duration.ofHours(1).toMillis()));
+        assertEquals("1m", resolucionAuto(T0, T0 + Duration.ofDays(2).toMillis()));
+        assertEquals("1h", resolucionAuto(T0, T0 + Duration.ofDays(9).toMillis()));
+        // Ventana corta antes de los datos crudos: no hay minutos que la cubran
+        assertEquals("1h", resolucionAuto(T0 - Duration.ofHours(2).toMillis(), T0));
+    }
+
+    @Test
+    void autoUsaUnaSolaResolucionParaTodosLosSensores() {
+        for (int i = 0; i < 180; i++) {
+            service.registrar(DISPOSITIVO, SENSOR, T0 + i * SerieSensor.MINUTO_MS, i);
+        }
+        // Este sensor empezó dos horas después: sus crudos no cubren la ventana
+        for (int i = 120; i < 180; i++) {
+            service.registrar(DISPOSITIVO, "humedad", T0 + i * SerieSensor.MINUTO_MS, i);
+        }
+
+        HistorialSensorResponse respuesta = service.consultar(DISPOSITIVO, null, T0,
+                T0 + Duration.ofHours(3).toMillis(), ResolucionSerie.AUTO);
+
+        assertEquals("1h", respuesta.getResolucion());
+        assertEquals(3, respuesta.getSeries().get(SENSOR).size());
+        assertEquals(1, respuesta.getSeries().get("humedad").size());
+        assertEquals(T0 + 2 * SerieSensor.HORA_MS, respuesta.getSeries().get("humedad").get(0).getTimestamp());
+    }
+
+    private String resolucionAuto(long desde, long hasta) {
+        return service.consultar(DISPOSITIVO, SENSOR, desde, hasta, ResolucionSerie.AUTO).getResolucion();
+    }
+
+    private SerieTemporalService nuevoService() {
+        SerieTemporalService nuevo = new SerieTemporalService();
+        ReflectionTestUtils.setField(nuevo, "directorio", directorio.toString());
+        ReflectionTestUtils.setField(nuevo, "retencionCrudo", Duration.ofDays(2));
+        ReflectionTestUtils.setField(nuevo, "retencionMinuto", Duration.ofDays(14));
+        ReflectionTestUtils.setField(nuevo, "retencionHora", Duration.ofDays(365));
+        return nuevo;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SerieSensor serie(SerieTemporalService service) {
+        Map<String, Map<String, SerieSensor>> series =
+                (Map<String, Map<String, SerieSensor>>) ReflectionTestUtils.getField(service, "series");
+        return series.get(DISPOSITIVO).get(SENSOR);
+    }
+
+    private static String nombreArchivo(String dispositivoId, String sensor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (dispositivoId + "\u0000" + sensor).getBytes(StandardCharsets.UTF_8)) + ".serie";
+    }
+}
@@ -0,0 +1,99 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket;
+
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.TiposSensor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BandaMuertaTest {
+
+    private static final long SILENCIO_MS = 60_000;
+    private static final String DISPOSITIVO = "esp32-01";
+
+    private static final int HUMEDAD = 0;
+    private static final int PESO = 1;
+    private static final int TEMPERATURA = 2;
+
+    private final BandaMuerta banda = new BandaMuerta(
+            List.of("humedad_suelo=10%", "peso = 0.5", "mal_formada", "temperatura=0"), 0, SILENCIO_MS);
+
+    @Test
+    void bandaRelativaSeMideContraElUltimoEnviado() {
+        assertTrue(admitir(HUMEDAD, "humedad_suelo", 50, 0));
+        // 10 % de 50 = 5
+        assertFalse(admitir(HUMEDAD, "humedad_suelo", 54.9, 1));
+        assertFalse(admitir(HUMEDAD, "humedad_suelo", 45.1, 2));
+        // Deriva lenta: cada paso queda dentro de la banda de la lectura
+        // anterior, pero no de la última enviada
+        assertFalse(admitir(HUMEDAD, "humedad_suelo", 52, 3));
+        assertFalse(admitir(HUMEDAD, "humedad_suelo", 54, 4));
+        assertTrue(admitir(HUMEDAD, "humedad_suelo", 56, 5));
+        // Nueva referencia 56: la banda pasa a 5.6
+        assertFalse(admitir(HUMEDAD, "humedad_suelo", 61.5, 6));
+        assertTrue(admitir(HUMEDAD, "humedad_suelo", 61.7, 7));
+    }
+
+    @Test
+    void bandaRelativaConReferenciaNegativaOCero() {
+        assertTrue(admitir(HUMEDAD, "humedad_suelo", -20, 0));
+        // Se usa el valor absoluto: banda de 2
+        assertFalse(admitir(HUMEDAD, "humedad_suelo", -21.5, 1));
+        assertTrue(admitir(HUMEDAD, "humedad_suelo", -22.5, 2));
+
+        banda.reiniciar(DISPOSITIVO, HUMEDAD);
+        assertTrue(admitir(HUMEDAD, "humedad_suelo", 0, 3));
+        // Con referencia 0 la banda es 0: sólo se filtra el mismo valor
+        assertFalse(admitir(HUMEDAD, "humedad_suelo", 0, 4));
+        assertTrue(admitir(HUMEDAD, "humedad_suelo", 0.01, 5));
+    }
+
+    @Test
+    void bandaAbsolutaYPredeterminada() {
+        assertTrue(admitir(PESO, "peso", 30, 0));
+        assertFalse(admitir(PESO, "peso", 30.5, 1));
+        assertTrue(admitir(PESO, "peso", 30.6, 2));
+
+        // Banda 0, como la predeterminada: sólo cambios
+        assertTrue(admitir(TEMPERATURA, "temperatura", 21, 0));
+        assertFalse(admitir(TEMPERATURA, "temperatura", 21, 1));
+        assertTrue(admitir(TEMPERATURA, "temperatura", 21.01, 2));
+    }
+
+    @Test
+    void latidoTrasElSilencioMaximo() {
+        assertTrue(admitir(PESO, "peso", 30, 0));
+        assertFalse(admitir(PESO, "peso", 30, SILENCIO_MS - 1));
+        assertTrue(admitir(PESO, "peso", 30, SILENCIO_MS));
+        assertFalse(admitir(PESO, "peso", 30, SILENCIO_MS + 1));
+    }
+
+    @Test
+    void reiniciarYOlvidarDejanPasarElSiguiente() {
+        assertTrue(admitir(PESO, "peso", 30, 0));
+        banda.reiniciar(DISPOSITIVO, PESO);
+        assertTrue(admitir(PESO, "peso", 30, 1));
+
+        assertTrue(admitir(HUMEDAD, "humedad_suelo", 50, 2));
+        banda.olvidar(DISPOSITIVO);
+        assertTrue(admitir(PESO, "peso", 30, 3));
+        assertTrue(admitir(HUMEDAD, "humedad_suelo", 50, 4));
+
+        // Otros dispositivos llevan su propio último valor
+        assertTrue(banda.admitir("esp32-02", PESO, "peso", 30, 5));
+    }
+
+    @Test
+    void tipoFueraDeRangoSiemprePasa() {
+        assertTrue(admitir(-1, "peso", 30, 0));
+        assertTrue(admitir(TiposSensor.MAX_TIPOS, "peso", 30, 0));
+        assertTrue(admitir(TiposSensor.MAX_TIPOS, "peso", 30, 1));
+    }
+
+    private boolean admitir(int tipo, String sensor, double valor, long timestamp) {
+        return banda.admitir(DISPOSITIVO, tipo, sensor, valor, timestamp);
+    }
+}
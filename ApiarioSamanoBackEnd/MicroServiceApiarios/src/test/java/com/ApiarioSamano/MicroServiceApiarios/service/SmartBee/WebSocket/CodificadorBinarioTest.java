@@ -0,0 +1,240 @@
+package com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.WebSocket;
+
+import com.ApiarioSamano.MicroServiceApiarios.service.SmartBee.Estado.ValorSensor;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cada frame se decodifica con el formato documentado en CodificadorBinario
+ * y debe devolver las mismas lecturas, con el texto que saldría en JSON.
+ */
+class CodificadorBinarioTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    private final CodificadorBinario codificador = new CodificadorBinario(4096);
+    private final Decodificador decodificador = new Decodificador();
+
+    @Test
+    void zigzagYVarint() {
+        assertEquals(0, CodificadorBinario.zigzag(0));
+        assertEquals(1, CodificadorBinario.zigzag(-1));
+        assertEquals(2, CodificadorBinario.zigzag(1));
+        assertEquals(3, CodificadorBinario.zigzag(-2));
+        assertEquals(-1L, CodificadorBinario.zigzag(Long.MIN_VALUE));
+
+        assertArrayEquals(new byte[] { 0 }, varint(0));
+        assertArrayEquals(new byte[] { 0x7F }, varint(127));
+        assertArrayEquals(new byte[] { (byte) 0xAC, 0x02 }, varint(300));
+        assertEquals(10, varint(-1L).length);
+    }
+
+    @Test
+    void idaYVueltaConTodasLasClasesDeValor() {
+        List<LecturaSensorMensaje> lecturas = List.of(
+                lectura("esp32-a", "temperatura", 22.75, T0, 10),
+                lectura("esp32-a", "humedad_suelo", 41.0, T0 + 1_000, 11),
+                texto("esp32-a", "estado", "ABIERTA", T0 + 2_000, 12),
+                texto("esp32-a", "peso", "SENSOR_DESCONECTADO", T0 + 2_500, 13),
+                lectura("esp32-a", "contador", -17.0, T0 + 3_000, 14),
+                lectura("esp32-a", "grande", 1e300, T0 + 3_000, 15));
+
+        byte[] frame = codificador.codificar(lecturas);
+
+        assertEquals(CodificadorBinario.TIPO_LECTURAS, frame[0]);
+        assertEquals(CodificadorBinario.BANDERA_REINICIO, frame[1]);
+        assertEquals(esperado(lecturas), decodificador.decodificar(frame));
+    }
+
+    @Test
+    void deltasNegativosDeTimestampYSecuencia() {
+        // El segundo dispositivo va por detrás en el tiempo y su secuencia es
+        // menor: los deltas contra la lectura anterior son negativos
+        List<LecturaSensorMensaje> lecturas = List.of(
+                lectura("esp32-a", "temperatura", 20, T0 + 60_000, 500),
+                lectura("esp32-a", "temperatura", 21, T0 + 61_000, 501),
+                lectura("esp32-b", "temperatura", 19, T0, 3),
+                // Reenvío fuera de orden dentro del mismo dispositivo
+                lectura("esp32-b", "temperatura", 18, T0 - 5_000, 2));
+
+        assertEquals(esperado(lecturas), decodificador.decodificar(codificador.codificar(lecturas)));
+
+        // El siguiente frame parte del último timestamp del anterior
+        List<LecturaSensorMensaje> siguientes = List.of(lectura("esp32-a", "temperatura", 22, T0 - 10_000, 502));
+        byte[] frame = codificador.codificar(siguientes);
+        assertEquals(0, frame[1]);
+        assertEquals(esperado(siguientes), decodificador.decodificar(frame));
+    }
+
+    @Test
+    void elDiccionarioSeReutilizaEntreFrames() {
+        List<LecturaSensorMensaje> primero = List.of(lectura("esp32-a", "temperatura", 20, T0, 1));
+        List<LecturaSensorMensaje> segundo = List.of(lectura("esp32-a", "temperatura", 21, T0 + 1_000, 2));
+
+        byte[] frame1 = codificador.codificar(primero);
+        byte[] frame2 = codificador.codificar(segundo);
+
+        assertEquals(esperado(primero), decodificador.decodificar(frame1));
+        assertEquals(esperado(segundo), decodificador.decodificar(frame2));
+        assertEquals(0, frame2[1]);
+        // Dispositivo y sensor van como índices de un byte
+        assertTrue(frame2.length < frame1.length - "esp32-a".length() - "temperatura".length());
+    }
+
+    @Test
+    void reiniciarEmpiezaDiccionarioYBaseDesdeCero() {
+        decodificador.decodificar(codificador.codificar(List.of(lectura("esp32-a", "temperatura", 20, T0, 1))));
+
+        codificador.reiniciar();
+        List<LecturaSensorMensaje> tras = List.of(lectura("esp32-b", "humedad", 55, T0 + 5_000, 9));
+        byte[] frame = codificador.codificar(tras);
+
+        assertEquals(CodificadorBinario.BANDERA_REINICIO, frame[1]);
+        assertEquals(esperado(tras), decodificador.decodificar(frame));
+        // Un cliente que perdió el estado también lo decodifica
+        assertEquals(esperado(tras), new Decodificador().decodificar(frame));
+    }
+
+    @Test
+    void diccionarioLlenoSeReiniciaAntesDelFrame() {
+        CodificadorBinario chico = new CodificadorBinario(8);
+        List<String> salida = new ArrayList<>();
+        List<String> esperadas = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            List<LecturaSensorMensaje> lecturas = List.of(
+                    lectura("esp32-" + i, "sensor-" + i, i, T0 + i, i),
+                    lectura("esp32-" + i, "otro-" + i, i, T0 + i, i + 1));
+            byte[] frame = chico.codificar(lecturas);
+            if (i > 0 && i % 2 == 0) {
+                assertEquals(CodificadorBinario.BANDERA_REINICIO, frame[1], "frame " + i);
+            }
+            salida.addAll(decodificador.decodificar(frame));
+            esperadas.addAll(esperado(lecturas));
+        }
+
+        assertEquals(esperadas, salida);
+        assertTrue(decodificador.diccionario.size() <= 8);
+    }
+
+    private static LecturaSensorMensaje lectura(String dispositivo, String sensor, double valor, long ts,
+            long secuencia) {
+        LecturaSensorMensaje l = new LecturaSensorMensaje(dispositivo, "apiario", sensor, valor, ts);
+        l.asignarSecuencia(secuencia);
+        return l;
+    }
+
+    private static LecturaSensorMensaje texto(String dispositivo, String sensor, String valor, long ts,
+            long secuencia) {
+        LecturaSensorMensaje l = new LecturaSensorMensaje(dispositivo, "apiario", sensor, valor, ts);
+        l.asignarSecuencia(secuencia);
+        return l;
+    }
+
+    private static List<String> esperado(List<LecturaSensorMensaje> lecturas) {
+        List<String> textos = new ArrayList<>();
+        for (LecturaSensorMensaje l : lecturas) {
+            textos.add(linea(l.dispositivoId(), l.sensor(), l.getTimestamp(), l.getSecuencia(), l.getValor()));
+        }
+        return textos;
+    }
+
+    private static String linea(String dispositivo, String sensor, long ts, long secuencia, String valor) {
+        return dispositivo + "|" + sensor + "|" + ts + "|" + secuencia + "|" + valor;
+    }
+
+    private static byte[] varint(long valor) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CodificadorBinario.escribirVarint(out, valor);
+        return out.toByteArray();
+    }
+
+    /**
+     * Lado del cliente: mantiene diccionario y último timestamp entre frames.
+     * Con lecturas agrupadas por dispositivo, las líneas salen en el orden en
+     * que aparece cada dispositivo.
+     */
+    private static final class Decodificador {
+
+        final List<String> diccionario = new ArrayList<>();
+        long ultimoTimestamp;
+
+        List<String> decodificar(byte[] frame) {
+            ByteBuffer in = ByteBuffer.wrap(frame);
+            assertEquals(CodificadorBinario.TIPO_LECTURAS, in.get());
+            if ((in.get() & CodificadorBinario.BANDERA_REINICIO) != 0) {
+                diccionario.clear();
+                ultimoTimestamp = 0;
+            }
+
+            List<String> lineas = new ArrayList<>();
+            long dispositivos = varint(in);
+            for (int d = 0; d < dispositivos; d++) {
+                String dispositivo = ref(in);
+                long lecturas = varint(in);
+                long secuencia = 0;
+                for (int i = 0; i < lecturas; i++) {
+                    String sensor = ref(in);
+                    ultimoTimestamp += svarint(in);
+                    secuencia += svarint(in);
+                    lineas.add(linea(dispositivo, sensor, ultimoTimestamp, secuencia, valor(in)));
+                }
+            }
+            assertEquals(0, in.remaining());
+            return lineas;
+        }
+
+        private String valor(ByteBuffer in) {
+            int clase = in.get();
+            return switch (clase) {
+                case CodificadorBinario.CLASE_DOUBLE -> ValorSensor.formatear(in.getDouble());
+                case CodificadorBinario.CLASE_ENTERO -> ValorSensor.formatear(svarint(in));
+                case CodificadorBinario.CLASE_TEXTO -> texto(in);
+                case CodificadorBinario.CLASE_DESCONECTADO -> "SENSOR_DESCONECTADO";
+                default -> throw new AssertionError("clase desconocida " + clase);
+            };
+        }
+
+        private String ref(ByteBuffer in) {
+            long k = varint(in);
+            if (k > 0) {
+                return diccionario.get((int) k - 1);
+            }
+            String texto = texto(in);
+            diccionario.add(texto);
+            return texto;
+        }
+
+        private static String texto(ByteBuffer in) {
+            byte[] bytes = new byte[(int) varint(in)];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private static long svarint(ByteBuffer in) {
+            long v = varint(in);
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        private static long varint(ByteBuffer in) {
+            long valor = 0;
+            for (int desplazamiento = 0;; desplazamiento += 7) {
+                int b = in.get() & 0xFF;
+                valor |= (long) (b & 0x7F) << desplazamiento;
+                if ((b & 0x80) == 0) {
+                    return valor;
+                }
+            }
+        }
+    }
+}
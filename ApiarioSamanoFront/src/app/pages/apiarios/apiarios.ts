@@ -1,8 +1,10 @@
-import { Component, OnInit, ChangeDetectorRef } from '@angular/core';
-import { ApiarioService, DispositivosMap, Dispositivo } from '../../services/apiariosService/apiario-service';
+import { Component, OnInit, OnDestroy, ChangeDetectorRef } from '@angular/core';
+import { Subscription } from 'rxjs';
+import { ApiarioService, DispositivosMap, Dispositivo, EventoHistorialMedico } from '../../services/apiariosService/apiario-service';
 import { MedicamentosService, MedicamentosResponse } from '../../services/almaceneService/MedicamentosService/medicamentos-service';
 import { ToastService } from '../../services/toastService/toast-service';
 import { IaService } from '../../services/apiariosService/IAService/ia-service';
+import { SensoresWsService } from '../../services/apiariosService/sensores-ws-service';
 
 // Interfaces actualizadas según el servicio
 interface RecetaMedicamento {
@@ -91,7 +93,7 @@ interface SugerenciaIA {
   templateUrl: './apiarios.html',
   styleUrl: './apiarios.css'
 })
-export class Apiarios implements OnInit {
+export class Apiarios implements OnInit, OnDestroy {
   // Estado de la aplicación
   apiarios: Apiario[] = [];
   apiarioSeleccionado: Apiario | null = null;
@@ -101,6 +103,11 @@ export class Apiarios implements OnInit {
   cargandoHistorial: boolean = false;
   mostrarHistorialCompleto: boolean = false;
 
+  // 📜 Eventos del historial médico del apiario seleccionado
+  eventosHistorial: EventoHistorialMedico[] = [];
+  siguienteEventoHistorial: number | null = null;
+  cargandoEventosHistorial: boolean = false;
+
 isApiarioOpening: boolean = false;
 
   
@@ -163,6 +170,7 @@ isApiarioOpening: boolean = false;
   servo1Grados: number = 90;
   servo2Grados: number = 110;
   datosSensores: DatosSensores = {};
+  private sensoresSub: Subscription | null = null;
 
   // Carga de chat
   cargandoChat: boolean = false;
@@ -173,6 +181,7 @@ isApiarioOpening: boolean = false;
     private toastService: ToastService,
     private cdRef: ChangeDetectorRef,
     private iaService: IaService,
+    private sensoresWsService: SensoresWsService,
   ) {}
 
   ngOnInit(): void {
@@ -183,13 +192,18 @@ isApiarioOpening: boolean = false;
     this.inicializarGestionESP32();
   }
 
+  ngOnDestroy(): void {
+    this.detenerDatosSensores();
+  }
+
   // ==================== CARGA DE MEDICAMENTOS ====================
   
 cargarDatosSensores(idApiario: string): void {
-  this.apiarioService.obtenerDatosSensores(idApiario).subscribe({
+  // Instantánea al conectar y después cada lectura por WebSocket (sin polling)
+  this.detenerDatosSensores();
+  this.sensoresSub = this.sensoresWsService.observarDatosSensores(idApiario).subscribe({
     next: (datos) => {
       this.datosSensores = datos;
-      console.log('📊 Datos de sensores:', datos);
       this.cdRef.detectChanges();
     },
     error: (error) => {
@@ -199,6 +213,11 @@ cargarDatosSensores(idApiario: string): void {
   });
 }
 
+detenerDatosSensores(): void {
+  this.sensoresSub?.unsubscribe();
+  this.sensoresSub = null;
+}
+
 obtenerHistorialCompleto(): void {
   if (!this.apiarioSeleccionado) {
     this.toastService.warning('Selección requerida', 'Selecciona un apiario primero');
@@ -710,12 +729,10 @@ obtenerSensores(): any[] {
       
       // Obtener estado actual de los componentes
       this.obtenerEstadoDispositivo();
-      setInterval(() => {
-      if (this.apiarioSeleccionado?.dispositivoId) {
-        this.cargarDatosSensores(this.apiarioSeleccionado.dispositivoId);
-      }
-    }, 1000);
+      this.cargarDatosSensores(this.apiarioSeleccionado.dispositivoId);
     } else {
+      this.detenerDatosSensores();
+      this.datosSensores = {};
       this.resetearControles();
       this.datosDispositivo = null;
     }
@@ -898,11 +915,48 @@ getEstadoCompuerta(grados: number): string {
   seleccionarApiario(apiario: Apiario): void {
     this.apiarioSeleccionado = apiario;
     this.inicializarGestionESP32();
+    this.cargarEventosHistorial();
     
     // ✅ DETECCIÓN ESTRATÉGICA: Solo una vez después de cambiar la selección
     this.cdRef.detectChanges();
   }
 
+  // ==================== EVENTOS DEL HISTORIAL ====================
+
+  // Sin "masEventos" empieza desde el primero; con él pide la página siguiente
+  cargarEventosHistorial(masEventos: boolean = false): void {
+    const historial = this.apiarioSeleccionado?.historialMedico;
+    if (!masEventos) {
+      this.eventosHistorial = [];
+      this.siguienteEventoHistorial = null;
+    }
+    if (!historial) {
+      return;
+    }
+
+    this.cargandoEventosHistorial = true;
+    const after = masEventos ? this.siguienteEventoHistorial : null;
+    this.apiarioService.obtenerEventosHistorial(historial.id, after).subscribe({
+      next: (response) => {
+        // La selección pudo cambiar mientras llegaba la respuesta
+        if (this.apiarioSeleccionado?.historialMedico?.id !== historial.id) {
+          return;
+        }
+        if (response.codigo === 200 && response.data) {
+          this.eventosHistorial = [...this.eventosHistorial, ...response.data.eventos];
+          this.siguienteEventoHistorial = response.data.siguiente;
+        }
+        this.cargandoEventosHistorial = false;
+        this.cdRef.detectChanges();
+      },
+      error: (err: any) => {
+        console.error('❌ Error al obtener eventos del historial:', err);
+        this.cargandoEventosHistorial = false;
+        this.cdRef.detectChanges();
+      }
+    });
+  }
+
   // ==================== MODAL APIARIO ====================
 
   abrirModalApiario(apiario?: Apiario): void {
@@ -1243,6 +1297,7 @@ getEstadoCompuerta(grados: number): string {
             const apiarioActualizado = this.apiarios.find(a => a.id === apiario.id);
             if (apiarioActualizado) {
               this.apiarioSeleccionado = apiarioActualizado;
+              this.cargarEventosHistorial();
               // ✅ DETECCIÓN ESTRATÉGICA: Solo si se actualiza el apiario seleccionado
               this.cdRef.detectChanges();
             }
@@ -94,6 +94,20 @@ export interface HistorialMedico {
   notas: string;
 }
 
+export interface EventoHistorialMedico {
+  id: number;
+  idHistorialMedico: number;
+  tipo: 'NOTA' | 'RECETA_CUMPLIDA' | string;
+  descripcion: string;
+  idReceta: number | null;
+  fecha: string;
+}
+
+export interface PaginaEventosHistorial {
+  eventos: EventoHistorialMedico[];
+  siguiente: number | null; // 🔹 Cursor para ?after=; null si no hay más
+}
+
 export interface HistorialRecetas {
   id: number;
   historialMedico: HistorialMedico;
@@ -226,6 +240,18 @@ export class ApiarioService {
     );
   }
 
+  // 📜 Eventos del historial médico, por páginas (after = último id recibido)
+  obtenerEventosHistorial(idHistorial: number, after?: number | null, limit: number = 50): Observable<CodigoResponse<PaginaEventosHistorial>> {
+    let url = `${this.apiUrl}/historial-medico/${idHistorial}/eventos?limit=${limit}`;
+    if (after) {
+      url += `&after=${after}`;
+    }
+    return this.http.get<CodigoResponse<PaginaEventosHistorial>>(
+      url,
+      { headers: this.getHeaders() }
+    );
+  }
+
   // ===========================
   // VINCULACIÓN DE DISPOSITIVOS
   // ===========================
@@ -0,0 +1,16 @@
+import { TestBed } from '@angular/core/testing';
+
+import { SensoresWsService } from './sensores-ws-service';
+
+describe('SensoresWsService', () => {
+  let service: SensoresWsService;
+
+  beforeEach(() => {
+    TestBed.configureTestingModule({});
+    service = TestBed.inject(SensoresWsService);
+  });
+
+  it('should be created', () => {
+    expect(service).toBeTruthy();
+  });
+});
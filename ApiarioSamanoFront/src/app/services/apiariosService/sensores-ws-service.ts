@@ -0,0 +1,126 @@
+import { Injectable } from '@angular/core';
+import { Observable } from 'rxjs';
+import { DatosSensores } from './apiario-service';
+
+const DESCONECTADO = 'SENSOR_DESCONECTADO';
+
+@Injectable({
+  providedIn: 'root'
+})
+export class SensoresWsService {
+
+  private wsUrl = 'ws://localhost:8082/ws/sensores';
+
+  // 📡 Sensores de un DISPOSITIVO en vivo por /ws/sensores.
+  // Al conectar llega la instantánea del estado actual y luego cada lectura.
+  // Si se cae la conexión se reconecta con la época y la última secuencia
+  // vistas, así el servidor reenvía lo que faltó (o una instantánea nueva).
+  observarDatosSensores(dispositivoId: string): Observable<DatosSensores> {
+    return new Observable<DatosSensores>(observer => {
+      if (typeof WebSocket === 'undefined') {
+        observer.complete();
+        return;
+      }
+
+      const datos: { [sensor: string]: string } = {};
+      const seqPorSensor: { [sensor: string]: number } = {};
+      let epoca = '';
+      let ultimaSeq = 0;
+      let intentos = 0;
+      let cerrado = false;
+      let ws: WebSocket | null = null;
+      let reconexion: ReturnType<typeof setTimeout> | null = null;
+
+      const emitir = () => observer.next({ ...datos } as DatosSensores);
+
+      // Sólo se aplica una lectura más nueva que la última de ese sensor:
+      // un reenvío puede traer lecturas que ya llegaron
+      const aplicar = (sensor: string, valor: string, seq: number): boolean => {
+        if (seq <= (seqPorSensor[sensor] ?? 0)) {
+          return false;
+        }
+        seqPorSensor[sensor] = seq;
+        if (valor === DESCONECTADO) {
+          delete datos[sensor];
+        } else {
+          datos[sensor] = valor;
+        }
+        return true;
+      };
+
+      const aplicarInstantanea = (mensaje: any) => {
+        if (mensaje.epoca !== epoca) {
+          epoca = mensaje.epoca;
+          ultimaSeq = 0;
+          Object.keys(seqPorSensor).forEach(s => delete seqPorSensor[s]);
+        }
+        for (const dispositivo of mensaje.dispositivos ?? []) {
+          if (dispositivo.dispositivoId !== dispositivoId) {
+            continue;
+          }
+          const seq = Number(dispositivo.seq);
+          Object.keys(datos).forEach(s => delete datos[s]);
+          Object.keys(seqPorSensor).forEach(s => delete seqPorSensor[s]);
+          for (const lectura of dispositivo.sensores ?? []) {
+            seqPorSensor[lectura.sensor] = seq;
+            if (lectura.valor !== DESCONECTADO) {
+              datos[lectura.sensor] = lectura.valor;
+            }
+          }
+          ultimaSeq = seq;
+          emitir();
+        }
+      };
+
+      const conectar = () => {
+        let url = `${this.wsUrl}?dispositivos=${encodeURIComponent(dispositivoId)}`;
+        if (epoca) {
+          url += `&epoca=${epoca}&desde=${encodeURIComponent(dispositivoId + ':' + ultimaSeq)}`;
+        }
+
+        ws = new WebSocket(url);
+        ws.onopen = () => {
+          intentos = 0;
+        };
+        ws.onmessage = (evento: MessageEvent) => {
+          let mensaje: any;
+          try {
+            mensaje = JSON.parse(evento.data);
+          } catch {
+            return;
+          }
+          if (mensaje.tipo === 'instantanea') {
+            aplicarInstantanea(mensaje);
+            return;
+          }
+          // Alertas y respuestas de control no traen secuencia
+          if (mensaje.dispositivoId !== dispositivoId || mensaje.seq === undefined) {
+            return;
+          }
+          const seq = Number(mensaje.seq);
+          ultimaSeq = Math.max(ultimaSeq, seq);
+          if (aplicar(mensaje.sensor, mensaje.valor, seq)) {
+            emitir();
+          }
+        };
+        ws.onclose = () => {
+          if (cerrado) {
+            return;
+          }
+          const espera = Math.min(30000, 1000 * 2 ** intentos++);
+          reconexion = setTimeout(conectar, espera);
+        };
+      };
+
+      conectar();
+
+      return () => {
+        cerrado = true;
+        if (reconexion) {
+          clearTimeout(reconexion);
+        }
+        ws?.close();
+      };
+    });
+  }
+}